@@ -0,0 +1,220 @@
+package uk.co.o2.json.schema;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+
+/*
+    Writes the schemas used by the benchmarks to a temporary directory, and builds matching documents. Each shape
+    has a valid document and an invalid one. Apart from the small document, the invalid ones break a few constraints
+    near the end, so validation does most of its work before finding them.
+ */
+public final class BenchmarkSchemas {
+    public enum Shape {
+        /* a handful of properties covering strings, numbers, arrays and a union */
+        SMALL,
+        /* one object with hundreds of properties */
+        WIDE,
+        /* objects nested dozens of levels deep */
+        DEEP,
+        /* an array of thousands of small objects */
+        LARGE,
+        /* properties that are all references to other documents, which reference further documents in turn */
+        REFERENCES,
+        /* strings and numbers checked against every supported format */
+        FORMATS
+    }
+
+    private static final int WIDE_PROPERTIES = 200;
+    private static final int DEEP_LEVELS = 30;
+    private static final int LARGE_ITEMS = 2000;
+    private static final int REFERENCED_DOCUMENTS = 20;
+    private static final int REFERENCE_ITEMS = 50;
+
+    private static final String SMALL_SCHEMA = "{\"type\": \"object\", \"properties\": {" +
+            "\"name\": {\"type\": \"string\", \"required\": true, \"minLength\": 1, \"maxLength\": 64}," +
+            "\"age\": {\"type\": \"integer\", \"minimum\": 0, \"maximum\": 150}," +
+            "\"email\": {\"type\": \"string\", \"pattern\": \"[^@]+@[^@]+\"}," +
+            "\"tier\": {\"type\": \"string\", \"enumeration\": [\"gold\", \"silver\", \"bronze\"]}," +
+            "\"tags\": {\"type\": \"array\", \"maxItems\": 8, \"items\": {\"type\": \"string\"}}," +
+            "\"contact\": {\"type\": [\"null\", \"string\", {\"type\": \"object\", \"properties\": {\"phone\": {\"type\": \"string\", \"required\": true}}}]}}}";
+
+    private final File directory;
+
+    public BenchmarkSchemas() throws IOException {
+        directory = File.createTempFile("benchmark-schemas", "");
+        if (!directory.delete() || !directory.mkdir()) {
+            throw new IOException("Could not create " + directory);
+        }
+        write("small.json", SMALL_SCHEMA);
+        write("wide.json", wideSchema());
+        write("deep.json", deepSchema());
+        write("large.json", "{\"type\": \"array\", \"items\": " + SMALL_SCHEMA + "}");
+        write("formats.json", "{\"type\": \"array\", \"items\": {\"type\": \"object\", \"properties\": {" +
+                "\"date\": {\"type\": \"string\", \"format\": \"date\"}," +
+                "\"dateTime\": {\"type\": \"string\", \"format\": \"date-time\"}," +
+                "\"time\": {\"type\": \"string\", \"format\": \"time\"}," +
+                "\"millis\": {\"type\": \"integer\", \"format\": \"utc-millisec\"}," +
+                "\"uri\": {\"type\": \"string\", \"format\": \"uri\"}," +
+                "\"regex\": {\"type\": \"string\", \"format\": \"regex\"}}}}");
+        writeReferenceSchemas();
+    }
+
+    public URL getSchemaLocation(Shape shape) throws IOException {
+        return new File(directory, shape.name().toLowerCase() + ".json").toURI().toURL();
+    }
+
+    public String getDocument(Shape shape, boolean valid) {
+        switch (shape) {
+            case SMALL:
+                return smallDocument(0, valid);
+            case WIDE:
+                return wideDocument(valid);
+            case DEEP:
+                return deepDocument(valid);
+            case LARGE:
+                return largeDocument(valid);
+            case REFERENCES:
+                return referencesDocument(valid);
+            default:
+                return formatsDocument(valid);
+        }
+    }
+
+    public void delete() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private static String wideSchema() {
+        StringBuilder schema = new StringBuilder("{\"type\": \"object\", \"properties\": {");
+        for (int i = 0; i < WIDE_PROPERTIES; i++) {
+            schema.append((i == 0) ? "" : ",").append("\"p").append(i).append("\": ");
+            switch (i % 4) {
+                case 0:
+                    schema.append("{\"type\": \"string\", \"maxLength\": 32}");
+                    break;
+                case 1:
+                    schema.append("{\"type\": \"integer\", \"minimum\": 0}");
+                    break;
+                case 2:
+                    schema.append("{\"type\": \"number\", \"required\": true}");
+                    break;
+                default:
+                    schema.append("{\"type\": \"boolean\"}");
+            }
+        }
+        return schema.append("}}").toString();
+    }
+
+    private static String wideDocument(boolean valid) {
+        StringBuilder document = new StringBuilder("{");
+        for (int i = 0; i < WIDE_PROPERTIES; i++) {
+            boolean broken = !valid && (i >= WIDE_PROPERTIES - 8);
+            document.append((i == 0) ? "" : ",").append("\"p").append(i).append("\": ");
+            switch (i % 4) {
+                case 0:
+                    document.append(broken ? "1" : "\"value" + i + "\"");
+                    break;
+                case 1:
+                    document.append(broken ? -i : i);
+                    break;
+                case 2:
+                    document.append(broken ? "\"x\"" : i + ".5");
+                    break;
+                default:
+                    document.append(broken ? "null" : "true");
+            }
+        }
+        return document.append("}").toString();
+    }
+
+    private static String deepSchema() {
+        String schema = "{\"type\": \"object\", \"properties\": {\"leaf\": {\"type\": \"string\", \"required\": true}}}";
+        for (int i = 0; i < DEEP_LEVELS; i++) {
+            schema = "{\"type\": \"object\", \"properties\": {\"id\": {\"type\": \"integer\"}, \"child\": " + schema + "}}";
+        }
+        return schema;
+    }
+
+    private static String deepDocument(boolean valid) {
+        String document = valid ? "{\"leaf\": \"end\"}" : "{\"leaf\": 1}";
+        for (int i = 0; i < DEEP_LEVELS; i++) {
+            document = "{\"id\": " + i + ", \"child\": " + document + "}";
+        }
+        return document;
+    }
+
+    private static String smallDocument(int index, boolean valid) {
+        if (!valid) {
+            return "{\"name\": \"\", \"age\": 200, \"email\": \"nobody\", \"tier\": \"tin\", \"tags\": [\"a\", 1], \"contact\": {}}";
+        }
+        return "{\"name\": \"customer " + index + "\", \"age\": " + (index % 100) + ", \"email\": \"c" + index + "@example.com\"," +
+                " \"tier\": \"gold\", \"tags\": [\"new\", \"online\"], \"contact\": {\"phone\": \"0123456789\"}}";
+    }
+
+    private static String largeDocument(boolean valid) {
+        StringBuilder document = new StringBuilder("[");
+        for (int i = 0; i < LARGE_ITEMS; i++) {
+            document.append((i == 0) ? "" : ",").append(smallDocument(i, valid || (i < LARGE_ITEMS - 1)));
+        }
+        return document.append("]").toString();
+    }
+
+    /*
+        references.json is an array of objects whose properties refer to part0.json to part19.json, each of which
+        refers to name.json for one of its properties
+     */
+    private void writeReferenceSchemas() throws IOException {
+        write("name.json", "{\"type\": \"string\", \"minLength\": 1}");
+        StringBuilder item = new StringBuilder("{\"type\": \"object\", \"properties\": {");
+        for (int i = 0; i < REFERENCED_DOCUMENTS; i++) {
+            write("part" + i + ".json", "{\"type\": \"object\", \"properties\": {\"name\": {\"$ref\": \"name.json\"}, \"count\": {\"type\": \"integer\"}}}");
+            item.append((i == 0) ? "" : ",").append("\"part").append(i).append("\": {\"$ref\": \"part").append(i).append(".json\"}");
+        }
+        write("references.json", "{\"type\": \"array\", \"items\": " + item.append("}}") + "}");
+    }
+
+    private static String referencesDocument(boolean valid) {
+        StringBuilder document = new StringBuilder("[");
+        for (int i = 0; i < REFERENCE_ITEMS; i++) {
+            document.append((i == 0) ? "{" : ",{");
+            for (int part = 0; part < REFERENCED_DOCUMENTS; part++) {
+                boolean broken = !valid && (i == REFERENCE_ITEMS - 1) && (part % 5 == 0);
+                document.append((part == 0) ? "" : ",").append("\"part").append(part).append("\": {\"name\": \"")
+                        .append(broken ? "" : "n" + part).append("\", \"count\": ").append(broken ? "0.5" : String.valueOf(i)).append('}');
+            }
+            document.append('}');
+        }
+        return document.append("]").toString();
+    }
+
+    private static String formatsDocument(boolean valid) {
+        StringBuilder document = new StringBuilder("[");
+        for (int i = 0; i < 500; i++) {
+            boolean broken = !valid && (i == 499);
+            document.append((i == 0) ? "" : ",")
+                    .append("{\"date\": \"").append(broken ? "2013-02-30" : "2013-02-2" + (i % 9)).append('"')
+                    .append(", \"dateTime\": \"").append(broken ? "2013-02-28T25:00:00Z" : "2013-02-28T12:3" + (i % 10) + ":00Z").append('"')
+                    .append(", \"time\": \"").append(broken ? "12:60:00" : "12:3" + (i % 10) + ":00").append('"')
+                    .append(", \"millis\": ").append(broken ? "\"soon\"" : String.valueOf(1361000000000L + i))
+                    .append(", \"uri\": \"").append(broken ? "http://exa mple.com/" : "http://example.com/item/" + i).append('"')
+                    .append(", \"regex\": \"").append(broken ? "[a-" : "[a-z]{" + (i % 5) + "}").append("\"}");
+        }
+        return document.append("]").toString();
+    }
+
+    private void write(String name, String content) throws IOException {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(new File(directory, name)), "UTF-8")) {
+            writer.write(content);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package uk.co.o2.json.schema;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+    Compiling a schema from scratch each time, including reading the documents and any documents they reference,
+    on a fresh cache so nothing is shared between invocations
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SchemaCompilerBenchmark {
+    @Param({"SMALL", "WIDE", "DEEP", "REFERENCES", "FORMATS"})
+    public BenchmarkSchemas.Shape shape;
+
+    private final JsonFactory factory = new JsonFactory(new ObjectMapper());
+    private BenchmarkSchemas schemas;
+    private URL schemaLocation;
+
+    @Setup
+    public void setUp() throws IOException {
+        schemas = new BenchmarkSchemas();
+        schemaLocation = schemas.getSchemaLocation(shape);
+    }
+
+    @TearDown
+    public void tearDown() {
+        schemas.delete();
+    }
+
+    @Benchmark
+    public JsonSchema parse() {
+        return new SchemaCompiler(new SchemaPassThroughCache(factory), factory).parse(schemaLocation);
+    }
+}
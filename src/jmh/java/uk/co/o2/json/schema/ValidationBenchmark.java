@@ -0,0 +1,113 @@
+package uk.co.o2.json.schema;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+    Validating parsed trees and token streams against compiled schemas of each shape, on each of the validation
+    backends. Documents are parsed once in setup, except by the streaming benchmark, which reads the bytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+    public enum Backend {
+        /* the compiled schema objects */
+        TREE,
+        /* a validator class generated at runtime */
+        GENERATED,
+        /* the flat instruction array */
+        INSTRUCTIONS
+    }
+
+    @Param({"SMALL", "WIDE", "DEEP", "LARGE", "REFERENCES", "FORMATS"})
+    public BenchmarkSchemas.Shape shape;
+
+    @Param({"true", "false"})
+    public boolean valid;
+
+    @Param({"TREE", "GENERATED", "INSTRUCTIONS"})
+    public Backend backend;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final JsonFactory factory = new JsonFactory(mapper);
+    private BenchmarkSchemas schemas;
+    private ExtendedJsonSchema schema;
+    private JsonNode document;
+    private byte[] documentBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        schemas = new BenchmarkSchemas();
+        SchemaPassThroughCache cache = new SchemaPassThroughCache(factory);
+        cache.setCodeGeneration(backend == Backend.GENERATED);
+        cache.setInstructionInterpreter(backend == Backend.INSTRUCTIONS);
+        //preloading generates the class up front, which getSchema would leave to a background thread
+        cache.preload(Collections.singletonList(schemas.getSchemaLocation(shape)));
+        schema = (ExtendedJsonSchema) cache.getSchema(schemas.getSchemaLocation(shape));
+        if ((backend != Backend.TREE) && (schema == cache.peekSchema(schemas.getSchemaLocation(shape)))) {
+            throw new IllegalStateException("The " + backend + " backend is not available here");
+        }
+
+        String text = schemas.getDocument(shape, valid);
+        document = mapper.readTree(text);
+        documentBytes = text.getBytes("UTF-8");
+        if (schema.validate(document).isEmpty() != valid) {
+            throw new IllegalStateException("The " + shape + " document does not have the expected validity");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        schemas.delete();
+    }
+
+    @Benchmark
+    public List<ErrorMessage> validateTree() {
+        return schema.validate(document);
+    }
+
+    @Benchmark
+    public boolean isValid() {
+        return schema.isValid(document);
+    }
+
+    /*
+        Includes tokenizing the document, since that is what the streaming path saves building a tree for
+     */
+    @Benchmark
+    public List<ErrorMessage> validateStream() throws IOException {
+        return schema.validate(factory.createJsonParser(documentBytes));
+    }
+
+    /*
+        Stops at the first error, as a caller limiting errors would
+     */
+    @Benchmark
+    public List<ErrorMessage> validateFirstError() {
+        ErrorCollector errors = new ErrorCollector(1);
+        schema.validate(document, errors);
+        return errors.getErrors();
+    }
+}
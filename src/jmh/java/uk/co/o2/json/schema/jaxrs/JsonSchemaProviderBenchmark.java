@@ -0,0 +1,78 @@
+package uk.co.o2.json.schema.jaxrs;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.co.o2.json.schema.BenchmarkSchemas;
+
+/*
+    A request body read by the provider: validated from the stream, then bound to plain maps and lists, or rejected with a 400
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSchemaProviderBenchmark {
+    @Param({"SMALL", "WIDE", "LARGE"})
+    public BenchmarkSchemas.Shape shape;
+
+    @Param({"true", "false"})
+    public boolean valid;
+
+    private BenchmarkSchemas schemas;
+    private JsonSchemaProvider provider;
+    private Annotation[] annotations;
+    private byte[] document;
+
+    @Setup
+    public void setUp() throws Exception {
+        schemas = new BenchmarkSchemas();
+        final URL location = schemas.getSchemaLocation(shape);
+        provider = new JsonSchemaProvider(new SchemaLookup() {
+            @Override
+            public URL getSchemaURL(String schemaLocation) {
+                return location;
+            }
+        });
+        annotations = getClass().getMethod("annotated", String.class).getParameterAnnotations()[0];
+        document = schemas.getDocument(shape, valid).getBytes("UTF-8");
+    }
+
+    @TearDown
+    public void tearDown() {
+        schemas.delete();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Benchmark
+    public Object readFrom() throws IOException {
+        try {
+            return provider.readFrom((Class) Object.class, Object.class, annotations, MediaType.APPLICATION_JSON_TYPE, null, new ByteArrayInputStream(document));
+        } catch (WebApplicationException e) {
+            return e.getResponse();
+        }
+    }
+
+    public void annotated(@Schema("benchmark") String body) {
+    }
+}
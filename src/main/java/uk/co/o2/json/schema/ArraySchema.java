@@ -1,13 +1,15 @@
 package uk.co.o2.json.schema;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.List;
 
-import static uk.co.o2.json.schema.ErrorMessage.singleError;
+import static uk.co.o2.json.schema.JsonSchemaAdapter.extend;
 
-class ArraySchema implements JsonSchema {
+class ArraySchema implements StreamingSchema {
 
     private JsonSchema items;
     private int maxItems;
@@ -21,23 +23,72 @@ class ArraySchema implements JsonSchema {
 
     @Override
     public List<ErrorMessage> validate(JsonNode jsonDocument) {
-        List<ErrorMessage> results = new ArrayList<>();
+        ErrorCollector errors = new ErrorCollector();
+        validate(jsonDocument, errors);
+        return errors.getErrors();
+    }
+
+    @Override
+    public void validate(JsonNode jsonDocument, ErrorSink errors) {
         if (!isAcceptableType(jsonDocument)) {
-            return singleError("", "Invalid type: must be an array");
+            errors.addError("Invalid type: must be an array");
+            return;
+        }
+        int size = jsonDocument.size();
+        if ((maxItems != 0) && (size > maxItems)) {
+            errors.addError(String.format("Current array size of %d is greater than allowed maximum array size of %d", size, maxItems));
+            return;
         }
-        if ((maxItems != 0) && (jsonDocument.size() > maxItems)) {
-            return singleError("", "Current array size of %d is greater than allowed maximum array size of %d", jsonDocument.size(), maxItems);
+
+        if ((minItems != 0) && (size < minItems)) {
+            errors.addError(String.format("Current array size of %d is less than allowed minimum array size of %d", size, minItems));
+            return;
+        }
+
+        for (int index = 0; (index < size) && !errors.isTruncated(); index++) {
+            errors.enterIndex(index);
+            extend(items).validate(jsonDocument.get(index), errors);
+            errors.exit();
         }
+    }
 
-        if ((minItems != 0) && (jsonDocument.size() < minItems)) {
-            return singleError("", "Current array size of %d is less than allowed minimum array size of %d", jsonDocument.size(), minItems);
+    @Override
+    public boolean isValid(JsonNode jsonDocument) {
+        if (!isAcceptableType(jsonDocument)) {
+            return false;
+        }
+        int size = jsonDocument.size();
+        if (((maxItems != 0) && (size > maxItems)) || ((minItems != 0) && (size < minItems))) {
+            return false;
+        }
+        for (int index = 0; index < size; index++) {
+            if (!extend(items).isValid(jsonDocument.get(index))) {
+                return false;
+            }
         }
+        return true;
+    }
+
+    @Override
+    public List<ErrorMessage> validate(JsonParser parser) throws IOException {
+        ErrorCollector errors = new ErrorCollector();
+        validate(parser, errors);
+        return errors.getErrors();
+    }
 
-        int index = 0;
-        for(JsonNode item : jsonDocument) {
-            results.addAll(generateNestedErrorMessages(index++, items.validate(item)));
+    @Override
+    public void validate(JsonParser parser, ErrorSink errors) throws IOException {
+        StreamingValidator.validate(this, parser, errors);
+    }
+
+    @Override
+    public void startValue(JsonParser parser, StreamingValidator validator) {
+        if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+            validator.getErrors().addError("Invalid type: must be an array");
+            validator.skipValue(parser);
+            return;
         }
-        return results;
+        validator.push(new ArrayFrame(validator.getErrors()));
     }
 
     @Override
@@ -50,15 +101,6 @@ class ArraySchema implements JsonSchema {
         return jsonDocument.isArray();
     }
 
-    private List<ErrorMessage> generateNestedErrorMessages(int index, List<ErrorMessage> errorMessages) {
-        List<ErrorMessage> nestedResults = new ArrayList<>();
-        String pathPrefix = "[" + index + "]";
-        for(ErrorMessage error: errorMessages) {
-            nestedResults.add(new ErrorMessage(pathPrefix, error));
-        }
-        return nestedResults;
-    }
-
     void setItems(JsonSchema items) {
         this.items = items;
     }
@@ -82,4 +124,63 @@ class ArraySchema implements JsonSchema {
     int getMinItems() {
         return minItems;
     }
+
+    private final class ArrayFrame extends StreamingValidator.Frame {
+        //item errors are only reported when the size is acceptable, so they are held back until the array closes
+        private final boolean sizeIsLimited = (maxItems != 0) || (minItems != 0);
+        private int size;
+        private boolean itemEntered;
+        private boolean tooLarge;
+
+        ArrayFrame(ErrorSink errors) {
+            if (sizeIsLimited) {
+                errors.beginDeferred();
+            }
+        }
+
+        @Override
+        void onToken(JsonParser parser, StreamingValidator validator) throws IOException {
+            ErrorSink errors = validator.getErrors();
+            if (parser.getCurrentToken() == JsonToken.END_ARRAY) {
+                endArray(errors);
+                validator.pop();
+            } else if (tooLarge || errors.isTruncated()) {
+                itemEntered = false;
+                validator.skipValue(parser);
+            } else {
+                itemEntered = true;
+                errors.enterIndex(size);
+                validator.startValue(items, parser);
+            }
+        }
+
+        /*
+            Once there are too many items only the size is reported, so the rest are skipped rather than validated
+            into errors that would be thrown away
+         */
+        @Override
+        void childEnded(StreamingValidator validator) {
+            if (itemEntered) {
+                validator.getErrors().exit();
+            }
+            size++;
+            if (!tooLarge && (maxItems != 0) && (size > maxItems)) {
+                tooLarge = true;
+                validator.getErrors().discardDeferred();
+            }
+        }
+
+        private void endArray(ErrorSink errors) {
+            if (tooLarge) {
+                errors.addError(String.format("Current array size of %d is greater than allowed maximum array size of %d", size, maxItems));
+            } else if (!sizeIsLimited) {
+                return;
+            } else if ((minItems != 0) && (size < minItems)) {
+                errors.discardDeferred();
+                errors.addError(String.format("Current array size of %d is less than allowed minimum array size of %d", size, minItems));
+            } else {
+                errors.endDeferred();
+            }
+        }
+    }
 }
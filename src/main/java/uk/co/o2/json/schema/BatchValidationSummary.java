@@ -0,0 +1,63 @@
+package uk.co.o2.json.schema;
+
+/*
+    The totals for one run of a BatchValidator
+ */
+public final class BatchValidationSummary {
+    private final long documentCount;
+    private final long invalidDocumentCount;
+    private final long errorCount;
+    private final long validationTimeNanos;
+    private final long elapsedNanos;
+
+    BatchValidationSummary(long documentCount, long invalidDocumentCount, long errorCount, long validationTimeNanos, long elapsedNanos) {
+        this.documentCount = documentCount;
+        this.invalidDocumentCount = invalidDocumentCount;
+        this.errorCount = errorCount;
+        this.validationTimeNanos = validationTimeNanos;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getDocumentCount() {
+        return documentCount;
+    }
+
+    public long getInvalidDocumentCount() {
+        return invalidDocumentCount;
+    }
+
+    /*
+        Limited by the maximum number of errors per document, if there is one
+     */
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    /*
+        The time spent validating, added up across threads, including the time taken by an unordered handler
+     */
+    public long getValidationTimeNanos() {
+        return validationTimeNanos;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getDocumentsPerSecond() {
+        return (elapsedNanos == 0) ? 0.0 : documentCount * 1e9 / elapsedNanos;
+    }
+
+    /*
+        How many threads were kept busy on average, the validation time over the elapsed time
+     */
+    public double getAverageParallelism() {
+        return (elapsedNanos == 0) ? 0.0 : (double) validationTimeNanos / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchValidationSummary{documents=" + documentCount + ", invalidDocuments=" + invalidDocumentCount + ", errors=" + errorCount +
+                ", validationTimeNanos=" + validationTimeNanos + ", elapsedNanos=" + elapsedNanos + "}";
+    }
+}
@@ -0,0 +1,258 @@
+package uk.co.o2.json.schema;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import static uk.co.o2.json.schema.JsonSchemaAdapter.extend;
+
+/*
+    Validates a stream of documents against one schema on several threads, for jobs such as checking every stored
+    document during a migration. Documents are read from the iterable in chunks on the calling thread, and only a
+    few chunks per thread are in flight at once, so the whole stream is never held in memory.
+
+    In ordered mode results are handed over on the calling thread in the order the documents were read. Otherwise
+    they are handed over on the validating threads as each chunk finishes, so the handler has to be thread safe.
+ */
+public class BatchValidator {
+    private static final int CHUNKS_IN_FLIGHT_PER_THREAD = 2;
+
+    private final ExtendedJsonSchema schema;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int chunkSize = 256;
+    private boolean ordered = true;
+    private int maxErrors;
+    private Executor executor;
+
+    public BatchValidator(JsonSchema schema) {
+        this.schema = extend(schema);
+    }
+
+    public interface ResultHandler {
+        /*
+            The index counts documents from 0 in the order they were read, the errors are empty for a valid document
+         */
+        void validated(long index, JsonNode document, List<ErrorMessage> errors);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /*
+        The number of documents validated by one task, large enough that handing tasks between threads costs little
+        next to the validation
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be at least 1");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    public void setOrdered(boolean ordered) {
+        this.ordered = ordered;
+    }
+
+    /*
+        The limit on errors reported for each document, 0 means every error is reported
+     */
+    public int getMaxErrors() {
+        return maxErrors;
+    }
+
+    public void setMaxErrors(int maxErrors) {
+        if (maxErrors < 0) {
+            throw new IllegalArgumentException("maxErrors must not be negative");
+        }
+        this.maxErrors = maxErrors;
+    }
+
+    /*
+        When set, chunks are validated on this executor, with the calling thread joining in when it has to wait.
+        By default each batch runs on a ForkJoinPool of its own with the configured parallelism.
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /*
+        Stops at the first exception thrown by validation or by the handler and rethrows it, cancelling the chunks
+        that have not started. Chunks already running are left to finish.
+     */
+    public BatchValidationSummary validate(Iterable<? extends JsonNode> documents, ResultHandler handler) {
+        long start = System.nanoTime();
+        Executor chunkExecutor = executor;
+        ForkJoinPool temporaryPool = null;
+        if (chunkExecutor == null) {
+            temporaryPool = new ForkJoinPool(parallelism);
+            chunkExecutor = temporaryPool;
+        }
+
+        Counts counts = new Counts();
+        Deque<FutureTask<Chunk>> pending = new ArrayDeque<>();
+        int maxChunksInFlight = parallelism * CHUNKS_IN_FLIGHT_PER_THREAD;
+        try {
+            Iterator<? extends JsonNode> iterator = documents.iterator();
+            long index = 0;
+            while (iterator.hasNext()) {
+                List<JsonNode> chunkDocuments = new ArrayList<>(chunkSize);
+                while ((chunkDocuments.size() < chunkSize) && iterator.hasNext()) {
+                    chunkDocuments.add(iterator.next());
+                }
+                while (pending.size() >= maxChunksInFlight) {
+                    finishChunk(pending, handler);
+                }
+                FutureTask<Chunk> task = new FutureTask<>(new Chunk(index, chunkDocuments, ordered ? null : handler, counts));
+                pending.addLast(task);
+                chunkExecutor.execute(task);
+                index += chunkDocuments.size();
+            }
+            while (!pending.isEmpty()) {
+                finishChunk(pending, handler);
+            }
+        } catch (RuntimeException | Error e) {
+            for (FutureTask<Chunk> task : pending) {
+                task.cancel(false);
+            }
+            throw e;
+        } finally {
+            if (temporaryPool != null) {
+                temporaryPool.shutdown();
+            }
+        }
+        return new BatchValidationSummary(counts.documents.get(), counts.invalidDocuments.get(), counts.errors.get(),
+                counts.validationTimeNanos.get(), System.nanoTime() - start);
+    }
+
+    /*
+        Unordered chunks that are already done are cleared first, so a slow chunk only holds things up in
+        ordered mode
+     */
+    private void finishChunk(Deque<FutureTask<Chunk>> pending, ResultHandler handler) {
+        if (!ordered) {
+            boolean finishedAny = false;
+            for (Iterator<FutureTask<Chunk>> it = pending.iterator(); it.hasNext(); ) {
+                FutureTask<Chunk> task = it.next();
+                if (task.isDone()) {
+                    it.remove();
+                    await(task);
+                    finishedAny = true;
+                }
+            }
+            if (finishedAny) {
+                return;
+            }
+        }
+        FutureTask<Chunk> task = pending.removeFirst();
+        //runs the chunk here if the executor has not started it yet
+        task.run();
+        Chunk chunk = await(task);
+        if (ordered) {
+            chunk.deliverTo(handler);
+        }
+    }
+
+    private static Chunk await(FutureTask<Chunk> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while validating documents", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Could not validate documents", cause);
+        }
+    }
+
+    private static final class Counts {
+        final AtomicLong documents = new AtomicLong();
+        final AtomicLong invalidDocuments = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong validationTimeNanos = new AtomicLong();
+    }
+
+    /*
+        Counts are added once per chunk, so threads rarely contend on them
+     */
+    private final class Chunk implements Callable<Chunk> {
+        private final long firstIndex;
+        private final List<JsonNode> documents;
+        private final ResultHandler handler;
+        private final Counts counts;
+        private final List<List<ErrorMessage>> results;
+
+        Chunk(long firstIndex, List<JsonNode> documents, ResultHandler handler, Counts counts) {
+            this.firstIndex = firstIndex;
+            this.documents = documents;
+            this.handler = handler;
+            this.counts = counts;
+            this.results = new ArrayList<>(documents.size());
+        }
+
+        @Override
+        public Chunk call() {
+            long start = System.nanoTime();
+            long invalidDocuments = 0;
+            long errors = 0;
+            for (int i = 0; i < documents.size(); i++) {
+                ErrorCollector collector = new ErrorCollector(maxErrors);
+                schema.validate(documents.get(i), collector);
+                List<ErrorMessage> documentErrors = collector.getErrors();
+                invalidDocuments += documentErrors.isEmpty() ? 0 : 1;
+                errors += documentErrors.size();
+                if (handler != null) {
+                    handler.validated(firstIndex + i, documents.get(i), documentErrors);
+                } else {
+                    results.add(documentErrors);
+                }
+            }
+            counts.validationTimeNanos.addAndGet(System.nanoTime() - start);
+            counts.documents.addAndGet(documents.size());
+            counts.invalidDocuments.addAndGet(invalidDocuments);
+            counts.errors.addAndGet(errors);
+            return this;
+        }
+
+        void deliverTo(ResultHandler handler) {
+            for (int i = 0; i < documents.size(); i++) {
+                handler.validated(firstIndex + i, documents.get(i), results.get(i));
+            }
+        }
+    }
+}
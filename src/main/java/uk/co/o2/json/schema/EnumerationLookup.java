@@ -0,0 +1,142 @@
+package uk.co.o2.json.schema;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/*
+    An enumeration compiled into a hashed set suited to its type, so membership is checked without scanning the list
+    or allocating.
+ */
+abstract class EnumerationLookup {
+
+    abstract boolean contains(JsonNode node);
+
+    static EnumerationLookup forType(SimpleType type, List<JsonNode> enumeration) {
+        switch (type) {
+            case STRING:
+                return new StringLookup(enumeration);
+            case INTEGER:
+                return new IntegerLookup(enumeration);
+            case BOOLEAN:
+                return new BooleanLookup(enumeration);
+            default:
+                return new NodeLookup(enumeration);
+        }
+    }
+
+    private static class StringLookup extends EnumerationLookup {
+        private final Set<String> values = new HashSet<>();
+
+        StringLookup(List<JsonNode> enumeration) {
+            for (JsonNode node : enumeration) {
+                values.add(node.textValue());
+            }
+        }
+
+        @Override
+        boolean contains(JsonNode node) {
+            return node.isTextual() && values.contains(node.textValue());
+        }
+    }
+
+    private static class BooleanLookup extends EnumerationLookup {
+        private boolean containsTrue;
+        private boolean containsFalse;
+
+        BooleanLookup(List<JsonNode> enumeration) {
+            for (JsonNode node : enumeration) {
+                if (node.booleanValue()) {
+                    containsTrue = true;
+                } else {
+                    containsFalse = true;
+                }
+            }
+        }
+
+        @Override
+        boolean contains(JsonNode node) {
+            return node.isBoolean() && (node.booleanValue() ? containsTrue : containsFalse);
+        }
+    }
+
+    private static class NodeLookup extends EnumerationLookup {
+        private final Set<JsonNode> values;
+
+        NodeLookup(List<JsonNode> enumeration) {
+            values = new HashSet<>(enumeration);
+        }
+
+        @Override
+        boolean contains(JsonNode node) {
+            return values.contains(node);
+        }
+    }
+
+    /*
+        Values that fit in a long are kept in an open addressing table of primitives, anything bigger falls back to
+        the nodes themselves.
+     */
+    private static class IntegerLookup extends EnumerationLookup {
+        private final long[] table;
+        private final boolean[] occupied;
+        private final int mask;
+        private final Set<JsonNode> bigValues = new HashSet<>();
+
+        IntegerLookup(List<JsonNode> enumeration) {
+            int tableSize = 2;
+            while (tableSize < enumeration.size() * 2) {
+                tableSize <<= 1;
+            }
+            table = new long[tableSize];
+            occupied = new boolean[tableSize];
+            mask = tableSize - 1;
+
+            for (JsonNode node : enumeration) {
+                if (node.canConvertToLong()) {
+                    add(node.longValue());
+                } else {
+                    bigValues.add(node);
+                }
+            }
+        }
+
+        private void add(long value) {
+            int bucket = bucketOf(value);
+            while (occupied[bucket]) {
+                if (table[bucket] == value) {
+                    return;
+                }
+                bucket = (bucket + 1) & mask;
+            }
+            table[bucket] = value;
+            occupied[bucket] = true;
+        }
+
+        @Override
+        boolean contains(JsonNode node) {
+            if (!node.isIntegralNumber()) {
+                return false;
+            }
+            if (!node.canConvertToLong()) {
+                return bigValues.contains(node);
+            }
+            long value = node.longValue();
+            int bucket = bucketOf(value);
+            while (occupied[bucket]) {
+                if (table[bucket] == value) {
+                    return true;
+                }
+                bucket = (bucket + 1) & mask;
+            }
+            return false;
+        }
+
+        private int bucketOf(long value) {
+            long hash = value * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
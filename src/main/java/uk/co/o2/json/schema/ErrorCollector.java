@@ -0,0 +1,24 @@
+package uk.co.o2.json.schema;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ErrorCollector extends ErrorSink {
+    private final List<ErrorMessage> errors = new ArrayList<>();
+
+    public ErrorCollector() {
+    }
+
+    public ErrorCollector(int maxErrors) {
+        super(maxErrors);
+    }
+
+    @Override
+    protected void onError(ErrorMessage error) {
+        errors.add(error);
+    }
+
+    public List<ErrorMessage> getErrors() {
+        return errors;
+    }
+}
@@ -8,48 +8,67 @@ public class ErrorMessage {
         return Arrays.asList(new ErrorMessage(location, String.format(formatString, args)));
     }
 
-    private final String location;
+    private final ErrorPath path;
     private final String message;
+    private String location;
 
     public ErrorMessage(String location, String message) {
-        this.location = location;
+        this.path = ErrorPath.parse(location);
         this.message = message;
+        this.location = location;
     }
 
     public ErrorMessage(String locationPrefix, ErrorMessage nestedMessage) {
-        String separator = nestedMessage.isSeparatorNecessary() ? "." : "";
-        this.location = locationPrefix + separator + nestedMessage.location;
-        this.message = nestedMessage.message;
+        this(ErrorPath.parse(locationPrefix), nestedMessage);
+    }
+
+    ErrorMessage(ErrorPath path, String message) {
+        this.path = path;
+        this.message = message;
     }
 
-    private boolean isSeparatorNecessary() {
-        return (!"".equals(location)) && (!location.startsWith("["));
+    ErrorMessage(ErrorPath pathPrefix, ErrorMessage nestedMessage) {
+        this(pathPrefix.append(nestedMessage.path), nestedMessage.message);
     }
 
     public String getLocation() {
-        return location;
+        //racy but benign: the rendered string is immutable and always the same
+        String result = location;
+        if (result == null) {
+            result = path.render();
+            location = result;
+        }
+        return result;
     }
 
     public String getMessage() {
         return message;
     }
 
+    ErrorPath getPath() {
+        return path;
+    }
+
     @Override
     public String toString() {
-        return String.format("%s: %s", location, message);
+        return getLocation() + ": " + message;
     }
 
+    /*
+        Paths are equal when they render to the same location, as locations were compared before paths were kept as
+        segments, so an error for a property named "a.b" still equals new ErrorMessage("a.b", message)
+     */
     @Override
     public boolean equals(Object obj) {
         if (!(obj instanceof ErrorMessage)) {
             return false;
         }
         ErrorMessage other = (ErrorMessage) obj;
-        return toString().equals(other.toString());
+        return path.equals(other.path) && ((message == null) ? (other.message == null) : message.equals(other.message));
     }
 
     @Override
     public int hashCode() {
-        return toString().hashCode();
+        return (31 * path.hashCode()) + ((message == null) ? 0 : message.hashCode());
     }
-}
\ No newline at end of file
+}
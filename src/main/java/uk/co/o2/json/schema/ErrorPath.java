@@ -0,0 +1,244 @@
+package uk.co.o2.json.schema;
+
+/*
+    An immutable chain of property names and array indexes, outermost segment first, so a parent can prefix a nested
+    path with a single new node. The path is only turned into a string when an ErrorMessage's location is asked for.
+
+    Two paths are equal when they render to the same location. Property names containing "." or "[" are split into
+    segments as they would be parsed back from the location, so equal paths almost always have the same segments and
+    are compared segment by segment. The hash code is that of the rendered location, worked out as the chain is built,
+    and paths that still differ in their segments (those with empty property names, say) are compared a character of
+    their locations at a time, without rendering them.
+ */
+final class ErrorPath {
+    static final ErrorPath ROOT = new ErrorPath(null, -1, null);
+
+    private final String propertyName;
+    private final int index;
+    private final ErrorPath rest;
+    private final int hash;
+    //31 to the power of the length of the rendered path, to work out the hash of a path with a segment in front
+    private final int power;
+
+    private ErrorPath(String propertyName, int index, ErrorPath rest) {
+        this.propertyName = propertyName;
+        this.index = index;
+        this.rest = rest;
+        if (rest == null) {
+            this.hash = 0;
+            this.power = 1;
+        } else {
+            int restHash = rest.hash;
+            int restPower = rest.power;
+            if (rest.propertyName != null) {
+                //rendered with a dot in front, after this segment
+                restHash += '.' * restPower;
+                restPower *= 31;
+            }
+            int segmentHash = 0;
+            int segmentPower = 1;
+            for (int position = 0, c; (c = charAt(position, true)) >= 0; position++) {
+                segmentHash = (31 * segmentHash) + c;
+                segmentPower *= 31;
+            }
+            this.hash = (segmentHash * restPower) + restHash;
+            this.power = segmentPower * restPower;
+        }
+    }
+
+    /*
+        A name that parses into several segments starting with a property is split into them. One starting with an
+        index is kept whole, since it renders with a dot in front when it follows another segment.
+     */
+    static ErrorPath property(String propertyName, ErrorPath rest) {
+        if ((propertyName.indexOf('.') >= 0) || (propertyName.indexOf('[') >= 0)) {
+            ErrorPath segments = parse(propertyName);
+            if (segments.propertyName != null) {
+                return segments.append(rest);
+            }
+        }
+        return new ErrorPath(propertyName, -1, rest);
+    }
+
+    static ErrorPath index(int index, ErrorPath rest) {
+        return new ErrorPath(null, index, rest);
+    }
+
+    boolean isRoot() {
+        return this == ROOT;
+    }
+
+    ErrorPath append(ErrorPath nested) {
+        if (isRoot()) {
+            return nested;
+        }
+        return new ErrorPath(propertyName, index, rest.append(nested));
+    }
+
+    /*
+        Splits a rendered location such as "foo[3].bar" back into segments. A location that would not render back
+        to exactly the same string is kept as a single property segment.
+     */
+    static ErrorPath parse(String location) {
+        ErrorPath parsed = parseSegments(location, 0);
+        if ((parsed != null) && parsed.render().equals(location)) {
+            return parsed;
+        }
+        return location.isEmpty() ? ROOT : new ErrorPath(location, -1, ROOT);
+    }
+
+    private static ErrorPath parseSegments(String location, int position) {
+        int length = location.length();
+        if (position == length) {
+            return ROOT;
+        }
+        int indexEnd = indexEnd(location, position);
+        if (indexEnd > 0) {
+            ErrorPath rest = parseSegments(location, indexEnd);
+            return (rest == null) ? null : new ErrorPath(null, Integer.parseInt(location.substring(position + 1, indexEnd - 1)), rest);
+        }
+
+        int nameStart = position;
+        if (location.charAt(position) == '.') {
+            nameStart++;
+        } else if (position > 0) {
+            return null;
+        }
+        int nameEnd = nameStart;
+        while ((nameEnd < length) && (location.charAt(nameEnd) != '.') && (indexEnd(location, nameEnd) < 0)) {
+            nameEnd++;
+        }
+        ErrorPath rest = parseSegments(location, nameEnd);
+        return (rest == null) ? null : new ErrorPath(location.substring(nameStart, nameEnd), -1, rest);
+    }
+
+    private static int indexEnd(String location, int position) {
+        if (location.charAt(position) != '[') {
+            return -1;
+        }
+        int end = position + 1;
+        while ((end < location.length()) && (end - position <= 9) && Character.isDigit(location.charAt(end))) {
+            end++;
+        }
+        boolean isIndex = (end > position + 1) && (end < location.length()) && (location.charAt(end) == ']');
+        return isIndex ? end + 1 : -1;
+    }
+
+    String render() {
+        StringBuilder result = new StringBuilder();
+        for (ErrorPath segment = this; !segment.isRoot(); segment = segment.rest) {
+            if (segment.propertyName != null) {
+                if (segment != this) {
+                    result.append('.');
+                }
+                result.append(segment.propertyName);
+            } else {
+                result.append('[').append(segment.index).append(']');
+            }
+        }
+        return result.toString();
+    }
+
+    /*
+        The character at the position in this segment's part of the rendered path, or -1 past its end. Indexes are
+        never negative.
+     */
+    private int charAt(int position, boolean first) {
+        if (propertyName != null) {
+            if (!first) {
+                if (position == 0) {
+                    return '.';
+                }
+                position--;
+            }
+            return (position < propertyName.length()) ? propertyName.charAt(position) : -1;
+        }
+        int digits = 1;
+        for (int remainder = index / 10; remainder > 0; remainder /= 10) {
+            digits++;
+        }
+        if (position == 0) {
+            return '[';
+        }
+        if (position <= digits) {
+            int digit = index;
+            for (int i = position; i < digits; i++) {
+                digit /= 10;
+            }
+            return '0' + (digit % 10);
+        }
+        return (position == digits + 1) ? ']' : -1;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof ErrorPath)) {
+            return false;
+        }
+        ErrorPath one = this;
+        ErrorPath other = (ErrorPath) obj;
+        if (one.hash != other.hash) {
+            return false;
+        }
+        while (one != other) {
+            if (one.isRoot() || other.isRoot() || !one.hasSameSegmentAs(other)) {
+                return renderSame(this, (ErrorPath) obj);
+            }
+            one = one.rest;
+            other = other.rest;
+        }
+        return true;
+    }
+
+    private boolean hasSameSegmentAs(ErrorPath other) {
+        return (propertyName == null) ? ((other.propertyName == null) && (index == other.index)) : propertyName.equals(other.propertyName);
+    }
+
+    private static boolean renderSame(ErrorPath one, ErrorPath other) {
+        RenderedCharacters oneCharacters = new RenderedCharacters(one);
+        RenderedCharacters otherCharacters = new RenderedCharacters(other);
+        int c;
+        do {
+            c = oneCharacters.next();
+            if (c != otherCharacters.next()) {
+                return false;
+            }
+        } while (c >= 0);
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return render();
+    }
+
+    private static final class RenderedCharacters {
+        private ErrorPath segment;
+        private int position;
+        private boolean first = true;
+
+        RenderedCharacters(ErrorPath path) {
+            segment = path;
+        }
+
+        //-1 at the end of the path
+        int next() {
+            while (!segment.isRoot()) {
+                int c = segment.charAt(position, first);
+                if (c >= 0) {
+                    position++;
+                    return c;
+                }
+                segment = segment.rest;
+                position = 0;
+                first = false;
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package uk.co.o2.json.schema;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+    Receives the errors found during validation. Schemas push the property name or array index they descend into,
+    so every error is created once with its full location instead of being copied by each parent on the way up.
+    The immutable ErrorPath for the current position is only built when an error is actually reported.
+
+    A sink can be given a maximum number of errors: once it is reached further errors are dropped, schemas stop
+    descending into the rest of the document, and the sink reports itself as truncated.
+ */
+public abstract class ErrorSink {
+    private final int maxErrors;
+    private int errorCount;
+
+    private String[] propertyNames = new String[8];
+    private int[] indexes = new int[8];
+    private int depth;
+    private ErrorPath currentPath = ErrorPath.ROOT;
+
+    private final List<DeferredErrors> deferredErrors = new ArrayList<>();
+    private int deferredDepth;
+
+    protected ErrorSink() {
+        this(0);
+    }
+
+    /*
+        maxErrors of 0 means no limit
+     */
+    protected ErrorSink(int maxErrors) {
+        if (maxErrors < 0) {
+            throw new IllegalArgumentException("maxErrors cannot be negative");
+        }
+        this.maxErrors = maxErrors;
+    }
+
+    public void enterProperty(String name) {
+        ensureCapacity();
+        propertyNames[depth] = name;
+        depth++;
+        currentPath = null;
+    }
+
+    public void enterIndex(int index) {
+        ensureCapacity();
+        propertyNames[depth] = null;
+        indexes[depth] = index;
+        depth++;
+        currentPath = null;
+    }
+
+    public void exit() {
+        if (depth == 0) {
+            throw new IllegalStateException("exit() called more often than enterProperty() or enterIndex()");
+        }
+        depth--;
+        currentPath = null;
+    }
+
+    public void addError(String message) {
+        if (!isTruncated()) {
+            report(new ErrorMessage(currentPath(), message));
+        }
+    }
+
+    /*
+        Adds errors whose locations are relative to the current location
+     */
+    public void addErrors(List<ErrorMessage> nestedErrors) {
+        ErrorPath path = currentPath();
+        for (ErrorMessage error : nestedErrors) {
+            if (isTruncated()) {
+                return;
+            }
+            report(path.isRoot() ? error : new ErrorMessage(path, error));
+        }
+    }
+
+    /*
+        True once the maximum number of errors has been reported. Validation stops at that point, so the document
+        may contain more errors than were reported.
+     */
+    public boolean isTruncated() {
+        return (maxErrors > 0) && (errorCount >= maxErrors);
+    }
+
+    public int getMaxErrors() {
+        return maxErrors;
+    }
+
+    /*
+        True once any error has been reported, including errors still held back by a deferred block, which are
+        only ever discarded in favour of another error
+     */
+    boolean hasErrors() {
+        return errorCount > 0;
+    }
+
+    protected abstract void onError(ErrorMessage error);
+
+    /*
+        The number of errors that can still be reported before the limit is reached, or 0 if there is no limit
+     */
+    int getRemainingErrors() {
+        return (maxErrors == 0) ? 0 : Math.max(maxErrors - errorCount, 1);
+    }
+
+    ErrorPath currentPath() {
+        ErrorPath path = currentPath;
+        if (path == null) {
+            path = ErrorPath.ROOT;
+            for (int i = depth - 1; i >= 0; i--) {
+                path = (propertyNames[i] != null) ? ErrorPath.property(propertyNames[i], path) : ErrorPath.index(indexes[i], path);
+            }
+            currentPath = path;
+        }
+        return path;
+    }
+
+    /*
+        Streaming validation sees values in document order, but reports errors in the order of the tree based
+        validation. Errors reported between beginDeferred() and endDeferred() are held back, tagged with the order
+        set by setDeferredOrder(), and passed on sorted by that order when the deferred block ends.
+     */
+    void beginDeferred() {
+        if (deferredDepth == deferredErrors.size()) {
+            deferredErrors.add(new DeferredErrors());
+        }
+        deferredErrors.get(deferredDepth++).clear();
+    }
+
+    void setDeferredOrder(int order) {
+        deferredErrors.get(deferredDepth - 1).currentOrder = order;
+    }
+
+    void endDeferred() {
+        DeferredErrors deferred = deferredErrors.get(--deferredDepth);
+        deferred.sortByOrder();
+        for (ErrorMessage error : deferred.errors) {
+            deliver(error);
+        }
+        deferred.clear();
+    }
+
+    void discardDeferred() {
+        DeferredErrors deferred = deferredErrors.get(--deferredDepth);
+        errorCount -= deferred.errors.size();
+        deferred.clear();
+    }
+
+    private void report(ErrorMessage error) {
+        errorCount++;
+        deliver(error);
+    }
+
+    private void deliver(ErrorMessage error) {
+        if (deferredDepth > 0) {
+            deferredErrors.get(deferredDepth - 1).add(error);
+        } else {
+            onError(error);
+        }
+    }
+
+    private void ensureCapacity() {
+        if (depth == propertyNames.length) {
+            propertyNames = Arrays.copyOf(propertyNames, depth * 2);
+            indexes = Arrays.copyOf(indexes, depth * 2);
+        }
+    }
+
+    private static class DeferredErrors {
+        final List<ErrorMessage> errors = new ArrayList<>();
+        int[] orders = new int[8];
+        int currentOrder;
+
+        void add(ErrorMessage error) {
+            if (errors.size() == orders.length) {
+                orders = Arrays.copyOf(orders, orders.length * 2);
+            }
+            orders[errors.size()] = currentOrder;
+            errors.add(error);
+        }
+
+        void clear() {
+            errors.clear();
+            currentOrder = 0;
+        }
+
+        //a stable insertion sort: errors almost always arrive already in order
+        void sortByOrder() {
+            for (int i = 1; i < errors.size(); i++) {
+                int order = orders[i];
+                ErrorMessage error = errors.get(i);
+                int j = i - 1;
+                while ((j >= 0) && (orders[j] > order)) {
+                    orders[j + 1] = orders[j];
+                    errors.set(j + 1, errors.get(j));
+                    j--;
+                }
+                orders[j + 1] = order;
+                errors.set(j + 1, error);
+            }
+        }
+    }
+}
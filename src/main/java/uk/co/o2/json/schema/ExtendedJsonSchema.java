@@ -0,0 +1,28 @@
+package uk.co.o2.json.schema;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.util.List;
+
+/*
+    The validation entry points added since JsonSchema was published. Every schema built by this library implements
+    it, while JsonSchema itself is left as it was so that existing implementations of it still compile.
+ */
+public interface ExtendedJsonSchema extends JsonSchema {
+    void validate(JsonNode jsonDocumentToValidate, ErrorSink errors);
+
+    /*
+        Validates the value at the parser's current token (the parser is advanced to its first token if it
+        has not been started), leaving the parser on the last token of that value.
+     */
+    List<ErrorMessage> validate(JsonParser jsonDocumentToValidate) throws IOException;
+
+    void validate(JsonParser jsonDocumentToValidate, ErrorSink errors) throws IOException;
+
+    /*
+        Stops at the first violation and never creates error messages, for callers that only need a yes/no answer
+     */
+    boolean isValid(JsonNode jsonDocumentToValidate);
+}
@@ -0,0 +1,102 @@
+package uk.co.o2.json.schema;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import static uk.co.o2.json.schema.JsonSchemaAdapter.extend;
+
+/*
+    The superclass of the validator classes generated at runtime by SchemaCodeGenerator. It is only public because
+    the generated classes are defined by their own class loader, outside this package; it is not meant to be
+    extended otherwise.
+
+    Generated code handles tree validation into unlimited sinks and isValid. Streaming, and sinks with a maximum
+    number of errors, go to the interpreted schema, which already decides which errors are kept when truncating.
+ */
+public abstract class GeneratedSchema implements StreamingSchema {
+    private final JsonSchema interpretedSchema;
+
+    protected GeneratedSchema(JsonSchema interpretedSchema) {
+        this.interpretedSchema = interpretedSchema;
+    }
+
+    protected abstract void validateGenerated(JsonNode jsonDocumentToValidate, ErrorSink errors);
+
+    protected abstract boolean isValidGenerated(JsonNode jsonDocumentToValidate);
+
+    @Override
+    public List<ErrorMessage> validate(JsonNode jsonDocumentToValidate) {
+        ErrorCollector errors = new ErrorCollector();
+        validateGenerated(jsonDocumentToValidate, errors);
+        return errors.getErrors();
+    }
+
+    @Override
+    public void validate(JsonNode jsonDocumentToValidate, ErrorSink errors) {
+        if (errors.getMaxErrors() != 0) {
+            extend(interpretedSchema).validate(jsonDocumentToValidate, errors);
+        } else {
+            validateGenerated(jsonDocumentToValidate, errors);
+        }
+    }
+
+    @Override
+    public List<ErrorMessage> validate(JsonParser jsonDocumentToValidate) throws IOException {
+        return extend(interpretedSchema).validate(jsonDocumentToValidate);
+    }
+
+    @Override
+    public void validate(JsonParser jsonDocumentToValidate, ErrorSink errors) throws IOException {
+        StreamingValidator.validate(this, jsonDocumentToValidate, errors);
+    }
+
+    @Override
+    public void startValue(JsonParser parser, StreamingValidator validator) throws IOException {
+        validator.startValue(interpretedSchema, parser);
+    }
+
+    @Override
+    public boolean isValid(JsonNode jsonDocumentToValidate) {
+        return isValidGenerated(jsonDocumentToValidate);
+    }
+
+    @Override
+    public String getDescription() {
+        return interpretedSchema.getDescription();
+    }
+
+    @Override
+    public boolean isAcceptableType(JsonNode jsonDocument) {
+        return interpretedSchema.isAcceptableType(jsonDocument);
+    }
+
+    JsonSchema getInterpretedSchema() {
+        return interpretedSchema;
+    }
+
+    //the helpers below give generated code access to the package private parts of the compiled schemas
+
+    protected static boolean matchesPattern(Object patternMatcher, String value) {
+        return ((PatternMatcher) patternMatcher).matches(value);
+    }
+
+    protected static boolean matchesFormat(Object simpleTypeSchema, JsonNode node) {
+        return ((SimpleTypeSchema) simpleTypeSchema).matchesFormat(node);
+    }
+
+    protected static int compareWithBound(Object numericBound, JsonNode node) {
+        return ((NumericBound) numericBound).compareWith(node);
+    }
+
+    protected static boolean isInEnumeration(Object enumerationLookup, JsonNode node) {
+        return ((EnumerationLookup) enumerationLookup).contains(node);
+    }
+
+    protected static boolean isLongValued(JsonNode node) {
+        JsonParser.NumberType numberType = node.numberType();
+        return (numberType == JsonParser.NumberType.INT) || (numberType == JsonParser.NumberType.LONG);
+    }
+}
@@ -0,0 +1,594 @@
+package uk.co.o2.json.schema;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import uk.co.o2.json.schema.ObjectSchema.Property;
+
+import static uk.co.o2.json.schema.JsonSchemaAdapter.extend;
+
+/*
+    A compiled schema lowered into one flat array of instructions with a pool of constants, validated by a loop over
+    the array rather than by calls through a tree of schema objects. Every object, array and simple type schema
+    becomes a block of instructions, and blocks refer to each other by their offset in the array. Identical blocks
+    are shared, so the many plain {"type": "string"} schemas of a large document all use one.
+
+    Blocks:
+        OBJECT propertyCount requiredCount additionalPc mask namesConstant
+               childPc[propertyCount] requiredOrdinal[propertyCount] requiredSlot[requiredCount] table[mask + 1]
+        ARRAY minItems maxItems itemsPc
+        FORBID
+        DELEGATE schemaConstant
+        simple type instructions, each optional and in this order, followed by END:
+               TYPE type messageConstant, PATTERN matcherConstant patternConstant, FORMAT schemaConstant formatConstant,
+               MINIMUM boundConstant exclusive, MAXIMUM boundConstant exclusive, MIN_LENGTH length, MAX_LENGTH length,
+               ENUMERATION lookupConstant enumerationConstant
+
+    A pc of NO_OP stands for a schema that accepts everything. Unions and references are delegated to the compiled
+    schema, as is streaming validation. Errors, their order and truncation are the same as the compiled schema's.
+ */
+final class InstructionSchema implements StreamingSchema {
+    private static final int NO_OP = -1;
+
+    private static final int OBJECT = 0;
+    private static final int ARRAY = 1;
+    private static final int FORBID = 2;
+    private static final int DELEGATE = 3;
+    private static final int END = 4;
+    private static final int TYPE = 5;
+    private static final int PATTERN = 6;
+    private static final int FORMAT = 7;
+    private static final int MINIMUM = 8;
+    private static final int MAXIMUM = 9;
+    private static final int MIN_LENGTH = 10;
+    private static final int MAX_LENGTH = 11;
+    private static final int ENUMERATION = 12;
+
+    private final JsonSchema compiledSchema;
+    private final int[] code;
+    private final Object[] constants;
+    private final int entryPc;
+
+    private InstructionSchema(JsonSchema compiledSchema, int[] code, Object[] constants, int entryPc) {
+        this.compiledSchema = compiledSchema;
+        this.code = code;
+        this.constants = constants;
+        this.entryPc = entryPc;
+    }
+
+    static InstructionSchema lower(JsonSchema compiledSchema) {
+        Lowering lowering = new Lowering();
+        int entryPc = lowering.lower(compiledSchema);
+        return new InstructionSchema(compiledSchema, Arrays.copyOf(lowering.code, lowering.size), lowering.constants.toArray(), entryPc);
+    }
+
+    int getInstructionCount() {
+        return code.length;
+    }
+
+    int getConstantCount() {
+        return constants.length;
+    }
+
+    @Override
+    public List<ErrorMessage> validate(JsonNode jsonDocumentToValidate) {
+        ErrorCollector errors = new ErrorCollector();
+        validate(jsonDocumentToValidate, errors);
+        return errors.getErrors();
+    }
+
+    @Override
+    public void validate(JsonNode jsonDocumentToValidate, ErrorSink errors) {
+        run(entryPc, jsonDocumentToValidate, errors);
+    }
+
+    @Override
+    public List<ErrorMessage> validate(JsonParser jsonDocumentToValidate) throws IOException {
+        return extend(compiledSchema).validate(jsonDocumentToValidate);
+    }
+
+    @Override
+    public void validate(JsonParser jsonDocumentToValidate, ErrorSink errors) throws IOException {
+        StreamingValidator.validate(this, jsonDocumentToValidate, errors);
+    }
+
+    @Override
+    public void startValue(JsonParser parser, StreamingValidator validator) throws IOException {
+        validator.startValue(compiledSchema, parser);
+    }
+
+    @Override
+    public boolean isValid(JsonNode jsonDocumentToValidate) {
+        return run(entryPc, jsonDocumentToValidate, null);
+    }
+
+    @Override
+    public String getDescription() {
+        return compiledSchema.getDescription();
+    }
+
+    @Override
+    public boolean isAcceptableType(JsonNode jsonDocument) {
+        return compiledSchema.isAcceptableType(jsonDocument);
+    }
+
+    JsonSchema getCompiledSchema() {
+        return compiledSchema;
+    }
+
+    /*
+        Without a sink this answers isValid, stopping at the first violation. With one, every error is reported and
+        the result means nothing.
+     */
+    private boolean run(int pc, JsonNode node, ErrorSink errors) {
+        if (pc == NO_OP) {
+            return true;
+        }
+        switch (code[pc]) {
+            case OBJECT:
+                return (errors == null) ? isValidObject(pc, node) : validateObject(pc, node, errors);
+            case ARRAY:
+                return runArray(pc, node, errors);
+            case FORBID:
+                if (errors == null) {
+                    return false;
+                }
+                errors.addError("Unexpected property");
+                return true;
+            case DELEGATE:
+                ExtendedJsonSchema delegate = (ExtendedJsonSchema) constants[code[pc + 1]];
+                if (errors == null) {
+                    return delegate.isValid(node);
+                }
+                delegate.validate(node, errors);
+                return true;
+            default:
+                return runSimpleType(pc, node, errors);
+        }
+    }
+
+    private boolean validateObject(int pc, JsonNode node, ErrorSink errors) {
+        if (!node.isObject()) {
+            errors.addError("Invalid type: must be an object");
+            return true;
+        }
+        int propertyCount = code[pc + 1];
+        int additionalPc = code[pc + 3];
+        String[] names = (String[]) constants[code[pc + 5]];
+        int childPcs = pc + 6;
+        int requiredOrdinals = childPcs + propertyCount;
+        //a valid object, the common case, is checked in one pass over its fields; an invalid one is walked again
+        if (isValidObject(pc, node)) {
+            return true;
+        }
+
+        //errors are reported in declaration order, with additional properties last
+        for (int slot = 0; (slot < propertyCount) && !errors.isTruncated(); slot++) {
+            JsonNode value = node.get(names[slot]);
+            if (value != null) {
+                errors.enterProperty(names[slot]);
+                run(code[childPcs + slot], value, errors);
+                errors.exit();
+            } else if (code[requiredOrdinals + slot] >= 0) {
+                errors.enterProperty(names[slot]);
+                errors.addError("Missing required property " + names[slot]);
+                errors.exit();
+            }
+        }
+
+        if (additionalPc == NO_OP) {
+            return true;
+        }
+        for (Iterator<Map.Entry<String, JsonNode>> iterator = node.fields(); iterator.hasNext() && !errors.isTruncated();) {
+            Map.Entry<String, JsonNode> entry = iterator.next();
+            if (slotOf(pc, names, entry.getKey()) < 0) {
+                errors.enterProperty(entry.getKey());
+                run(additionalPc, entry.getValue(), errors);
+                errors.exit();
+            }
+        }
+        return true;
+    }
+
+    private boolean isValidObject(int pc, JsonNode node) {
+        if (!node.isObject()) {
+            return false;
+        }
+        int propertyCount = code[pc + 1];
+        int additionalPc = code[pc + 3];
+        String[] names = (String[]) constants[code[pc + 5]];
+        int childPcs = pc + 6;
+        int requiredOrdinals = childPcs + propertyCount;
+
+        int requiredPropertiesFound = 0;
+        for (Iterator<Map.Entry<String, JsonNode>> iterator = node.fields(); iterator.hasNext();) {
+            Map.Entry<String, JsonNode> entry = iterator.next();
+            int slot = slotOf(pc, names, entry.getKey());
+            if (slot >= 0) {
+                if (!run(code[childPcs + slot], entry.getValue(), null)) {
+                    return false;
+                }
+                if (code[requiredOrdinals + slot] >= 0) {
+                    requiredPropertiesFound++;
+                }
+            } else if (!run(additionalPc, entry.getValue(), null)) {
+                return false;
+            }
+        }
+        return requiredPropertiesFound == code[pc + 2];
+    }
+
+    private int slotOf(int pc, String[] names, String name) {
+        int propertyCount = code[pc + 1];
+        int mask = code[pc + 4];
+        int table = pc + 6 + (2 * propertyCount) + code[pc + 2];
+        int bucket = spread(name.hashCode()) & mask;
+        int entry;
+        while ((entry = code[table + bucket]) != 0) {
+            if (names[entry - 1].equals(name)) {
+                return entry - 1;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+        return -1;
+    }
+
+    private boolean runArray(int pc, JsonNode node, ErrorSink errors) {
+        if (!node.isArray()) {
+            if (errors != null) {
+                errors.addError("Invalid type: must be an array");
+            }
+            return false;
+        }
+        int minItems = code[pc + 1];
+        int maxItems = code[pc + 2];
+        int itemsPc = code[pc + 3];
+        int size = node.size();
+        if ((maxItems != 0) && (size > maxItems)) {
+            if (errors != null) {
+                errors.addError(String.format("Current array size of %d is greater than allowed maximum array size of %d", size, maxItems));
+            }
+            return false;
+        }
+        if ((minItems != 0) && (size < minItems)) {
+            if (errors != null) {
+                errors.addError(String.format("Current array size of %d is less than allowed minimum array size of %d", size, minItems));
+            }
+            return false;
+        }
+        if (itemsPc == NO_OP) {
+            return true;
+        }
+        for (int index = 0; index < size; index++) {
+            if (errors == null) {
+                if (!run(itemsPc, node.get(index), null)) {
+                    return false;
+                }
+            } else if (errors.isTruncated()) {
+                break;
+            } else {
+                errors.enterIndex(index);
+                run(itemsPc, node.get(index), errors);
+                errors.exit();
+            }
+        }
+        return true;
+    }
+
+    /*
+        The checks and messages of SimpleTypeSchema.validate, in the same order
+     */
+    private boolean runSimpleType(int pc, JsonNode node, ErrorSink errors) {
+        while (true) {
+            switch (code[pc]) {
+                case END:
+                    return true;
+                case TYPE:
+                    if (!matchesType(code[pc + 1], node)) {
+                        if (errors != null) {
+                            errors.addError((String) constants[code[pc + 2]]);
+                        }
+                        return false;
+                    }
+                    pc += 3;
+                    break;
+                case PATTERN:
+                    if (!((PatternMatcher) constants[code[pc + 1]]).matches(node.textValue())) {
+                        if (errors == null) {
+                            return false;
+                        }
+                        errors.addError("String value '" + node.textValue() + "' does not match regex '" + constants[code[pc + 2]] + "'");
+                    }
+                    pc += 3;
+                    break;
+                case FORMAT:
+                    if (!((SimpleTypeSchema) constants[code[pc + 1]]).matchesFormat(node)) {
+                        if (errors == null) {
+                            return false;
+                        }
+                        errors.addError("Value '" + node.textValue() + "' is not a valid " + constants[code[pc + 2]]);
+                    }
+                    pc += 3;
+                    break;
+                case MINIMUM:
+                    NumericBound minimum = (NumericBound) constants[code[pc + 1]];
+                    int aboveMinimum = minimum.compareWith(node);
+                    boolean exclusiveMinimum = code[pc + 2] != 0;
+                    if (exclusiveMinimum ? (aboveMinimum <= 0) : (aboveMinimum < 0)) {
+                        if (errors == null) {
+                            return false;
+                        }
+                        if (exclusiveMinimum) {
+                            errors.addError("Value '" + node.numberValue() + "' must be greater than " + minimum.decimalValue() + " when exclusiveMinimum is true");
+                        } else {
+                            errors.addError("Value '" + node.numberValue() + "' must be greater or equal to " + minimum.decimalValue());
+                        }
+                    }
+                    pc += 3;
+                    break;
+                case MAXIMUM:
+                    NumericBound maximum = (NumericBound) constants[code[pc + 1]];
+                    int aboveMaximum = maximum.compareWith(node);
+                    boolean exclusiveMaximum = code[pc + 2] != 0;
+                    if (exclusiveMaximum ? (aboveMaximum >= 0) : (aboveMaximum > 0)) {
+                        if (errors == null) {
+                            return false;
+                        }
+                        if (exclusiveMaximum) {
+                            errors.addError("Value '" + node.numberValue() + "' must be less than " + maximum.decimalValue() + " when exclusiveMaximum is true");
+                        } else {
+                            errors.addError("Value '" + node.numberValue() + "' must be less than or equal to " + maximum.decimalValue());
+                        }
+                    }
+                    pc += 3;
+                    break;
+                case MIN_LENGTH:
+                    if (node.textValue().length() < code[pc + 1]) {
+                        if (errors == null) {
+                            return false;
+                        }
+                        errors.addError("Value '" + node.textValue() + "' must be greater or equal to " + code[pc + 1] + " characters");
+                    }
+                    pc += 2;
+                    break;
+                case MAX_LENGTH:
+                    if (node.textValue().length() > code[pc + 1]) {
+                        if (errors == null) {
+                            return false;
+                        }
+                        errors.addError(String.format("Value '%s' must be less or equal to %d characters", node.textValue(), code[pc + 1]));
+                    }
+                    pc += 2;
+                    break;
+                case ENUMERATION:
+                    if (!((EnumerationLookup) constants[code[pc + 1]]).contains(node)) {
+                        if (errors == null) {
+                            return false;
+                        }
+                        errors.addError("Value " + node.toString() + " must be one of: " + constants[code[pc + 2]]);
+                    }
+                    pc += 3;
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown instruction " + code[pc] + " at " + pc);
+            }
+        }
+    }
+
+    private static boolean matchesType(int type, JsonNode node) {
+        switch (type) {
+            case 0:
+                return node.isTextual();
+            case 1:
+                return node.isNumber();
+            case 2:
+                return node.isIntegralNumber();
+            case 3:
+                return node.isBoolean();
+            case 4:
+                return node.isNull();
+            default:
+                return true;
+        }
+    }
+
+    private static int typeCode(SimpleType type) {
+        switch (type) {
+            case STRING:
+                return 0;
+            case NUMBER:
+                return 1;
+            case INTEGER:
+                return 2;
+            case BOOLEAN:
+                return 3;
+            case NULL:
+                return 4;
+            default:
+                return 5;
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final class Lowering {
+        int[] code = new int[64];
+        int size;
+        final List<Object> constants = new ArrayList<>();
+        private final Map<Object, Integer> sharedConstants = new HashMap<>();
+        private final Map<List<Integer>, Integer> sharedBlocks = new HashMap<>();
+        private int forbidPc = NO_OP;
+
+        /*
+            Children are lowered before their parent, so the parent's block can hold their offsets
+         */
+        int lower(JsonSchema schema) {
+            if (schema == ObjectSchema.ALLOW_ALL_ADDITIONAL_PROPERTIES) {
+                return NO_OP;
+            }
+            if (schema == ObjectSchema.FORBID_ANY_ADDITIONAL_PROPERTIES) {
+                if (forbidPc == NO_OP) {
+                    forbidPc = append(Arrays.asList(FORBID));
+                }
+                return forbidPc;
+            }
+            if (schema instanceof ObjectSchema) {
+                return lowerObjectSchema((ObjectSchema) schema);
+            }
+            if (schema instanceof ArraySchema) {
+                ArraySchema arraySchema = (ArraySchema) schema;
+                int itemsPc = lower(arraySchema.getItems());
+                return share(Arrays.asList(ARRAY, arraySchema.getMinItems(), arraySchema.getMaxItems(), itemsPc));
+            }
+            if ((schema instanceof SimpleTypeSchema) && ((SimpleTypeSchema) schema).hasConstraintsSuitedToType()) {
+                return lowerSimpleTypeSchema((SimpleTypeSchema) schema);
+            }
+            return append(Arrays.asList(DELEGATE, constant(extend(schema))));
+        }
+
+        private int lowerObjectSchema(ObjectSchema schema) {
+            List<Property> properties = schema.getProperties();
+            int propertyCount = properties.size();
+            String[] names = new String[propertyCount];
+            int[] childPcs = new int[propertyCount];
+            int[] requiredOrdinals = new int[propertyCount];
+            List<Integer> requiredSlots = new ArrayList<>();
+            for (int slot = 0; slot < propertyCount; slot++) {
+                names[slot] = properties.get(slot).getName();
+                childPcs[slot] = lower(properties.get(slot).getNestedSchema());
+                requiredOrdinals[slot] = properties.get(slot).isRequired() ? requiredSlots.size() : -1;
+                if (requiredOrdinals[slot] >= 0) {
+                    requiredSlots.add(slot);
+                }
+            }
+            int additionalPc = lower(schema.getAdditionalProperties());
+
+            //the same open addressing table as ObjectSchema, where the first of any repeated names wins
+            int tableSize = 2;
+            while (tableSize < propertyCount * 2) {
+                tableSize <<= 1;
+            }
+            int mask = tableSize - 1;
+            int[] table = new int[tableSize];
+            for (int slot = 0; slot < propertyCount; slot++) {
+                int bucket = spread(names[slot].hashCode()) & mask;
+                boolean repeated = false;
+                while (table[bucket] != 0) {
+                    repeated |= names[table[bucket] - 1].equals(names[slot]);
+                    bucket = (bucket + 1) & mask;
+                }
+                if (!repeated) {
+                    table[bucket] = slot + 1;
+                }
+            }
+
+            List<Integer> block = new ArrayList<>(Arrays.asList(OBJECT, propertyCount, requiredSlots.size(), additionalPc, mask, constant(names)));
+            for (int childPc : childPcs) {
+                block.add(childPc);
+            }
+            for (int requiredOrdinal : requiredOrdinals) {
+                block.add(requiredOrdinal);
+            }
+            block.addAll(requiredSlots);
+            for (int entry : table) {
+                block.add(entry);
+            }
+            return append(block);
+        }
+
+        private int lowerSimpleTypeSchema(SimpleTypeSchema schema) {
+            if (schema.isUnconstrained()) {
+                return NO_OP;
+            }
+            List<Integer> block = new ArrayList<>();
+            SimpleType type = schema.getType();
+            if (type != SimpleType.ANY) {
+                block.addAll(Arrays.asList(TYPE, typeCode(type), constant("Invalid type: must be of type " + type.name().toLowerCase())));
+            }
+            if (schema.getPatternMatcher() != null) {
+                block.addAll(Arrays.asList(PATTERN, constant(schema.getPatternMatcher()), constant(schema.getPattern().pattern())));
+            }
+            if (schema.getFormat() != null) {
+                block.addAll(Arrays.asList(FORMAT, constant(schema), constant(schema.getFormat())));
+            }
+            if (schema.getMinimumBound() != null) {
+                block.addAll(Arrays.asList(MINIMUM, constant(schema.getMinimumBound()), schema.isExclusiveMinimum() ? 1 : 0));
+            }
+            if (schema.getMaximumBound() != null) {
+                block.addAll(Arrays.asList(MAXIMUM, constant(schema.getMaximumBound()), schema.isExclusiveMaximum() ? 1 : 0));
+            }
+            if (schema.getMinLength() > 0) {
+                block.addAll(Arrays.asList(MIN_LENGTH, schema.getMinLength()));
+            }
+            if (schema.getMaxLength() > 0) {
+                block.addAll(Arrays.asList(MAX_LENGTH, schema.getMaxLength()));
+            }
+            if (schema.getEnumerationLookup() != null) {
+                block.addAll(Arrays.asList(ENUMERATION, constant(schema.getEnumerationLookup()), constant(schema.getEnumeration().toString())));
+            }
+            block.add(END);
+            return share(block);
+        }
+
+        /*
+            Strings are shared by value; everything else is only shared when it is the same object
+         */
+        private int constant(Object value) {
+            Object key = (value instanceof String) ? value : new IdentityKey(value);
+            Integer index = sharedConstants.get(key);
+            if (index == null) {
+                index = constants.size();
+                constants.add(value);
+                sharedConstants.put(key, index);
+            }
+            return index;
+        }
+
+        private int share(List<Integer> block) {
+            Integer pc = sharedBlocks.get(block);
+            if (pc == null) {
+                pc = append(block);
+                sharedBlocks.put(block, pc);
+            }
+            return pc;
+        }
+
+        private int append(List<Integer> block) {
+            if (size + block.size() > code.length) {
+                code = Arrays.copyOf(code, Math.max(code.length * 2, size + block.size()));
+            }
+            int pc = size;
+            for (int instruction : block) {
+                code[size++] = instruction;
+            }
+            return pc;
+        }
+    }
+
+    private static final class IdentityKey {
+        private final Object value;
+
+        IdentityKey(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return (other instanceof IdentityKey) && (((IdentityKey) other).value == value);
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(value);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package uk.co.o2.json.schema;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.util.List;
+
+import static uk.co.o2.json.schema.StreamingSupport.readCurrentValue;
+
+/*
+    Gives a schema that only implements JsonSchema the extended entry points, in terms of its tree validation
+ */
+final class JsonSchemaAdapter implements ExtendedJsonSchema {
+    private final JsonSchema schema;
+
+    private JsonSchemaAdapter(JsonSchema schema) {
+        this.schema = schema;
+    }
+
+    static ExtendedJsonSchema extend(JsonSchema schema) {
+        return (schema instanceof ExtendedJsonSchema) ? (ExtendedJsonSchema) schema : new JsonSchemaAdapter(schema);
+    }
+
+    @Override
+    public List<ErrorMessage> validate(JsonNode jsonDocumentToValidate) {
+        return schema.validate(jsonDocumentToValidate);
+    }
+
+    @Override
+    public void validate(JsonNode jsonDocumentToValidate, ErrorSink errors) {
+        errors.addErrors(schema.validate(jsonDocumentToValidate));
+    }
+
+    @Override
+    public List<ErrorMessage> validate(JsonParser jsonDocumentToValidate) throws IOException {
+        return schema.validate(readCurrentValue(jsonDocumentToValidate));
+    }
+
+    @Override
+    public void validate(JsonParser jsonDocumentToValidate, ErrorSink errors) throws IOException {
+        errors.addErrors(schema.validate(readCurrentValue(jsonDocumentToValidate)));
+    }
+
+    @Override
+    public boolean isValid(JsonNode jsonDocumentToValidate) {
+        return schema.validate(jsonDocumentToValidate).isEmpty();
+    }
+
+    @Override
+    public String getDescription() {
+        return schema.getDescription();
+    }
+
+    @Override
+    public boolean isAcceptableType(JsonNode jsonDocument) {
+        return schema.isAcceptableType(jsonDocument);
+    }
+}
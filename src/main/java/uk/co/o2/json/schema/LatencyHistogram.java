@@ -0,0 +1,56 @@
+package uk.co.o2.json.schema;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+    Counts durations in buckets whose bounds are powers of two: bucket 0 holds 0ns, and bucket n holds durations
+    from 2^(n-1) up to 2^n - 1 nanoseconds. Recording is a single atomic increment, and percentiles are accurate to
+    within a factor of two, which is enough to tell microseconds from milliseconds.
+ */
+final class LatencyHistogram {
+    static final int BUCKETS = 64;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    void record(long nanos) {
+        counts.incrementAndGet(bucketOf(nanos));
+    }
+
+    long[] getCounts() {
+        long[] result = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            result[i] = counts.get(i);
+        }
+        return result;
+    }
+
+    static int bucketOf(long nanos) {
+        return (nanos <= 0L) ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+    }
+
+    /*
+        The upper bound of the bucket holding the given fraction of the recorded durations, or 0 when nothing was
+        recorded
+     */
+    static long percentile(long[] counts, double fraction) {
+        if ((fraction < 0.0) || (fraction > 1.0)) {
+            throw new IllegalArgumentException("The fraction must be between 0 and 1");
+        }
+        long total = 0L;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0L) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(fraction * total));
+        long seen = 0L;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return (i == 0) ? 0L : (i >= 63) ? Long.MAX_VALUE : (1L << i) - 1L;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,78 @@
+package uk.co.o2.json.schema;
+
+import java.math.BigDecimal;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/*
+    A minimum or maximum prepared once so that int, long and double values can be compared without building a
+    BigDecimal. Every comparison gives the same answer as comparing the value's decimal string with the bound.
+ */
+final class NumericBound {
+    private static final BigDecimal LONG_MIN = BigDecimal.valueOf(Long.MIN_VALUE);
+    private static final BigDecimal LONG_MAX = BigDecimal.valueOf(Long.MAX_VALUE);
+
+    private final BigDecimal decimalValue;
+
+    private final boolean aboveEveryLong;
+    private final boolean belowEveryLong;
+    private final long floor;
+    private final boolean integral;
+
+    private final double doubleValue;
+    private final boolean comparableAsDouble;
+
+    NumericBound(Number bound) {
+        decimalValue = new BigDecimal(bound.toString());
+
+        aboveEveryLong = decimalValue.compareTo(LONG_MAX) > 0;
+        belowEveryLong = decimalValue.compareTo(LONG_MIN) < 0;
+        BigDecimal floorValue = decimalValue.setScale(0, BigDecimal.ROUND_FLOOR);
+        floor = (aboveEveryLong || belowEveryLong) ? 0 : floorValue.longValueExact();
+        integral = floorValue.compareTo(decimalValue) == 0;
+
+        //a double only stands in for the bound when it prints back as exactly the same decimal
+        doubleValue = decimalValue.doubleValue();
+        comparableAsDouble = !Double.isInfinite(doubleValue) && (BigDecimal.valueOf(doubleValue).compareTo(decimalValue) == 0);
+    }
+
+    BigDecimal decimalValue() {
+        return decimalValue;
+    }
+
+    /*
+        Returns a negative number, zero or a positive number as the numeric node is less than, equal to or greater
+        than this bound.
+     */
+    int compareWith(JsonNode node) {
+        switch (node.numberType()) {
+            case INT:
+            case LONG:
+                return compareWith(node.longValue());
+            case FLOAT:
+            case DOUBLE:
+                double value = node.doubleValue();
+                if (comparableAsDouble && !Double.isNaN(value)) {
+                    return (value < doubleValue) ? -1 : ((value > doubleValue) ? 1 : 0);
+                }
+                return BigDecimal.valueOf(value).compareTo(decimalValue);
+            case BIG_INTEGER:
+                return new BigDecimal(node.bigIntegerValue()).compareTo(decimalValue);
+            default:
+                return node.decimalValue().compareTo(decimalValue);
+        }
+    }
+
+    private int compareWith(long value) {
+        if (aboveEveryLong) {
+            return -1;
+        }
+        if (belowEveryLong) {
+            return 1;
+        }
+        if (value != floor) {
+            return (value < floor) ? -1 : 1;
+        }
+        return integral ? 0 : -1;
+    }
+}
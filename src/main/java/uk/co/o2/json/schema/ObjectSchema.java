@@ -1,19 +1,48 @@
 package uk.co.o2.json.schema;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 
+import java.io.IOException;
 import java.util.*;
 
 import static java.util.Collections.emptyList;
 import static uk.co.o2.json.schema.ErrorMessage.singleError;
+import static uk.co.o2.json.schema.JsonSchemaAdapter.extend;
 
-class ObjectSchema implements JsonSchema {
-    public static final JsonSchema ALLOW_ALL_ADDITIONAL_PROPERTIES = new JsonSchema() {
+class ObjectSchema implements StreamingSchema {
+    public static final JsonSchema ALLOW_ALL_ADDITIONAL_PROPERTIES = new StreamingSchema() {
         @Override
         public List<ErrorMessage> validate(JsonNode jsonDocumentToValidate) {
             return emptyList();
         }
 
+        @Override
+        public void validate(JsonNode jsonDocumentToValidate, ErrorSink errors) {
+        }
+
+        @Override
+        public List<ErrorMessage> validate(JsonParser jsonDocumentToValidate) throws IOException {
+            jsonDocumentToValidate.skipChildren();
+            return emptyList();
+        }
+
+        @Override
+        public void validate(JsonParser jsonDocumentToValidate, ErrorSink errors) throws IOException {
+            jsonDocumentToValidate.skipChildren();
+        }
+
+        @Override
+        public void startValue(JsonParser parser, StreamingValidator validator) {
+            validator.skipValue(parser);
+        }
+
+        @Override
+        public boolean isValid(JsonNode jsonDocumentToValidate) {
+            return true;
+        }
+
         @Override
         public String getDescription() {
             return "";
@@ -25,12 +54,40 @@ class ObjectSchema implements JsonSchema {
         }
     };
 
-    public static final JsonSchema FORBID_ANY_ADDITIONAL_PROPERTIES = new JsonSchema() {
+    public static final JsonSchema FORBID_ANY_ADDITIONAL_PROPERTIES = new StreamingSchema() {
         @Override
         public List<ErrorMessage> validate(JsonNode jsonDocumentToValidate) {
             return singleError("", "Unexpected property");
         }
 
+        @Override
+        public void validate(JsonNode jsonDocumentToValidate, ErrorSink errors) {
+            errors.addError("Unexpected property");
+        }
+
+        @Override
+        public List<ErrorMessage> validate(JsonParser jsonDocumentToValidate) throws IOException {
+            jsonDocumentToValidate.skipChildren();
+            return singleError("", "Unexpected property");
+        }
+
+        @Override
+        public void validate(JsonParser jsonDocumentToValidate, ErrorSink errors) throws IOException {
+            jsonDocumentToValidate.skipChildren();
+            errors.addError("Unexpected property");
+        }
+
+        @Override
+        public void startValue(JsonParser parser, StreamingValidator validator) {
+            validator.getErrors().addError("Unexpected property");
+            validator.skipValue(parser);
+        }
+
+        @Override
+        public boolean isValid(JsonNode jsonDocumentToValidate) {
+            return false;
+        }
+
         @Override
         public String getDescription() {
             return "";
@@ -48,6 +105,8 @@ class ObjectSchema implements JsonSchema {
         return properties;
     }
 
+    private volatile PropertyIndex propertyIndex;
+
     private JsonSchema additionalProperties = ALLOW_ALL_ADDITIONAL_PROPERTIES;
 
     void setAdditionalProperties(JsonSchema additionalProperties) {
@@ -60,37 +119,124 @@ class ObjectSchema implements JsonSchema {
 
     @Override
     public List<ErrorMessage> validate(JsonNode jsonDocumentToValidate) {
-        List<ErrorMessage> results = new ArrayList<>();
+        ErrorCollector errors = new ErrorCollector();
+        validate(jsonDocumentToValidate, errors);
+        return errors.getErrors();
+    }
+
+    @Override
+    public void validate(JsonNode jsonDocumentToValidate, ErrorSink errors) {
         if (!isAcceptableType(jsonDocumentToValidate)) {
-            return singleError("", "Invalid type: must be an object");
+            errors.addError("Invalid type: must be an object");
+            return;
+        }
+        PropertyIndex index = getPropertyIndex();
+        //a valid object, the common case, is checked in one pass over its fields; an invalid one is walked again
+        if (isValid(jsonDocumentToValidate, index)) {
+            return;
         }
-        Set<String> visitedPropertyNames = new HashSet<>();
 
-        for (Property property : properties) {
-            if (!jsonDocumentToValidate.has(property.getName())) {
-                if (property.isRequired()) {
-                    results.add(new ErrorMessage(property.getName(), "Missing required property " + property.getName()));
-                }
-            } else {
-                JsonNode propertyValue = jsonDocumentToValidate.get(property.getName());
-                for (ErrorMessage nestedMessage : property.getNestedSchema().validate(propertyValue)) {
-                    results.add(new ErrorMessage(property.getName(), nestedMessage));
-                }
+        //errors are reported in declaration order, with additional properties last
+        for (int slot = 0; (slot < index.size()) && !errors.isTruncated(); slot++) {
+            Property property = index.getProperty(slot);
+            JsonNode value = jsonDocumentToValidate.get(property.getName());
+            if (value != null) {
+                errors.enterProperty(property.getName());
+                extend(property.getNestedSchema()).validate(value, errors);
+                errors.exit();
+            } else if (property.isRequired()) {
+                errors.enterProperty(property.getName());
+                errors.addError("Missing required property " + property.getName());
+                errors.exit();
             }
-            visitedPropertyNames.add(property.getName());
         }
 
+        if (additionalProperties == ALLOW_ALL_ADDITIONAL_PROPERTIES) {
+            return;
+        }
+        for (Iterator<Map.Entry<String, JsonNode>> iterator = jsonDocumentToValidate.fields(); iterator.hasNext() && !errors.isTruncated();) {
+            Map.Entry<String, JsonNode> entry = iterator.next();
+            if (index.slotOf(entry.getKey()) < 0) {
+                errors.enterProperty(entry.getKey());
+                extend(additionalProperties).validate(entry.getValue(), errors);
+                errors.exit();
+            }
+        }
+    }
+
+    @Override
+    public List<ErrorMessage> validate(JsonParser jsonDocumentToValidate) throws IOException {
+        ErrorCollector errors = new ErrorCollector();
+        validate(jsonDocumentToValidate, errors);
+        return errors.getErrors();
+    }
+
+    @Override
+    public void validate(JsonParser jsonDocumentToValidate, ErrorSink errors) throws IOException {
+        StreamingValidator.validate(this, jsonDocumentToValidate, errors);
+    }
+
+    @Override
+    public void startValue(JsonParser parser, StreamingValidator validator) {
+        if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+            validator.getErrors().addError("Invalid type: must be an object");
+            validator.skipValue(parser);
+            return;
+        }
+        validator.getErrors().beginDeferred();
+        validator.push(new ObjectFrame(getPropertyIndex()));
+    }
+
+    private void reportMissingProperty(PropertyIndex index, int slot, ErrorSink errors) {
+        String name = index.getProperty(slot).getName();
+        errors.setDeferredOrder(slot);
+        errors.enterProperty(name);
+        errors.addError("Missing required property " + name);
+        errors.exit();
+    }
+
+    @Override
+    public boolean isValid(JsonNode jsonDocumentToValidate) {
+        return isAcceptableType(jsonDocumentToValidate) && isValid(jsonDocumentToValidate, getPropertyIndex());
+    }
 
+    private boolean isValid(JsonNode jsonDocumentToValidate, PropertyIndex index) {
+        int requiredPropertiesFound = 0;
         for (Iterator<Map.Entry<String, JsonNode>> iterator = jsonDocumentToValidate.fields(); iterator.hasNext();) {
             Map.Entry<String, JsonNode> entry = iterator.next();
-            if (!visitedPropertyNames.contains(entry.getKey())) {
-                for (ErrorMessage it : additionalProperties.validate(entry.getValue())) {
-                    results.add(new ErrorMessage(entry.getKey(), it));
+            int slot = index.slotOf(entry.getKey());
+            if (slot >= 0) {
+                if (!extend(index.getProperty(slot).getNestedSchema()).isValid(entry.getValue())) {
+                    return false;
+                }
+                if (index.isRequired(slot)) {
+                    requiredPropertiesFound++;
                 }
+            } else if ((additionalProperties != ALLOW_ALL_ADDITIONAL_PROPERTIES) && !extend(additionalProperties).isValid(entry.getValue())) {
+                return false;
             }
         }
+        return requiredPropertiesFound == index.getRequiredCount();
+    }
 
-        return results;
+    /*
+        Called once every property has been added, by whatever built the schema, after which the properties cannot
+        change. A schema put together by hand is indexed when it is first used instead.
+     */
+    synchronized void indexProperties() {
+        if (propertyIndex == null) {
+            properties = Collections.unmodifiableList(properties);
+            propertyIndex = new PropertyIndex(properties);
+        }
+    }
+
+    private PropertyIndex getPropertyIndex() {
+        PropertyIndex index = propertyIndex;
+        if (index == null) {
+            indexProperties();
+            index = propertyIndex;
+        }
+        return index;
     }
 
     @Override
@@ -103,6 +249,65 @@ class ObjectSchema implements JsonSchema {
         return "object";
     }
 
+    private final class ObjectFrame extends StreamingValidator.Frame {
+        private final PropertyIndex index;
+        //a stream may repeat a field name, so required properties are tracked as a set of bits rather than a count
+        private long requiredPropertiesFound;
+        private final long[] manyRequiredPropertiesFound;
+        private JsonSchema valueSchema;
+
+        ObjectFrame(PropertyIndex index) {
+            this.index = index;
+            this.manyRequiredPropertiesFound = index.newRequiredSetIfTooLargeForALong();
+        }
+
+        @Override
+        void onToken(JsonParser parser, StreamingValidator validator) throws IOException {
+            ErrorSink errors = validator.getErrors();
+            JsonToken token = parser.getCurrentToken();
+            if (token == JsonToken.FIELD_NAME) {
+                valueSchema = errors.isTruncated() ? null : enterProperty(parser.getCurrentName(), errors);
+            } else if (token == JsonToken.END_OBJECT) {
+                for (int requiredOrdinal = 0; requiredOrdinal < index.getRequiredCount(); requiredOrdinal++) {
+                    long found = (manyRequiredPropertiesFound == null) ? requiredPropertiesFound : manyRequiredPropertiesFound[requiredOrdinal >>> 6];
+                    if ((found & (1L << requiredOrdinal)) == 0) {
+                        reportMissingProperty(index, index.getRequiredSlot(requiredOrdinal), errors);
+                    }
+                }
+                errors.endDeferred();
+                validator.pop();
+            } else if (valueSchema == null) {
+                validator.skipValue(parser);
+            } else {
+                validator.startValue(valueSchema, parser);
+            }
+        }
+
+        @Override
+        void childEnded(StreamingValidator validator) {
+            if (valueSchema != null) {
+                validator.getErrors().exit();
+            }
+        }
+
+        private JsonSchema enterProperty(String fieldName, ErrorSink errors) {
+            int slot = index.slotOf(fieldName);
+            errors.enterProperty(fieldName);
+            if (slot < 0) {
+                errors.setDeferredOrder(index.size());
+                return additionalProperties;
+            }
+            errors.setDeferredOrder(slot);
+            int requiredOrdinal = index.getRequiredOrdinal(slot);
+            if ((requiredOrdinal >= 0) && (manyRequiredPropertiesFound == null)) {
+                requiredPropertiesFound |= 1L << requiredOrdinal;
+            } else if (requiredOrdinal >= 0) {
+                manyRequiredPropertiesFound[requiredOrdinal >>> 6] |= 1L << requiredOrdinal;
+            }
+            return index.getProperty(slot).getNestedSchema();
+        }
+    }
+
     static class Property {
         private String name;
         private boolean required;
@@ -138,4 +343,92 @@ class ObjectSchema implements JsonSchema {
             this.nestedSchema = nestedSchema;
         }
     }
-}
\ No newline at end of file
+
+    /*
+        An open addressing name to slot table over the declared properties, with the required properties numbered
+        so that a document can be checked in a single pass over its fields.
+     */
+    private static final class PropertyIndex {
+        private final Property[] slots;
+        private final int[] table;
+        private final int mask;
+        private final int[] requiredOrdinals;
+        private final int[] requiredSlots;
+
+        PropertyIndex(List<Property> properties) {
+            slots = properties.toArray(new Property[properties.size()]);
+
+            int tableSize = 2;
+            while (tableSize < slots.length * 2) {
+                tableSize <<= 1;
+            }
+            table = new int[tableSize];
+            mask = tableSize - 1;
+
+            requiredOrdinals = new int[slots.length];
+            int requiredCount = 0;
+            for (int slot = 0; slot < slots.length; slot++) {
+                String name = slots[slot].getName();
+                if (slotOf(name) < 0) {
+                    int bucket = spread(name.hashCode()) & mask;
+                    while (table[bucket] != 0) {
+                        bucket = (bucket + 1) & mask;
+                    }
+                    table[bucket] = slot + 1;
+                }
+                requiredOrdinals[slot] = slots[slot].isRequired() ? requiredCount++ : -1;
+            }
+
+            requiredSlots = new int[requiredCount];
+            for (int slot = 0; slot < slots.length; slot++) {
+                if (requiredOrdinals[slot] >= 0) {
+                    requiredSlots[requiredOrdinals[slot]] = slot;
+                }
+            }
+        }
+
+        int slotOf(String name) {
+            int bucket = spread(name.hashCode()) & mask;
+            int entry;
+            while ((entry = table[bucket]) != 0) {
+                if (slots[entry - 1].getName().equals(name)) {
+                    return entry - 1;
+                }
+                bucket = (bucket + 1) & mask;
+            }
+            return -1;
+        }
+
+        int size() {
+            return slots.length;
+        }
+
+        Property getProperty(int slot) {
+            return slots[slot];
+        }
+
+        boolean isRequired(int slot) {
+            return requiredOrdinals[slot] >= 0;
+        }
+
+        int getRequiredOrdinal(int slot) {
+            return requiredOrdinals[slot];
+        }
+
+        int getRequiredCount() {
+            return requiredSlots.length;
+        }
+
+        int getRequiredSlot(int requiredOrdinal) {
+            return requiredSlots[requiredOrdinal];
+        }
+
+        long[] newRequiredSetIfTooLargeForALong() {
+            return (requiredSlots.length > 64) ? new long[(requiredSlots.length + 63) >>> 6] : null;
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
@@ -0,0 +1,751 @@
+package uk.co.o2.json.schema;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/*
+    Whole string matching for the pattern keyword. Patterns made of literals, character classes, groups, alternation
+    and greedy or reluctant quantifiers are run as a set of automaton states advanced once per code point, so the time
+    taken is linear in the length of the value whatever the pattern looks like. Anything else (back references,
+    look-around, anchors inside the pattern, possessive quantifiers, flags) is left to java.util.regex.
+ */
+abstract class PatternMatcher {
+    private static final int MAX_STATES = 4096;
+
+    abstract boolean matches(String value);
+
+    static PatternMatcher backtracking(Pattern pattern) {
+        return new BacktrackingMatcher(pattern);
+    }
+
+    /*
+        Returns a linear time matcher that accepts exactly the strings the pattern matches, or a backtracking one if
+        the pattern uses anything the automaton does not support.
+     */
+    static PatternMatcher compile(Pattern pattern) {
+        if (pattern.flags() != 0) {
+            return backtracking(pattern);
+        }
+        try {
+            Node root = new Parser(pattern.pattern()).parse();
+            PatternMatcher prefixMatcher = PrefixMatcher.forNode(root);
+            if (prefixMatcher != null) {
+                return prefixMatcher;
+            }
+            return new AutomatonBuilder().build(root);
+        } catch (UnsupportedPatternException e) {
+            return backtracking(pattern);
+        }
+    }
+
+    private static class BacktrackingMatcher extends PatternMatcher {
+        private final Pattern pattern;
+
+        BacktrackingMatcher(Pattern pattern) {
+            this.pattern = pattern;
+        }
+
+        @Override
+        boolean matches(String value) {
+            return pattern.matcher(value).matches();
+        }
+    }
+
+    /*
+        A literal prefix optionally followed by a run of code points from a single class, e.g. "abc", "abc.*",
+        "[a-z0-9]+" or "ID-\d{4}"
+     */
+    private static class PrefixMatcher extends PatternMatcher {
+        private final String prefix;
+        private final CharClass tail;
+        private final int minimum;
+        private final int maximum;
+
+        private PrefixMatcher(String prefix, CharClass tail, int minimum, int maximum) {
+            this.prefix = prefix;
+            this.tail = tail;
+            this.minimum = minimum;
+            this.maximum = maximum;
+        }
+
+        static PrefixMatcher forNode(Node root) {
+            List<Node> items = (root instanceof Sequence) ? ((Sequence) root).items : Arrays.asList(root);
+            StringBuilder prefix = new StringBuilder();
+            int index = 0;
+            while ((index < items.size()) && (items.get(index) instanceof CharClass) && ((CharClass) items.get(index)).isSingleCodePoint()) {
+                prefix.appendCodePoint(((CharClass) items.get(index)).ranges[0]);
+                index++;
+            }
+
+            if (index == items.size()) {
+                return new PrefixMatcher(prefix.toString(), null, 0, 0);
+            }
+            if (index != items.size() - 1) {
+                return null;
+            }
+            Node last = items.get(index);
+            if (last instanceof CharClass) {
+                return new PrefixMatcher(prefix.toString(), (CharClass) last, 1, 1);
+            }
+            if ((last instanceof Repeat) && (((Repeat) last).node instanceof CharClass)) {
+                Repeat repeat = (Repeat) last;
+                return new PrefixMatcher(prefix.toString(), (CharClass) repeat.node, repeat.minimum, repeat.maximum);
+            }
+            return null;
+        }
+
+        @Override
+        boolean matches(String value) {
+            if (!value.startsWith(prefix)) {
+                return false;
+            }
+            if (tail == null) {
+                return value.length() == prefix.length();
+            }
+            int count = 0;
+            for (int i = prefix.length(); i < value.length(); count++) {
+                int codePoint = value.codePointAt(i);
+                if (((maximum >= 0) && (count == maximum)) || !tail.contains(codePoint)) {
+                    return false;
+                }
+                i += Character.charCount(codePoint);
+            }
+            return count >= minimum;
+        }
+    }
+
+    /*
+        The states are the consuming positions of a Thompson automaton with the empty transitions already followed,
+        plus one bit for acceptance. Up to 63 positions fit in a single long and matching allocates nothing.
+     */
+    private static class SmallAutomaton extends PatternMatcher {
+        private final CharClass[] classes;
+        private final long start;
+        private final long[] follow;
+        private final long acceptBit;
+
+        SmallAutomaton(CharClass[] classes, long start, long[] follow) {
+            this.classes = classes;
+            this.start = start;
+            this.follow = follow;
+            this.acceptBit = 1L << classes.length;
+        }
+
+        @Override
+        boolean matches(String value) {
+            long current = start;
+            for (int i = 0; i < value.length();) {
+                int codePoint = value.codePointAt(i);
+                i += Character.charCount(codePoint);
+                long next = 0L;
+                for (long states = current & ~acceptBit; states != 0L; states &= states - 1) {
+                    int state = Long.numberOfTrailingZeros(states);
+                    if (classes[state].contains(codePoint)) {
+                        next |= follow[state];
+                    }
+                }
+                if (next == 0L) {
+                    return false;
+                }
+                current = next;
+            }
+            return (current & acceptBit) != 0L;
+        }
+    }
+
+    private static class LargeAutomaton extends PatternMatcher {
+        private final CharClass[] classes;
+        private final long[] start;
+        private final long[][] follow;
+
+        LargeAutomaton(CharClass[] classes, long[] start, long[][] follow) {
+            this.classes = classes;
+            this.start = start;
+            this.follow = follow;
+        }
+
+        @Override
+        boolean matches(String value) {
+            long[] current = start.clone();
+            long[] next = new long[start.length];
+            for (int i = 0; i < value.length();) {
+                int codePoint = value.codePointAt(i);
+                i += Character.charCount(codePoint);
+                Arrays.fill(next, 0L);
+                boolean anyState = false;
+                for (int word = 0; word < current.length; word++) {
+                    for (long states = current[word]; states != 0L; states &= states - 1) {
+                        int state = (word << 6) + Long.numberOfTrailingZeros(states);
+                        if ((state < classes.length) && classes[state].contains(codePoint)) {
+                            long[] followers = follow[state];
+                            for (int w = 0; w < next.length; w++) {
+                                next[w] |= followers[w];
+                            }
+                            anyState = true;
+                        }
+                    }
+                }
+                if (!anyState) {
+                    return false;
+                }
+                long[] swap = current;
+                current = next;
+                next = swap;
+            }
+            return (current[classes.length >>> 6] & (1L << classes.length)) != 0L;
+        }
+    }
+
+    private static class AutomatonBuilder {
+        private static final int CONSUME = 0;
+        private static final int SPLIT = 1;
+        private static final int ACCEPT = 2;
+
+        private final List<CharClass> classes = new ArrayList<>();
+        private int[] kinds = new int[16];
+        private int[] nexts = new int[16];
+        private int[] alternatives = new int[16];
+        private int[] consumerIndexes = new int[16];
+        private int stateCount;
+
+        PatternMatcher build(Node root) {
+            int accept = newState(ACCEPT, -1, -1);
+            int entry = build(root, accept);
+
+            int consumers = classes.size();
+            int words = (consumers >>> 6) + 1;
+            long[][] follow = new long[consumers][];
+            for (int state = 0; state < stateCount; state++) {
+                if (kinds[state] == CONSUME) {
+                    follow[consumerIndexes[state]] = closure(nexts[state], words);
+                }
+            }
+            long[] start = closure(entry, words);
+            CharClass[] classArray = classes.toArray(new CharClass[consumers]);
+
+            if (words == 1) {
+                long[] smallFollow = new long[consumers];
+                for (int i = 0; i < consumers; i++) {
+                    smallFollow[i] = follow[i][0];
+                }
+                return new SmallAutomaton(classArray, start[0], smallFollow);
+            }
+            return new LargeAutomaton(classArray, start, follow);
+        }
+
+        private int build(Node node, int next) {
+            if (node instanceof CharClass) {
+                int state = newState(CONSUME, next, -1);
+                consumerIndexes[state] = classes.size();
+                classes.add((CharClass) node);
+                return state;
+            }
+            if (node instanceof Sequence) {
+                List<Node> items = ((Sequence) node).items;
+                for (int i = items.size() - 1; i >= 0; i--) {
+                    next = build(items.get(i), next);
+                }
+                return next;
+            }
+            if (node instanceof Alternation) {
+                List<Node> alternatives = ((Alternation) node).alternatives;
+                int entry = build(alternatives.get(alternatives.size() - 1), next);
+                for (int i = alternatives.size() - 2; i >= 0; i--) {
+                    entry = newState(SPLIT, build(alternatives.get(i), next), entry);
+                }
+                return entry;
+            }
+
+            Repeat repeat = (Repeat) node;
+            int entry = next;
+            if (repeat.maximum < 0) {
+                int loop = newState(SPLIT, -1, next);
+                int body = build(repeat.node, loop);
+                nexts[loop] = body;
+                entry = loop;
+            } else {
+                for (int i = repeat.minimum; i < repeat.maximum; i++) {
+                    entry = newState(SPLIT, build(repeat.node, entry), next);
+                }
+            }
+            for (int i = 0; i < repeat.minimum; i++) {
+                entry = build(repeat.node, entry);
+            }
+            return entry;
+        }
+
+        private int newState(int kind, int next, int alternative) {
+            if (stateCount == MAX_STATES) {
+                throw new UnsupportedPatternException();
+            }
+            if (stateCount == kinds.length) {
+                kinds = Arrays.copyOf(kinds, stateCount * 2);
+                nexts = Arrays.copyOf(nexts, stateCount * 2);
+                alternatives = Arrays.copyOf(alternatives, stateCount * 2);
+                consumerIndexes = Arrays.copyOf(consumerIndexes, stateCount * 2);
+            }
+            kinds[stateCount] = kind;
+            nexts[stateCount] = next;
+            alternatives[stateCount] = alternative;
+            return stateCount++;
+        }
+
+        /*
+            The consuming states and acceptance reachable from a state without reading anything
+         */
+        private long[] closure(int state, int words) {
+            long[] result = new long[words];
+            boolean[] visited = new boolean[stateCount];
+            int[] pending = new int[stateCount];
+            int pendingCount = 0;
+            pending[pendingCount++] = state;
+            visited[state] = true;
+            while (pendingCount > 0) {
+                int current = pending[--pendingCount];
+                int bit;
+                switch (kinds[current]) {
+                    case CONSUME:
+                        bit = consumerIndexes[current];
+                        result[bit >>> 6] |= 1L << bit;
+                        break;
+                    case ACCEPT:
+                        bit = classes.size();
+                        result[bit >>> 6] |= 1L << bit;
+                        break;
+                    default:
+                        for (int target : new int[] {nexts[current], alternatives[current]}) {
+                            if (!visited[target]) {
+                                visited[target] = true;
+                                pending[pendingCount++] = target;
+                            }
+                        }
+                }
+            }
+            return result;
+        }
+    }
+
+    private static class UnsupportedPatternException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedPatternException() {
+            super(null, null, false, false);
+        }
+    }
+
+    private interface Node {
+    }
+
+    private static class Sequence implements Node {
+        final List<Node> items;
+
+        Sequence(List<Node> items) {
+            this.items = items;
+        }
+    }
+
+    private static class Alternation implements Node {
+        final List<Node> alternatives;
+
+        Alternation(List<Node> alternatives) {
+            this.alternatives = alternatives;
+        }
+    }
+
+    private static class Repeat implements Node {
+        final Node node;
+        final int minimum;
+        final int maximum;
+
+        Repeat(Node node, int minimum, int maximum) {
+            this.node = node;
+            this.minimum = minimum;
+            this.maximum = maximum;
+        }
+    }
+
+    /*
+        A set of code points held as sorted, non-overlapping inclusive ranges
+     */
+    private static class CharClass implements Node {
+        private static final CharClass DIGIT = new CharClass(new int[] {'0', '9'});
+        private static final CharClass WORD = new CharClass(new int[] {'0', '9', 'A', 'Z', '_', '_', 'a', 'z'});
+        private static final CharClass SPACE = new CharClass(new int[] {'\t', '\r', ' ', ' '});
+        private static final CharClass DOT = new CharClass(new int[] {'\n', '\n', '\r', '\r', '\u0085', '\u0085', '\u2028', '\u2029'}).complement();
+
+        final int[] ranges;
+
+        CharClass(int[] ranges) {
+            this.ranges = ranges;
+        }
+
+        static CharClass of(int codePoint) {
+            return new CharClass(new int[] {codePoint, codePoint});
+        }
+
+        boolean isSingleCodePoint() {
+            return (ranges.length == 2) && (ranges[0] == ranges[1]);
+        }
+
+        boolean contains(int codePoint) {
+            for (int i = 0; i < ranges.length; i += 2) {
+                if (codePoint < ranges[i]) {
+                    return false;
+                }
+                if (codePoint <= ranges[i + 1]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        CharClass complement() {
+            int[] result = new int[ranges.length + 2];
+            int count = 0;
+            int from = Character.MIN_CODE_POINT;
+            for (int i = 0; i < ranges.length; i += 2) {
+                if (ranges[i] > from) {
+                    result[count++] = from;
+                    result[count++] = ranges[i] - 1;
+                }
+                from = ranges[i + 1] + 1;
+            }
+            if (from <= Character.MAX_CODE_POINT) {
+                result[count++] = from;
+                result[count++] = Character.MAX_CODE_POINT;
+            }
+            return new CharClass(Arrays.copyOf(result, count));
+        }
+
+        static CharClass union(List<int[]> ranges) {
+            List<int[]> pairs = new ArrayList<>();
+            for (int[] it : ranges) {
+                for (int i = 0; i < it.length; i += 2) {
+                    pairs.add(new int[] {it[i], it[i + 1]});
+                }
+            }
+            Collections.sort(pairs, new Comparator<int[]>() {
+                @Override
+                public int compare(int[] first, int[] second) {
+                    return Integer.compare(first[0], second[0]);
+                }
+            });
+
+            int[] result = new int[pairs.size() * 2];
+            int count = 0;
+            for (int[] pair : pairs) {
+                if ((count > 0) && (pair[0] <= result[count - 1] + 1)) {
+                    result[count - 1] = Math.max(result[count - 1], pair[1]);
+                } else {
+                    result[count++] = pair[0];
+                    result[count++] = pair[1];
+                }
+            }
+            return new CharClass(Arrays.copyOf(result, count));
+        }
+    }
+
+    /*
+        Recursive descent over the supported subset of java.util.regex syntax. The pattern has already been compiled
+        by Pattern, so only constructs that are unsupported (rather than malformed) need to be recognised.
+     */
+    private static class Parser {
+        private final String pattern;
+        private int position;
+        private int limit;
+
+        Parser(String pattern) {
+            this.pattern = pattern;
+        }
+
+        Node parse() {
+            //with whole string matching, anchors at the very start and end of the pattern never change the outcome
+            limit = pattern.length();
+            if (pattern.startsWith("^")) {
+                position = 1;
+            }
+            if ((limit > position) && (pattern.charAt(limit - 1) == '$') && !isEscaped(limit - 1)) {
+                limit--;
+            }
+            Node result = parseAlternation();
+            if (position != limit) {
+                throw new UnsupportedPatternException();
+            }
+            return result;
+        }
+
+        private boolean isEscaped(int index) {
+            int backslashes = 0;
+            while ((index - backslashes > 0) && (pattern.charAt(index - backslashes - 1) == '\\')) {
+                backslashes++;
+            }
+            return (backslashes % 2) == 1;
+        }
+
+        private Node parseAlternation() {
+            List<Node> alternatives = new ArrayList<>();
+            alternatives.add(parseSequence());
+            while ((position < limit) && (pattern.charAt(position) == '|')) {
+                position++;
+                alternatives.add(parseSequence());
+            }
+            return (alternatives.size() == 1) ? alternatives.get(0) : new Alternation(alternatives);
+        }
+
+        private Node parseSequence() {
+            List<Node> items = new ArrayList<>();
+            while ((position < limit) && (pattern.charAt(position) != '|') && (pattern.charAt(position) != ')')) {
+                items.add(parseQuantified());
+            }
+            return (items.size() == 1) ? items.get(0) : new Sequence(items);
+        }
+
+        private Node parseQuantified() {
+            Node atom = parseAtom();
+            if (position == limit) {
+                return atom;
+            }
+            int minimum;
+            int maximum;
+            switch (pattern.charAt(position)) {
+                case '*':
+                    minimum = 0;
+                    maximum = -1;
+                    position++;
+                    break;
+                case '+':
+                    minimum = 1;
+                    maximum = -1;
+                    position++;
+                    break;
+                case '?':
+                    minimum = 0;
+                    maximum = 1;
+                    position++;
+                    break;
+                case '{':
+                    position++;
+                    minimum = parseCount();
+                    maximum = minimum;
+                    if ((position < limit) && (pattern.charAt(position) == ',')) {
+                        position++;
+                        maximum = ((position < limit) && (pattern.charAt(position) == '}')) ? -1 : parseCount();
+                    }
+                    expect('}');
+                    break;
+                default:
+                    return atom;
+            }
+
+            //a reluctant quantifier accepts the same strings when the whole value has to match, a possessive one does not
+            if ((position < limit) && (pattern.charAt(position) == '?')) {
+                position++;
+            }
+            if ((position < limit) && ("*+?{".indexOf(pattern.charAt(position)) >= 0)) {
+                throw new UnsupportedPatternException();
+            }
+            return new Repeat(atom, minimum, maximum);
+        }
+
+        private int parseCount() {
+            int start = position;
+            while ((position < limit) && (position - start < 4) && Character.isDigit(pattern.charAt(position)) && (pattern.charAt(position) < 128)) {
+                position++;
+            }
+            if ((position == start) || ((position < limit) && Character.isDigit(pattern.charAt(position)))) {
+                throw new UnsupportedPatternException();
+            }
+            return Integer.parseInt(pattern.substring(start, position));
+        }
+
+        private void expect(char expected) {
+            if ((position == limit) || (pattern.charAt(position) != expected)) {
+                throw new UnsupportedPatternException();
+            }
+            position++;
+        }
+
+        private Node parseAtom() {
+            char ch = pattern.charAt(position);
+            switch (ch) {
+                case '(':
+                    position++;
+                    if (pattern.startsWith("?:", position)) {
+                        position += 2;
+                    } else if (pattern.startsWith("?", position)) {
+                        throw new UnsupportedPatternException();
+                    }
+                    Node group = parseAlternation();
+                    expect(')');
+                    return group;
+                case '[':
+                    return parseClass();
+                case '.':
+                    position++;
+                    return CharClass.DOT;
+                case '\\':
+                    return parseEscape();
+                case '^':
+                case '$':
+                case '*':
+                case '+':
+                case '?':
+                case '{':
+                    throw new UnsupportedPatternException();
+                default:
+                    return CharClass.of(parseLiteral());
+            }
+        }
+
+        private int parseLiteral() {
+            int codePoint = pattern.codePointAt(position);
+            if ((Character.charCount(codePoint) == 1) && Character.isSurrogate((char) codePoint)) {
+                throw new UnsupportedPatternException();
+            }
+            position += Character.charCount(codePoint);
+            return codePoint;
+        }
+
+        private CharClass parseEscape() {
+            if (position + 1 >= limit) {
+                throw new UnsupportedPatternException();
+            }
+            char ch = pattern.charAt(position + 1);
+            position += 2;
+            switch (ch) {
+                case 'd':
+                    return CharClass.DIGIT;
+                case 'D':
+                    return CharClass.DIGIT.complement();
+                case 'w':
+                    return CharClass.WORD;
+                case 'W':
+                    return CharClass.WORD.complement();
+                case 's':
+                    return CharClass.SPACE;
+                case 'S':
+                    return CharClass.SPACE.complement();
+                case 't':
+                    return CharClass.of('\t');
+                case 'n':
+                    return CharClass.of('\n');
+                case 'r':
+                    return CharClass.of('\r');
+                case 'f':
+                    return CharClass.of('\f');
+                case 'a':
+                    return CharClass.of('\u0007');
+                case 'e':
+                    return CharClass.of('\u001B');
+                case 'x':
+                    return CharClass.of(parseHex(2));
+                case 'u':
+                    return CharClass.of(parseHex(4));
+                default:
+                    if ((ch < 128) && !Character.isLetterOrDigit(ch)) {
+                        return CharClass.of(ch);
+                    }
+                    throw new UnsupportedPatternException();
+            }
+        }
+
+        private int parseHex(int digits) {
+            if (position + digits > limit) {
+                throw new UnsupportedPatternException();
+            }
+            int value = 0;
+            for (int i = 0; i < digits; i++) {
+                int digit = Character.digit(pattern.charAt(position + i), 16);
+                if ((digit < 0) || (pattern.charAt(position + i) >= 128)) {
+                    throw new UnsupportedPatternException();
+                }
+                value = (value << 4) | digit;
+            }
+            position += digits;
+            if (Character.isSurrogate((char) value)) {
+                throw new UnsupportedPatternException();
+            }
+            return value;
+        }
+
+        /*
+            Plain classes of literals, ranges and predefined classes. Unions, intersections and any use of '-' that
+            is not at the very start or end are left to Pattern.
+         */
+        private CharClass parseClass() {
+            position++;
+            boolean negated = (position < limit) && (pattern.charAt(position) == '^');
+            if (negated) {
+                position++;
+            }
+            List<int[]> ranges = new ArrayList<>();
+            boolean first = true;
+            while (true) {
+                if (position >= limit) {
+                    throw new UnsupportedPatternException();
+                }
+                char ch = pattern.charAt(position);
+                if ((ch == ']') && !first) {
+                    position++;
+                    break;
+                }
+                if ((ch == '[') || (ch == ']') || pattern.startsWith("&&", position)) {
+                    throw new UnsupportedPatternException();
+                }
+                if (ch == '-') {
+                    if (!first && !pattern.startsWith("-]", position)) {
+                        throw new UnsupportedPatternException();
+                    }
+                    position++;
+                    ranges.add(new int[] {'-', '-'});
+                } else if (ch == '\\') {
+                    CharClass escaped = parseEscape();
+                    if (escaped.isSingleCodePoint()) {
+                        ranges.add(parseRangeFrom(escaped.ranges[0]));
+                    } else if (isRangeNext()) {
+                        throw new UnsupportedPatternException();
+                    } else {
+                        ranges.add(escaped.ranges);
+                    }
+                } else {
+                    ranges.add(parseRangeFrom(parseLiteral()));
+                }
+                first = false;
+            }
+            CharClass result = CharClass.union(ranges);
+            return negated ? result.complement() : result;
+        }
+
+        private boolean isRangeNext() {
+            return (position + 1 < limit) && (pattern.charAt(position) == '-') && (pattern.charAt(position + 1) != ']');
+        }
+
+        private int[] parseRangeFrom(int from) {
+            if (!isRangeNext()) {
+                return new int[] {from, from};
+            }
+            position++;
+            char ch = pattern.charAt(position);
+            int to;
+            if (ch == '\\') {
+                CharClass escaped = parseEscape();
+                if (!escaped.isSingleCodePoint()) {
+                    throw new UnsupportedPatternException();
+                }
+                to = escaped.ranges[0];
+            } else if ("[]&-^".indexOf(ch) >= 0) {
+                throw new UnsupportedPatternException();
+            } else {
+                to = parseLiteral();
+            }
+            if ((to < from) || ((position < limit) && (pattern.charAt(position) == '-') && !pattern.startsWith("-]", position))) {
+                throw new UnsupportedPatternException();
+            }
+            return new int[] {from, to};
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package uk.co.o2.json.schema;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.util.List;
+
+import static uk.co.o2.json.schema.JsonSchemaAdapter.extend;
+
+/*
+    Times each validation against the schema it wraps, for SchemaProfiler. A reference is wrapped by resolving it
+    through the cache on first use, so that the referenced document is profiled too, under its own location.
+ */
+class ProfilingSchema implements StreamingSchema, SchemaWrapper {
+    private final SchemaProfiler.Counters counters;
+    private final SchemaReference reference;
+    private final SchemaPassThroughCache cache;
+    private volatile JsonSchema delegate;
+
+    ProfilingSchema(SchemaProfiler.Counters counters, JsonSchema delegate) {
+        this.counters = counters;
+        this.delegate = delegate;
+        this.reference = null;
+        this.cache = null;
+    }
+
+    ProfilingSchema(SchemaProfiler.Counters counters, SchemaReference reference, SchemaPassThroughCache cache) {
+        this.counters = counters;
+        this.reference = reference;
+        this.cache = cache;
+    }
+
+    @Override
+    public List<ErrorMessage> validate(JsonNode jsonDocumentToValidate) {
+        ErrorCollector errors = new ErrorCollector();
+        validate(jsonDocumentToValidate, errors);
+        return errors.getErrors();
+    }
+
+    @Override
+    public void validate(JsonNode jsonDocumentToValidate, ErrorSink errors) {
+        long mark = SchemaProfiler.Counters.start();
+        long start = System.nanoTime();
+        try {
+            extend(getDelegate()).validate(jsonDocumentToValidate, errors);
+        } finally {
+            counters.stop(mark, start);
+        }
+    }
+
+    @Override
+    public List<ErrorMessage> validate(JsonParser jsonDocumentToValidate) throws IOException {
+        ErrorCollector errors = new ErrorCollector();
+        validate(jsonDocumentToValidate, errors);
+        return errors.getErrors();
+    }
+
+    @Override
+    public void validate(JsonParser jsonDocumentToValidate, ErrorSink errors) throws IOException {
+        StreamingValidator.validate(this, jsonDocumentToValidate, errors);
+    }
+
+    /*
+        The time runs from the first token of the value to its last, so when the tokens are fed in by a reader
+        such as ValidatingJsonParser it includes whatever the reader does in between
+     */
+    @Override
+    public void startValue(JsonParser parser, StreamingValidator validator) throws IOException {
+        validator.push(new TimingFrame());
+        validator.startValue(getDelegate(), parser);
+    }
+
+    @Override
+    public boolean isValid(JsonNode jsonDocumentToValidate) {
+        long mark = SchemaProfiler.Counters.start();
+        long start = System.nanoTime();
+        try {
+            return extend(getDelegate()).isValid(jsonDocumentToValidate);
+        } finally {
+            counters.stop(mark, start);
+        }
+    }
+
+    @Override
+    public String getDescription() {
+        return getDelegate().getDescription();
+    }
+
+    @Override
+    public boolean isAcceptableType(JsonNode jsonDocument) {
+        return getDelegate().isAcceptableType(jsonDocument);
+    }
+
+    @Override
+    public JsonSchema getWrappedSchema() {
+        return getDelegate();
+    }
+
+    /*
+        The first lookup of a reference is timed as part of it, since resolving references is one of the costs a
+        profile should show
+     */
+    JsonSchema getDelegate() {
+        JsonSchema schema = delegate;
+        if (schema == null) {
+            schema = cache.getSchema(reference.getSchemaLocation());
+            delegate = schema;
+        }
+        return schema;
+    }
+
+    private final class TimingFrame extends StreamingValidator.Frame {
+        private final long mark = SchemaProfiler.Counters.start();
+        private final long start = System.nanoTime();
+
+        @Override
+        void onToken(JsonParser parser, StreamingValidator validator) {
+            throw new IllegalStateException("The value being timed has already ended");
+        }
+
+        @Override
+        void childEnded(StreamingValidator validator) {
+            counters.stop(mark, start);
+            validator.pop();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,158 @@
+package uk.co.o2.json.schema;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/*
+    A copy of a simple type schema that times each of its keyword checks separately, for SchemaProfiler. Both
+    validate and isValid go through the checks overridden here. Keywords the schema does not use are not timed.
+ */
+class ProfilingSimpleTypeSchema extends SimpleTypeSchema {
+    private final SchemaProfiler.Counters pattern;
+    private final SchemaProfiler.Counters format;
+    private final SchemaProfiler.Counters minimum;
+    private final SchemaProfiler.Counters maximum;
+    private final SchemaProfiler.Counters minLength;
+    private final SchemaProfiler.Counters maxLength;
+    private final SchemaProfiler.Counters enumeration;
+
+    /*
+        Only the settings that differ from the defaults are copied, since the setters reject settings that do not
+        apply to the type even when they are left at their defaults
+     */
+    ProfilingSimpleTypeSchema(SimpleTypeSchema original, SchemaProfiler profiler, String fragment) {
+        setType(original.getType());
+        if (original.getPattern() != null) {
+            setPattern(original.getPattern(), original.getPatternMatcher());
+        }
+        if (original.getFormat() != null) {
+            setFormat(original.getFormat(), original.isStrictTemporalFormat());
+        }
+        if (original.getMinLength() != 0) {
+            setMinLength(original.getMinLength());
+        }
+        if (original.getMaxLength() != 0) {
+            setMaxLength(original.getMaxLength());
+        }
+        if (original.getMinimum() != null) {
+            setMinimum(original.getMinimum());
+        }
+        if (original.getMaximum() != null) {
+            setMaximum(original.getMaximum());
+        }
+        if (original.isExclusiveMinimum()) {
+            setExclusiveMinimum(true);
+        }
+        if (original.isExclusiveMaximum()) {
+            setExclusiveMaximum(true);
+        }
+        if (original.getEnumeration() != null) {
+            setEnumeration(original.getEnumeration());
+        }
+
+        pattern = (getPatternMatcher() == null) ? null : profiler.countersFor(fragment, "pattern");
+        format = (getFormat() == null) ? null : profiler.countersFor(fragment, "format");
+        minimum = (getMinimumBound() == null) ? null : profiler.countersFor(fragment, "minimum");
+        maximum = (getMaximumBound() == null) ? null : profiler.countersFor(fragment, "maximum");
+        minLength = (getMinLength() <= 0) ? null : profiler.countersFor(fragment, "minLength");
+        maxLength = (getMaxLength() <= 0) ? null : profiler.countersFor(fragment, "maxLength");
+        enumeration = (getEnumerationLookup() == null) ? null : profiler.countersFor(fragment, "enumeration");
+    }
+
+    @Override
+    boolean matchesPattern(JsonNode node) {
+        if (pattern == null) {
+            return super.matchesPattern(node);
+        }
+        long mark = SchemaProfiler.Counters.start();
+        long start = System.nanoTime();
+        try {
+            return super.matchesPattern(node);
+        } finally {
+            pattern.stop(mark, start);
+        }
+    }
+
+    @Override
+    boolean matchesFormat(JsonNode node) {
+        if (format == null) {
+            return super.matchesFormat(node);
+        }
+        long mark = SchemaProfiler.Counters.start();
+        long start = System.nanoTime();
+        try {
+            return super.matchesFormat(node);
+        } finally {
+            format.stop(mark, start);
+        }
+    }
+
+    @Override
+    boolean isAboveMinimum(JsonNode node) {
+        if (minimum == null) {
+            return super.isAboveMinimum(node);
+        }
+        long mark = SchemaProfiler.Counters.start();
+        long start = System.nanoTime();
+        try {
+            return super.isAboveMinimum(node);
+        } finally {
+            minimum.stop(mark, start);
+        }
+    }
+
+    @Override
+    boolean isBelowMaximum(JsonNode node) {
+        if (maximum == null) {
+            return super.isBelowMaximum(node);
+        }
+        long mark = SchemaProfiler.Counters.start();
+        long start = System.nanoTime();
+        try {
+            return super.isBelowMaximum(node);
+        } finally {
+            maximum.stop(mark, start);
+        }
+    }
+
+    @Override
+    boolean isLongEnough(JsonNode node) {
+        if (minLength == null) {
+            return super.isLongEnough(node);
+        }
+        long mark = SchemaProfiler.Counters.start();
+        long start = System.nanoTime();
+        try {
+            return super.isLongEnough(node);
+        } finally {
+            minLength.stop(mark, start);
+        }
+    }
+
+    @Override
+    boolean isShortEnough(JsonNode node) {
+        if (maxLength == null) {
+            return super.isShortEnough(node);
+        }
+        long mark = SchemaProfiler.Counters.start();
+        long start = System.nanoTime();
+        try {
+            return super.isShortEnough(node);
+        } finally {
+            maxLength.stop(mark, start);
+        }
+    }
+
+    @Override
+    boolean isFromEnumeratedList(JsonNode node) {
+        if (enumeration == null) {
+            return super.isFromEnumeratedList(node);
+        }
+        long mark = SchemaProfiler.Counters.start();
+        long start = System.nanoTime();
+        try {
+            return super.isFromEnumeratedList(node);
+        } finally {
+            enumeration.stop(mark, start);
+        }
+    }
+}
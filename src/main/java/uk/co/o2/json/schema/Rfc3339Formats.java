@@ -0,0 +1,122 @@
+package uk.co.o2.json.schema;
+
+/*
+    Checks for the date, time and date-time formats against the RFC 3339 grammar, without allocating anything, used
+    instead of TemporalFormats when a cache is set to strict temporal formats:
+
+        date        yyyy-MM-dd, a real day of the proleptic Gregorian calendar
+        time        HH:mm:ss with an optional fraction of a second, where HH is 00-23, mm 00-59 and ss 00-60 to
+                    allow for a leap second
+        date-time   a date and a time separated by 'T', then 'Z' or an offset of +HH:mm or -HH:mm
+
+    Every digit is an ASCII digit, and 'T' and 'Z' may also be lower case, as RFC 3339 allows. Nothing else is
+    accepted: no surrounding whitespace, no date-time without an offset, and none of the partial xsd forms such
+    as "2012-05" or "--12-31".
+ */
+final class Rfc3339Formats {
+    private static final int[] DAYS_IN_MONTH = {0, 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    private Rfc3339Formats() {}
+
+    static boolean isDate(String value) {
+        return dateEnd(value, 0) == value.length();
+    }
+
+    static boolean isTime(String value) {
+        return timeEnd(value, 0) == value.length();
+    }
+
+    static boolean isDateTime(String value) {
+        int position = dateEnd(value, 0);
+        if ((position < 0) || !isLiteralIgnoringCase(value, position, 'T')) {
+            return false;
+        }
+        position = timeEnd(value, position + 1);
+        return (position >= 0) && (offsetEnd(value, position) == value.length());
+    }
+
+    /*
+        Each of these returns the position after what it matched at start, or -1 if it did not match
+     */
+    private static int dateEnd(String value, int start) {
+        int year = parseDigits(value, start, 4);
+        int month = parseDigits(value, start + 5, 2);
+        int day = parseDigits(value, start + 8, 2);
+        if ((year < 0) || !isLiteral(value, start + 4, '-') || !isLiteral(value, start + 7, '-')) {
+            return -1;
+        }
+        boolean leapYear = (year % 400 == 0) || ((year % 100 != 0) && (year % 4 == 0));
+        return (isBetween(month, 1, 12) && isBetween(day, 1, daysInMonth(month, leapYear))) ? start + 10 : -1;
+    }
+
+    private static int timeEnd(String value, int start) {
+        int hour = parseDigits(value, start, 2);
+        int minute = parseDigits(value, start + 3, 2);
+        int second = parseDigits(value, start + 6, 2);
+        if (!isBetween(hour, 0, 23) || !isBetween(minute, 0, 59) || !isBetween(second, 0, 60)
+            || !isLiteral(value, start + 2, ':') || !isLiteral(value, start + 5, ':')) {
+            return -1;
+        }
+        int position = start + 8;
+        if (isLiteral(value, position, '.')) {
+            int fractionStart = ++position;
+            while ((position < value.length()) && isAsciiDigit(value.charAt(position))) {
+                position++;
+            }
+            if (position == fractionStart) {
+                return -1;
+            }
+        }
+        return position;
+    }
+
+    private static int offsetEnd(String value, int start) {
+        if (isLiteralIgnoringCase(value, start, 'Z')) {
+            return start + 1;
+        }
+        if (!isLiteral(value, start, '+') && !isLiteral(value, start, '-')) {
+            return -1;
+        }
+        int hours = parseDigits(value, start + 1, 2);
+        int minutes = parseDigits(value, start + 4, 2);
+        return (isBetween(hours, 0, 23) && isBetween(minutes, 0, 59) && isLiteral(value, start + 3, ':')) ? start + 6 : -1;
+    }
+
+    /*
+        The value of exactly count ASCII digits at position, or -1 if there are not that many there
+     */
+    private static int parseDigits(String value, int position, int count) {
+        if (position + count > value.length()) {
+            return -1;
+        }
+        int result = 0;
+        for (int i = position; i < position + count; i++) {
+            char ch = value.charAt(i);
+            if (!isAsciiDigit(ch)) {
+                return -1;
+            }
+            result = (result * 10) + (ch - '0');
+        }
+        return result;
+    }
+
+    private static int daysInMonth(int month, boolean leapYear) {
+        return ((month == 2) && leapYear) ? 29 : DAYS_IN_MONTH[month];
+    }
+
+    private static boolean isBetween(int value, int minimum, int maximum) {
+        return (value >= minimum) && (value <= maximum);
+    }
+
+    private static boolean isLiteral(String value, int position, char expected) {
+        return (position < value.length()) && (value.charAt(position) == expected);
+    }
+
+    private static boolean isLiteralIgnoringCase(String value, int position, char expected) {
+        return isLiteral(value, position, expected) || isLiteral(value, position, Character.toLowerCase(expected));
+    }
+
+    private static boolean isAsciiDigit(char ch) {
+        return (ch >= '0') && (ch <= '9');
+    }
+}
@@ -0,0 +1,124 @@
+package uk.co.o2.json.schema;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import uk.co.o2.json.schema.SchemaPassThroughCache.CachedSchema;
+
+/*
+    Keeps the registered schemas of a cache in least recently used order, so that a cache with a maximum size evicts
+    the eldest without looking at every entry. Hits are not applied to the order straight away, which would take the
+    lock on every lookup; each is written to a ring buffer picked by the thread, and the buffers are drained into the
+    order under the lock in batches. Hits from one thread keep their order, those from different threads only roughly,
+    and a hit that finds its buffer full while another thread holds the lock is dropped.
+ */
+class SchemaAccessOrder {
+    private static final int BUFFERS = 4;
+    private static final int BUFFER_SIZE = 32;
+
+    private final SchemaPassThroughCache cache;
+    private final ReentrantLock lock = new ReentrantLock();
+    //guarded by lock
+    private final LinkedHashMap<String, CachedSchema> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReadBuffer[] readBuffers = new ReadBuffer[BUFFERS];
+
+    SchemaAccessOrder(SchemaPassThroughCache cache) {
+        this.cache = cache;
+        for (int i = 0; i < BUFFERS; i++) {
+            readBuffers[i] = new ReadBuffer();
+        }
+    }
+
+    void recordAccess(String key) {
+        ReadBuffer buffer = readBuffers[(int) Thread.currentThread().getId() & (BUFFERS - 1)];
+        while (true) {
+            long write = buffer.writes.get();
+            if (write - buffer.drained >= BUFFER_SIZE) {
+                if (!lock.tryLock()) {
+                    return;
+                }
+                try {
+                    drainReadBuffers();
+                } finally {
+                    lock.unlock();
+                }
+            } else if (buffer.writes.compareAndSet(write, write + 1)) {
+                buffer.keys.lazySet((int) write & (BUFFER_SIZE - 1), key);
+                return;
+            }
+        }
+    }
+
+    /*
+        Called after the entry has been put in the registered schemas, in place of any entry it replaced
+     */
+    void add(String key, CachedSchema entry) {
+        lock.lock();
+        try {
+            drainReadBuffers();
+            entries.put(key, entry);
+            evictIfNecessary();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+        Called after the entry has been taken out of the registered schemas
+     */
+    void remove(String key, CachedSchema entry) {
+        lock.lock();
+        try {
+            if (entries.get(key) == entry) {
+                entries.remove(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void evict() {
+        lock.lock();
+        try {
+            drainReadBuffers();
+            evictIfNecessary();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void evictIfNecessary() {
+        int maximum = cache.getMaximumSize();
+        Iterator<Map.Entry<String, CachedSchema>> eldest = entries.entrySet().iterator();
+        while ((maximum > 0) && (cache.registeredSchemas.size() > maximum) && eldest.hasNext()) {
+            Map.Entry<String, CachedSchema> it = eldest.next();
+            eldest.remove();
+            cache.evicted(it.getKey(), it.getValue());
+        }
+    }
+
+    private void drainReadBuffers() {
+        for (ReadBuffer buffer : readBuffers) {
+            long end = buffer.writes.get();
+            for (long read = buffer.drained; read < end; read++) {
+                //null when the thread that claimed the slot has not written its key yet; that hit is lost
+                String key = buffer.keys.getAndSet((int) read & (BUFFER_SIZE - 1), null);
+                if (key != null) {
+                    entries.get(key);
+                }
+            }
+            buffer.drained = end;
+        }
+    }
+
+    private static class ReadBuffer {
+        final AtomicReferenceArray<String> keys = new AtomicReferenceArray<>(BUFFER_SIZE);
+        final AtomicLong writes = new AtomicLong();
+        //only written under the lock
+        volatile long drained;
+    }
+}
@@ -0,0 +1,48 @@
+package uk.co.o2.json.schema;
+
+/*
+    A point in time snapshot of the counters kept by a SchemaPassThroughCache
+ */
+public final class SchemaCacheStatistics {
+    private final int size;
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long compileTimeNanos;
+
+    SchemaCacheStatistics(int size, long hitCount, long missCount, long evictionCount, long compileTimeNanos) {
+        this.size = size;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.compileTimeNanos = compileTimeNanos;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /*
+        Every miss compiles the requested schema, along with any schemas it references that are not cached
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getCompileTimeNanos() {
+        return compileTimeNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "SchemaCacheStatistics{size=" + size + ", hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount + ", compileTimeNanos=" + compileTimeNanos + "}";
+    }
+}
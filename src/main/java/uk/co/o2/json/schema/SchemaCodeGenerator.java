@@ -0,0 +1,492 @@
+package uk.co.o2.json.schema;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import uk.co.o2.json.schema.ObjectSchema.Property;
+
+/*
+    Generates a Java class specialised to one compiled schema, so that the JIT sees plain code with the property
+    names, sizes, lengths and bounds as constants instead of virtual calls through a tree of schemas. Every object,
+    array and simple type schema gets a validate and an isValid method of its own, and property lookup for
+    additional properties becomes a string switch. Unions, references and anything unusual are called through
+    the interpreted schema, held as a constant.
+
+    The source is compiled in memory with the system Java compiler, which is only present on a JDK. When it is
+    missing generate returns null, and when the class cannot be built it throws, so the caller can keep the
+    interpreted schema. Running javac takes far longer than any validation, so callers serving requests generate
+    on the background thread behind execute.
+
+    Each class is defined by a class loader of its own, which holds nothing but that class, so the class is
+    unloaded once the generated schema is no longer used: after the schema it was made from is evicted or reloaded.
+ */
+final class SchemaCodeGenerator {
+    private static final String PACKAGE = "uk.co.o2.json.schema.generated";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final AtomicInteger classCount = new AtomicInteger();
+    private static final Logger logger = Logger.getLogger(SchemaCodeGenerator.class.getName());
+    private static final ExecutorService backgroundGeneration = new ThreadPoolExecutor(0, 1, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable generation) {
+                    Thread thread = new Thread(generation, "json-schema-code-generation");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+    private static volatile boolean compilerUnavailable;
+
+    private final StringBuilder methods = new StringBuilder();
+    private final List<Object> constants = new ArrayList<>();
+    private final List<String> constantTypes = new ArrayList<>();
+    private int methodCount;
+
+    private SchemaCodeGenerator() {
+    }
+
+    /*
+        Returns null when there is no system Java compiler, and throws an IllegalStateException when the class could
+        not be built
+     */
+    static JsonSchema generate(JsonSchema schema) {
+        if (compilerUnavailable) {
+            return null;
+        }
+        SchemaCodeGenerator generator = new SchemaCodeGenerator();
+        int root = generator.emit(schema);
+        String simpleName = "Schema" + classCount.incrementAndGet();
+        try {
+            Class<?> generatedClass = compile(PACKAGE + "." + simpleName, generator.source(simpleName, root));
+            if (generatedClass == null) {
+                return null;
+            }
+            return (JsonSchema) generatedClass.getConstructor(JsonSchema.class, Object[].class).newInstance(schema, generator.constants.toArray());
+        } catch (ReflectiveOperationException | IOException | LinkageError e) {
+            throw new IllegalStateException("Could not load the generated class " + simpleName, e);
+        }
+    }
+
+    /*
+        Generations run one at a time on a single daemon thread, which goes away when there is nothing to generate,
+        so that a burst of new schemas does not take every core from the requests being served
+     */
+    static void execute(Runnable generation) {
+        backgroundGeneration.execute(generation);
+    }
+
+    private String source(String simpleName, int root) {
+        StringBuilder source = new StringBuilder();
+        source.append("package ").append(PACKAGE).append(";\n\n");
+        source.append("import java.util.Iterator;\n");
+        source.append("import java.util.Map;\n");
+        source.append("import com.fasterxml.jackson.databind.JsonNode;\n");
+        source.append("import uk.co.o2.json.schema.ErrorSink;\n");
+        source.append("import uk.co.o2.json.schema.ExtendedJsonSchema;\n");
+        source.append("import uk.co.o2.json.schema.GeneratedSchema;\n");
+        source.append("import uk.co.o2.json.schema.JsonSchema;\n\n");
+        source.append("public final class ").append(simpleName).append(" extends GeneratedSchema {\n");
+        for (int i = 0; i < constants.size(); i++) {
+            source.append("    private final ").append(constantTypes.get(i)).append(" c").append(i).append(";\n");
+        }
+        source.append("\n    public ").append(simpleName).append("(JsonSchema interpretedSchema, Object[] constants) {\n");
+        source.append("        super(interpretedSchema);\n");
+        for (int i = 0; i < constants.size(); i++) {
+            String type = constantTypes.get(i);
+            source.append("        c").append(i).append(" = ").append("Object".equals(type) ? "" : "(" + type + ") ").append("constants[").append(i).append("];\n");
+        }
+        source.append("    }\n\n");
+        source.append("    @Override\n    protected void validateGenerated(JsonNode node, ErrorSink errors) {\n        v").append(root).append("(node, errors);\n    }\n\n");
+        source.append("    @Override\n    protected boolean isValidGenerated(JsonNode node) {\n        return i").append(root).append("(node);\n    }\n");
+        source.append(methods);
+        source.append("}\n");
+        return source.toString();
+    }
+
+    /*
+        Writes the pair of methods for the schema and returns their number
+     */
+    private int emit(JsonSchema schema) {
+        int id = methodCount++;
+        if (schema == ObjectSchema.ALLOW_ALL_ADDITIONAL_PROPERTIES) {
+            method(id, "", "return true;\n");
+        } else if (schema == ObjectSchema.FORBID_ANY_ADDITIONAL_PROPERTIES) {
+            method(id, "errors.addError(\"Unexpected property\");\n", "return false;\n");
+        } else if (schema instanceof ObjectSchema) {
+            emitObjectSchema(id, (ObjectSchema) schema);
+        } else if (schema instanceof ArraySchema) {
+            emitArraySchema(id, (ArraySchema) schema);
+        } else if ((schema instanceof SimpleTypeSchema) && ((SimpleTypeSchema) schema).hasConstraintsSuitedToType()) {
+            emitSimpleTypeSchema(id, (SimpleTypeSchema) schema);
+        } else {
+            String delegate = constant(JsonSchemaAdapter.extend(schema), "ExtendedJsonSchema");
+            method(id, delegate + ".validate(node, errors);\n", "return " + delegate + ".isValid(node);\n");
+        }
+        return id;
+    }
+
+    private void emitObjectSchema(int id, ObjectSchema schema) {
+        StringBuilder validate = new StringBuilder();
+        StringBuilder isValid = new StringBuilder();
+        validate.append("if (!node.isObject()) {\n    errors.addError(\"Invalid type: must be an object\");\n    return;\n}\n");
+        isValid.append("if (!node.isObject()) {\n    return false;\n}\n");
+        if (!schema.getProperties().isEmpty()) {
+            validate.append("JsonNode value;\n");
+            isValid.append("JsonNode value;\n");
+        }
+
+        //errors come out in declaration order, with additional properties last, as in the interpreter
+        for (Property property : schema.getProperties()) {
+            String name = literal(property.getName());
+            boolean noOp = isNoOp(property.getNestedSchema());
+            if (noOp && !property.isRequired()) {
+                continue;
+            }
+            int nested = noOp ? -1 : emit(property.getNestedSchema());
+            validate.append("value = node.get(").append(name).append(");\n");
+            isValid.append("value = node.get(").append(name).append(");\n");
+            if (!noOp) {
+                validate.append("if (value != null) {\n    errors.enterProperty(").append(name).append(");\n    v").append(nested).append("(value, errors);\n    errors.exit();\n}");
+                isValid.append("if ((value != null) && !i").append(nested).append("(value)) {\n    return false;\n}\n");
+            }
+            if (property.isRequired()) {
+                validate.append(noOp ? "if (value == null) {\n" : " else {\n");
+                validate.append("    errors.enterProperty(").append(name).append(");\n    errors.addError(").append(literal("Missing required property " + property.getName())).append(");\n    errors.exit();\n}\n");
+                isValid.append("if (value == null) {\n    return false;\n}\n");
+            } else {
+                validate.append("\n");
+            }
+        }
+
+        JsonSchema additionalProperties = schema.getAdditionalProperties();
+        if (additionalProperties != ObjectSchema.ALLOW_ALL_ADDITIONAL_PROPERTIES) {
+            int additional = emit(additionalProperties);
+            String loop = "for (Iterator<Map.Entry<String, JsonNode>> fields = node.fields(); fields.hasNext();) {\n    Map.Entry<String, JsonNode> field = fields.next();\n";
+            StringBuilder skipDeclared = new StringBuilder();
+            if (!schema.getProperties().isEmpty()) {
+                skipDeclared.append("    switch (field.getKey()) {\n");
+                for (Property property : schema.getProperties()) {
+                    skipDeclared.append("        case ").append(literal(property.getName())).append(":\n");
+                }
+                skipDeclared.append("            continue;\n    }\n");
+            }
+            validate.append(loop).append(skipDeclared).append("    errors.enterProperty(field.getKey());\n    v").append(additional).append("(field.getValue(), errors);\n    errors.exit();\n}\n");
+            isValid.append(loop).append(skipDeclared).append("    if (!i").append(additional).append("(field.getValue())) {\n        return false;\n    }\n}\n");
+        }
+        isValid.append("return true;\n");
+        method(id, validate.toString(), isValid.toString());
+    }
+
+    private void emitArraySchema(int id, ArraySchema schema) {
+        StringBuilder validate = new StringBuilder();
+        StringBuilder isValid = new StringBuilder();
+        validate.append("if (!node.isArray()) {\n    errors.addError(\"Invalid type: must be an array\");\n    return;\n}\n");
+        isValid.append("if (!node.isArray()) {\n    return false;\n}\n");
+        validate.append("int size = node.size();\n");
+        isValid.append("int size = node.size();\n");
+        if (schema.getMaxItems() != 0) {
+            validate.append("if (size > ").append(schema.getMaxItems()).append(") {\n    errors.addError(String.format(\"Current array size of %d is greater than allowed maximum array size of %d\", size, ")
+                    .append(schema.getMaxItems()).append("));\n    return;\n}\n");
+            isValid.append("if (size > ").append(schema.getMaxItems()).append(") {\n    return false;\n}\n");
+        }
+        if (schema.getMinItems() != 0) {
+            validate.append("if (size < ").append(schema.getMinItems()).append(") {\n    errors.addError(String.format(\"Current array size of %d is less than allowed minimum array size of %d\", size, ")
+                    .append(schema.getMinItems()).append("));\n    return;\n}\n");
+            isValid.append("if (size < ").append(schema.getMinItems()).append(") {\n    return false;\n}\n");
+        }
+        if (!isNoOp(schema.getItems())) {
+            int items = emit(schema.getItems());
+            validate.append("for (int index = 0; index < size; index++) {\n    errors.enterIndex(index);\n    v").append(items).append("(node.get(index), errors);\n    errors.exit();\n}\n");
+            isValid.append("for (int index = 0; index < size; index++) {\n    if (!i").append(items).append("(node.get(index))) {\n        return false;\n    }\n}\n");
+        }
+        isValid.append("return true;\n");
+        method(id, validate.toString(), isValid.toString());
+    }
+
+    /*
+        The checks and messages of SimpleTypeSchema.validate, in the same order
+     */
+    private void emitSimpleTypeSchema(int id, SimpleTypeSchema schema) {
+        StringBuilder validate = new StringBuilder();
+        StringBuilder isValid = new StringBuilder();
+        SimpleType type = schema.getType();
+        if (type != SimpleType.ANY) {
+            String typeCheck = typeCheck(type);
+            validate.append("if (!").append(typeCheck).append(") {\n    errors.addError(").append(literal("Invalid type: must be of type " + type.name().toLowerCase())).append(");\n    return;\n}\n");
+            isValid.append("if (!").append(typeCheck).append(") {\n    return false;\n}\n");
+        }
+
+        if (schema.getPatternMatcher() != null) {
+            String matcher = constant(schema.getPatternMatcher(), "Object");
+            String condition = "!matchesPattern(" + matcher + ", node.textValue())";
+            check(validate, isValid, condition, "\"String value '\" + node.textValue() + " + literal("' does not match regex '" + schema.getPattern().pattern() + "'"));
+        }
+
+        if (schema.getFormat() != null) {
+            String condition = "!matchesFormat(" + constant(schema, "Object") + ", node)";
+            check(validate, isValid, condition, "\"Value '\" + node.textValue() + " + literal("' is not a valid " + schema.getFormat()));
+        }
+
+        if (schema.getMinimumBound() != null) {
+            String comparison = comparison(schema.getMinimumBound());
+            BigDecimal minimum = schema.getMinimumBound().decimalValue();
+            if (schema.isExclusiveMinimum()) {
+                check(validate, isValid, comparison + " <= 0", "\"Value '\" + node.numberValue() + " + literal("' must be greater than " + minimum + " when exclusiveMinimum is true"));
+            } else {
+                check(validate, isValid, comparison + " < 0", "\"Value '\" + node.numberValue() + " + literal("' must be greater or equal to " + minimum));
+            }
+        }
+
+        if (schema.getMaximumBound() != null) {
+            String comparison = comparison(schema.getMaximumBound());
+            BigDecimal maximum = schema.getMaximumBound().decimalValue();
+            if (schema.isExclusiveMaximum()) {
+                check(validate, isValid, comparison + " >= 0", "\"Value '\" + node.numberValue() + " + literal("' must be less than " + maximum + " when exclusiveMaximum is true"));
+            } else {
+                check(validate, isValid, comparison + " > 0", "\"Value '\" + node.numberValue() + " + literal("' must be less than or equal to " + maximum));
+            }
+        }
+
+        if (schema.getMinLength() > 0) {
+            check(validate, isValid, "node.textValue().length() < " + schema.getMinLength(), "\"Value '\" + node.textValue() + " + literal("' must be greater or equal to " + schema.getMinLength() + " characters"));
+        }
+        if (schema.getMaxLength() > 0) {
+            check(validate, isValid, "node.textValue().length() > " + schema.getMaxLength(), "String.format(\"Value '%s' must be less or equal to %d characters\", node.textValue(), " + schema.getMaxLength() + ")");
+        }
+
+        if (schema.getEnumerationLookup() != null) {
+            String condition = "!isInEnumeration(" + constant(schema.getEnumerationLookup(), "Object") + ", node)";
+            check(validate, isValid, condition, "\"Value \" + node.toString() + " + literal(" must be one of: " + schema.getEnumeration().toString()));
+        }
+        isValid.append("return true;\n");
+        method(id, validate.toString(), isValid.toString());
+    }
+
+    /*
+        Integer bounds that fit in a long are compared inline with int and long values; everything else goes through
+        NumericBound
+     */
+    private String comparison(NumericBound bound) {
+        String general = "compareWithBound(" + constant(bound, "Object") + ", node)";
+        BigDecimal value = bound.decimalValue();
+        if ((value.signum() != 0) && (value.stripTrailingZeros().scale() > 0)) {
+            return general;
+        }
+        try {
+            long longValue = value.longValueExact();
+            return "(isLongValued(node) ? Long.compare(node.longValue(), " + longValue + "L) : " + general + ")";
+        } catch (ArithmeticException e) {
+            return general;
+        }
+    }
+
+    private static void check(StringBuilder validate, StringBuilder isValid, String failureCondition, String message) {
+        validate.append("if (").append(failureCondition).append(") {\n    errors.addError(").append(message).append(");\n}\n");
+        isValid.append("if (").append(failureCondition).append(") {\n    return false;\n}\n");
+    }
+
+    private static String typeCheck(SimpleType type) {
+        switch (type) {
+            case STRING:
+                return "node.isTextual()";
+            case NUMBER:
+                return "node.isNumber()";
+            case INTEGER:
+                return "node.isIntegralNumber()";
+            case BOOLEAN:
+                return "node.isBoolean()";
+            case NULL:
+                return "node.isNull()";
+            default:
+                throw new IllegalArgumentException("No type check for " + type);
+        }
+    }
+
+    private static boolean isNoOp(JsonSchema schema) {
+        return (schema == ObjectSchema.ALLOW_ALL_ADDITIONAL_PROPERTIES) || ((schema instanceof SimpleTypeSchema) && ((SimpleTypeSchema) schema).isUnconstrained());
+    }
+
+    private void method(int id, String validateBody, String isValidBody) {
+        methods.append("\n    private void v").append(id).append("(JsonNode node, ErrorSink errors) {\n");
+        indent(validateBody);
+        methods.append("    }\n\n    private boolean i").append(id).append("(JsonNode node) {\n");
+        indent(isValidBody);
+        methods.append("    }\n");
+    }
+
+    private void indent(String body) {
+        for (String line : body.split("\n")) {
+            if (!line.isEmpty()) {
+                methods.append("        ").append(line).append('\n');
+            }
+        }
+    }
+
+    private String constant(Object value, String type) {
+        constants.add(value);
+        constantTypes.add(type);
+        return "c" + (constants.size() - 1);
+    }
+
+    /*
+        A Java string literal for the value. Quotes, backslashes and line breaks use ordinary escapes, since a
+        unicode escape for them would be translated before the literal is read.
+     */
+    static String literal(String value) {
+        StringBuilder result = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            switch (ch) {
+                case '"':
+                    result.append("\\\"");
+                    break;
+                case '\\':
+                    result.append("\\\\");
+                    break;
+                case '\n':
+                    result.append("\\n");
+                    break;
+                case '\r':
+                    result.append("\\r");
+                    break;
+                default:
+                    if ((ch < 0x20) || (ch > 0x7e)) {
+                        result.append(String.format("\\u%04x", (int) ch));
+                    } else {
+                        result.append(ch);
+                    }
+            }
+        }
+        return result.append('"').toString();
+    }
+
+    private static Class<?> compile(String className, String source) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            if (!compilerUnavailable) {
+                compilerUnavailable = true;
+                logger.warning("There is no system Java compiler, so the interpreted schemas are used instead of generated classes");
+            }
+            return null;
+        }
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (ClassFileManager fileManager = new ClassFileManager(compiler.getStandardFileManager(diagnostics, null, UTF8))) {
+            List<String> options = Arrays.asList("-classpath", classPath(), "-proc:none", "-g:none", "-nowarn");
+            List<JavaFileObject> sources = Collections.<JavaFileObject>singletonList(new SourceFile(className, source));
+            if (!Boolean.TRUE.equals(compiler.getTask(new StringWriter(), fileManager, diagnostics, options, null, sources).call())) {
+                throw new IllegalStateException("Could not compile the generated class " + className + ": " + diagnostics.getDiagnostics());
+            }
+            GeneratedClassLoader classLoader = new GeneratedClassLoader(GeneratedSchema.class.getClassLoader());
+            for (Map.Entry<String, ByteArrayOutputStream> it : fileManager.classFiles.entrySet()) {
+                classLoader.define(it.getKey(), it.getValue().toByteArray());
+            }
+            return classLoader.loadClass(className);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("The generated class " + className + " was not written by the compiler", e);
+        }
+    }
+
+    /*
+        The generated class needs this library and Jackson, which may have come from a class loader other than the
+        application class path
+     */
+    private static String classPath() {
+        Set<String> entries = new LinkedHashSet<>();
+        for (Class<?> type : new Class<?>[] {GeneratedSchema.class, JsonNode.class, JsonParser.class}) {
+            CodeSource codeSource = type.getProtectionDomain().getCodeSource();
+            URL location = (codeSource == null) ? null : codeSource.getLocation();
+            if ((location != null) && "file".equals(location.getProtocol())) {
+                try {
+                    entries.add(new File(location.toURI()).getPath());
+                } catch (URISyntaxException | IllegalArgumentException e) {
+                    //left to the application class path
+                }
+            }
+        }
+        entries.addAll(Arrays.asList(System.getProperty("java.class.path", "").split(File.pathSeparator)));
+        StringBuilder result = new StringBuilder();
+        for (String entry : entries) {
+            if (!entry.isEmpty()) {
+                result.append((result.length() == 0) ? "" : File.pathSeparator).append(entry);
+            }
+        }
+        return result.toString();
+    }
+
+    private static final class SourceFile extends SimpleJavaFileObject {
+        private final String source;
+
+        SourceFile(String className, String source) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+
+    private static final class ClassFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+        final Map<String, ByteArrayOutputStream> classFiles = new HashMap<>();
+
+        ClassFileManager(JavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, final String className, JavaFileObject.Kind kind, FileObject sibling) {
+            return new SimpleJavaFileObject(URI.create("memory:///" + className.replace('.', '/') + kind.extension), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    ByteArrayOutputStream classFile = new ByteArrayOutputStream();
+                    classFiles.put(className, classFile);
+                    return classFile;
+                }
+            };
+        }
+    }
+
+    private static final class GeneratedClassLoader extends ClassLoader {
+        GeneratedClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        void define(String className, byte[] classFile) {
+            defineClass(className, classFile, 0, classFile.length);
+        }
+    }
+}
@@ -4,19 +4,37 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
 
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import uk.co.o2.json.schema.ObjectSchema.Property;
 
 
 class SchemaCompiler {
     private final SchemaPassThroughCache cache;
     private final JsonFactory jsonFactory;
-    private final Queue<ProcessingEntry> schemasToCompile = new LinkedList<>();
+    private Executor executor;
+
+    private final Set<String> scheduledSchemas = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final Queue<URL> schemasToCompile = new ConcurrentLinkedQueue<>();
+    private final Queue<ProcessedSchemaEntry> compiledSchemas = new ConcurrentLinkedQueue<>();
+    private final Queue<SchemaReference> referencesToBind = new ConcurrentLinkedQueue<>();
+
+    private final Object progress = new Object();
+    private final AtomicInteger outstandingSchemas = new AtomicInteger();
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    private final Map<String, RuntimeException> failures = Collections.synchronizedMap(new TreeMap<String, RuntimeException>());
+    private Set<String> staleSchemas = Collections.emptySet();
+    private boolean attemptEveryDocument;
 
     public SchemaCompiler(SchemaPassThroughCache cache, JsonFactory jsonFactory) {
         this.cache = cache;
@@ -24,43 +42,155 @@ class SchemaCompiler {
     }
 
     public JsonSchema parse(URL schemaLocation) {
-
-        List<ProcessedSchemaEntry> compiledSchemasToRegister = new ArrayList<>();
-
+        executor = cache.getCompilationExecutor();
         scheduleSchemaForProcessing(schemaLocation);
+        compileScheduledSchemas();
+        RuntimeException firstFailure = failure.get();
+        if (firstFailure != null) {
+            throw firstFailure;
+        }
 
-        ProcessingEntry entry = schemasToCompile.peek();
-        while (entry != null) {
-            JsonSchema compiledSchema = parse(entry.rawSchema, entry.schemaLocation);
-            compiledSchemasToRegister.add(new ProcessedSchemaEntry(entry.schemaLocation, compiledSchema));
+        Map<String, JsonSchema> registeredSchemas = new HashMap<>();
+        for (ProcessedSchemaEntry schemaToRegister : compiledSchemas) {
+            JsonSchema registeredSchema = cache.registerSchema(schemaToRegister.schemaLocation, schemaToRegister.compiledSchema, schemaToRegister.compileTimeNanos);
+            registeredSchemas.put(SchemaPassThroughCache.keyOf(schemaToRegister.schemaLocation), registeredSchema);
+        }
 
-            schemasToCompile.poll();
-            entry = schemasToCompile.peek();
+        //targets come from this compilation where possible, since a bounded cache may already have evicted them
+        for (SchemaReference reference : referencesToBind) {
+            JsonSchema target = registeredSchemas.get(SchemaPassThroughCache.keyOf(reference.getSchemaLocation()));
+            if (target == null) {
+                target = cache.peekSchema(reference.getSchemaLocation());
+            }
+            if (target != null) {
+                reference.bind(target);
+            }
         }
 
-        for (ProcessedSchemaEntry schemaToRegister : compiledSchemasToRegister) {
-            cache.registerSchema(schemaToRegister.schemaLocation, schemaToRegister.compiledSchema);
+        JsonSchema compiledSchema = registeredSchemas.get(SchemaPassThroughCache.keyOf(schemaLocation));
+        if (compiledSchema == null) {
+            compiledSchema = cache.peekSchema(schemaLocation);
+        }
+        //never goes back through cache.getSchema, which may be waiting on this very compilation
+        return (compiledSchema != null) ? compiledSchema : new SchemaCompiler(cache, jsonFactory).parse(schemaLocation);
+    }
+
+    /*
+        Compiles the documents again although they are registered, along with any other stale documents they
+        reference, and returns them with their references bound but without registering them, so that the cache can
+        swap them in together. Every document is attempted, and each one that fails is put in the failures keyed by
+        its own location, in which case nothing is returned.
+     */
+    List<ProcessedSchemaEntry> recompile(Collection<URL> schemaLocations, Set<String> staleSchemas, Map<String, RuntimeException> failures) {
+        executor = cache.getCompilationExecutor();
+        this.staleSchemas = staleSchemas;
+        this.attemptEveryDocument = true;
+        for (URL schemaLocation : schemaLocations) {
+            scheduleSchemaForProcessing(schemaLocation);
+        }
+        compileScheduledSchemas();
+        if (!this.failures.isEmpty()) {
+            failures.putAll(this.failures);
+            return Collections.emptyList();
         }
 
-        return cache.getSchema(schemaLocation);
+        Map<String, JsonSchema> recompiledSchemas = new HashMap<>();
+        for (ProcessedSchemaEntry entry : compiledSchemas) {
+            recompiledSchemas.put(SchemaPassThroughCache.keyOf(entry.schemaLocation), entry.compiledSchema);
+        }
+        for (SchemaReference reference : referencesToBind) {
+            JsonSchema target = recompiledSchemas.get(SchemaPassThroughCache.keyOf(reference.getSchemaLocation()));
+            if (target == null) {
+                target = cache.peekSchema(reference.getSchemaLocation());
+            }
+            if (target != null) {
+                reference.bind(target);
+            }
+        }
+        return new ArrayList<>(compiledSchemas);
     }
 
     private void scheduleSchemaForProcessing(URL schemaLocation) {
-        if (cache.hasSchema(schemaLocation)) {
+        if (!staleSchemas.contains(SchemaPassThroughCache.keyOf(schemaLocation)) && cache.hasSchema(schemaLocation)) {
             return; //schema has already been compiled before, or on another thread
         }
+        if (!scheduledSchemas.add(SchemaPassThroughCache.keyOf(schemaLocation))) {
+            return; //schema is already scheduled for compilation
+        }
+
+        outstandingSchemas.incrementAndGet();
+        synchronized (progress) {
+            schemasToCompile.add(schemaLocation);
+            progress.notifyAll();
+        }
+        if (executor != null) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    compileNextScheduledSchema();
+                }
+            });
+        }
+    }
+
+    /*
+        The calling thread works through the queue itself, so compilation completes even if the executor never
+        gets round to the tasks offered to it. Each schema is taken off the queue by exactly one thread.
+     */
+    private void compileScheduledSchemas() {
+        while (true) {
+            if (compileNextScheduledSchema()) {
+                continue;
+            }
+            synchronized (progress) {
+                if (outstandingSchemas.get() == 0) {
+                    break;
+                }
+                if (schemasToCompile.isEmpty()) {
+                    try {
+                        progress.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Interrupted while compiling schemas", e);
+                    }
+                }
+            }
+        }
+    }
 
-        for (ProcessingEntry it : schemasToCompile) {
-            if (it.schemaLocation.toString().equals(schemaLocation.toString())) {
-                return; //schema is already scheduled for compilation
+    private boolean compileNextScheduledSchema() {
+        URL schemaLocation = schemasToCompile.poll();
+        if (schemaLocation == null) {
+            return false;
+        }
+        try {
+            if ((failure.get() == null) || attemptEveryDocument) {
+                long start = System.nanoTime();
+                JsonSchema compiledSchema = parse(readSchema(schemaLocation), schemaLocation);
+                long compileTimeNanos = System.nanoTime() - start;
+                compiledSchemas.add(new ProcessedSchemaEntry(schemaLocation, compiledSchema, compileTimeNanos));
+                SchemaEventListener listener = cache.getEventListener();
+                if (listener != null) {
+                    listener.schemaCompiled(schemaLocation, compileTimeNanos);
+                }
+            }
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+            failures.put(schemaLocation.toString(), e);
+        } finally {
+            synchronized (progress) {
+                outstandingSchemas.decrementAndGet();
+                progress.notifyAll();
             }
         }
+        return true;
+    }
 
+    private JsonNode readSchema(URL schemaLocation) {
         try {
             JsonParser parser = jsonFactory.createJsonParser(schemaLocation);
             try {
-                JsonNode rawSchema = parser.readValueAsTree();
-                schemasToCompile.add(new ProcessingEntry(schemaLocation, rawSchema));
+                return parser.readValueAsTree();
             } finally {
                 parser.close();
             }
@@ -85,7 +215,13 @@ class SchemaCompiler {
                 throw new IllegalArgumentException("The schema reference is malformed", e);
             }
             scheduleSchemaForProcessing(referencedSchemaLocation);
-            return new SchemaReference(cache, referencedSchemaLocation);
+            SchemaReference reference = new SchemaReference(cache, referencedSchemaLocation);
+            referencesToBind.add(reference);
+            return reference;
+        }
+
+        if (rawSchema.get("type").isArray()) {
+            return parseUnionSchema(rawSchema, currentSchemaLocation);
         }
 
         String type = rawSchema.get("type").asText();
@@ -122,7 +258,8 @@ class SchemaCompiler {
 
         JsonNode pattern = rawSchema.get("pattern");
         if (pattern != null) {
-            result.setPattern(Pattern.compile(pattern.textValue()));
+            Pattern compiledPattern = Pattern.compile(pattern.textValue());
+            result.setPattern(compiledPattern, cache.isLinearTimePatterns() ? PatternMatcher.compile(compiledPattern) : PatternMatcher.backtracking(compiledPattern));
         }
 
         JsonNode minLength = rawSchema.get("minLength");
@@ -166,7 +303,7 @@ class SchemaCompiler {
 
         JsonNode format = rawSchema.get("format");
         if (format!= null) {
-            result.setFormat(format.textValue());
+            result.setFormat(format.textValue(), cache.isStrictTemporalFormats());
         }
         return result;
     }
@@ -188,10 +325,28 @@ class SchemaCompiler {
         return result;
     }
 
+    private UnionSchema parseUnionSchema(JsonNode rawSchema, URL schemaLocation) {
+        UnionSchema result = new UnionSchema();
+        for (JsonNode nestedType : rawSchema.get("type")) {
+            if (nestedType.isTextual()) {
+                JsonNode rawNestedSchema = JsonNodeFactory.instance.objectNode().put("type", nestedType.textValue());
+                result.getNestedSchemas().add(parse(rawNestedSchema, schemaLocation));
+            } else {
+                result.getNestedSchemas().add(parse(nestedType, schemaLocation));
+            }
+        }
+        JsonNode discriminator = rawSchema.get("discriminator");
+        if (discriminator != null) {
+            result.setDiscriminator(discriminator.textValue());
+        }
+        return result;
+    }
+
     private ObjectSchema parseObjectSchema(JsonNode rawSchema, URL schemaLocation) {
         ObjectSchema result = new ObjectSchema();
         configureAdditionalPropertiesForObjectSchema(rawSchema.get("additionalProperties"), result, schemaLocation);
         configurePropertiesForObjectSchema(rawSchema.get("properties"), result, schemaLocation);
+        result.indexProperties();
         return result;
     }
 
@@ -230,23 +385,15 @@ class SchemaCompiler {
         }
     }
 
-    private static class ProcessingEntry {
-        final URL schemaLocation;
-        final JsonNode rawSchema;
-
-        ProcessingEntry(URL schemaLocation, JsonNode rawSchema) {
-            this.schemaLocation = schemaLocation;
-            this.rawSchema = rawSchema;
-        }
-    }
-
-    private static class ProcessedSchemaEntry {
+    static class ProcessedSchemaEntry {
         final URL schemaLocation;
         final JsonSchema compiledSchema;
+        final long compileTimeNanos;
 
-        ProcessedSchemaEntry(URL schemaLocation, JsonSchema compiledSchema) {
+        ProcessedSchemaEntry(URL schemaLocation, JsonSchema compiledSchema, long compileTimeNanos) {
             this.schemaLocation = schemaLocation;
             this.compiledSchema = compiledSchema;
+            this.compileTimeNanos = compileTimeNanos;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package uk.co.o2.json.schema;
+
+import java.net.URL;
+
+/*
+    Receives events about the schemas a SchemaPassThroughCache looks up and compiles, and about the documents a
+    JsonSchemaProvider validates. Events arrive on the thread doing the work, often a request thread, and from many
+    threads at once, so implementations should be quick, thread safe and must not throw. SchemaMetrics is a ready
+    made implementation.
+ */
+public interface SchemaEventListener {
+    /*
+        A schema asked for by location was already cached, or had to be compiled
+     */
+    void schemaLookedUp(URL schemaLocation, boolean hit);
+
+    /*
+        A schema document was fetched and compiled, whether asked for directly or referenced from another schema
+     */
+    void schemaCompiled(URL schemaLocation, long compileTimeNanos);
+
+    /*
+        A document was validated against the schema. The size is in bytes, or -1 when it is not known.
+     */
+    void documentValidated(URL schemaLocation, long validationTimeNanos, long documentSize, int errorCount);
+}
@@ -0,0 +1,125 @@
+package uk.co.o2.json.schema;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/*
+    Watches the directories of the file: schemas registered in a cache and reloads the documents that change, on its
+    own thread. Changes are gathered until the directories have been quiet for a moment, since editors often write a
+    file in several steps, and are then reloaded together.
+ */
+class SchemaFileWatcher implements Runnable {
+    private static final long QUIET_PERIOD_MILLIS = 100;
+
+    private final SchemaPassThroughCache cache;
+    private final WatchService watchService;
+    private final Set<Path> watchedDirectories = Collections.newSetFromMap(new ConcurrentHashMap<Path, Boolean>());
+    private final Map<String, URL> watchedSchemas = new ConcurrentHashMap<>();
+    private final Thread thread;
+
+    SchemaFileWatcher(SchemaPassThroughCache cache) throws IOException {
+        this.cache = cache;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.thread = new Thread(this, "json-schema-hot-reload");
+        thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            //nothing more can be done, and the thread stops either way
+        }
+    }
+
+    /*
+        Locations other than files are ignored, they are only reloaded when a file they reference changes
+     */
+    void watch(URL schemaLocation) {
+        if (!"file".equalsIgnoreCase(schemaLocation.getProtocol())) {
+            return;
+        }
+        Path directory;
+        try {
+            directory = Paths.get(schemaLocation.toURI()).getParent();
+        } catch (URISyntaxException | IllegalArgumentException | FileSystemNotFoundException e) {
+            return;
+        }
+        watchedSchemas.put(SchemaPassThroughCache.keyOf(schemaLocation), schemaLocation);
+        if ((directory != null) && watchedDirectories.add(directory)) {
+            try {
+                directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+            } catch (IOException | ClosedWatchServiceException e) {
+                watchedDirectories.remove(directory);
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                Map<String, URL> changedSchemas = new LinkedHashMap<>();
+                WatchKey key = watchService.take();
+                while (key != null) {
+                    collectChanges(key, changedSchemas);
+                    key = watchService.poll(QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                if (!changedSchemas.isEmpty()) {
+                    //reload never throws, failures are left in the cache's last reload report
+                    cache.reload(changedSchemas.values());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            //closed by setHotReload(false)
+        }
+    }
+
+    private void collectChanges(WatchKey key, Map<String, URL> changedSchemas) {
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                //some events were lost, so everything watched is reloaded
+                changedSchemas.putAll(watchedSchemas);
+                continue;
+            }
+            URL schemaLocation;
+            try {
+                schemaLocation = directory.resolve((Path) event.context()).toUri().toURL();
+            } catch (MalformedURLException e) {
+                continue;
+            }
+            String schemaKey = SchemaPassThroughCache.keyOf(schemaLocation);
+            if (watchedSchemas.containsKey(schemaKey)) {
+                changedSchemas.put(schemaKey, schemaLocation);
+            }
+        }
+        key.reset();
+    }
+}
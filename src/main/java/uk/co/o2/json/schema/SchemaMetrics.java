@@ -0,0 +1,197 @@
+package uk.co.o2.json.schema;
+
+import java.net.URL;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+    A SchemaEventListener that keeps counters and a validation time histogram for each schema location. Recording
+    only adds to striped counters and increments a histogram bucket, so it stays cheap when many request threads
+    validate against the same schema; the cost moves to reading, which sums the stripes.
+ */
+public class SchemaMetrics implements SchemaEventListener {
+    private final ConcurrentMap<String, Counters> countersBySchema = new ConcurrentHashMap<>();
+
+    @Override
+    public void schemaLookedUp(URL schemaLocation, boolean hit) {
+        Counters counters = countersFor(schemaLocation);
+        if (hit) {
+            counters.hits.increment();
+        } else {
+            counters.misses.increment();
+        }
+    }
+
+    @Override
+    public void schemaCompiled(URL schemaLocation, long compileTimeNanos) {
+        Counters counters = countersFor(schemaLocation);
+        counters.compilations.increment();
+        counters.compileTimeNanos.add(compileTimeNanos);
+    }
+
+    @Override
+    public void documentValidated(URL schemaLocation, long validationTimeNanos, long documentSize, int errorCount) {
+        Counters counters = countersFor(schemaLocation);
+        counters.validations.increment();
+        counters.validationTimeNanos.add(validationTimeNanos);
+        counters.validationTimes.record(validationTimeNanos);
+        if (documentSize > 0) {
+            counters.documentBytes.add(documentSize);
+        }
+        if (errorCount > 0) {
+            counters.invalidDocuments.increment();
+            counters.errors.add(errorCount);
+        }
+    }
+
+    /*
+        A snapshot for each schema location that has had an event, in location order. Locations are normalized as
+        the cache keys them, so the events for "http://EXAMPLE.com:80/a.json" and "http://example.com/a.json" are
+        counted together.
+     */
+    public Map<String, Snapshot> getSnapshots() {
+        Map<String, Snapshot> result = new TreeMap<>();
+        for (Map.Entry<String, Counters> it : countersBySchema.entrySet()) {
+            result.put(it.getKey(), it.getValue().snapshot());
+        }
+        return result;
+    }
+
+    /*
+        Returns null if there has been no event for the location
+     */
+    public Snapshot getSnapshot(URL schemaLocation) {
+        Counters counters = countersBySchema.get(SchemaPassThroughCache.keyOf(schemaLocation));
+        return (counters == null) ? null : counters.snapshot();
+    }
+
+    public void reset() {
+        countersBySchema.clear();
+    }
+
+    private Counters countersFor(URL schemaLocation) {
+        String key = SchemaPassThroughCache.keyOf(schemaLocation);
+        Counters counters = countersBySchema.get(key);
+        if (counters == null) {
+            Counters newCounters = new Counters();
+            counters = countersBySchema.putIfAbsent(key, newCounters);
+            if (counters == null) {
+                counters = newCounters;
+            }
+        }
+        return counters;
+    }
+
+    private static final class Counters {
+        final StripedCounter hits = new StripedCounter();
+        final StripedCounter misses = new StripedCounter();
+        final StripedCounter compilations = new StripedCounter();
+        final StripedCounter compileTimeNanos = new StripedCounter();
+        final StripedCounter validations = new StripedCounter();
+        final StripedCounter validationTimeNanos = new StripedCounter();
+        final StripedCounter invalidDocuments = new StripedCounter();
+        final StripedCounter errors = new StripedCounter();
+        final StripedCounter documentBytes = new StripedCounter();
+        final LatencyHistogram validationTimes = new LatencyHistogram();
+
+        Snapshot snapshot() {
+            return new Snapshot(hits.sum(), misses.sum(), compilations.sum(), compileTimeNanos.sum(), validations.sum(),
+                    validationTimeNanos.sum(), invalidDocuments.sum(), errors.sum(), documentBytes.sum(), validationTimes.getCounts());
+        }
+    }
+
+    /*
+        The counters for one schema at a point in time. Counters are read one after another while events may still
+        be arriving, so they can be very slightly out of step with each other.
+     */
+    public static final class Snapshot {
+        private final long hitCount;
+        private final long missCount;
+        private final long compileCount;
+        private final long compileTimeNanos;
+        private final long validationCount;
+        private final long validationTimeNanos;
+        private final long invalidDocumentCount;
+        private final long errorCount;
+        private final long documentBytes;
+        private final long[] validationTimeHistogram;
+
+        Snapshot(long hitCount, long missCount, long compileCount, long compileTimeNanos, long validationCount, long validationTimeNanos,
+                 long invalidDocumentCount, long errorCount, long documentBytes, long[] validationTimeHistogram) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.compileCount = compileCount;
+            this.compileTimeNanos = compileTimeNanos;
+            this.validationCount = validationCount;
+            this.validationTimeNanos = validationTimeNanos;
+            this.invalidDocumentCount = invalidDocumentCount;
+            this.errorCount = errorCount;
+            this.documentBytes = documentBytes;
+            this.validationTimeHistogram = validationTimeHistogram;
+        }
+
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        public long getMissCount() {
+            return missCount;
+        }
+
+        public long getCompileCount() {
+            return compileCount;
+        }
+
+        public long getCompileTimeNanos() {
+            return compileTimeNanos;
+        }
+
+        public long getValidationCount() {
+            return validationCount;
+        }
+
+        public long getValidationTimeNanos() {
+            return validationTimeNanos;
+        }
+
+        public long getInvalidDocumentCount() {
+            return invalidDocumentCount;
+        }
+
+        public long getErrorCount() {
+            return errorCount;
+        }
+
+        /*
+            The total size of the validated documents whose size was known
+         */
+        public long getDocumentBytes() {
+            return documentBytes;
+        }
+
+        /*
+            An upper bound, accurate to within a factor of two, on the validation time of the given fraction of
+            documents; 0.99 gives the 99th percentile
+         */
+        public long getValidationTimePercentileNanos(double fraction) {
+            return LatencyHistogram.percentile(validationTimeHistogram, fraction);
+        }
+
+        /*
+            Element n counts the validations that took from 2^(n-1) up to 2^n - 1 nanoseconds, element 0 those
+            that took no measurable time
+         */
+        public long[] getValidationTimeHistogram() {
+            return validationTimeHistogram.clone();
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot{hits=" + hitCount + ", misses=" + missCount + ", compilations=" + compileCount + ", compileTimeNanos=" + compileTimeNanos +
+                    ", validations=" + validationCount + ", validationTimeNanos=" + validationTimeNanos + ", invalidDocuments=" + invalidDocumentCount +
+                    ", errors=" + errorCount + ", documentBytes=" + documentBytes + "}";
+        }
+    }
+}
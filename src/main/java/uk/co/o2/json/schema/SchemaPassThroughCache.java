@@ -1,15 +1,58 @@
 package uk.co.o2.json.schema;
 
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import com.fasterxml.jackson.core.JsonFactory;
+import uk.co.o2.json.schema.SchemaCompiler.ProcessedSchemaEntry;
 
 public class SchemaPassThroughCache {
+    private static final Logger logger = Logger.getLogger(SchemaPassThroughCache.class.getName());
 
-    final ConcurrentMap<String, JsonSchema> registeredSchemas = new ConcurrentHashMap<>();
+    final ConcurrentMap<String, CachedSchema> registeredSchemas = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, FutureTask<JsonSchema>> compilationsInFlight = new ConcurrentHashMap<>();
     private SchemaCompilerFactory schemaCompilerFactory;
+    private volatile int maxErrors;
+    private volatile boolean linearTimePatterns = true;
+    private volatile boolean strictTemporalFormats;
+    private volatile boolean codeGeneration;
+    private volatile boolean instructionInterpreter;
+    private volatile boolean profiling;
+    private final SchemaProfiler profiler = new SchemaProfiler();
+    private volatile int maximumSize;
+    private volatile boolean softValues;
+    private volatile Executor compilationExecutor;
+    private volatile SchemaEventListener eventListener;
+    private final SchemaPreloader preloader = new SchemaPreloader(this);
+    private final SchemaReloader reloader = new SchemaReloader(this);
+    private final SchemaAccessOrder accessOrder = new SchemaAccessOrder(this);
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong compileTimeNanos = new AtomicLong();
 
     public SchemaPassThroughCache(JsonFactory factory) {
         this.schemaCompilerFactory = new SchemaCompilerFactory(this, factory);
@@ -22,21 +65,634 @@ public class SchemaPassThroughCache {
         this.schemaCompilerFactory = schemaCompilerFactory;
     }
 
+    SchemaCompiler createCompiler() {
+        return schemaCompilerFactory.create();
+    }
+
     public JsonSchema getSchema(URL schemaLocation) {
-        if (hasSchema(schemaLocation)) {
-            return registeredSchemas.get(schemaLocation.toString());
+        return getSchema(schemaLocation, false);
+    }
+
+    /*
+        Generates the class for the schema on this thread when generateHere is set and code generation is on
+     */
+    JsonSchema getSchema(URL schemaLocation, boolean generateHere) {
+        String key = keyOf(schemaLocation);
+        return withAlternativeBackend(key, getCompiledSchema(key, schemaLocation), generateHere);
+    }
+
+    /*
+        The compiled schema itself, whichever backend is on, for references, which look inside the schemas they
+        point to (to pick the branch of a union by its discriminator, say)
+     */
+    JsonSchema getCompiledSchema(URL schemaLocation) {
+        return getCompiledSchema(keyOf(schemaLocation), schemaLocation);
+    }
+
+    private JsonSchema getCompiledSchema(String key, URL schemaLocation) {
+        JsonSchema schema = lookUp(key, true);
+        SchemaEventListener listener = eventListener;
+        if (listener != null) {
+            listener.schemaLookedUp(schemaLocation, schema != null);
+        }
+        if (schema != null) {
+            hitCount.incrementAndGet();
+            return schema;
+        }
+        missCount.incrementAndGet();
+
+        //callers asking for a schema that is already being compiled wait for that compilation rather than repeat it
+        FutureTask<JsonSchema> compilation = new FutureTask<>(new Compilation(schemaLocation));
+        FutureTask<JsonSchema> compilationInFlight = compilationsInFlight.putIfAbsent(key, compilation);
+        if (compilationInFlight == null) {
+            compilationInFlight = compilation;
+            try {
+                compilation.run();
+            } finally {
+                compilationsInFlight.remove(key, compilation);
+            }
+        }
+        return awaitCompilation(compilationInFlight, schemaLocation);
+    }
+
+    private JsonSchema withAlternativeBackend(String key, JsonSchema schema, boolean generateHere) {
+        if (profiling) {
+            return alternativeSchemaFor(key, schema, CachedSchema.PROFILED);
+        }
+        JsonSchema result = codeGeneration ? generatedSchemaFor(key, schema, generateHere) : schema;
+        if ((result == schema) && instructionInterpreter) {
+            result = alternativeSchemaFor(key, schema, CachedSchema.INSTRUCTIONS);
+        }
+        return result;
+    }
+
+    /*
+        Generated classes, instruction programs and profiled copies are kept alongside the compiled schema they were made from, which
+        stays registered so that references, snapshots and union dispatch all keep working on the compiled model
+     */
+    private JsonSchema alternativeSchemaFor(String key, JsonSchema schema, int backend) {
+        CachedSchema entry = registeredSchemas.get(key);
+        if ((entry == null) || (entry.get() != schema)) {
+            return schema; //evicted or replaced since it was looked up
+        }
+        JsonSchema alternative = entry.getAlternative(backend);
+        if (alternative == null) {
+            synchronized (entry) {
+                alternative = entry.getAlternative(backend);
+                if (alternative == null) {
+                    alternative = createAlternative(key, schema, backend);
+                    //remembers a failure too, so it is not attempted again for this schema
+                    alternative = (alternative == null) ? schema : alternative;
+                    entry.setAlternative(backend, alternative);
+                }
+            }
+        }
+        return alternative;
+    }
+
+    private JsonSchema createAlternative(String key, JsonSchema schema, int backend) {
+        if (backend == CachedSchema.INSTRUCTIONS) {
+            return InstructionSchema.lower(schema);
+        }
+        return profiler.instrument(key, schema, this);
+    }
+
+    /*
+        Running javac takes far longer than any validation, so a request never waits for it: the first request for
+        a schema starts generating its class in the background, and the schema is used as it is until the class is
+        ready. Preloading generates the class on the preloading thread instead.
+     */
+    private JsonSchema generatedSchemaFor(String key, JsonSchema schema, boolean generateHere) {
+        CachedSchema entry = registeredSchemas.get(key);
+        if ((entry == null) || (entry.get() != schema)) {
+            return schema; //evicted or replaced since it was looked up
+        }
+        JsonSchema generated = entry.getAlternative(CachedSchema.GENERATED_CODE);
+        if (generated != null) {
+            return generated;
+        }
+        FutureTask<JsonSchema> generation = new FutureTask<>(new CodeGeneration(key, entry, schema));
+        FutureTask<JsonSchema> generationInFlight = entry.startGeneration(generation);
+        if (generationInFlight == null) {
+            generated = entry.getAlternative(CachedSchema.GENERATED_CODE); //finished since it was checked
+        } else if (generateHere) {
+            //runs the generation here if the background thread has not started it yet
+            generationInFlight.run();
+            generated = awaitCompilation(generationInFlight, locationOf(key));
+        } else if (generationInFlight == generation) {
+            SchemaCodeGenerator.execute(generation);
+        }
+        return (generated == null) ? schema : generated;
+    }
+
+    static JsonSchema awaitCompilation(FutureTask<JsonSchema> compilation, URL schemaLocation) {
+        try {
+            return compilation.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the schema at " + schemaLocation + " to compile", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Could not compile the schema at " + schemaLocation, cause);
+        }
+    }
+
+    /*
+        The limit used by callers that validate on behalf of this cache, 0 means every error is reported
+     */
+    public int getMaxErrors() {
+        return maxErrors;
+    }
+
+    public void setMaxErrors(int maxErrors) {
+        if (maxErrors < 0) {
+            throw new IllegalArgumentException("maxErrors must not be negative");
+        }
+        this.maxErrors = maxErrors;
+    }
+
+    /*
+        When set, patterns in schemas compiled from now on are matched in time linear in the length of the value
+        wherever the pattern allows it, instead of by java.util.regex backtracking
+     */
+    public boolean isLinearTimePatterns() {
+        return linearTimePatterns;
+    }
+
+    public void setLinearTimePatterns(boolean linearTimePatterns) {
+        this.linearTimePatterns = linearTimePatterns;
+    }
+
+    /*
+        When set, the date, time and date-time formats in schemas compiled from now on follow the RFC 3339 grammar:
+        a date-time needs an offset, times may have a fraction and a leap second, and nothing lenient such as
+        surrounding whitespace or partial xsd dates is accepted. By default they accept what they always have.
+     */
+    public boolean isStrictTemporalFormats() {
+        return strictTemporalFormats;
+    }
+
+    public void setStrictTemporalFormats(boolean strictTemporalFormats) {
+        this.strictTemporalFormats = strictTemporalFormats;
+    }
+
+    /*
+        When set, getSchema returns a validator class generated for the schema and compiled at runtime, for speed in
+        long running processes. The class is generated in the background once the schema is first asked for, and the
+        interpreted schema is returned until it is ready; preload generates it up front. It needs the system Java
+        compiler. Without it, or if generation fails, which is logged, the interpreted schema is returned as usual.
+     */
+    public boolean isCodeGeneration() {
+        return codeGeneration;
+    }
+
+    public void setCodeGeneration(boolean codeGeneration) {
+        this.codeGeneration = codeGeneration;
+    }
+
+    /*
+        When set, getSchema returns the schema lowered into a flat array of instructions, validated by a single
+        interpreter loop. It is used when code generation is off or not available.
+     */
+    public boolean isInstructionInterpreter() {
+        return instructionInterpreter;
+    }
+
+    public void setInstructionInterpreter(boolean instructionInterpreter) {
+        this.instructionInterpreter = instructionInterpreter;
+    }
+
+    /*
+        When set, getSchema returns a copy of the compiled schema that records where validation time goes, in place
+        of any other backend, and getProfiler reports it. Schemas are left untouched when it is off, so it costs
+        nothing then.
+     */
+    public boolean isProfiling() {
+        return profiling;
+    }
+
+    public void setProfiling(boolean profiling) {
+        this.profiling = profiling;
+    }
+
+    public SchemaProfiler getProfiler() {
+        return profiler;
+    }
+
+    /*
+        The number of schema documents kept before the least recently used are evicted, 0 means no limit. Schemas
+        still referenced from other compiled schemas stay usable by them, they are just compiled again the next time
+        they are asked for by location.
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(int maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("maximumSize must not be negative");
+        }
+        this.maximumSize = maximumSize;
+        accessOrder.evict();
+    }
+
+    /*
+        When set, schemas registered from now on are only softly reachable from the cache, so the garbage collector
+        may drop them under memory pressure
+     */
+    public boolean isSoftValues() {
+        return softValues;
+    }
+
+    public void setSoftValues(boolean softValues) {
+        this.softValues = softValues;
+    }
+
+    /*
+        When set, the documents referenced by a schema are fetched and compiled concurrently on this executor, with
+        the requesting thread joining in. A ForkJoinPool is a good fit. By default they are compiled one at a time on
+        the requesting thread.
+     */
+    public Executor getCompilationExecutor() {
+        return compilationExecutor;
+    }
+
+    public void setCompilationExecutor(Executor compilationExecutor) {
+        this.compilationExecutor = compilationExecutor;
+    }
+
+    /*
+        When set, the files behind registered file: schemas are watched, and a schema whose file changes is compiled
+        again on a background thread and swapped in by reload, together with the schemas that reference it
+     */
+    public boolean isHotReload() {
+        return reloader.isHotReload();
+    }
+
+    public void setHotReload(boolean hotReload) {
+        reloader.setHotReload(hotReload);
+    }
+
+    /*
+        Told about every lookup and every schema document compiled from now on, null for none
+     */
+    public SchemaEventListener getEventListener() {
+        return eventListener;
+    }
+
+    public void setEventListener(SchemaEventListener eventListener) {
+        this.eventListener = eventListener;
+    }
+
+    /*
+        How long fetching and compiling each cached schema document took, keyed by normalized location
+     */
+    public Map<String, Long> getDocumentCompileTimes() {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<String, CachedSchema> it : registeredSchemas.entrySet()) {
+            result.put(it.getKey(), it.getValue().compileTimeNanos);
         }
-        return schemaCompilerFactory.create().parse(schemaLocation);
+        return result;
+    }
+
+    /*
+        Compiles every schema in the collection, in parallel on the compilation executor if there is one and on a
+        temporary pool otherwise, so that the first requests after startup do not pay for it. With code generation
+        on, their classes are generated as well.
+     */
+    public SchemaPreloadReport preload(Collection<URL> schemaLocations) {
+        return preloader.preload(schemaLocations);
+    }
+
+    /*
+        Preloads every .json file under the directory and its subdirectories
+     */
+    public SchemaPreloadReport preloadDirectory(File directory) {
+        return preloader.preloadDirectory(directory);
+    }
+
+    /*
+        Writes every compiled schema currently held to the file, returning how many documents were written
+     */
+    public int saveSnapshot(File file) throws IOException {
+        return SchemaSnapshot.save(this, file);
+    }
+
+    /*
+        Registers the schemas from a snapshot written by saveSnapshot whose source documents are unchanged, returning
+        how many were restored. Stale documents are left to be compiled on demand as usual.
+     */
+    public int loadSnapshot(File file) throws IOException {
+        return SchemaSnapshot.load(this, file);
+    }
+
+    /*
+        Compiles the documents at the locations again, along with every registered schema that references them
+        directly or indirectly, since references stay bound to the schema they were first resolved to. The new
+        schemas are only registered once all of them have compiled and their references are bound to each other,
+        so a validation follows either the old graph or the new one throughout. They are registered one by one,
+        though, so two lookups made while that happens may return one old and one new schema.
+
+        If any document fails to compile nothing is registered, the schemas in use stay as they were, and the
+        report has a failure for each document that did not compile. Nothing is thrown: a failure of the reload
+        itself is reported against the changed locations.
+     */
+    public SchemaPreloadReport reload(Collection<URL> changedLocations) {
+        return reloader.reload(changedLocations);
+    }
+
+    /*
+        The outcome of the most recent reload, whether it was asked for or followed a file change, or null
+     */
+    public SchemaPreloadReport getLastReloadReport() {
+        return reloader.getLastReloadReport();
+    }
+
+    public SchemaCacheStatistics getStatistics() {
+        return new SchemaCacheStatistics(registeredSchemas.size(), hitCount.get(), missCount.get(), evictionCount.get(), compileTimeNanos.get());
     }
 
     public boolean hasSchema(URL schemaLocation) {
-        return registeredSchemas.containsKey(schemaLocation.toString());
+        return lookUp(keyOf(schemaLocation), false) != null;
+    }
+
+    /*
+        Returns the registered schema without compiling it when it is missing
+     */
+    JsonSchema peekSchema(URL schemaLocation) {
+        return lookUp(keyOf(schemaLocation), false);
+    }
+
+    /*
+        Returns the schema that ends up registered for the location, which is the one passed in unless another
+        thread got there first
+     */
+    JsonSchema registerSchema(URL schemaLocation, JsonSchema schema) {
+        return registerSchema(schemaLocation, schema, 0L);
+    }
+
+    JsonSchema registerSchema(URL schemaLocation, JsonSchema schema, long compileTimeNanos) {
+        String key = keyOf(schemaLocation);
+        CachedSchema entry = newEntry(schemaLocation, schema, compileTimeNanos);
+        while (true) {
+            CachedSchema existing = registeredSchemas.putIfAbsent(key, entry);
+            if (existing == null) {
+                accessOrder.add(key, entry);
+                return schema;
+            }
+            JsonSchema existingSchema = existing.get();
+            if (existingSchema != null) {
+                return existingSchema;
+            }
+            removeCollected(key, existing);
+        }
+    }
+
+    /*
+        Puts recompiled schemas in place of the registered ones, each in a new entry, since the generated code and
+        instructions of the old entry belong to the old schema
+     */
+    void replaceSchemas(List<ProcessedSchemaEntry> schemas) {
+        for (ProcessedSchemaEntry it : schemas) {
+            String key = keyOf(it.schemaLocation);
+            CachedSchema entry = newEntry(it.schemaLocation, it.compiledSchema, it.compileTimeNanos);
+            registeredSchemas.put(key, entry);
+            accessOrder.add(key, entry);
+        }
+    }
+
+    private CachedSchema newEntry(URL schemaLocation, JsonSchema schema, long compileTimeNanos) {
+        reloader.watch(schemaLocation);
+        Set<String> referencedKeys = new HashSet<>();
+        collectReferencedKeys(schema, referencedKeys);
+        return new CachedSchema(schema, softValues, referencedKeys.isEmpty() ? Collections.<String>emptySet() : referencedKeys, compileTimeNanos);
+    }
+
+    /*
+        Stops at references, which belong to the documents they point to
+     */
+    private static void collectReferencedKeys(JsonSchema schema, Set<String> referencedKeys) {
+        if (schema instanceof SchemaReference) {
+            referencedKeys.add(keyOf(((SchemaReference) schema).getSchemaLocation()));
+        } else if (schema instanceof ObjectSchema) {
+            for (ObjectSchema.Property property : ((ObjectSchema) schema).getProperties()) {
+                collectReferencedKeys(property.getNestedSchema(), referencedKeys);
+            }
+            collectReferencedKeys(((ObjectSchema) schema).getAdditionalProperties(), referencedKeys);
+        } else if (schema instanceof ArraySchema) {
+            collectReferencedKeys(((ArraySchema) schema).getItems(), referencedKeys);
+        } else if (schema instanceof UnionSchema) {
+            for (JsonSchema nestedSchema : ((UnionSchema) schema).getNestedSchemas()) {
+                collectReferencedKeys(nestedSchema, referencedKeys);
+            }
+        }
+    }
+
+    static URL locationOf(String key) {
+        try {
+            return new URL(key);
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException("The cached location " + key + " is not a valid URL", e);
+        }
+    }
+
+    private JsonSchema lookUp(String key, boolean recordAccess) {
+        CachedSchema entry = registeredSchemas.get(key);
+        if (entry == null) {
+            return null;
+        }
+        JsonSchema schema = entry.get();
+        if (schema == null) {
+            removeCollected(key, entry);
+        } else if (recordAccess && (maximumSize > 0)) {
+            accessOrder.recordAccess(key);
+        }
+        return schema;
+    }
+
+    private void removeCollected(String key, CachedSchema entry) {
+        if (registeredSchemas.remove(key, entry)) {
+            evictionCount.incrementAndGet();
+            accessOrder.remove(key, entry);
+        }
+    }
+
+    /*
+        Called by the access order for the eldest entry while the cache is over its maximum size
+     */
+    void evicted(String key, CachedSchema entry) {
+        if (registeredSchemas.remove(key, entry)) {
+            evictionCount.incrementAndGet();
+        }
     }
 
-    void registerSchema(URL schemaLocation, JsonSchema schema) {
-        registeredSchemas.putIfAbsent(schemaLocation.toString(), schema);
+    /*
+        Locations are keyed by their normalized URI, so differences in case, default ports, "." and ".." segments
+        or the number of slashes after "file:" do not produce separate entries
+     */
+    static String keyOf(URL schemaLocation) {
+        if (isCanonical(schemaLocation)) {
+            return schemaLocation.toString();
+        }
+        URI uri;
+        try {
+            uri = schemaLocation.toURI().normalize();
+        } catch (URISyntaxException e) {
+            return schemaLocation.toString();
+        }
+        if (uri.isOpaque() || (uri.getScheme() == null)) {
+            return uri.toString();
+        }
+
+        StringBuilder key = new StringBuilder(uri.getScheme().toLowerCase()).append(':');
+        if (uri.getHost() != null) {
+            key.append("//");
+            if (uri.getRawUserInfo() != null) {
+                key.append(uri.getRawUserInfo()).append('@');
+            }
+            key.append(uri.getHost().toLowerCase());
+            if ((uri.getPort() != -1) && (uri.getPort() != schemaLocation.getDefaultPort())) {
+                key.append(':').append(uri.getPort());
+            }
+        } else if (uri.getRawAuthority() != null) {
+            key.append("//").append(uri.getRawAuthority());
+        }
+        key.append(uri.getRawPath());
+        if (uri.getRawQuery() != null) {
+            key.append('?').append(uri.getRawQuery());
+        }
+        if (uri.getRawFragment() != null) {
+            key.append('#').append(uri.getRawFragment());
+        }
+        return key.toString();
     }
-    
+
+    /*
+        Most locations come from getResource() or File.toURI() and are already in the form of their key, which is
+        far cheaper to check for than to build
+     */
+    private static boolean isCanonical(URL schemaLocation) {
+        String host = schemaLocation.getHost();
+        for (int i = 0; i < host.length(); i++) {
+            if (Character.isUpperCase(host.charAt(i))) {
+                return false;
+            }
+        }
+        if ((schemaLocation.getPort() != -1) && (schemaLocation.getPort() == schemaLocation.getDefaultPort())) {
+            return false;
+        }
+        String path = schemaLocation.getPath();
+        return !path.contains("//") && !path.contains("/./") && !path.contains("/../") && !path.endsWith("/.") && !path.endsWith("/..")
+                && !path.startsWith("./") && !path.startsWith("../") && !path.equals(".") && !path.equals("..");
+    }
+
+    private static class CodeGeneration implements Callable<JsonSchema> {
+        private final String key;
+        private final CachedSchema entry;
+        private final JsonSchema schema;
+
+        CodeGeneration(String key, CachedSchema entry, JsonSchema schema) {
+            this.key = key;
+            this.entry = entry;
+            this.schema = schema;
+        }
+
+        @Override
+        public JsonSchema call() {
+            JsonSchema generated = null;
+            try {
+                generated = SchemaCodeGenerator.generate(schema);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Could not generate a class for the schema at " + key + ", it is interpreted instead", e);
+            }
+            //remembers a failure too, so it is not attempted again for this schema
+            generated = (generated == null) ? schema : generated;
+            entry.setAlternative(CachedSchema.GENERATED_CODE, generated);
+            return generated;
+        }
+    }
+
+    private class Compilation implements Callable<JsonSchema> {
+        private final URL schemaLocation;
+
+        Compilation(URL schemaLocation) {
+            this.schemaLocation = schemaLocation;
+        }
+
+        @Override
+        public JsonSchema call() {
+            long start = System.nanoTime();
+            try {
+                return createCompiler().parse(schemaLocation);
+            } finally {
+                compileTimeNanos.addAndGet(System.nanoTime() - start);
+            }
+        }
+    }
+
+    static final class CachedSchema {
+        static final int GENERATED_CODE = 0;
+        static final int INSTRUCTIONS = 1;
+        static final int PROFILED = 2;
+
+        private final JsonSchema schema;
+        private final SoftReference<JsonSchema> softSchema;
+        final Set<String> referencedKeys;
+        final long compileTimeNanos;
+        private final AtomicReferenceArray<Object> alternatives = new AtomicReferenceArray<>(3);
+
+        CachedSchema(JsonSchema schema, boolean soft, Set<String> referencedKeys, long compileTimeNanos) {
+            this.schema = soft ? null : schema;
+            this.softSchema = soft ? new SoftReference<>(schema) : null;
+            this.referencedKeys = referencedKeys;
+            this.compileTimeNanos = compileTimeNanos;
+        }
+
+        JsonSchema get() {
+            return (softSchema == null) ? schema : softSchema.get();
+        }
+
+        @SuppressWarnings("unchecked")
+        JsonSchema getAlternative(int backend) {
+            Object value = alternatives.get(backend);
+            if (value instanceof FutureTask) {
+                return null; //still being made
+            }
+            return (value instanceof SoftReference) ? ((SoftReference<JsonSchema>) value).get() : (JsonSchema) value;
+        }
+
+        /*
+            Returns the generation in flight, which is the one passed in unless another was started first, or null
+            if the generated schema is already there. A generated schema the garbage collector dropped is made again.
+         */
+        @SuppressWarnings("unchecked")
+        FutureTask<JsonSchema> startGeneration(FutureTask<JsonSchema> generation) {
+            while (true) {
+                Object value = alternatives.get(GENERATED_CODE);
+                if (value instanceof FutureTask) {
+                    return (FutureTask<JsonSchema>) value;
+                }
+                if ((value != null) && (!(value instanceof SoftReference) || (((SoftReference<?>) value).get() != null))) {
+                    return null;
+                }
+                if (alternatives.compareAndSet(GENERATED_CODE, value, generation)) {
+                    return generation;
+                }
+            }
+        }
+
+        //held the same way as the schema, since the alternative holds on to it
+        void setAlternative(int backend, JsonSchema alternative) {
+            alternatives.set(backend, (softSchema == null) ? alternative : new SoftReference<>(alternative));
+        }
+    }
+
     static class SchemaCompilerFactory {
 
         private final SchemaPassThroughCache cache;
@@ -51,4 +707,4 @@ public class SchemaPassThroughCache {
             return new SchemaCompiler(cache, factory);
         }
     }
-}
\ No newline at end of file
+}
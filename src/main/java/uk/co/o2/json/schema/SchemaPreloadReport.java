@@ -0,0 +1,42 @@
+package uk.co.o2.json.schema;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/*
+    The outcome of compiling a set of schemas up front. Failures are keyed by the location that was asked for, so
+    one broken schema does not stop the others from being compiled.
+ */
+public final class SchemaPreloadReport {
+    private final List<String> compiledLocations;
+    private final Map<String, RuntimeException> failures;
+    private final long elapsedNanos;
+
+    SchemaPreloadReport(List<String> compiledLocations, Map<String, RuntimeException> failures, long elapsedNanos) {
+        this.compiledLocations = Collections.unmodifiableList(compiledLocations);
+        this.failures = Collections.unmodifiableMap(failures);
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public List<String> getCompiledLocations() {
+        return compiledLocations;
+    }
+
+    public Map<String, RuntimeException> getFailures() {
+        return failures;
+    }
+
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "SchemaPreloadReport{compiled=" + compiledLocations.size() + ", failures=" + failures.keySet() + ", elapsedNanos=" + elapsedNanos + "}";
+    }
+}
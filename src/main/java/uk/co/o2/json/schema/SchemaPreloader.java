@@ -0,0 +1,100 @@
+package uk.co.o2.json.schema;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+/*
+    Compiles the schemas of a cache before the requests that need them arrive, in parallel on the cache's
+    compilation executor if it has one and on a temporary pool otherwise. Generated classes are made here too when
+    the cache generates code, rather than in the background once a request has asked for the schema.
+ */
+class SchemaPreloader {
+    private final SchemaPassThroughCache cache;
+
+    SchemaPreloader(SchemaPassThroughCache cache) {
+        this.cache = cache;
+    }
+
+    SchemaPreloadReport preload(Collection<URL> schemaLocations) {
+        long start = System.nanoTime();
+        Executor executor = cache.getCompilationExecutor();
+        ExecutorService temporaryExecutor = null;
+        if (executor == null) {
+            temporaryExecutor = Executors.newFixedThreadPool(Math.max(1, Math.min(schemaLocations.size(), Runtime.getRuntime().availableProcessors())));
+            executor = temporaryExecutor;
+        }
+        try {
+            List<URL> locations = new ArrayList<>(schemaLocations);
+            List<FutureTask<JsonSchema>> compilations = new ArrayList<>();
+            for (final URL schemaLocation : locations) {
+                FutureTask<JsonSchema> compilation = new FutureTask<>(new Callable<JsonSchema>() {
+                    @Override
+                    public JsonSchema call() {
+                        return cache.getSchema(schemaLocation, true);
+                    }
+                });
+                compilations.add(compilation);
+                executor.execute(compilation);
+            }
+
+            List<String> compiledLocations = new ArrayList<>();
+            Map<String, RuntimeException> failures = new LinkedHashMap<>();
+            for (int i = 0; i < locations.size(); i++) {
+                FutureTask<JsonSchema> compilation = compilations.get(i);
+                //runs the compilation here if the executor has not started it yet
+                compilation.run();
+                try {
+                    SchemaPassThroughCache.awaitCompilation(compilation, locations.get(i));
+                    compiledLocations.add(locations.get(i).toString());
+                } catch (RuntimeException e) {
+                    failures.put(locations.get(i).toString(), e);
+                }
+            }
+            return new SchemaPreloadReport(compiledLocations, failures, System.nanoTime() - start);
+        } finally {
+            if (temporaryExecutor != null) {
+                temporaryExecutor.shutdown();
+            }
+        }
+    }
+
+    SchemaPreloadReport preloadDirectory(File directory) {
+        if (!directory.isDirectory()) {
+            throw new IllegalArgumentException(directory + " is not a directory");
+        }
+        List<URL> schemaLocations = new ArrayList<>();
+        collectSchemaFiles(directory, schemaLocations);
+        return preload(schemaLocations);
+    }
+
+    private static void collectSchemaFiles(File directory, List<URL> schemaLocations) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            throw new IllegalArgumentException("Could not list the schemas in " + directory);
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            if (file.isDirectory()) {
+                collectSchemaFiles(file, schemaLocations);
+            } else if (file.getName().endsWith(".json")) {
+                try {
+                    schemaLocations.add(file.toURI().toURL());
+                } catch (MalformedURLException e) {
+                    throw new IllegalArgumentException("Could not build a location for " + file, e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package uk.co.o2.json.schema;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+    Records how often each fragment of a schema is validated against and how long it takes, while profiling is on
+    in the SchemaPassThroughCache. Fragments are named by their schema location and a path to them within the
+    document, and each is broken down by keyword, so a slow pattern, a large enumeration, a wide union or a
+    reference to another document each show up on their own.
+
+    Self time excludes the time spent in nested fragments, so sorting by it points at the fragments doing the work;
+    total time includes them. Timings include the profiler's own overhead, which is high for very cheap checks, so
+    they are best compared with each other rather than with unprofiled timings.
+ */
+public class SchemaProfiler {
+    //time spent in profiled fragments by the current thread, used to work out the self time of enclosing fragments
+    private static final ThreadLocal<long[]> NESTED_NANOS = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
+    private final ConcurrentMap<String, Counters> countersByFragment = new ConcurrentHashMap<>();
+
+    /*
+        The fragments validated against since profiling started or was last reset, slowest self time first
+     */
+    public List<Entry> getEntries() {
+        List<Entry> result = new ArrayList<>();
+        for (Counters counters : countersByFragment.values()) {
+            long invocations = counters.invocations.sum();
+            if (invocations > 0) {
+                result.add(new Entry(counters.fragment, counters.keyword, invocations, counters.totalNanos.sum(), counters.selfNanos.sum()));
+            }
+        }
+        Collections.sort(result, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry first, Entry second) {
+                return Long.compare(second.getSelfNanos(), first.getSelfNanos());
+            }
+        });
+        return result;
+    }
+
+    /*
+        The entries as a table, one per line
+     */
+    public String getReport() {
+        StringBuilder report = new StringBuilder(String.format("%15s %15s %12s  %-22s %s%n", "self ns", "total ns", "invocations", "keyword", "fragment"));
+        for (Entry entry : getEntries()) {
+            report.append(String.format("%15d %15d %12d  %-22s %s%n", entry.getSelfNanos(), entry.getTotalNanos(), entry.getInvocations(), entry.getKeyword(), entry.getFragment()));
+        }
+        return report.toString();
+    }
+
+    /*
+        Validations running at the time may be partly counted
+     */
+    public void reset() {
+        for (Counters counters : countersByFragment.values()) {
+            counters.invocations.reset();
+            counters.totalNanos.reset();
+            counters.selfNanos.reset();
+        }
+    }
+
+    /*
+        A copy of the compiled schema whose fragments record their timings here. The compiled schema itself is left
+        as it is, so nothing is paid for profiling when it is off.
+     */
+    JsonSchema instrument(String schemaLocation, JsonSchema schema, SchemaPassThroughCache cache) {
+        return instrument(schema, schemaLocation + "#", cache);
+    }
+
+    private JsonSchema instrument(JsonSchema schema, String fragment, SchemaPassThroughCache cache) {
+        if (schema instanceof ObjectSchema) {
+            ObjectSchema original = (ObjectSchema) schema;
+            ObjectSchema result = new ObjectSchema();
+            for (ObjectSchema.Property originalProperty : original.getProperties()) {
+                ObjectSchema.Property property = new ObjectSchema.Property();
+                property.setName(originalProperty.getName());
+                property.setRequired(originalProperty.isRequired());
+                property.setNestedSchema(instrument(originalProperty.getNestedSchema(), fragment + "/properties/" + originalProperty.getName(), cache));
+                result.getProperties().add(property);
+            }
+            result.indexProperties();
+            result.setAdditionalProperties(instrument(original.getAdditionalProperties(), fragment + "/additionalProperties", cache));
+            return new ProfilingSchema(countersFor(fragment, "properties"), result);
+        }
+        if (schema instanceof ArraySchema) {
+            ArraySchema original = (ArraySchema) schema;
+            ArraySchema result = new ArraySchema();
+            result.setItems(instrument(original.getItems(), fragment + "/items", cache));
+            result.setMinItems(original.getMinItems());
+            result.setMaxItems(original.getMaxItems());
+            return new ProfilingSchema(countersFor(fragment, "items"), result);
+        }
+        if (schema instanceof UnionSchema) {
+            UnionSchema original = (UnionSchema) schema;
+            UnionSchema result = new UnionSchema();
+            if (original.getDiscriminator() != null) {
+                result.setDiscriminator(original.getDiscriminator());
+            }
+            for (int i = 0; i < original.getNestedSchemas().size(); i++) {
+                result.getNestedSchemas().add(instrument(original.getNestedSchemas().get(i), fragment + "/type/" + i, cache));
+            }
+            return new ProfilingSchema(countersFor(fragment, "type (union)"), result);
+        }
+        if (schema instanceof SimpleTypeSchema) {
+            return new ProfilingSchema(countersFor(fragment, "type"), new ProfilingSimpleTypeSchema((SimpleTypeSchema) schema, this, fragment));
+        }
+        if (schema instanceof SchemaReference) {
+            return new ProfilingSchema(countersFor(fragment, "$ref"), (SchemaReference) schema, cache);
+        }
+        return schema; //the shared additional properties schemas, which do no work
+    }
+
+    Counters countersFor(String fragment, String keyword) {
+        String key = fragment + ' ' + keyword;
+        Counters counters = countersByFragment.get(key);
+        if (counters == null) {
+            Counters newCounters = new Counters(fragment, keyword);
+            counters = countersByFragment.putIfAbsent(key, newCounters);
+            if (counters == null) {
+                counters = newCounters;
+            }
+        }
+        return counters;
+    }
+
+    static final class Counters {
+        private final String fragment;
+        private final String keyword;
+        private final StripedCounter invocations = new StripedCounter();
+        private final StripedCounter totalNanos = new StripedCounter();
+        private final StripedCounter selfNanos = new StripedCounter();
+
+        Counters(String fragment, String keyword) {
+            this.fragment = fragment;
+            this.keyword = keyword;
+        }
+
+        /*
+            Returns the mark to pass to stop, which is the thread's nested time so far
+         */
+        static long start() {
+            return NESTED_NANOS.get()[0];
+        }
+
+        void stop(long mark, long startNanos) {
+            long elapsed = System.nanoTime() - startNanos;
+            long[] nestedNanos = NESTED_NANOS.get();
+            invocations.increment();
+            totalNanos.add(elapsed);
+            selfNanos.add(elapsed - (nestedNanos[0] - mark));
+            nestedNanos[0] = mark + elapsed;
+        }
+    }
+
+    public static final class Entry {
+        private final String fragment;
+        private final String keyword;
+        private final long invocations;
+        private final long totalNanos;
+        private final long selfNanos;
+
+        Entry(String fragment, String keyword, long invocations, long totalNanos, long selfNanos) {
+            this.fragment = fragment;
+            this.keyword = keyword;
+            this.invocations = invocations;
+            this.totalNanos = totalNanos;
+            this.selfNanos = selfNanos;
+        }
+
+        /*
+            The schema location followed by a path within the document, such as
+            http://example.com/customer.json#/properties/address/properties/postcode
+         */
+        public String getFragment() {
+            return fragment;
+        }
+
+        public String getKeyword() {
+            return keyword;
+        }
+
+        public long getInvocations() {
+            return invocations;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getSelfNanos() {
+            return selfNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{fragment=" + fragment + ", keyword=" + keyword + ", invocations=" + invocations + ", totalNanos=" + totalNanos + ", selfNanos=" + selfNanos + "}";
+        }
+    }
+}
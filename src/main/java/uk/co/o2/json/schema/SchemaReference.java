@@ -1,13 +1,18 @@
 package uk.co.o2.json.schema;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 
+import java.io.IOException;
 import java.net.URL;
 import java.util.List;
 
-class SchemaReference implements JsonSchema {
+import static uk.co.o2.json.schema.JsonSchemaAdapter.extend;
+
+class SchemaReference implements ExtendedJsonSchema, SchemaWrapper {
     private final SchemaPassThroughCache registry;
     private final URL schemaLocation;
+    private volatile JsonSchema referencedSchema;
 
     SchemaReference(SchemaPassThroughCache registry, URL schemaLocation) {
         this.registry = registry;
@@ -19,6 +24,26 @@ class SchemaReference implements JsonSchema {
         return getReferencedSchema().validate(jsonDocumentToValidate);
     }
 
+    @Override
+    public void validate(JsonNode jsonDocumentToValidate, ErrorSink errors) {
+        extend(getReferencedSchema()).validate(jsonDocumentToValidate, errors);
+    }
+
+    @Override
+    public List<ErrorMessage> validate(JsonParser jsonDocumentToValidate) throws IOException {
+        return extend(getReferencedSchema()).validate(jsonDocumentToValidate);
+    }
+
+    @Override
+    public void validate(JsonParser jsonDocumentToValidate, ErrorSink errors) throws IOException {
+        StreamingValidator.validate(this, jsonDocumentToValidate, errors);
+    }
+
+    @Override
+    public boolean isValid(JsonNode jsonDocumentToValidate) {
+        return extend(getReferencedSchema()).isValid(jsonDocumentToValidate);
+    }
+
     @Override
     public String getDescription() {
         return getReferencedSchema().getDescription();
@@ -29,8 +54,27 @@ class SchemaReference implements JsonSchema {
         return getReferencedSchema().isAcceptableType(jsonDocument);
     }
 
-    private JsonSchema getReferencedSchema() {
-        return registry.getSchema(schemaLocation);
+    @Override
+    public JsonSchema getWrappedSchema() {
+        return getReferencedSchema();
+    }
+
+    /*
+        Once the target is known it is kept rather than looked up again. A reload replaces the schemas holding a
+        reference along with its target, so a reference never needs binding to a newer target. The target is the
+        compiled schema even when the cache hands out generated or profiled ones, as it is when the compiler binds it.
+     */
+    JsonSchema getReferencedSchema() {
+        JsonSchema schema = referencedSchema;
+        if (schema == null) {
+            schema = registry.getCompiledSchema(schemaLocation);
+            referencedSchema = schema;
+        }
+        return schema;
+    }
+
+    void bind(JsonSchema referencedSchema) {
+        this.referencedSchema = referencedSchema;
     }
 
     SchemaPassThroughCache getRegistry() {
@@ -0,0 +1,127 @@
+package uk.co.o2.json.schema;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import uk.co.o2.json.schema.SchemaCompiler.ProcessedSchemaEntry;
+import uk.co.o2.json.schema.SchemaPassThroughCache.CachedSchema;
+
+/*
+    Compiles changed schema documents of a cache again and swaps them in, together with the schemas that reference
+    them, when asked to or, with hot reload on, when a SchemaFileWatcher sees their files change. One reload runs at
+    a time, and the outcome of the latest is kept for the watcher's reloads, which nobody else sees.
+ */
+class SchemaReloader {
+    private final SchemaPassThroughCache cache;
+    private final Object reloadLock = new Object();
+    private volatile SchemaFileWatcher fileWatcher;
+    private volatile SchemaPreloadReport lastReloadReport;
+
+    SchemaReloader(SchemaPassThroughCache cache) {
+        this.cache = cache;
+    }
+
+    boolean isHotReload() {
+        return fileWatcher != null;
+    }
+
+    void setHotReload(boolean hotReload) {
+        synchronized (reloadLock) {
+            if (hotReload && (fileWatcher == null)) {
+                SchemaFileWatcher watcher;
+                try {
+                    watcher = new SchemaFileWatcher(cache);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Could not watch the schema files for changes", e);
+                }
+                //set first, so that schemas registered while the existing ones are being watched are not missed
+                fileWatcher = watcher;
+                for (String key : cache.registeredSchemas.keySet()) {
+                    watcher.watch(SchemaPassThroughCache.locationOf(key));
+                }
+                watcher.start();
+            } else if (!hotReload && (fileWatcher != null)) {
+                fileWatcher.close();
+                fileWatcher = null;
+            }
+        }
+    }
+
+    /*
+        Called for every schema registered, so that its file is watched while hot reload is on
+     */
+    void watch(URL schemaLocation) {
+        SchemaFileWatcher watcher = fileWatcher;
+        if (watcher != null) {
+            watcher.watch(schemaLocation);
+        }
+    }
+
+    SchemaPreloadReport reload(Collection<URL> changedLocations) {
+        long start = System.nanoTime();
+        synchronized (reloadLock) {
+            List<String> compiledLocations = new ArrayList<>();
+            Map<String, RuntimeException> failures = new LinkedHashMap<>();
+            try {
+                Set<String> staleKeys = findStaleKeys(changedLocations);
+                //schemas that are not registered, or were collected, are compiled afresh when they are next asked for
+                List<URL> locationsToRecompile = new ArrayList<>();
+                for (String key : new TreeSet<>(staleKeys)) {
+                    CachedSchema entry = cache.registeredSchemas.get(key);
+                    if ((entry != null) && (entry.get() != null)) {
+                        locationsToRecompile.add(SchemaPassThroughCache.locationOf(key));
+                    }
+                }
+
+                if (!locationsToRecompile.isEmpty()) {
+                    List<ProcessedSchemaEntry> recompiledSchemas = cache.createCompiler().recompile(locationsToRecompile, staleKeys, failures);
+                    cache.replaceSchemas(recompiledSchemas);
+                    for (ProcessedSchemaEntry it : recompiledSchemas) {
+                        compiledLocations.add(it.schemaLocation.toString());
+                    }
+                }
+            } catch (RuntimeException e) {
+                for (URL changedLocation : changedLocations) {
+                    failures.put(changedLocation.toString(), e);
+                }
+            }
+            SchemaPreloadReport report = new SchemaPreloadReport(compiledLocations, failures, System.nanoTime() - start);
+            lastReloadReport = report;
+            return report;
+        }
+    }
+
+    SchemaPreloadReport getLastReloadReport() {
+        return lastReloadReport;
+    }
+
+    /*
+        The changed documents and every registered schema that references one of them, directly or indirectly
+     */
+    private Set<String> findStaleKeys(Collection<URL> changedLocations) {
+        Set<String> staleKeys = new HashSet<>();
+        for (URL changedLocation : changedLocations) {
+            staleKeys.add(SchemaPassThroughCache.keyOf(changedLocation));
+        }
+        boolean foundDependents = true;
+        while (foundDependents) {
+            foundDependents = false;
+            for (Map.Entry<String, CachedSchema> it : cache.registeredSchemas.entrySet()) {
+                if (!staleKeys.contains(it.getKey()) && !Collections.disjoint(it.getValue().referencedKeys, staleKeys)) {
+                    staleKeys.add(it.getKey());
+                    foundDependents = true;
+                }
+            }
+        }
+        return staleKeys;
+    }
+}
@@ -0,0 +1,396 @@
+package uk.co.o2.json.schema;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import uk.co.o2.json.schema.ObjectSchema.Property;
+import uk.co.o2.json.schema.SchemaPassThroughCache.CachedSchema;
+
+/*
+    A compact binary form of compiled schemas, so a cache can be restored without reading and compiling every schema
+    document again. Each document is stored with a SHA-256 hash of its source, and is only restored while the source
+    still hashes the same. References between documents are stored by location and bound again on restore.
+ */
+final class SchemaSnapshot {
+    private static final int MAGIC = 0x4A53534E;
+    private static final int VERSION = 1;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final ObjectMapper ENUMERATION_READER = new ObjectMapper();
+
+    private static final byte NONE = 0;
+    private static final byte OBJECT = 1;
+    private static final byte ARRAY = 2;
+    private static final byte SIMPLE_TYPE = 3;
+    private static final byte UNION = 4;
+    private static final byte REFERENCE = 5;
+    private static final byte ALLOW_ALL_ADDITIONAL_PROPERTIES = 6;
+    private static final byte FORBID_ANY_ADDITIONAL_PROPERTIES = 7;
+
+    private SchemaSnapshot() {
+    }
+
+    static int save(SchemaPassThroughCache cache, File file) throws IOException {
+        Map<URL, JsonSchema> schemas = new LinkedHashMap<>();
+        for (Map.Entry<String, CachedSchema> it : new TreeMap<>(cache.registeredSchemas).entrySet()) {
+            JsonSchema schema = it.getValue().get();
+            if (schema != null) {
+                schemas.put(SchemaPassThroughCache.locationOf(it.getKey()), schema);
+            }
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            return write(out, schemas);
+        }
+    }
+
+    /*
+        Registers the restored schemas first and then binds their references, to the restored schemas where they can
+        be and to schemas the cache already holds otherwise
+     */
+    static int load(SchemaPassThroughCache cache, File file) throws IOException {
+        List<SchemaReference> references = new ArrayList<>();
+        Map<URL, JsonSchema> snapshot;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            snapshot = read(in, cache, references);
+        }
+
+        Map<String, JsonSchema> restoredSchemas = new HashMap<>();
+        for (Map.Entry<URL, JsonSchema> it : snapshot.entrySet()) {
+            restoredSchemas.put(SchemaPassThroughCache.keyOf(it.getKey()), cache.registerSchema(it.getKey(), it.getValue()));
+        }
+        for (SchemaReference reference : references) {
+            JsonSchema target = restoredSchemas.get(SchemaPassThroughCache.keyOf(reference.getSchemaLocation()));
+            if (target == null) {
+                target = cache.peekSchema(reference.getSchemaLocation());
+            }
+            if (target != null) {
+                reference.bind(target);
+            }
+        }
+        return snapshot.size();
+    }
+
+    /*
+        Documents whose source can no longer be read are left out, since they could never be restored
+     */
+    private static int write(DataOutputStream out, Map<URL, JsonSchema> schemas) throws IOException {
+        Map<URL, byte[]> hashes = new LinkedHashMap<>();
+        for (URL schemaLocation : schemas.keySet()) {
+            try {
+                hashes.put(schemaLocation, hashOf(schemaLocation));
+            } catch (IOException e) {
+                //left out of the snapshot
+            }
+        }
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(hashes.size());
+        for (Map.Entry<URL, byte[]> it : hashes.entrySet()) {
+            writeString(out, it.getKey().toString());
+            out.write(it.getValue());
+            writeSchema(out, schemas.get(it.getKey()));
+        }
+        return hashes.size();
+    }
+
+    /*
+        Returns the documents whose sources are unchanged, with their references left unbound. A snapshot written by
+        a different version of this format is treated as entirely stale.
+     */
+    private static Map<URL, JsonSchema> read(DataInputStream in, SchemaPassThroughCache cache, List<SchemaReference> references) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IllegalArgumentException("The file is not a schema snapshot");
+        }
+        Map<URL, JsonSchema> result = new LinkedHashMap<>();
+        if (in.readInt() != VERSION) {
+            return result;
+        }
+        Map<String, Boolean> unchangedSources = new HashMap<>();
+        for (int documents = in.readInt(); documents > 0; documents--) {
+            URL schemaLocation = toURL(readString(in));
+            byte[] hash = new byte[32];
+            in.readFully(hash);
+            List<SchemaReference> documentReferences = new ArrayList<>();
+            JsonSchema schema = readSchema(in, cache, documentReferences);
+            if (isUnchanged(schemaLocation, hash, unchangedSources)) {
+                result.put(schemaLocation, schema);
+                references.addAll(documentReferences);
+            }
+        }
+        return result;
+    }
+
+    private static boolean isUnchanged(URL schemaLocation, byte[] hash, Map<String, Boolean> unchangedSources) {
+        String key = SchemaPassThroughCache.keyOf(schemaLocation);
+        Boolean unchanged = unchangedSources.get(key);
+        if (unchanged == null) {
+            try {
+                unchanged = Arrays.equals(hash, hashOf(schemaLocation));
+            } catch (IOException e) {
+                unchanged = false;
+            }
+            unchangedSources.put(key, unchanged);
+        }
+        return unchanged;
+    }
+
+    private static byte[] hashOf(URL schemaLocation) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        try (InputStream in = schemaLocation.openStream()) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+
+    private static void writeSchema(DataOutputStream out, JsonSchema schema) throws IOException {
+        if (schema == null) {
+            out.writeByte(NONE);
+        } else if (schema == ObjectSchema.ALLOW_ALL_ADDITIONAL_PROPERTIES) {
+            out.writeByte(ALLOW_ALL_ADDITIONAL_PROPERTIES);
+        } else if (schema == ObjectSchema.FORBID_ANY_ADDITIONAL_PROPERTIES) {
+            out.writeByte(FORBID_ANY_ADDITIONAL_PROPERTIES);
+        } else if (schema instanceof ObjectSchema) {
+            writeObjectSchema(out, (ObjectSchema) schema);
+        } else if (schema instanceof ArraySchema) {
+            writeArraySchema(out, (ArraySchema) schema);
+        } else if (schema instanceof SimpleTypeSchema) {
+            writeSimpleTypeSchema(out, (SimpleTypeSchema) schema);
+        } else if (schema instanceof UnionSchema) {
+            writeUnionSchema(out, (UnionSchema) schema);
+        } else if (schema instanceof SchemaReference) {
+            out.writeByte(REFERENCE);
+            writeString(out, ((SchemaReference) schema).getSchemaLocation().toString());
+        } else {
+            throw new IllegalArgumentException("Schemas of type " + schema.getClass().getName() + " cannot be written to a snapshot");
+        }
+    }
+
+    private static JsonSchema readSchema(DataInputStream in, SchemaPassThroughCache cache, List<SchemaReference> references) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NONE:
+                return null;
+            case ALLOW_ALL_ADDITIONAL_PROPERTIES:
+                return ObjectSchema.ALLOW_ALL_ADDITIONAL_PROPERTIES;
+            case FORBID_ANY_ADDITIONAL_PROPERTIES:
+                return ObjectSchema.FORBID_ANY_ADDITIONAL_PROPERTIES;
+            case OBJECT:
+                return readObjectSchema(in, cache, references);
+            case ARRAY:
+                return readArraySchema(in, cache, references);
+            case SIMPLE_TYPE:
+                return readSimpleTypeSchema(in, cache);
+            case UNION:
+                return readUnionSchema(in, cache, references);
+            case REFERENCE:
+                SchemaReference reference = new SchemaReference(cache, toURL(readString(in)));
+                references.add(reference);
+                return reference;
+            default:
+                throw new IllegalArgumentException("The schema snapshot is corrupt, unknown schema tag " + tag);
+        }
+    }
+
+    private static void writeObjectSchema(DataOutputStream out, ObjectSchema schema) throws IOException {
+        out.writeByte(OBJECT);
+        writeSchema(out, schema.getAdditionalProperties());
+        out.writeInt(schema.getProperties().size());
+        for (Property property : schema.getProperties()) {
+            writeString(out, property.getName());
+            out.writeBoolean(property.isRequired());
+            writeSchema(out, property.getNestedSchema());
+        }
+    }
+
+    private static ObjectSchema readObjectSchema(DataInputStream in, SchemaPassThroughCache cache, List<SchemaReference> references) throws IOException {
+        ObjectSchema result = new ObjectSchema();
+        result.setAdditionalProperties(readSchema(in, cache, references));
+        for (int properties = in.readInt(); properties > 0; properties--) {
+            Property property = new Property();
+            property.setName(readString(in));
+            property.setRequired(in.readBoolean());
+            property.setNestedSchema(readSchema(in, cache, references));
+            result.getProperties().add(property);
+        }
+        result.indexProperties();
+        return result;
+    }
+
+    private static void writeArraySchema(DataOutputStream out, ArraySchema schema) throws IOException {
+        out.writeByte(ARRAY);
+        writeSchema(out, schema.getItems());
+        out.writeInt(schema.getMinItems());
+        out.writeInt(schema.getMaxItems());
+    }
+
+    private static ArraySchema readArraySchema(DataInputStream in, SchemaPassThroughCache cache, List<SchemaReference> references) throws IOException {
+        ArraySchema result = new ArraySchema();
+        result.setItems(readSchema(in, cache, references));
+        result.setMinItems(in.readInt());
+        result.setMaxItems(in.readInt());
+        return result;
+    }
+
+    private static void writeSimpleTypeSchema(DataOutputStream out, SimpleTypeSchema schema) throws IOException {
+        out.writeByte(SIMPLE_TYPE);
+        writeString(out, schema.getType().name());
+        writeNullableString(out, (schema.getPattern() == null) ? null : schema.getPattern().pattern());
+        writeNullableString(out, schema.getFormat());
+        out.writeInt(schema.getMinLength());
+        out.writeInt(schema.getMaxLength());
+        writeNullableString(out, (schema.getMinimum() == null) ? null : schema.getMinimum().toString());
+        writeNullableString(out, (schema.getMaximum() == null) ? null : schema.getMaximum().toString());
+        out.writeBoolean(schema.isExclusiveMinimum());
+        out.writeBoolean(schema.isExclusiveMaximum());
+        List<JsonNode> enumeration = schema.getEnumeration();
+        out.writeInt((enumeration == null) ? -1 : enumeration.size());
+        if (enumeration != null) {
+            for (JsonNode value : enumeration) {
+                writeString(out, value.toString());
+            }
+        }
+    }
+
+    /*
+        Only the settings that differ from the defaults are applied, since the setters reject settings that do not
+        apply to the type even when they are left at their defaults
+     */
+    private static SimpleTypeSchema readSimpleTypeSchema(DataInputStream in, SchemaPassThroughCache cache) throws IOException {
+        SimpleTypeSchema result = new SimpleTypeSchema();
+        result.setType(SimpleType.valueOf(readString(in)));
+
+        String pattern = readNullableString(in);
+        if (pattern != null) {
+            Pattern compiledPattern = Pattern.compile(pattern);
+            result.setPattern(compiledPattern, cache.isLinearTimePatterns() ? PatternMatcher.compile(compiledPattern) : PatternMatcher.backtracking(compiledPattern));
+        }
+
+        String format = readNullableString(in);
+        if (format != null) {
+            result.setFormat(format, cache.isStrictTemporalFormats());
+        }
+
+        int minLength = in.readInt();
+        if (minLength != 0) {
+            result.setMinLength(minLength);
+        }
+        int maxLength = in.readInt();
+        if (maxLength != 0) {
+            result.setMaxLength(maxLength);
+        }
+
+        String minimum = readNullableString(in);
+        if (minimum != null) {
+            result.setMinimum(new BigDecimal(minimum));
+        }
+        String maximum = readNullableString(in);
+        if (maximum != null) {
+            result.setMaximum(new BigDecimal(maximum));
+        }
+        if (in.readBoolean()) {
+            result.setExclusiveMinimum(true);
+        }
+        if (in.readBoolean()) {
+            result.setExclusiveMaximum(true);
+        }
+
+        int enumerationSize = in.readInt();
+        if (enumerationSize >= 0) {
+            List<JsonNode> enumeration = new ArrayList<>(enumerationSize);
+            for (int i = 0; i < enumerationSize; i++) {
+                enumeration.add(ENUMERATION_READER.readTree(readString(in)));
+            }
+            result.setEnumeration(enumeration);
+        }
+        return result;
+    }
+
+    private static void writeUnionSchema(DataOutputStream out, UnionSchema schema) throws IOException {
+        out.writeByte(UNION);
+        writeNullableString(out, schema.getDiscriminator());
+        out.writeInt(schema.getNestedSchemas().size());
+        for (JsonSchema nestedSchema : schema.getNestedSchemas()) {
+            writeSchema(out, nestedSchema);
+        }
+    }
+
+    private static UnionSchema readUnionSchema(DataInputStream in, SchemaPassThroughCache cache, List<SchemaReference> references) throws IOException {
+        UnionSchema result = new UnionSchema();
+        String discriminator = readNullableString(in);
+        if (discriminator != null) {
+            result.setDiscriminator(discriminator);
+        }
+        for (int nestedSchemas = in.readInt(); nestedSchemas > 0; nestedSchemas--) {
+            result.getNestedSchemas().add(readSchema(in, cache, references));
+        }
+        return result;
+    }
+
+    //length prefixed rather than writeUTF, which is limited to 64k
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IllegalArgumentException("The schema snapshot is corrupt, negative string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeString(out, value);
+        }
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? readString(in) : null;
+    }
+
+    private static URL toURL(String schemaLocation) {
+        try {
+            return new URL(schemaLocation);
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("The schema snapshot is corrupt, malformed location " + schemaLocation, e);
+        }
+    }
+}
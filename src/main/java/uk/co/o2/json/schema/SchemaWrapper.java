@@ -0,0 +1,9 @@
+package uk.co.o2.json.schema;
+
+/*
+    Implemented by the schemas that validate exactly as another schema does and only add something around it, such
+    as a reference or a profiling wrapper, so that code looking at the shape of a schema can see through them
+ */
+interface SchemaWrapper {
+    JsonSchema getWrappedSchema();
+}
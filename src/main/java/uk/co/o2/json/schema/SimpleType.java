@@ -27,8 +27,8 @@ enum SimpleType {
     },
     INTEGER {
         @Override
-        public Integer getValue(JsonNode node) {
-            return node.intValue();
+        public Number getValue(JsonNode node) {
+            return node.numberValue();
         }
 
         @Override
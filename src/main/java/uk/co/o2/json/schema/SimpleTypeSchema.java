@@ -1,41 +1,87 @@
 package uk.co.o2.json.schema;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.text.ParsePosition;
-import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
-import javax.xml.bind.DatatypeConverter;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 
-class SimpleTypeSchema implements JsonSchema {
+import static uk.co.o2.json.schema.StreamingSupport.readScalar;
+
+class SimpleTypeSchema implements StreamingSchema {
     private SimpleType type = SimpleType.ANY;
     private Pattern pattern;
+    private PatternMatcher patternMatcher;
     private String format;
+    private FormatValidator formatValidator;
+    private boolean strictTemporalFormat;
     private int maxLength;
     private int minLength;
     private Number minimum;
     private Number maximum;
+    private NumericBound minimumBound;
+    private NumericBound maximumBound;
     private boolean exclusiveMinimum;
     private boolean exclusiveMaximum;
     private List<JsonNode> enumeration;
+    private EnumerationLookup enumerationLookup;
 
     @Override
     public List<ErrorMessage> validate(JsonNode node) {
-        List<ErrorMessage> results = new ArrayList<>();
+        ErrorCollector errors = new ErrorCollector();
+        validate(node, errors);
+        return errors.getErrors();
+    }
+
+    @Override
+    public void validate(JsonNode node, ErrorSink errors) {
         if (!isAcceptableType(node)) {
-            results.add(new ErrorMessage("", "Invalid type: must be of type " + type.name().toLowerCase()));
+            errors.addError("Invalid type: must be of type " + type.name().toLowerCase());
         } else {
-            validatePattern(node, results);
-            validateFormat(node, results);
-            validateRange(node, results);
-            validateLength(node, results);
-            validateNodeValueIsFromEnumeratedList(node, results);
+            validatePattern(node, errors);
+            validateFormat(node, errors);
+            validateRange(node, errors);
+            validateLength(node, errors);
+            validateNodeValueIsFromEnumeratedList(node, errors);
         }
-        return results;
+    }
+
+    @Override
+    public boolean isValid(JsonNode node) {
+        return isAcceptableType(node)
+            && matchesPattern(node)
+            && matchesFormat(node)
+            && isAboveMinimum(node)
+            && isBelowMaximum(node)
+            && isLongEnough(node)
+            && isShortEnough(node)
+            && isFromEnumeratedList(node);
+    }
+
+    @Override
+    public List<ErrorMessage> validate(JsonParser parser) throws IOException {
+        ErrorCollector errors = new ErrorCollector();
+        validate(parser, errors);
+        return errors.getErrors();
+    }
+
+    @Override
+    public void validate(JsonParser parser, ErrorSink errors) throws IOException {
+        StreamingValidator.validate(this, parser, errors);
+    }
+
+    @Override
+    public void startValue(JsonParser parser, StreamingValidator validator) throws IOException {
+        if (parser.getCurrentToken().isScalarValue()) {
+            validate(readScalar(parser), validator.getErrors());
+        } else if (type != SimpleType.ANY) {
+            validator.getErrors().addError("Invalid type: must be of type " + type.name().toLowerCase());
+        }
+        validator.skipValue(parser);
     }
 
     @Override
@@ -54,6 +100,7 @@ class SimpleTypeSchema implements JsonSchema {
         }
         validateEnumElementsOfSameType(enumeration);
         this.enumeration = enumeration;
+        this.enumerationLookup = EnumerationLookup.forType(type, enumeration);
     }
 
     void setExclusiveMinimum(boolean exclusiveMinimum) {
@@ -69,11 +116,13 @@ class SimpleTypeSchema implements JsonSchema {
     void setMinimum(Number minimum) {
         validateTypeNumberOrIntegerFor("minimum");
         this.minimum = minimum;
+        this.minimumBound = (minimum == null) ? null : new NumericBound(minimum);
     }
 
     void setMaximum(Number maximum) {
         validateTypeNumberOrIntegerFor("maximum");
         this.maximum = maximum;
+        this.maximumBound = (maximum == null) ? null : new NumericBound(maximum);
     }
 
     private void validateEnumElementsOfSameType(List<JsonNode> values) {
@@ -91,19 +140,38 @@ class SimpleTypeSchema implements JsonSchema {
     }
 
     void setPattern(Pattern pattern) {
+        setPattern(pattern, (pattern == null) ? null : PatternMatcher.backtracking(pattern));
+    }
+
+    void setPattern(Pattern pattern, PatternMatcher patternMatcher) {
         validatePatternAndType(pattern, type);
         this.pattern = pattern;
+        this.patternMatcher = patternMatcher;
     }
 
     void setType(SimpleType type) {
         validateFormatAndType(format, type);
         validatePatternAndType(pattern, type);
         this.type = type;
+        if (enumeration != null) {
+            this.enumerationLookup = EnumerationLookup.forType(type, enumeration);
+        }
     }
 
     void setFormat(String format) {
+        setFormat(format, false);
+    }
+
+    /*
+        When strictTemporalFormat is set, date, time and date-time follow the RFC 3339 grammar instead of the rules of
+        the parsers they were first checked with
+     */
+    void setFormat(String format, boolean strictTemporalFormat) {
         validateFormatAndType(format, type);
         this.format = format;
+        this.strictTemporalFormat = strictTemporalFormat;
+        FormatValidator strictFormatValidator = strictTemporalFormat ? strictTemporalFormatValidators.get(format) : null;
+        this.formatValidator = (strictFormatValidator != null) ? strictFormatValidator : formatValidators.get(format);
     }
 
     void setMaxLength(int maxLength) {
@@ -133,69 +201,115 @@ class SimpleTypeSchema implements JsonSchema {
         }
     }
 
-    private void validateNodeValueIsFromEnumeratedList(JsonNode node, List<ErrorMessage> results) {
-        if ((enumeration!= null) && !enumeration.contains(node)) {
-            results.add(new ErrorMessage("", "Value " + node.toString() + " must be one of: " + enumeration.toString()));
+    private void validateNodeValueIsFromEnumeratedList(JsonNode node, ErrorSink errors) {
+        if (!isFromEnumeratedList(node)) {
+            errors.addError("Value " + node.toString() + " must be one of: " + enumeration.toString());
         }
     }
 
-    private void validateLength(JsonNode node, List<ErrorMessage> results) {
-        if (minLength > 0) {
-            String value = type.getValue(node).toString();
-            if (value.length() < minLength) {
-                results.add(new ErrorMessage("", "Value '" + node.textValue() + "' must be greater or equal to " + minLength + " characters"));
-            }
+    boolean isFromEnumeratedList(JsonNode node) {
+        return (enumerationLookup == null) || enumerationLookup.contains(node);
+    }
+
+    private void validateLength(JsonNode node, ErrorSink errors) {
+        if (!isLongEnough(node)) {
+            errors.addError("Value '" + node.textValue() + "' must be greater or equal to " + minLength + " characters");
         }
-        if (maxLength > 0) {
-            String value = type.getValue(node).toString();
-            if (value.length() > maxLength) {
-                results.add(new ErrorMessage("", String.format("Value '%s' must be less or equal to %d characters", node.textValue(), maxLength)));
-            }
+        if (!isShortEnough(node)) {
+            errors.addError(String.format("Value '%s' must be less or equal to %d characters", node.textValue(), maxLength));
         }
     }
 
-    private void validateRange(JsonNode node, List<ErrorMessage> results) {
-        if (this.minimum != null) {
+    boolean isLongEnough(JsonNode node) {
+        return (minLength <= 0) || (type.getValue(node).toString().length() >= minLength);
+    }
+
+    boolean isShortEnough(JsonNode node) {
+        return (maxLength <= 0) || (type.getValue(node).toString().length() <= maxLength);
+    }
+
+    private void validateRange(JsonNode node, ErrorSink errors) {
+        if (!isAboveMinimum(node)) {
             String nodeValueAsString = type.getValue(node).toString();
-            BigDecimal value = new BigDecimal(nodeValueAsString);
-            BigDecimal minimum = new BigDecimal(this.minimum.toString());
-            if (exclusiveMinimum && (value.compareTo(minimum) < 1)) {
-                results.add(new ErrorMessage("", "Value '" + nodeValueAsString + "' must be greater than " + minimum + " when exclusiveMinimum is true"));
-            } else if (value.compareTo(minimum) < 0) {
-                results.add(new ErrorMessage("", "Value '" + nodeValueAsString + "' must be greater or equal to " + minimum));
+            BigDecimal minimum = minimumBound.decimalValue();
+            if (exclusiveMinimum) {
+                errors.addError("Value '" + nodeValueAsString + "' must be greater than " + minimum + " when exclusiveMinimum is true");
+            } else {
+                errors.addError("Value '" + nodeValueAsString + "' must be greater or equal to " + minimum);
             }
         }
 
-        if (this.maximum != null) {
+        if (!isBelowMaximum(node)) {
             String nodeValueAsString = type.getValue(node).toString();
-            BigDecimal value = new BigDecimal(nodeValueAsString);
-            BigDecimal maximum = new BigDecimal(this.maximum.toString());
-            if (exclusiveMaximum && value.compareTo(maximum) >= 0) {
-                results.add(new ErrorMessage("", "Value '" + nodeValueAsString + "' must be less than " + maximum + " when exclusiveMaximum is true"));
-            } else if (value.compareTo(maximum) > 0) {
-                results.add(new ErrorMessage("", "Value '" + nodeValueAsString + "' must be less than or equal to " + maximum));
+            BigDecimal maximum = maximumBound.decimalValue();
+            if (exclusiveMaximum) {
+                errors.addError("Value '" + nodeValueAsString + "' must be less than " + maximum + " when exclusiveMaximum is true");
+            } else {
+                errors.addError("Value '" + nodeValueAsString + "' must be less than or equal to " + maximum);
             }
         }
     }
 
-    private void validateFormat(JsonNode node, List<ErrorMessage> results) {
-        if (format != null) {
-            FormatValidator formatValidator = formatValidators.get(format);
-            if (formatValidator!= null && !formatValidator.isValid(node)) {
-                results.add(new ErrorMessage("", "Value '" + node.textValue() + "' is not a valid " + format));
-            }
+    boolean isAboveMinimum(JsonNode node) {
+        if (minimumBound == null) {
+            return true;
         }
+        int comparison = minimumBound.compareWith(node);
+        return exclusiveMinimum ? (comparison > 0) : (comparison >= 0);
+    }
+
+    boolean isBelowMaximum(JsonNode node) {
+        if (maximumBound == null) {
+            return true;
+        }
+        int comparison = maximumBound.compareWith(node);
+        return exclusiveMaximum ? (comparison < 0) : (comparison <= 0);
+    }
+
+    private void validateFormat(JsonNode node, ErrorSink errors) {
+        if (!matchesFormat(node)) {
+            errors.addError("Value '" + node.textValue() + "' is not a valid " + format);
+        }
+    }
+
+    boolean matchesFormat(JsonNode node) {
+        return (formatValidator == null) || formatValidator.isValid(node);
     }
 
-    private void validatePattern(JsonNode node, List<ErrorMessage> results) {
-        if (pattern != null) {
+    private void validatePattern(JsonNode node, ErrorSink errors) {
+        if (!matchesPattern(node)) {
             String value = type.getValue(node).toString();
-            if (!pattern.matcher(value).matches()) {
-                results.add(new ErrorMessage("", "String value '" + value + "' does not match regex '" + pattern.pattern() + "'"));
-            }
+            errors.addError("String value '" + value + "' does not match regex '" + pattern.pattern() + "'");
         }
     }
 
+    boolean matchesPattern(JsonNode node) {
+        return (patternMatcher == null) || patternMatcher.matches(type.getValue(node).toString());
+    }
+
+    /*
+        The setters only check a constraint against the type at the time it is set, so a schema whose type was
+        changed afterwards can hold constraints that no longer suit it. Compiled schemas never do.
+     */
+    boolean hasConstraintsSuitedToType() {
+        boolean numeric = (type == SimpleType.NUMBER) || (type == SimpleType.INTEGER);
+        if (((minimumBound != null) || (maximumBound != null)) && !numeric) {
+            return false;
+        }
+        if (((patternMatcher != null) || (minLength > 0) || (maxLength > 0)) && (type != SimpleType.STRING)) {
+            return false;
+        }
+        return (enumerationLookup == null) || ((type != SimpleType.ANY) && (type != SimpleType.NULL));
+    }
+
+    /*
+        True when the schema accepts every value
+     */
+    boolean isUnconstrained() {
+        return (type == SimpleType.ANY) && (patternMatcher == null) && (formatValidator == null) && (minimumBound == null)
+            && (maximumBound == null) && (minLength <= 0) && (maxLength <= 0) && (enumerationLookup == null);
+    }
+
     SimpleType getType() {
         return type;
     }
@@ -204,10 +318,18 @@ class SimpleTypeSchema implements JsonSchema {
         return pattern;
     }
 
+    PatternMatcher getPatternMatcher() {
+        return patternMatcher;
+    }
+
     String getFormat() {
         return format;
     }
 
+    boolean isStrictTemporalFormat() {
+        return strictTemporalFormat;
+    }
+
     int getMaxLength() {
         return maxLength;
     }
@@ -224,6 +346,14 @@ class SimpleTypeSchema implements JsonSchema {
         return maximum;
     }
 
+    NumericBound getMinimumBound() {
+        return minimumBound;
+    }
+
+    NumericBound getMaximumBound() {
+        return maximumBound;
+    }
+
     boolean isExclusiveMinimum() {
         return exclusiveMinimum;
     }
@@ -236,6 +366,10 @@ class SimpleTypeSchema implements JsonSchema {
         return enumeration;
     }
 
+    EnumerationLookup getEnumerationLookup() {
+        return enumerationLookup;
+    }
+
     private static interface FormatValidator {
 
         boolean isValid(JsonNode node);
@@ -247,13 +381,7 @@ class SimpleTypeSchema implements JsonSchema {
         put("date-time", new FormatValidator() {
             @Override
             public boolean isValid(JsonNode node) {
-                String value = SimpleType.STRING.getValue(node).toString();
-                try {
-                    DatatypeConverter.parseDateTime(value);
-                    return true;
-                } catch (IllegalArgumentException e) {
-                    return false;
-                }
+                return TemporalFormats.isDateTime(SimpleType.STRING.getValue(node).toString());
             }
 
             @Override
@@ -264,21 +392,7 @@ class SimpleTypeSchema implements JsonSchema {
         put("date", new FormatValidator() {
             @Override
             public boolean isValid(JsonNode node) {
-                String value = SimpleType.STRING.getValue(node).toString();
-                SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
-                format.setLenient(false);
-                ParsePosition position = new ParsePosition(0);
-
-                Date result = format.parse(value, position);
-
-                String[] parts = value.substring(0, position.getIndex()).split("-");
-                boolean partLengthsOk = parts.length == 3 && parts[0].length() == 4 &&
-                    parts[1].length() == 2 &&
-                    parts[2].length() == 2;
-
-                boolean valueIsTooLongToBeADate = position.getIndex() < value.length();
-
-                return (result != null) && partLengthsOk && (!valueIsTooLongToBeADate);
+                return TemporalFormats.isDate(SimpleType.STRING.getValue(node).toString());
             }
 
             @Override
@@ -289,14 +403,7 @@ class SimpleTypeSchema implements JsonSchema {
         put("time", new FormatValidator() {
             @Override
             public boolean isValid(JsonNode node) {
-                String value = SimpleType.STRING.getValue(node).toString();
-                SimpleDateFormat format = new SimpleDateFormat("HH:mm:ss");
-                format.setLenient(false);
-                ParsePosition position = new ParsePosition(0);
-
-                Date result = format.parse(value, position);
-
-                return (result != null) && (position.getIndex() == value.length());
+                return TemporalFormats.isTime(SimpleType.STRING.getValue(node).toString());
             }
 
             @Override
@@ -352,4 +459,40 @@ class SimpleTypeSchema implements JsonSchema {
             }
         });
     }});
+
+    private static Map<String, FormatValidator> strictTemporalFormatValidators = Collections.unmodifiableMap(new HashMap<String, FormatValidator>() {{
+        put("date-time", new FormatValidator() {
+            @Override
+            public boolean isValid(JsonNode node) {
+                return Rfc3339Formats.isDateTime(SimpleType.STRING.getValue(node).toString());
+            }
+
+            @Override
+            public boolean isCompatibleType(SimpleType type) {
+                return type == SimpleType.STRING;
+            }
+        });
+        put("date", new FormatValidator() {
+            @Override
+            public boolean isValid(JsonNode node) {
+                return Rfc3339Formats.isDate(SimpleType.STRING.getValue(node).toString());
+            }
+
+            @Override
+            public boolean isCompatibleType(SimpleType type) {
+                return type == SimpleType.STRING;
+            }
+        });
+        put("time", new FormatValidator() {
+            @Override
+            public boolean isValid(JsonNode node) {
+                return Rfc3339Formats.isTime(SimpleType.STRING.getValue(node).toString());
+            }
+
+            @Override
+            public boolean isCompatibleType(SimpleType type) {
+                return type == SimpleType.STRING;
+            }
+        });
+    }});
 }
\ No newline at end of file
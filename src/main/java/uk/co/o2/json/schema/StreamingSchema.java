@@ -0,0 +1,13 @@
+package uk.co.o2.json.schema;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
+/*
+    Implemented by the schemas that StreamingValidator can validate token by token. The parser is on the first
+    token of the value; the schema either validates the whole value there or pushes a frame to see the rest of it.
+ */
+interface StreamingSchema extends ExtendedJsonSchema {
+    void startValue(JsonParser parser, StreamingValidator validator) throws IOException;
+}
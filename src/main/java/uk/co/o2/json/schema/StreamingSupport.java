@@ -0,0 +1,91 @@
+package uk.co.o2.json.schema;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+
+/*
+    Nodes are built here with a JsonNodeFactory rather than by the parser's codec, so streaming validation works
+    with a parser from a plain JsonFactory too
+ */
+final class StreamingSupport {
+    private static final JsonNodeFactory nodes = JsonNodeFactory.instance;
+
+    private StreamingSupport() {}
+
+    static JsonToken currentToken(JsonParser parser) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token == null) {
+            token = parser.nextToken();
+        }
+        if (token == null) {
+            throw new IllegalArgumentException("The json document is empty");
+        }
+        return token;
+    }
+
+    /*
+        Builds the single node for the scalar at the current token, numbers keeping the type the parser found
+     */
+    static JsonNode readScalar(JsonParser parser) throws IOException {
+        switch (currentToken(parser)) {
+            case VALUE_STRING:
+                return nodes.textNode(parser.getText());
+            case VALUE_NUMBER_INT:
+                switch (parser.getNumberType()) {
+                    case INT:
+                        return nodes.numberNode(parser.getIntValue());
+                    case LONG:
+                        return nodes.numberNode(parser.getLongValue());
+                    default:
+                        return nodes.numberNode(parser.getBigIntegerValue());
+                }
+            case VALUE_NUMBER_FLOAT:
+                if (parser.getNumberType() == JsonParser.NumberType.BIG_DECIMAL) {
+                    return nodes.numberNode(parser.getDecimalValue());
+                }
+                return nodes.numberNode(parser.getDoubleValue());
+            case VALUE_TRUE:
+                return nodes.booleanNode(true);
+            case VALUE_FALSE:
+                return nodes.booleanNode(false);
+            case VALUE_NULL:
+                return nodes.nullNode();
+            case VALUE_EMBEDDED_OBJECT:
+                Object embedded = parser.getEmbeddedObject();
+                return (embedded instanceof byte[]) ? nodes.binaryNode((byte[]) embedded) : nodes.POJONode(embedded);
+            default:
+                throw new IllegalArgumentException("Expected a scalar value but found " + parser.getCurrentToken());
+        }
+    }
+
+    /*
+        Only used to hand a value to a schema that cannot be validated token by token, so the tree that gets built
+        is bounded by the size of that value
+     */
+    static JsonNode readCurrentValue(JsonParser parser) throws IOException {
+        JsonToken token = currentToken(parser);
+        if (token == JsonToken.START_OBJECT) {
+            ObjectNode result = nodes.objectNode();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                parser.nextToken();
+                result.put(fieldName, readCurrentValue(parser));
+            }
+            return result;
+        }
+        if (token == JsonToken.START_ARRAY) {
+            ArrayNode result = nodes.arrayNode();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                result.add(readCurrentValue(parser));
+            }
+            return result;
+        }
+        return readScalar(parser);
+    }
+}
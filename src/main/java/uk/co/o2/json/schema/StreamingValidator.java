@@ -0,0 +1,223 @@
+package uk.co.o2.json.schema;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static uk.co.o2.json.schema.JsonSchemaAdapter.extend;
+import static uk.co.o2.json.schema.StreamingSupport.currentToken;
+import static uk.co.o2.json.schema.StreamingSupport.readScalar;
+
+/*
+    Validates one json value as its tokens are handed to it, one at a time, so that it can run while something
+    else (an ObjectMapper, say) is reading the same parser. The containers that are open are kept as a stack of
+    frames rather than on the call stack, which is what lets the validation stop between any two tokens.
+
+    Schemas start their own frames through StreamingSchema. Any other schema is given a tree of the value, built
+    only for that value.
+ */
+final class StreamingValidator {
+    private static final JsonNodeFactory nodes = JsonNodeFactory.instance;
+
+    private final JsonSchema schema;
+    private final ErrorSink errors;
+    private Frame[] frames = new Frame[16];
+    private int depth;
+    private boolean started;
+    private boolean complete;
+
+    StreamingValidator(JsonSchema schema, ErrorSink errors) {
+        this.schema = schema;
+        this.errors = errors;
+    }
+
+    /*
+        Reads the value at the parser's current token (advancing to the first token if the parser has not been
+        started), leaving the parser on the last token of that value
+     */
+    static void validate(JsonSchema schema, JsonParser parser, ErrorSink errors) throws IOException {
+        StreamingValidator validator = new StreamingValidator(schema, errors);
+        currentToken(parser);
+        validator.onToken(parser);
+        while (!validator.isComplete()) {
+            if (parser.nextToken() == null) {
+                throw new JsonParseException("Unexpected end of input", parser.getCurrentLocation());
+            }
+            validator.onToken(parser);
+        }
+    }
+
+    /*
+        Called with the parser on each token of the value in turn, from its first token to its last
+     */
+    void onToken(JsonParser parser) throws IOException {
+        if (complete) {
+            throw new IllegalStateException("The value has already been validated");
+        }
+        if (!started) {
+            started = true;
+            startValue(schema, parser);
+        } else {
+            frames[depth - 1].onToken(parser, this);
+        }
+    }
+
+    boolean isComplete() {
+        return complete;
+    }
+
+    ErrorSink getErrors() {
+        return errors;
+    }
+
+    /*
+        Starts validating the value whose first token the parser is on. Either the value ends here (a scalar), and
+        endValue() is called before this returns, or a frame is pushed that calls it once the value's last token
+        has been seen.
+     */
+    void startValue(JsonSchema schema, JsonParser parser) throws IOException {
+        while (!(schema instanceof StreamingSchema) && (schema instanceof SchemaWrapper)) {
+            schema = ((SchemaWrapper) schema).getWrappedSchema();
+        }
+        if (schema instanceof StreamingSchema) {
+            ((StreamingSchema) schema).startValue(parser, this);
+        } else if (parser.getCurrentToken().isScalarValue()) {
+            extend(schema).validate(readScalar(parser), errors);
+            endValue();
+        } else {
+            push(new TreeFrame(extend(schema), parser.getCurrentToken()));
+        }
+    }
+
+    /*
+        For a value that several schemas have to see, which is read into a tree of just that value
+     */
+    void validateAsTree(ExtendedJsonSchema schema, JsonParser parser) throws IOException {
+        if (parser.getCurrentToken().isScalarValue()) {
+            schema.validate(readScalar(parser), errors);
+            endValue();
+        } else {
+            push(new TreeFrame(schema, parser.getCurrentToken()));
+        }
+    }
+
+    void skipValue(JsonParser parser) {
+        if (parser.getCurrentToken().isScalarValue()) {
+            endValue();
+        } else {
+            push(new SkipFrame());
+        }
+    }
+
+    /*
+        The frame receives the tokens that follow the current one, until it pops itself
+     */
+    void push(Frame frame) {
+        if (depth == frames.length) {
+            frames = Arrays.copyOf(frames, depth * 2);
+        }
+        frames[depth++] = frame;
+    }
+
+    /*
+        Called by the frame on top of the stack once the last token of its value has been seen
+     */
+    void pop() {
+        frames[--depth] = null;
+        endValue();
+    }
+
+    private void endValue() {
+        if (depth == 0) {
+            complete = true;
+        } else {
+            frames[depth - 1].childEnded(this);
+        }
+    }
+
+    abstract static class Frame {
+        /*
+            Receives the tokens inside the frame's value, including its end token, except for those of the values
+            it hands on to startValue()
+         */
+        abstract void onToken(JsonParser parser, StreamingValidator validator) throws IOException;
+
+        /*
+            A value the frame handed on to startValue() or skipValue() has ended
+         */
+        void childEnded(StreamingValidator validator) {
+        }
+    }
+
+    private static final class SkipFrame extends Frame {
+        private int nesting;
+
+        @Override
+        void onToken(JsonParser parser, StreamingValidator validator) {
+            JsonToken token = parser.getCurrentToken();
+            if ((token == JsonToken.START_OBJECT) || (token == JsonToken.START_ARRAY)) {
+                nesting++;
+            } else if ((token == JsonToken.END_OBJECT) || (token == JsonToken.END_ARRAY)) {
+                if (nesting-- == 0) {
+                    validator.pop();
+                }
+            }
+        }
+    }
+
+    private static final class TreeFrame extends Frame {
+        private final ExtendedJsonSchema schema;
+        private JsonNode[] containers = new JsonNode[8];
+        private int nesting;
+        private String fieldName;
+
+        TreeFrame(ExtendedJsonSchema schema, JsonToken startToken) {
+            this.schema = schema;
+            containers[nesting++] = (startToken == JsonToken.START_OBJECT) ? nodes.objectNode() : nodes.arrayNode();
+        }
+
+        @Override
+        void onToken(JsonParser parser, StreamingValidator validator) throws IOException {
+            JsonToken token = parser.getCurrentToken();
+            switch (token) {
+                case FIELD_NAME:
+                    fieldName = parser.getCurrentName();
+                    break;
+                case START_OBJECT:
+                case START_ARRAY:
+                    JsonNode container = (token == JsonToken.START_OBJECT) ? nodes.objectNode() : nodes.arrayNode();
+                    add(container);
+                    if (nesting == containers.length) {
+                        containers = Arrays.copyOf(containers, nesting * 2);
+                    }
+                    containers[nesting++] = container;
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    if (--nesting == 0) {
+                        schema.validate(containers[0], validator.getErrors());
+                        validator.pop();
+                    }
+                    break;
+                default:
+                    add(readScalar(parser));
+            }
+        }
+
+        private void add(JsonNode value) {
+            JsonNode parent = containers[nesting - 1];
+            if (parent.isObject()) {
+                ((ObjectNode) parent).put(fieldName, value);
+            } else {
+                ((ArrayNode) parent).add(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package uk.co.o2.json.schema;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+    A sum that many threads can add to at once without contending on one memory location. Each thread adds to the
+    stripe picked by its id, and stripes are spaced a cache line apart, so reading the sum is the slow part.
+ */
+final class StripedCounter {
+    private static final int PADDING = 8;
+    private static final int STRIPES = stripeCount();
+
+    private final AtomicLongArray stripes = new AtomicLongArray(STRIPES * PADDING);
+
+    void add(long value) {
+        stripes.addAndGet(stripeIndex(), value);
+    }
+
+    void increment() {
+        add(1L);
+    }
+
+    long sum() {
+        long sum = 0L;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += stripes.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    /*
+        Not atomic with respect to concurrent adds, which may be kept or lost
+     */
+    void reset() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes.set(i * PADDING, 0L);
+        }
+    }
+
+    private static int stripeIndex() {
+        long id = Thread.currentThread().getId();
+        return (int) ((id ^ (id >>> 16)) & (STRIPES - 1)) * PADDING;
+    }
+
+    //the next power of two of at least twice the number of processors, so that stripes can be picked with a mask
+    private static int stripeCount() {
+        return Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1) << 1;
+    }
+}
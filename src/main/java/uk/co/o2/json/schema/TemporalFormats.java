@@ -0,0 +1,414 @@
+package uk.co.o2.json.schema;
+
+/*
+    Hand written checks for the date, time and date-time formats. They accept exactly what the previous
+    implementations accepted (a non-lenient SimpleDateFormat for date and time, and the xsd lexical rules behind
+    DatatypeConverter.parseDateTime for date-time), including their quirks, without allocating anything per call.
+    The one deliberate difference is DecimalFormat's locale specific NaN symbol, which is not treated as a number.
+ */
+final class TemporalFormats {
+    private static final long FAILED = -1L;
+    private static final int[] DAYS_IN_MONTH = {0, 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    private TemporalFormats() {}
+
+    /*
+        "yyyy-MM-dd" parsed by a non-lenient SimpleDateFormat, then required to have 4, 2 and 2 characters between
+        the dashes. Dates before 15 October 1582 follow the Julian calendar, as GregorianCalendar does.
+     */
+    static boolean isDate(String value) {
+        if ((value.length() != 10) || (value.indexOf('-') != 4) || (value.indexOf('-', 5) != 7) || (value.indexOf('-', 8) >= 0)) {
+            return false;
+        }
+
+        long year = parseDateFormatField(value, 0);
+        if ((year == FAILED) || !isLiteral(value, fieldEnd(year), '-')) {
+            return false;
+        }
+        long month = parseDateFormatField(value, fieldEnd(year) + 1);
+        if ((month == FAILED) || !isLiteral(value, fieldEnd(month), '-')) {
+            return false;
+        }
+        long day = parseDateFormatField(value, fieldEnd(month) + 1);
+        if ((day == FAILED) || (fieldEnd(day) != value.length())) {
+            return false;
+        }
+        return isHistoricalDate(fieldValue(year), fieldValue(month), fieldValue(day));
+    }
+
+    /*
+        "HH:mm:ss" parsed by a non-lenient SimpleDateFormat.
+     */
+    static boolean isTime(String value) {
+        long hour = parseDateFormatField(value, 0);
+        if ((hour == FAILED) || !isLiteral(value, fieldEnd(hour), ':')) {
+            return false;
+        }
+        long minute = parseDateFormatField(value, fieldEnd(hour) + 1);
+        if ((minute == FAILED) || !isLiteral(value, fieldEnd(minute), ':')) {
+            return false;
+        }
+        long second = parseDateFormatField(value, fieldEnd(minute) + 1);
+        if ((second == FAILED) || (fieldEnd(second) != value.length())) {
+            return false;
+        }
+        return isBetween(fieldValue(hour), 0, 23) && isBetween(fieldValue(minute), 0, 59) && isBetween(fieldValue(second), 0, 59);
+    }
+
+    /*
+        Any of the xsd date and time types (dateTime, time, date, gYearMonth, gYear, gMonthDay, gDay and gMonth),
+        after trimming xml whitespace, recognised with the same heuristics as XMLGregorianCalendar.
+     */
+    static boolean isDateTime(String value) {
+        int start = 0;
+        int end = value.length();
+        while ((start < end) && isXmlWhitespace(value.charAt(start))) {
+            start++;
+        }
+        while ((end - 1 > start) && isXmlWhitespace(value.charAt(end - 1))) {
+            end--;
+        }
+        int length = end - start;
+
+        if (indexOf(value, 'T', start, end) >= 0) {
+            return isXsdValue(value, start, end, true, true, true, true);
+        }
+        if ((length >= 3) && (value.charAt(start + 2) == ':')) {
+            return isXsdValue(value, start, end, false, false, false, true);
+        }
+        if ((length >= 2) && (value.charAt(start) == '-') && (value.charAt(start + 1) == '-')) {
+            if ((length >= 3) && (value.charAt(start + 2) == '-')) {
+                return isXsdDayOrMonth(value, start + 3, end, false, true);
+            }
+            boolean monthOnly = (length == 4) || (length == 5) || (length == 10);
+            return isXsdDayOrMonth(value, start + 2, end, true, !monthOnly);
+        }
+
+        int separatorSearchEnd = (indexOf(value, ':', start, end) >= 0) ? end - 6 : end;
+        int separators = 0;
+        for (int i = start + 1; i < separatorSearchEnd; i++) {
+            if (value.charAt(i) == '-') {
+                separators++;
+            }
+        }
+        return isXsdValue(value, start, end, true, separators >= 1, separators >= 2, false);
+    }
+
+    private static boolean isXsdValue(String value, int start, int end, boolean hasYear, boolean hasMonth, boolean hasDay, boolean hasTime) {
+        int position = start;
+        boolean yearIsZero = false;
+        boolean yearIsMinusOne = false;
+        boolean leapYear = true;
+        int month = 0;
+        int day = 0;
+        int hour = 0;
+        int minute = 0;
+        int second = 0;
+
+        if (hasYear) {
+            boolean negative = (position < end) && (value.charAt(position) == '-');
+            if (negative) {
+                position++;
+            }
+            int digitsStart = position;
+            int yearMod400 = 0;
+            long magnitude = 0;
+            while ((position < end) && isAsciiDigit(value.charAt(position))) {
+                int digit = value.charAt(position++) - '0';
+                yearMod400 = (yearMod400 * 10 + digit) % 400;
+                magnitude = Math.min(magnitude * 10 + digit, 10);
+            }
+            if (position - digitsStart < 4) {
+                return false;
+            }
+            yearIsZero = magnitude == 0;
+            yearIsMinusOne = negative && (magnitude == 1);
+            leapYear = (yearMod400 == 0) || (((yearMod400 % 100) != 0) && ((yearMod400 % 4) == 0));
+        }
+        if (hasMonth) {
+            if (hasYear && !isLiteral(value, position++, '-')) {
+                return false;
+            }
+            month = parseTwoDigits(value, position, end);
+            position += 2;
+            if ((month < 1) || (month > 12)) {
+                return false;
+            }
+        }
+        if (hasDay) {
+            if (!isLiteral(value, position++, '-')) {
+                return false;
+            }
+            day = parseTwoDigits(value, position, end);
+            position += 2;
+            if ((day < 1) || (day > 31)) {
+                return false;
+            }
+        }
+        if (hasTime) {
+            if (hasDay && !isLiteral(value, position++, 'T')) {
+                return false;
+            }
+            hour = parseTwoDigits(value, position, end);
+            if ((hour < 0) || (hour > 24) || !isLiteral(value, position + 2, ':')) {
+                return false;
+            }
+            minute = parseTwoDigits(value, position + 3, end);
+            if ((minute < 0) || (minute > 59) || !isLiteral(value, position + 5, ':')) {
+                return false;
+            }
+            second = parseTwoDigits(value, position + 6, end);
+            if ((second < 0) || (second > 60)) {
+                return false;
+            }
+            position += 8;
+            if ((position < end) && (value.charAt(position) == '.')) {
+                int fractionStart = ++position;
+                while ((position < end) && isAsciiDigit(value.charAt(position))) {
+                    position++;
+                }
+                if (position == fractionStart) {
+                    return false;
+                }
+            }
+        }
+
+        position = skipXsdTimezone(value, position, end);
+        if (position != end) {
+            return false;
+        }
+
+        if (hasTime && (hour == 24)) {
+            //24:00:00 is the start of the next day, and moving the date on always lands on a real day
+            if ((minute != 0) || (second != 0)) {
+                return false;
+            }
+            boolean nextYear = (month == 12) && (day == 31);
+            return !hasYear || (nextYear ? !yearIsMinusOne : !yearIsZero);
+        }
+        if (hasDay && (day > daysInMonth(month, leapYear))) {
+            return false;
+        }
+        return !hasYear || !yearIsZero;
+    }
+
+    private static boolean isXsdDayOrMonth(String value, int position, int end, boolean hasMonth, boolean hasDay) {
+        int month = 0;
+        if (hasMonth) {
+            month = parseTwoDigits(value, position, end);
+            position += 2;
+            if ((month < 1) || (month > 12)) {
+                return false;
+            }
+            if (hasDay && !isLiteral(value, position++, '-')) {
+                return false;
+            }
+        }
+        if (hasDay) {
+            int day = parseTwoDigits(value, position, end);
+            position += 2;
+            if ((day < 1) || (day > 31) || (hasMonth && (day > daysInMonth(month, true)))) {
+                return false;
+            }
+        }
+        return skipXsdTimezone(value, position, end) == end;
+    }
+
+    /*
+        Returns the position after an optional "Z" or "+hh:mm"/"-hh:mm" timezone, or -1 if the timezone is malformed
+     */
+    private static int skipXsdTimezone(String value, int position, int end) {
+        if (position >= end) {
+            return position;
+        }
+        char sign = value.charAt(position);
+        if (sign == 'Z') {
+            return position + 1;
+        }
+        if ((sign != '+') && (sign != '-')) {
+            return position;
+        }
+        int hours = parseTwoDigits(value, position + 1, end);
+        int minutes = parseTwoDigits(value, position + 4, end);
+        if ((hours < 0) || !isLiteral(value, position + 3, ':') || (minutes < 0) || (hours * 60 + minutes > 14 * 60)) {
+            return -1;
+        }
+        return position + 6;
+    }
+
+    private static int parseTwoDigits(String value, int position, int end) {
+        if ((position + 2 > end) || !isAsciiDigit(value.charAt(position)) || !isAsciiDigit(value.charAt(position + 1))) {
+            return -1;
+        }
+        return (value.charAt(position) - '0') * 10 + (value.charAt(position + 1) - '0');
+    }
+
+    /*
+        Parses a numeric field the way SimpleDateFormat does: leading spaces and tabs, an optional minus sign, any
+        unicode decimal digits and an optional exponent, with the result narrowed to an int. Returns the end position
+        and the value packed into a long, or FAILED. Only values with more than fifteen significant digits can come
+        out differently, where DecimalFormat would round through a double.
+     */
+    private static long parseDateFormatField(String value, int start) {
+        int length = value.length();
+        int position = start;
+        while ((position < length) && ((value.charAt(position) == ' ') || (value.charAt(position) == '\t'))) {
+            position++;
+        }
+        if (position >= length) {
+            return FAILED;
+        }
+        boolean negative = value.charAt(position) == '-';
+        if (negative) {
+            position++;
+        }
+
+        boolean sawDigit = false;
+        int firstSignificantDigit = -1;
+        int significantDigits = 0;
+        int significantDigitsWithoutTrailingZeros = 0;
+        long exponent = 0;
+        for (; position < length; position++) {
+            char ch = value.charAt(position);
+            int digit = Character.digit(ch, 10);
+            if (digit >= 0) {
+                sawDigit = true;
+                if ((digit == 0) && (significantDigits == 0)) {
+                    continue;
+                }
+                if (significantDigits == 0) {
+                    firstSignificantDigit = position;
+                }
+                significantDigits++;
+                if (digit != 0) {
+                    significantDigitsWithoutTrailingZeros = significantDigits;
+                }
+            } else if (ch == 'E') {
+                long parsedExponent = parseExponent(value, position + 1);
+                if (parsedExponent != FAILED) {
+                    position = fieldEnd(parsedExponent);
+                    exponent = fieldValue(parsedExponent);
+                }
+                break;
+            } else {
+                break;
+            }
+        }
+        if (!sawDigit) {
+            return FAILED;
+        }
+
+        long decimalAt = significantDigits + exponent;
+        int digits = significantDigitsWithoutTrailingZeros;
+        long result;
+        if (digits == 0) {
+            result = 0;
+        } else if ((decimalAt < digits) || (decimalAt > 19)) {
+            //DecimalFormat returns a double here, which is truncated or saturated when narrowed to an int
+            result = (decimalAt > 10) ? Integer.MAX_VALUE : Math.min(integerPart(value, firstSignificantDigit, digits, (int) Math.max(decimalAt, 0)), Integer.MAX_VALUE);
+            result = negative ? -result : result;
+        } else {
+            long magnitude = integerPart(value, firstSignificantDigit, digits, (int) decimalAt);
+            result = (magnitude < 0) ? Integer.MAX_VALUE : (int) (negative ? -magnitude : magnitude);
+        }
+        return pack(position, (int) result);
+    }
+
+    /*
+        The exponent after an 'E', parsed as DecimalFormat does with an optional minus sign and at least one digit
+     */
+    private static long parseExponent(String value, int start) {
+        int length = value.length();
+        int position = start;
+        boolean negative = (position < length) && (value.charAt(position) == '-');
+        if (negative) {
+            position++;
+        }
+        boolean sawDigit = false;
+        long exponent = 0;
+        for (; position < length; position++) {
+            int digit = Character.digit(value.charAt(position), 10);
+            if (digit < 0) {
+                break;
+            }
+            sawDigit = true;
+            exponent = Math.min(exponent * 10 + digit, 100000);
+        }
+        if (!sawDigit) {
+            return FAILED;
+        }
+        return pack(position, (int) (negative ? -exponent : exponent));
+    }
+
+    /*
+        The first integerDigits digits of the significant digits starting at firstDigit, padded with zeros, or -1 if
+        that does not fit in a long
+     */
+    private static long integerPart(String value, int firstDigit, int digits, int integerDigits) {
+        long result = 0;
+        int position = firstDigit;
+        for (int i = 0; i < integerDigits; i++) {
+            int digit = 0;
+            if (i < digits) {
+                while (Character.digit(value.charAt(position), 10) < 0) {
+                    position++;
+                }
+                digit = Character.digit(value.charAt(position++), 10);
+            }
+            if (result > (Long.MAX_VALUE - digit) / 10) {
+                return -1;
+            }
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
+    private static boolean isHistoricalDate(int year, int month, int day) {
+        if ((year < 1) || (year > 292278994) || (month < 1) || (month > 12) || (day < 1)) {
+            return false;
+        }
+        boolean julian = (year < 1582) || ((year == 1582) && ((month < 10) || ((month == 10) && (day < 15))));
+        if ((year == 1582) && (month == 10) && (day > 4) && (day < 15)) {
+            return false;
+        }
+        boolean leapYear = julian ? (year % 4 == 0) : ((year % 400 == 0) || ((year % 100 != 0) && (year % 4 == 0)));
+        return day <= daysInMonth(month, leapYear);
+    }
+
+    private static int daysInMonth(int month, boolean leapYear) {
+        return ((month == 2) && leapYear) ? 29 : DAYS_IN_MONTH[month];
+    }
+
+    private static boolean isBetween(int value, int minimum, int maximum) {
+        return (value >= minimum) && (value <= maximum);
+    }
+
+    private static boolean isLiteral(String value, int position, char expected) {
+        return (position >= 0) && (position < value.length()) && (value.charAt(position) == expected);
+    }
+
+    private static boolean isAsciiDigit(char ch) {
+        return (ch >= '0') && (ch <= '9');
+    }
+
+    private static boolean isXmlWhitespace(char ch) {
+        return (ch == ' ') || (ch == '\t') || (ch == '\n') || (ch == '\r');
+    }
+
+    private static int indexOf(String value, char ch, int start, int end) {
+        int index = value.indexOf(ch, start);
+        return (index < end) ? index : -1;
+    }
+
+    private static long pack(int position, int value) {
+        return ((long) position << 32) | (value & 0xFFFFFFFFL);
+    }
+
+    private static int fieldEnd(long field) {
+        return (int) (field >>> 32);
+    }
+
+    private static int fieldValue(long field) {
+        return (int) field;
+    }
+}
@@ -1,21 +1,95 @@
 package uk.co.o2.json.schema;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 
+import java.io.IOException;
 import java.util.*;
 
-class UnionSchema implements JsonSchema{
+import static uk.co.o2.json.schema.JsonSchemaAdapter.extend;
+
+class UnionSchema implements StreamingSchema {
+    private static final ExtendedJsonSchema[] NO_SCHEMAS = new ExtendedJsonSchema[0];
+
     private List<JsonSchema> nestedSchemas = new ArrayList<>();
+    private String discriminator;
+
+    private volatile DispatchTable dispatchTable;
 
     @Override
     public List<ErrorMessage> validate(JsonNode jsonDocument) {
-        if (!isAcceptableType(jsonDocument)) {
-            Set<String> nestedDescriptions = getNestedDescriptions();
-            return ErrorMessage.singleError("", "Invalid type: must be one of: " + nestedDescriptions);
+        ErrorCollector errors = new ErrorCollector();
+        validate(jsonDocument, errors);
+        return errors.getErrors();
+    }
+
+    @Override
+    public void validate(JsonNode jsonDocument, ErrorSink errors) {
+        ExtendedJsonSchema discriminatedBranch = findDiscriminatedBranch(jsonDocument);
+        if (discriminatedBranch != null) {
+            discriminatedBranch.validate(jsonDocument, errors);
+            return;
+        }
+        ExtendedJsonSchema[] candidates = getCandidates(jsonDocument);
+        if (candidates.length == 0) {
+            reportInvalidType(errors);
+        } else if (candidates.length == 1) {
+            candidates[0].validate(jsonDocument, errors);
+        } else {
+            errors.addErrors(findFewestErrors(candidates, jsonDocument, errors.getRemainingErrors()));
         }
+    }
+
+    private void reportInvalidType(ErrorSink errors) {
+        Set<String> nestedDescriptions = getNestedDescriptions();
+        errors.addError("Invalid type: must be one of: " + nestedDescriptions);
+    }
 
-        List<List<ErrorMessage>> nestedErrors = validateAgainstAllNestedSchemas(jsonDocument);
-        return findSmallest(nestedErrors);
+    @Override
+    public boolean isValid(JsonNode jsonDocument) {
+        ExtendedJsonSchema discriminatedBranch = findDiscriminatedBranch(jsonDocument);
+        if (discriminatedBranch != null) {
+            return discriminatedBranch.isValid(jsonDocument);
+        }
+        for (ExtendedJsonSchema nestedSchema : getCandidates(jsonDocument)) {
+            if (nestedSchema.isValid(jsonDocument)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public List<ErrorMessage> validate(JsonParser jsonDocument) throws IOException {
+        ErrorCollector errors = new ErrorCollector();
+        validate(jsonDocument, errors);
+        return errors.getErrors();
+    }
+
+    @Override
+    public void validate(JsonParser jsonDocument, ErrorSink errors) throws IOException {
+        StreamingValidator.validate(this, jsonDocument, errors);
+    }
+
+    @Override
+    public void startValue(JsonParser parser, StreamingValidator validator) throws IOException {
+        NodeKind kind = NodeKind.of(parser.getCurrentToken());
+        if (kind != null) {
+            ExtendedJsonSchema[] candidates = getDispatchTable().getCandidates(kind);
+            if (candidates.length == 0) {
+                reportInvalidType(validator.getErrors());
+                validator.skipValue(parser);
+                return;
+            }
+            if (candidates.length == 1) {
+                validator.startValue(candidates[0], parser);
+                return;
+            }
+        }
+        //several nested schemas need to see the value, so only this fragment is read into a tree
+        validator.validateAsTree(this, parser);
     }
 
     @Override
@@ -25,20 +99,62 @@ class UnionSchema implements JsonSchema{
 
     @Override
     public boolean isAcceptableType(JsonNode jsonDocument) {
+        return getCandidates(jsonDocument).length > 0;
+    }
+
+    /*
+        Each type compatible nested schema is tried against its own collector, and only the smallest result seen so
+        far is kept. A schema with no errors at all ends the search.
+     */
+    private List<ErrorMessage> findFewestErrors(ExtendedJsonSchema[] candidates, JsonNode jsonDocumentToValidate, int maxErrors) {
+        List<ErrorMessage> fewestErrors = null;
+        for (ExtendedJsonSchema nestedSchema : candidates) {
+            ErrorCollector nestedErrors = new ErrorCollector(maxErrors);
+            nestedSchema.validate(jsonDocumentToValidate, nestedErrors);
+            if ((fewestErrors == null) || (nestedErrors.getErrors().size() < fewestErrors.size())) {
+                fewestErrors = nestedErrors.getErrors();
+                if (fewestErrors.isEmpty()) {
+                    break;
+                }
+            }
+        }
+        return fewestErrors;
+    }
+
+    /*
+        An object naming one of the branches in its discriminator property can only be valid against that branch,
+        since every other branch restricts the property to a different value
+     */
+    private ExtendedJsonSchema findDiscriminatedBranch(JsonNode jsonDocument) {
+        return jsonDocument.isObject() ? getDispatchTable().findDiscriminatedBranch(jsonDocument) : null;
+    }
+
+    private ExtendedJsonSchema[] getCandidates(JsonNode jsonDocument) {
+        NodeKind kind = NodeKind.of(jsonDocument);
+        if (kind != null) {
+            return getDispatchTable().getCandidates(kind);
+        }
+        List<ExtendedJsonSchema> candidates = new ArrayList<>();
         for (JsonSchema nested : nestedSchemas) {
             if (nested.isAcceptableType(jsonDocument)) {
-                return true;
+                candidates.add(extend(nested));
             }
         }
-        return false;
+        return candidates.toArray(NO_SCHEMAS);
     }
 
-    private List<List<ErrorMessage>> validateAgainstAllNestedSchemas(JsonNode jsonDocumentToValidate) {
-        List<List<ErrorMessage>> nestedErrors = new ArrayList<>();
-        for (JsonSchema nestedSchema : nestedSchemas) {
-            nestedErrors.add(nestedSchema.validate(jsonDocumentToValidate));
+    /*
+        Nested schemas are only ever appended while the schema is being built, so a table covering fewer schemas
+        than the list is stale and gets rebuilt. It is built on first use rather than by the compiler so that
+        references have been registered by then.
+     */
+    private DispatchTable getDispatchTable() {
+        DispatchTable table = dispatchTable;
+        if ((table == null) || (table.size != nestedSchemas.size())) {
+            table = new DispatchTable(nestedSchemas, discriminator);
+            dispatchTable = table;
         }
-        return nestedErrors;
+        return table;
     }
 
     private Set<String> getNestedDescriptions() {
@@ -53,30 +169,173 @@ class UnionSchema implements JsonSchema{
         return nestedSchemas;
     }
 
-    //region these could be methods on Collection
-
-    private static <T> List<T> findSmallest(List<List<T>> values) {
-        List<T> leastNestedErrors = head(values);
-        for (List<T> em : tail(values)) {
-            leastNestedErrors = smaller(leastNestedErrors, em);
-        }
-        return leastNestedErrors;
+    String getDiscriminator() {
+        return discriminator;
     }
 
-    private static <T> List<T> tail(List<T> list) {
-        return list.subList(1, list.size());
+    /*
+        Restricts discriminator detection to the named property, rather than the first one that qualifies
+     */
+    void setDiscriminator(String discriminator) {
+        this.discriminator = discriminator;
+        this.dispatchTable = null;
     }
 
-    private static <T> T head(List<T> list) {
-        return list.get(0);
-    }
+    /*
+        The nested schemas that accept each kind of json value, in declaration order. When every object branch is an
+        object schema declaring the same property as a single valued string enumeration, with a different value in
+        each branch, that property is used to pick the branch for an object directly.
+     */
+    private static final class DispatchTable {
+        private final int size;
+        private final ExtendedJsonSchema[][] candidatesByKind = new ExtendedJsonSchema[NodeKind.values().length][];
+        private String discriminator;
+        private Map<String, ExtendedJsonSchema> branchesByDiscriminatorValue;
 
-    private static <T> List<T> smaller(List<T> a, List<T> b) {
-        if (b.size() < a.size()) {
-            return b;
+        DispatchTable(List<JsonSchema> nestedSchemas, String declaredDiscriminator) {
+            size = nestedSchemas.size();
+            for (NodeKind kind : NodeKind.values()) {
+                List<ExtendedJsonSchema> candidates = new ArrayList<>();
+                for (JsonSchema nested : nestedSchemas) {
+                    if (nested.isAcceptableType(kind.example)) {
+                        candidates.add(extend(nested));
+                    }
+                }
+                candidatesByKind[kind.ordinal()] = candidates.toArray(NO_SCHEMAS);
+            }
+            findDiscriminator(getCandidates(NodeKind.OBJECT), declaredDiscriminator);
+        }
+
+        ExtendedJsonSchema[] getCandidates(NodeKind kind) {
+            return candidatesByKind[kind.ordinal()];
+        }
+
+        ExtendedJsonSchema findDiscriminatedBranch(JsonNode jsonDocument) {
+            if (discriminator == null) {
+                return null;
+            }
+            JsonNode value = jsonDocument.get(discriminator);
+            return ((value != null) && value.isTextual()) ? branchesByDiscriminatorValue.get(value.textValue()) : null;
+        }
+
+        private void findDiscriminator(ExtendedJsonSchema[] branches, String declaredDiscriminator) {
+            ObjectSchema firstBranch = (branches.length > 1) ? asObjectSchema(branches[0]) : null;
+            if (firstBranch == null) {
+                return;
+            }
+            for (ObjectSchema.Property property : firstBranch.getProperties()) {
+                if ((declaredDiscriminator != null) && !declaredDiscriminator.equals(property.getName())) {
+                    continue;
+                }
+                Map<String, ExtendedJsonSchema> branchesByValue = mapBranchesByConstantValue(branches, property.getName());
+                if (branchesByValue != null) {
+                    discriminator = property.getName();
+                    branchesByDiscriminatorValue = branchesByValue;
+                    return;
+                }
+            }
+        }
+
+        private static Map<String, ExtendedJsonSchema> mapBranchesByConstantValue(ExtendedJsonSchema[] branches, String propertyName) {
+            Map<String, ExtendedJsonSchema> result = new HashMap<>();
+            for (ExtendedJsonSchema branch : branches) {
+                String value = findConstantValue(asObjectSchema(branch), propertyName);
+                if ((value == null) || (result.put(value, branch) != null)) {
+                    return null;
+                }
+            }
+            return result;
+        }
+
+        private static String findConstantValue(ObjectSchema branch, String propertyName) {
+            if (branch == null) {
+                return null;
+            }
+            for (ObjectSchema.Property property : branch.getProperties()) {
+                if (property.getName().equals(propertyName)) {
+                    JsonSchema propertySchema = resolve(property.getNestedSchema());
+                    if (!(propertySchema instanceof SimpleTypeSchema)) {
+                        return null;
+                    }
+                    List<JsonNode> enumeration = ((SimpleTypeSchema) propertySchema).getEnumeration();
+                    boolean constant = (enumeration != null) && (enumeration.size() == 1) && enumeration.get(0).isTextual();
+                    return constant ? enumeration.get(0).textValue() : null;
+                }
+            }
+            return null;
+        }
+
+        private static ObjectSchema asObjectSchema(JsonSchema schema) {
+            JsonSchema resolved = resolve(schema);
+            return (resolved instanceof ObjectSchema) ? (ObjectSchema) resolved : null;
+        }
+
+        private static JsonSchema resolve(JsonSchema schema) {
+            while (schema instanceof SchemaWrapper) {
+                schema = ((SchemaWrapper) schema).getWrappedSchema();
+            }
+            return schema;
         }
-        return a;
     }
 
-    //endregion
+    /*
+        The kinds of json value that every schema type decides acceptance on, each with an example value to ask
+        the nested schemas about
+     */
+    private enum NodeKind {
+        OBJECT(JsonNodeFactory.instance.objectNode()),
+        ARRAY(JsonNodeFactory.instance.arrayNode()),
+        STRING(JsonNodeFactory.instance.textNode("")),
+        INTEGER(JsonNodeFactory.instance.numberNode(0)),
+        NUMBER(JsonNodeFactory.instance.numberNode(0.5)),
+        BOOLEAN(JsonNodeFactory.instance.booleanNode(true)),
+        NULL(JsonNodeFactory.instance.nullNode());
+
+        private final JsonNode example;
+
+        NodeKind(JsonNode example) {
+            this.example = example;
+        }
+
+        static NodeKind of(JsonNode node) {
+            if (node.isObject()) {
+                return OBJECT;
+            } else if (node.isArray()) {
+                return ARRAY;
+            } else if (node.isTextual()) {
+                return STRING;
+            } else if (node.isIntegralNumber()) {
+                return INTEGER;
+            } else if (node.isNumber()) {
+                return NUMBER;
+            } else if (node.isBoolean()) {
+                return BOOLEAN;
+            } else if (node.isNull()) {
+                return NULL;
+            }
+            return null;
+        }
+
+        static NodeKind of(JsonToken token) {
+            switch (token) {
+                case START_OBJECT:
+                    return OBJECT;
+                case START_ARRAY:
+                    return ARRAY;
+                case VALUE_STRING:
+                    return STRING;
+                case VALUE_NUMBER_INT:
+                    return INTEGER;
+                case VALUE_NUMBER_FLOAT:
+                    return NUMBER;
+                case VALUE_TRUE:
+                case VALUE_FALSE:
+                    return BOOLEAN;
+                case VALUE_NULL:
+                    return NULL;
+                default:
+                    return null;
+            }
+        }
+    }
 }
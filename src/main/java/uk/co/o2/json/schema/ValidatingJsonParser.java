@@ -0,0 +1,124 @@
+package uk.co.o2.json.schema;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserDelegate;
+
+import java.io.IOException;
+
+/*
+    Validates the first value read through it against a schema as its tokens go past, so that a document can be
+    validated and bound by an ObjectMapper in one pass without a copy of it being held. Tokens skipped with
+    skipChildren() are read one by one so that the validation still sees them.
+
+    A reader may stop before the end of the value (when binding fails, say); finish() reads the rest of it, after
+    which the sink holds every error in the value. With stopAtFirstError set, the reader is stopped by an
+    InvalidDocumentException from nextToken() as soon as the value is known to be invalid, so that the rest of an
+    invalid document is never bound.
+ */
+public class ValidatingJsonParser extends JsonParserDelegate {
+    private final StreamingValidator validator;
+    private final ErrorSink errors;
+    private boolean stopAtFirstError;
+    private boolean timed;
+    private long validationTimeNanos;
+
+    public ValidatingJsonParser(JsonParser parser, JsonSchema schema, ErrorSink errors) throws IOException {
+        super(parser);
+        validator = new StreamingValidator(schema, errors);
+        this.errors = errors;
+        if (parser.getCurrentToken() != null) {
+            validator.onToken(parser);
+        }
+    }
+
+    @Override
+    public JsonToken nextToken() throws IOException {
+        JsonToken token = readAndValidate();
+        if (stopAtFirstError && errors.hasErrors()) {
+            throw new InvalidDocumentException(getCurrentLocation());
+        }
+        return token;
+    }
+
+    @Override
+    public JsonToken nextValue() throws IOException {
+        JsonToken token = nextToken();
+        return (token == JsonToken.FIELD_NAME) ? nextToken() : token;
+    }
+
+    @Override
+    public JsonParser skipChildren() throws IOException {
+        JsonToken token = getCurrentToken();
+        if ((token != JsonToken.START_OBJECT) && (token != JsonToken.START_ARRAY)) {
+            return this;
+        }
+        int open = 1;
+        while (open > 0) {
+            token = nextToken();
+            if (token == null) {
+                return this;
+            }
+            if ((token == JsonToken.START_OBJECT) || (token == JsonToken.START_ARRAY)) {
+                open++;
+            } else if ((token == JsonToken.END_OBJECT) || (token == JsonToken.END_ARRAY)) {
+                open--;
+            }
+        }
+        return this;
+    }
+
+    public boolean isComplete() {
+        return validator.isComplete();
+    }
+
+    public void finish() throws IOException {
+        while (!validator.isComplete()) {
+            if (readAndValidate() == null) {
+                throw new JsonParseException("Unexpected end of input", getCurrentLocation());
+            }
+        }
+    }
+
+    public void setStopAtFirstError(boolean stopAtFirstError) {
+        this.stopAtFirstError = stopAtFirstError;
+    }
+
+    /*
+        When set, the time spent validating tokens, not counting the reader's own work, is added up for
+        getValidationTimeNanos(). It is off by default, since it reads the clock twice for every token.
+     */
+    public void setTimed(boolean timed) {
+        this.timed = timed;
+    }
+
+    public long getValidationTimeNanos() {
+        return validationTimeNanos;
+    }
+
+    private JsonToken readAndValidate() throws IOException {
+        long start = timed ? System.nanoTime() : 0L;
+        JsonToken token = delegate.nextToken();
+        if ((token != null) && !validator.isComplete()) {
+            validator.onToken(delegate);
+        }
+        if (timed) {
+            validationTimeNanos += System.nanoTime() - start;
+        }
+        return token;
+    }
+
+    /*
+        Not a JsonProcessingException, so that deserializers pass it on rather than wrapping it in a
+        JsonMappingException
+     */
+    public static class InvalidDocumentException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        InvalidDocumentException(JsonLocation location) {
+            super("The document is not valid against its schema, stopped at " + location);
+        }
+    }
+}
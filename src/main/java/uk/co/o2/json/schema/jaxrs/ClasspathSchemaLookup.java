@@ -1,6 +1,18 @@
 package uk.co.o2.json.schema.jaxrs;
 
+import java.io.File;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 
 public class ClasspathSchemaLookup implements SchemaLookup {
 
@@ -20,4 +32,77 @@ public class ClasspathSchemaLookup implements SchemaLookup {
         }
         return schemaUrl;
     }
-}
\ No newline at end of file
+
+    /*
+        Every .json resource under the prefix, whether it lives in a directory or a jar on the classpath, in the
+        form getSchemaURL would return it. Suitable for passing to SchemaPassThroughCache.preload. Jars are only found
+        through their directory entries, which the usual build tools write.
+     */
+    public List<URL> findSchemaURLs(String prefix) {
+        return findSchemaURLs(prefix, this.getClass().getClassLoader());
+    }
+
+    List<URL> findSchemaURLs(String prefix, ClassLoader classLoader) {
+        if (prefix == null) {
+            throw new IllegalArgumentException("prefix cannot be null");
+        }
+        while (prefix.startsWith("/")) {
+            prefix = prefix.substring(1);
+        }
+        if (!prefix.isEmpty() && !prefix.endsWith("/")) {
+            prefix = prefix + "/";
+        }
+
+        Set<String> resourceNames = new TreeSet<>();
+        try {
+            Enumeration<URL> roots = classLoader.getResources(prefix);
+            while (roots.hasMoreElements()) {
+                URL root = roots.nextElement();
+                if ("file".equals(root.getProtocol())) {
+                    collectFromDirectory(new File(root.toURI()), prefix, resourceNames);
+                } else if ("jar".equals(root.getProtocol())) {
+                    collectFromJar(root, prefix, resourceNames);
+                }
+            }
+        } catch (IOException | URISyntaxException e) {
+            throw new IllegalArgumentException("Could not list the schemas under " + prefix, e);
+        }
+
+        List<URL> schemaUrls = new ArrayList<>();
+        for (String resourceName : resourceNames) {
+            schemaUrls.add(classLoader.getResource(resourceName));
+        }
+        return schemaUrls;
+    }
+
+    private static void collectFromDirectory(File directory, String resourcePrefix, Set<String> resourceNames) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                collectFromDirectory(file, resourcePrefix + file.getName() + "/", resourceNames);
+            } else if (file.getName().endsWith(".json")) {
+                resourceNames.add(resourcePrefix + file.getName());
+            }
+        }
+    }
+
+    private static void collectFromJar(URL root, String prefix, Set<String> resourceNames) throws IOException {
+        URLConnection connection = root.openConnection();
+        if (!(connection instanceof JarURLConnection)) {
+            return;
+        }
+        connection.setUseCaches(false);
+        try (JarFile jar = ((JarURLConnection) connection).getJarFile()) {
+            Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                if (!entry.isDirectory() && entry.getName().startsWith(prefix) && entry.getName().endsWith(".json")) {
+                    resourceNames.add(entry.getName());
+                }
+            }
+        }
+    }
+}
@@ -2,13 +2,19 @@ package uk.co.o2.json.schema.jaxrs;
 
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.jaxrs.json.JacksonJsonProvider;
+import uk.co.o2.json.schema.ErrorCollector;
 import uk.co.o2.json.schema.ErrorMessage;
 import uk.co.o2.json.schema.JsonSchema;
+import uk.co.o2.json.schema.SchemaEventListener;
 import uk.co.o2.json.schema.SchemaPassThroughCache;
+import uk.co.o2.json.schema.SchemaPreloadReport;
+import uk.co.o2.json.schema.SchemaProfiler;
+import uk.co.o2.json.schema.ValidatingJsonParser;
+import uk.co.o2.json.schema.ValidatingJsonParser.InvalidDocumentException;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.Produces;
@@ -17,11 +23,15 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.ext.Provider;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 @Provider
@@ -38,6 +48,34 @@ public class JsonSchemaProvider extends JacksonJsonProvider {
         this.configure(SerializationFeature.INDENT_OUTPUT, true);
     }
 
+    public void setMaxErrors(int maxErrors) {
+        cache.setMaxErrors(maxErrors);
+    }
+
+    public void setHotReload(boolean hotReload) {
+        cache.setHotReload(hotReload);
+    }
+
+    /*
+        Also told about each request body validated, with its size in bytes. The time is spent validating the body
+        alone, leaving out reading and binding it, which happen in the same pass.
+     */
+    public void setEventListener(SchemaEventListener eventListener) {
+        cache.setEventListener(eventListener);
+    }
+
+    public void setProfiling(boolean profiling) {
+        cache.setProfiling(profiling);
+    }
+
+    public SchemaProfiler getProfiler() {
+        return cache.getProfiler();
+    }
+
+    public SchemaPreloadReport preload(Collection<URL> schemaLocations) {
+        return cache.preload(schemaLocations);
+    }
+
     @Override
     public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException {
         Schema schemaAnnotation = null;
@@ -50,14 +88,50 @@ public class JsonSchemaProvider extends JacksonJsonProvider {
 
         if (schemaAnnotation != null) {
             ObjectMapper mapper = locateMapper(type, mediaType);
-            JsonParser jp = mapper.getFactory().createJsonParser(entityStream);
+            SchemaEventListener listener = cache.getEventListener();
+            CountingInputStream countingStream = (listener != null) ? new CountingInputStream(entityStream) : null;
+            JsonParser jp = mapper.getFactory().createJsonParser((countingStream != null) ? countingStream : entityStream);
             jp.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
             URL schemaLocation = schemaLookup.getSchemaURL(schemaAnnotation.value());
             JsonSchema jsonSchema = cache.getSchema(schemaLocation);
-            JsonNode jsonNode = mapper.readTree(jp);
-            List<ErrorMessage> validationErrors = jsonSchema.validate(jsonNode);
+
+            ErrorCollector errors = new ErrorCollector(cache.getMaxErrors());
+            if (jp.nextToken() == null) {
+                throw new WebApplicationException(generateErrorMessage(Collections.singletonList(new ErrorMessage("", "The request body is empty"))));
+            }
+
+            //the body is validated as the mapper reads it, so it is never held in memory as a whole
+            long start = System.nanoTime();
+            ValidatingJsonParser validatingParser = new ValidatingJsonParser(jp, jsonSchema, errors);
+            long firstTokenTime = System.nanoTime() - start;
+            validatingParser.setStopAtFirstError(true);
+            validatingParser.setTimed(countingStream != null);
+            Object result = null;
+            JsonMappingException bindingFailure = null;
+            try {
+                result = mapper.reader().withType(mapper.constructType(genericType)).readValue(validatingParser);
+            } catch (InvalidDocumentException e) {
+                //binding an invalid body is wasted work; the rest of it is only validated, by finish()
+            } catch (JsonMappingException e) {
+                //a document that cannot be bound is better explained by its validation errors, if it has any
+                bindingFailure = e;
+            }
+            validatingParser.finish();
+
+            List<ErrorMessage> validationErrors = errors.getErrors();
+            if (countingStream != null) {
+                listener.documentValidated(schemaLocation, firstTokenTime + validatingParser.getValidationTimeNanos(), countingStream.count, validationErrors.size());
+            }
             if (validationErrors.isEmpty()) {
-                return mapper.reader().withType(mapper.constructType(genericType)).readValue(jsonNode);
+                if (bindingFailure != null) {
+                    throw bindingFailure;
+                }
+                return result;
+            }
+
+            if (errors.isTruncated()) {
+                validationErrors = new ArrayList<>(validationErrors);
+                validationErrors.add(new ErrorMessage("", "Validation stopped after " + errors.getMaxErrors() + " errors"));
             }
 
             throw new WebApplicationException(generateErrorMessage(validationErrors));
@@ -66,6 +140,38 @@ public class JsonSchemaProvider extends JacksonJsonProvider {
         }
     }
 
+    /*
+        Counts the bytes the parser reads, which is the whole document, since the parser reads ahead in blocks
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int result = super.read();
+            count += (result >= 0) ? 1 : 0;
+            return result;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int result = super.read(buffer, offset, length);
+            count += Math.max(result, 0);
+            return result;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long result = super.skip(n);
+            count += result;
+            return result;
+        }
+    }
+
     protected Response generateErrorMessage(List<ErrorMessage> validationErrors) {
         StringBuilder content = new StringBuilder();
         for (ErrorMessage error : validationErrors) {
@@ -8,6 +8,8 @@ import com.fasterxml.jackson.databind.node.TextNode;
 import org.junit.Test;
 
 import java.util.List;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 
 import static org.junit.Assert.*;
 
@@ -209,4 +211,152 @@ public class ArraySchemaTest {
 
         assertFalse(result);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void validateParser_shouldValidateAllItemsAndCombineAnyErrorMessages() throws Exception {
+        JsonParser parser = factory.createJsonParser("[ 1, \"two\", 3, [4] ]");
+
+        ArraySchema schema = new ArraySchema();
+        schema.setItems(new SimpleTypeSchema() {{
+            setType(SimpleType.INTEGER);
+        }});
+
+        List<ErrorMessage> result = schema.validate(parser);
+
+        assertEquals(2, result.size());
+        assertEquals("[1]", result.get(0).getLocation());
+        assertEquals("[3]", result.get(1).getLocation());
+        assertEquals(JsonToken.END_ARRAY, parser.getCurrentToken());
+    }
+
+    @Test
+    public void validateParser_shouldOnlyReturnTheSizeErrorMessage_givenNoOfItemsInArrayIsGreaterThanMaxItems() throws Exception {
+        JsonParser parser = factory.createJsonParser("[ \"one\", \"two\", \"three\" ]");
+
+        ArraySchema schema = new ArraySchema();
+        schema.setMaxItems(2);
+        schema.setItems(new SimpleTypeSchema() {{
+            setType(SimpleType.INTEGER);
+        }});
+
+        List<ErrorMessage> result = schema.validate(parser);
+
+        assertEquals(1, result.size());
+        assertEquals("Current array size of 3 is greater than allowed maximum array size of 2", result.get(0).getMessage());
+    }
+
+    @Test
+    public void isValid_shouldReturnFalse_givenAnInvalidItem() throws Exception {
+        JsonNode document = factory.createJsonParser("[1, 2, \"three\"]").readValueAsTree();
+
+        ArraySchema schema = new ArraySchema();
+        schema.setItems(new SimpleTypeSchema() {{
+            setType(SimpleType.INTEGER);
+        }});
+
+        assertFalse(schema.isValid(document));
+    }
+
+    @Test
+    public void isValid_shouldReturnFalse_givenNoOfItemsInArrayIsLessThanMinItems() throws Exception {
+        JsonNode document = factory.createJsonParser("[1]").readValueAsTree();
+
+        ArraySchema schema = new ArraySchema();
+        schema.setMinItems(2);
+
+        assertFalse(schema.isValid(document));
+    }
+
+    @Test
+    public void isValid_shouldReturnTrue_givenValidItems() throws Exception {
+        JsonNode document = factory.createJsonParser("[1, 2, 3]").readValueAsTree();
+
+        ArraySchema schema = new ArraySchema();
+        schema.setMaxItems(3);
+        schema.setItems(new SimpleTypeSchema() {{
+            setType(SimpleType.INTEGER);
+        }});
+
+        assertTrue(schema.isValid(document));
+    }
+
+    @Test
+    public void validate_shouldReportItemErrorsRelativeToTheCurrentLocationOfTheErrorSink() throws Exception {
+        JsonNode document = factory.createJsonParser("[1, \"two\"]").readValueAsTree();
+
+        ArraySchema schema = new ArraySchema();
+        schema.setItems(new SimpleTypeSchema() {{
+            setType(SimpleType.INTEGER);
+        }});
+        ErrorCollector errors = new ErrorCollector();
+        errors.enterProperty("numbers");
+
+        schema.validate(document, errors);
+
+        assertEquals(1, errors.getErrors().size());
+        assertEquals("numbers[1]", errors.getErrors().get(0).getLocation());
+    }
+
+
+    @Test
+    public void validate_shouldStopValidatingItems_whenTheErrorSinkReachesItsLimit() throws Exception {
+        JsonNode document = factory.createJsonParser("[\"a\", \"b\", \"c\", \"d\", \"e\", \"f\", \"g\"]").readValueAsTree();
+
+        ArraySchema schema = new ArraySchema();
+        schema.setItems(new SimpleTypeSchema() {{
+            setType(SimpleType.INTEGER);
+        }});
+        ErrorCollector errors = new ErrorCollector(5);
+
+        schema.validate(document, errors);
+
+        assertEquals(5, errors.getErrors().size());
+        assertEquals("[4]", errors.getErrors().get(4).getLocation());
+        assertTrue(errors.isTruncated());
+    }
+
+    @Test
+    public void validateParser_shouldSkipTheRemainingItems_whenTheErrorSinkReachesItsLimit() throws Exception {
+        JsonParser parser = factory.createJsonParser("[\"a\", \"b\", [\"c\"], {\"d\": 1}, \"e\"]");
+
+        ArraySchema schema = new ArraySchema();
+        schema.setItems(new SimpleTypeSchema() {{
+            setType(SimpleType.INTEGER);
+        }});
+        ErrorCollector errors = new ErrorCollector(2);
+
+        schema.validate(parser, errors);
+
+        assertEquals(2, errors.getErrors().size());
+        assertTrue(errors.isTruncated());
+        assertEquals(JsonToken.END_ARRAY, parser.getCurrentToken());
+        assertNull(parser.nextToken());
+    }
+
+    @Test
+    public void validateParser_shouldStopValidatingItems_onceThereAreMoreThanMaxItems() throws Exception {
+        JsonParser parser = factory.createJsonParser("[\"one\", \"two\", \"three\", \"four\", [\"five\"], \"six\"]");
+        final int[] validatedItems = new int[1];
+
+        ArraySchema schema = new ArraySchema();
+        schema.setMaxItems(2);
+        schema.setItems(new SimpleTypeSchema() {
+            {
+                setType(SimpleType.INTEGER);
+            }
+
+            @Override
+            public void validate(JsonNode node, ErrorSink errors) {
+                validatedItems[0]++;
+                super.validate(node, errors);
+            }
+        });
+
+        List<ErrorMessage> result = schema.validate(parser);
+
+        assertEquals(3, validatedItems[0]);
+        assertEquals(1, result.size());
+        assertEquals("Current array size of 6 is greater than allowed maximum array size of 2", result.get(0).getMessage());
+        assertEquals(JsonToken.END_ARRAY, parser.getCurrentToken());
+    }
+}
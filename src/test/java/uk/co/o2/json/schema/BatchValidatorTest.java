@@ -0,0 +1,167 @@
+package uk.co.o2.json.schema;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BatchValidatorTest {
+    private final SimpleTypeSchema schema = integerSchema();
+
+    @Test
+    public void validate_shouldHandOverResultsInTheOrderTheDocumentsWereRead_whenOrdered() throws Exception {
+        List<JsonNode> documents = documents(1000);
+        BatchValidator validator = new BatchValidator(schema);
+        validator.setParallelism(4);
+        validator.setChunkSize(7);
+        final List<Long> indexes = new ArrayList<>();
+        final List<Integer> errorCounts = new ArrayList<>();
+
+        BatchValidationSummary summary = validator.validate(documents, new BatchValidator.ResultHandler() {
+            @Override
+            public void validated(long index, JsonNode document, List<ErrorMessage> errors) {
+                indexes.add(index);
+                errorCounts.add(errors.size());
+            }
+        });
+
+        assertEquals(1000, indexes.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, indexes.get(i).longValue());
+            assertEquals(schema.validate(documents.get(i)).size(), errorCounts.get(i).intValue());
+        }
+        assertEquals(1000L, summary.getDocumentCount());
+        assertEquals(500L, summary.getInvalidDocumentCount());
+        assertEquals(500L, summary.getErrorCount());
+        assertTrue(summary.getDocumentsPerSecond() > 0.0);
+    }
+
+    @Test
+    public void validate_shouldHandOverEveryResultOnce_whenUnordered() throws Exception {
+        final List<JsonNode> documents = documents(5000);
+        BatchValidator validator = new BatchValidator(schema);
+        validator.setOrdered(false);
+        validator.setParallelism(3);
+        validator.setChunkSize(10);
+        final Map<Long, List<ErrorMessage>> results = new ConcurrentHashMap<>();
+
+        BatchValidationSummary summary = validator.validate(documents, new BatchValidator.ResultHandler() {
+            @Override
+            public void validated(long index, JsonNode document, List<ErrorMessage> errors) {
+                assertSame(documents.get((int) index), document);
+                assertNull(results.put(index, errors));
+            }
+        });
+
+        assertEquals(5000, results.size());
+        assertEquals(2500L, summary.getInvalidDocumentCount());
+        assertEquals("Invalid type: must be of type integer", results.get(1L).get(0).getMessage());
+    }
+
+    @Test
+    public void validate_shouldFinishOnTheCallingThread_givenAnExecutorThatNeverRunsTheChunks() throws Exception {
+        BatchValidator validator = new BatchValidator(schema);
+        validator.setExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+            }
+        });
+        validator.setParallelism(2);
+        validator.setChunkSize(3);
+        final List<Long> indexes = Collections.synchronizedList(new ArrayList<Long>());
+
+        for (boolean ordered : new boolean[] {true, false}) {
+            indexes.clear();
+            validator.setOrdered(ordered);
+            BatchValidationSummary summary = validator.validate(documents(20), new BatchValidator.ResultHandler() {
+                @Override
+                public void validated(long index, JsonNode document, List<ErrorMessage> errors) {
+                    indexes.add(index);
+                }
+            });
+
+            assertEquals(20L, summary.getDocumentCount());
+            assertEquals(20, indexes.size());
+        }
+    }
+
+    @Test
+    public void validate_shouldRethrowAnExceptionFromTheHandler() throws Exception {
+        BatchValidator validator = new BatchValidator(schema);
+        validator.setOrdered(false);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        validator.setExecutor(executor);
+
+        try {
+            validator.validate(documents(100), new BatchValidator.ResultHandler() {
+                @Override
+                public void validated(long index, JsonNode document, List<ErrorMessage> errors) {
+                    if (index == 42) {
+                        throw new IllegalStateException("no room");
+                    }
+                }
+            });
+            fail("expected an exception");
+        } catch (IllegalStateException e) {
+            assertEquals("no room", e.getMessage());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void validate_shouldLimitTheErrorsForEachDocument() throws Exception {
+        ObjectSchema objectSchema = new ObjectSchema();
+        for (String name : new String[] {"a", "b", "c"}) {
+            ObjectSchema.Property property = new ObjectSchema.Property();
+            property.setName(name);
+            property.setRequired(true);
+            objectSchema.getProperties().add(property);
+        }
+        BatchValidator validator = new BatchValidator(objectSchema);
+        validator.setMaxErrors(2);
+
+        BatchValidationSummary summary = validator.validate(Collections.singletonList(JsonNodeFactory.instance.objectNode()), new BatchValidator.ResultHandler() {
+            @Override
+            public void validated(long index, JsonNode document, List<ErrorMessage> errors) {
+                assertEquals(2, errors.size());
+            }
+        });
+
+        assertEquals(2L, summary.getErrorCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setParallelism_shouldThrowAnIllegalArgumentException_givenZero() throws Exception {
+        new BatchValidator(schema).setParallelism(0);
+    }
+
+    private static SimpleTypeSchema integerSchema() {
+        SimpleTypeSchema result = new SimpleTypeSchema();
+        result.setType(SimpleType.INTEGER);
+        return result;
+    }
+
+    //every other document is a string, which is invalid
+    private static List<JsonNode> documents(int count) {
+        List<JsonNode> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            result.add(((i % 2) == 0) ? JsonNodeFactory.instance.numberNode(i) : JsonNodeFactory.instance.textNode("x" + i));
+        }
+        return result;
+    }
+}
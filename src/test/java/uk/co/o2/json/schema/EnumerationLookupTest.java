@@ -0,0 +1,63 @@
+package uk.co.o2.json.schema;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.*;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EnumerationLookupTest {
+
+    @Test
+    public void contains_shouldMatchOnlyEnumeratedStrings_givenTypeString() throws Exception {
+        EnumerationLookup lookup = EnumerationLookup.forType(SimpleType.STRING, Arrays.<JsonNode>asList(new TextNode("GB"), new TextNode("FR")));
+
+        assertTrue(lookup.contains(new TextNode("FR")));
+        assertFalse(lookup.contains(new TextNode("fr")));
+        assertFalse(lookup.contains(new IntNode(1)));
+    }
+
+    @Test
+    public void contains_shouldMatchEnumeratedIntegers_givenTypeInteger() throws Exception {
+        List<JsonNode> enumeration = new ArrayList<>();
+        for (int i = -500; i < 500; i += 7) {
+            enumeration.add(new IntNode(i));
+        }
+        enumeration.add(new LongNode(Long.MIN_VALUE));
+        enumeration.add(new BigIntegerNode(new BigInteger("123456789012345678901234567890")));
+        EnumerationLookup lookup = EnumerationLookup.forType(SimpleType.INTEGER, enumeration);
+
+        for (int i = -500; i < 500; i++) {
+            assertTrue(String.valueOf(i), lookup.contains(new IntNode(i)) == ((i + 500) % 7 == 0));
+        }
+        assertTrue(lookup.contains(new LongNode(Long.MIN_VALUE)));
+        assertTrue(lookup.contains(new BigIntegerNode(new BigInteger("123456789012345678901234567890"))));
+        assertFalse(lookup.contains(new BigIntegerNode(new BigInteger("123456789012345678901234567891"))));
+        assertFalse(lookup.contains(new LongNode(0L)));
+        assertFalse(lookup.contains(new DoubleNode(-500)));
+    }
+
+    @Test
+    public void contains_shouldMatchEnumeratedBooleans_givenTypeBoolean() throws Exception {
+        EnumerationLookup lookup = EnumerationLookup.forType(SimpleType.BOOLEAN, Arrays.<JsonNode>asList(BooleanNode.TRUE));
+
+        assertTrue(lookup.contains(BooleanNode.TRUE));
+        assertFalse(lookup.contains(BooleanNode.FALSE));
+    }
+
+    @Test
+    public void contains_shouldMatchEqualNodes_givenTypeNumber() throws Exception {
+        EnumerationLookup lookup = EnumerationLookup.forType(SimpleType.NUMBER, Arrays.<JsonNode>asList(new DoubleNode(1.5), new DecimalNode(new BigDecimal("2.25"))));
+
+        assertTrue(lookup.contains(new DoubleNode(1.5)));
+        assertTrue(lookup.contains(new DecimalNode(new BigDecimal("2.25"))));
+        assertFalse(lookup.contains(new DoubleNode(2.5)));
+    }
+}
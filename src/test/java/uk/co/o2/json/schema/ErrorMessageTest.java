@@ -129,4 +129,53 @@ public class ErrorMessageTest {
 
         assertEquals(oneHashCode, theOtherHashCode);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void constructor_shouldOnlyAddOneLevelPerPrefix_givenADeeplyNestedMessage() throws Exception {
+        ErrorMessage message = new ErrorMessage("", "some message");
+        StringBuilder expectedLocation = new StringBuilder();
+        for (int i = 19; i >= 0; i--) {
+            message = new ErrorMessage("p" + i, message);
+            expectedLocation.insert(0, (i == 19) ? "p19" : "p" + i + ".");
+        }
+
+        assertEquals(expectedLocation.toString(), message.getLocation());
+    }
+
+    @Test
+    public void equals_shouldReturnTrue_givenAStringLocationAndTheSameLocationReportedByAnErrorSink() throws Exception {
+        ErrorCollector errors = new ErrorCollector();
+        errors.enterProperty("foo");
+        errors.enterIndex(3);
+        errors.enterProperty("bar");
+        errors.addError("some message");
+
+        ErrorMessage reported = errors.getErrors().get(0);
+        ErrorMessage expected = new ErrorMessage("foo[3].bar", "some message");
+
+        assertEquals(expected, reported);
+        assertEquals(expected.hashCode(), reported.hashCode());
+    }
+
+    @Test
+    public void equals_shouldReturnTrue_givenTheSameLocationBuiltFromNestedMessages() throws Exception {
+        ErrorMessage nested = new ErrorMessage("foo", new ErrorMessage("[2]", new ErrorMessage("bar", "some message")));
+
+        assertEquals(new ErrorMessage("foo[2].bar", "some message"), nested);
+    }
+
+    @Test
+    public void equals_shouldReturnTrue_givenTheLocationOfAnErrorForAPropertyWithADotInItsName() throws Exception {
+        ErrorCollector errors = new ErrorCollector();
+        errors.enterProperty("a.b");
+        errors.addError("blah");
+        errors.exit();
+        ErrorMessage em = errors.getErrors().get(0);
+        ErrorMessage other = new ErrorMessage("a.b", "blah");
+
+        assertEquals("a.b", em.getLocation());
+        assertTrue(em.equals(other));
+        assertTrue(other.equals(em));
+        assertEquals(other.hashCode(), em.hashCode());
+    }
+}
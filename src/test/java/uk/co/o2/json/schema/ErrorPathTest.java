@@ -0,0 +1,106 @@
+package uk.co.o2.json.schema;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ErrorPathTest {
+    @Test
+    public void render_shouldJoinPropertyNamesWithDotsAndAppendArrayIndexes() throws Exception {
+        ErrorPath path = ErrorPath.property("foo", ErrorPath.index(3, ErrorPath.property("bar", ErrorPath.ROOT)));
+
+        assertEquals("foo[3].bar", path.render());
+    }
+
+    @Test
+    public void render_shouldReturnAnEmptyString_givenTheRootPath() throws Exception {
+        assertEquals("", ErrorPath.ROOT.render());
+    }
+
+    @Test
+    public void parse_shouldSplitARenderedLocationIntoSegments() throws Exception {
+        ErrorPath expected = ErrorPath.index(0, ErrorPath.property("foo", ErrorPath.index(12, ErrorPath.ROOT)));
+
+        ErrorPath result = ErrorPath.parse("[0].foo[12]");
+
+        assertEquals(expected, result);
+        assertEquals(expected.hashCode(), result.hashCode());
+    }
+
+    @Test
+    public void parse_shouldReturnTheRootPath_givenAnEmptyLocation() throws Exception {
+        assertTrue(ErrorPath.parse("").isRoot());
+    }
+
+    @Test
+    public void parse_shouldAlwaysRenderBackToTheOriginalLocation() throws Exception {
+        for (String location : new String[] {"foo", "a..b", ".x", "x.", "a.[0]", "[0]x", "a[", "[abc]", "[1234567890]", "a[1][2]"}) {
+            assertEquals(location, ErrorPath.parse(location).render());
+        }
+    }
+
+    @Test
+    public void equals_shouldReturnFalse_givenAPathWithTheSameHashButDifferentSegments() throws Exception {
+        ErrorPath one = ErrorPath.property("Aa", ErrorPath.ROOT);
+        ErrorPath other = ErrorPath.property("BB", ErrorPath.ROOT);
+
+        assertEquals(one.hashCode(), other.hashCode());
+        assertFalse(one.equals(other));
+    }
+
+    @Test
+    public void equals_shouldReturnFalse_givenAPropertyAndAnIndexThatRenderDifferently() throws Exception {
+        assertFalse(ErrorPath.property("foo", ErrorPath.ROOT).equals(ErrorPath.property("foo", ErrorPath.index(1, ErrorPath.ROOT))));
+        assertFalse(ErrorPath.index(1, ErrorPath.ROOT).equals(ErrorPath.property("1", ErrorPath.ROOT)));
+    }
+
+    @Test
+    public void append_shouldPlaceTheNestedPathAfterThisPath() throws Exception {
+        ErrorPath prefix = ErrorPath.property("a", ErrorPath.index(1, ErrorPath.ROOT));
+        ErrorPath nested = ErrorPath.property("b", ErrorPath.ROOT);
+
+        assertEquals("a[1].b", prefix.append(nested).render());
+        assertSame(nested, ErrorPath.ROOT.append(nested));
+    }
+
+    @Test
+    public void property_shouldSplitANameContainingADot_intoTheSegmentsItParsesBackInto() throws Exception {
+        ErrorPath path = ErrorPath.property("a.b[2]", ErrorPath.property("c", ErrorPath.ROOT));
+
+        assertEquals("a.b[2].c", path.render());
+        assertEquals(ErrorPath.parse("a.b[2].c"), path);
+    }
+
+    @Test
+    public void property_shouldKeepANameWhole_givenItStartsWithAnIndex() throws Exception {
+        ErrorPath path = ErrorPath.property("a", ErrorPath.property("[0]", ErrorPath.ROOT));
+
+        assertEquals("a.[0]", path.render());
+    }
+
+    @Test
+    public void equalsAndHashCode_shouldMatchTheRenderedLocations() throws Exception {
+        ErrorPath[] paths = {
+                ErrorPath.ROOT,
+                ErrorPath.property("", ErrorPath.ROOT),
+                ErrorPath.property("", ErrorPath.index(0, ErrorPath.ROOT)),
+                ErrorPath.index(0, ErrorPath.ROOT),
+                ErrorPath.property("", ErrorPath.property("b", ErrorPath.ROOT)),
+                ErrorPath.parse(".b"),
+                ErrorPath.property("a", ErrorPath.property("[1]x", ErrorPath.ROOT)),
+                ErrorPath.parse("a.[1]x"),
+                ErrorPath.property("a[", ErrorPath.index(10, ErrorPath.ROOT)),
+                ErrorPath.parse("a[[10]"),
+                ErrorPath.property("a.b", ErrorPath.index(123, ErrorPath.ROOT)),
+                ErrorPath.property("a", ErrorPath.property("b", ErrorPath.index(123, ErrorPath.ROOT))),
+                ErrorPath.property("Aa", ErrorPath.ROOT),
+                ErrorPath.property("BB", ErrorPath.ROOT)};
+
+        for (ErrorPath one : paths) {
+            assertEquals(one.render(), one.render().hashCode(), one.hashCode());
+            for (ErrorPath other : paths) {
+                assertEquals(one.render() + " and " + other.render(), one.render().equals(other.render()), one.equals(other));
+            }
+        }
+    }
+}
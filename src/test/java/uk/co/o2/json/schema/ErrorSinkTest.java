@@ -0,0 +1,141 @@
+package uk.co.o2.json.schema;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ErrorSinkTest {
+    private ErrorCollector errors = new ErrorCollector();
+
+    @Test
+    public void addError_shouldUseAnEmptyLocation_givenNoEnclosingPropertyOrIndex() throws Exception {
+        errors.addError("some message");
+
+        assertEquals(1, errors.getErrors().size());
+        assertEquals("", errors.getErrors().get(0).getLocation());
+        assertEquals("some message", errors.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    public void addError_shouldJoinPropertyNamesWithDotsAndAppendArrayIndexes() throws Exception {
+        errors.enterProperty("foo");
+        errors.enterIndex(3);
+        errors.enterProperty("bar");
+        errors.enterIndex(7);
+        errors.addError("some message");
+
+        assertEquals("foo[3].bar[7]", errors.getErrors().get(0).getLocation());
+    }
+
+    @Test
+    public void addError_shouldNotStartWithADot_givenALeadingArrayIndex() throws Exception {
+        errors.enterIndex(0);
+        errors.enterProperty("foo");
+        errors.addError("some message");
+
+        assertEquals("[0].foo", errors.getErrors().get(0).getLocation());
+    }
+
+    @Test
+    public void exit_shouldReturnToTheEnclosingLocation() throws Exception {
+        errors.enterProperty("foo");
+        errors.enterProperty("bar");
+        errors.exit();
+        errors.enterProperty("baz");
+        errors.addError("some message");
+        errors.exit();
+        errors.exit();
+        errors.addError("another message");
+
+        assertEquals("foo.baz", errors.getErrors().get(0).getLocation());
+        assertEquals("", errors.getErrors().get(1).getLocation());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void exit_shouldThrowAnException_givenNoEnclosingPropertyOrIndex() throws Exception {
+        errors.exit();
+    }
+
+    @Test
+    public void enterProperty_shouldSupportDeeplyNestedLocations() throws Exception {
+        StringBuilder expectedLocation = new StringBuilder("p0");
+        errors.enterProperty("p0");
+        for (int i = 1; i < 50; i++) {
+            errors.enterProperty("p" + i);
+            expectedLocation.append(".p").append(i);
+        }
+        errors.addError("some message");
+
+        assertEquals(expectedLocation.toString(), errors.getErrors().get(0).getLocation());
+    }
+
+    @Test
+    public void addErrors_shouldPrefixNestedLocationsWithTheCurrentLocation() throws Exception {
+        errors.enterProperty("foo");
+        errors.addErrors(Arrays.asList(new ErrorMessage("", "a"), new ErrorMessage("bar", "b"), new ErrorMessage("[2]", "c")));
+
+        assertEquals("foo", errors.getErrors().get(0).getLocation());
+        assertEquals("foo.bar", errors.getErrors().get(1).getLocation());
+        assertEquals("foo[2]", errors.getErrors().get(2).getLocation());
+    }
+
+
+    @Test
+    public void addError_shouldIgnoreErrorsBeyondTheLimit_andMarkTheSinkAsTruncated() throws Exception {
+        ErrorCollector limitedErrors = new ErrorCollector(2);
+
+        limitedErrors.addError("first");
+        assertFalse(limitedErrors.isTruncated());
+        limitedErrors.addError("second");
+        limitedErrors.addError("third");
+
+        assertEquals(Arrays.asList(new ErrorMessage("", "first"), new ErrorMessage("", "second")), limitedErrors.getErrors());
+        assertTrue(limitedErrors.isTruncated());
+    }
+
+    @Test
+    public void isTruncated_shouldNeverBeTrue_givenNoLimit() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            errors.addError("error" + i);
+        }
+
+        assertEquals(1000, errors.getErrors().size());
+        assertFalse(errors.isTruncated());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_shouldThrowAnException_givenANegativeLimit() throws Exception {
+        new ErrorCollector(-1);
+    }
+
+    @Test
+    public void endDeferred_shouldReportHeldErrorsInDeferredOrder() throws Exception {
+        errors.beginDeferred();
+        errors.setDeferredOrder(1);
+        errors.addError("second");
+        errors.setDeferredOrder(0);
+        errors.addError("first");
+        assertTrue(errors.getErrors().isEmpty());
+
+        errors.endDeferred();
+
+        assertEquals(Arrays.asList(new ErrorMessage("", "first"), new ErrorMessage("", "second")), errors.getErrors());
+    }
+
+    @Test
+    public void discardDeferred_shouldDropHeldErrors_andReleaseTheirShareOfTheLimit() throws Exception {
+        ErrorCollector limitedErrors = new ErrorCollector(1);
+        limitedErrors.beginDeferred();
+        limitedErrors.addError("discarded");
+        assertTrue(limitedErrors.isTruncated());
+
+        limitedErrors.discardDeferred();
+        limitedErrors.addError("kept");
+
+        assertEquals(Arrays.asList(new ErrorMessage("", "kept")), limitedErrors.getErrors());
+    }
+}
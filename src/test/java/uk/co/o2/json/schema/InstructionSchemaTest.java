@@ -0,0 +1,173 @@
+package uk.co.o2.json.schema;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.math.BigInteger;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class InstructionSchemaTest {
+    private static final String[] names = {"id", "name", "price", "tags", "dimensions", "kind", "code", "extra", "other"};
+    private static final String[] strings = {"", "a", "abc", "ABC-12", "widget", "gadget", "2013-02-28", "2013-02-30", "x\"y"};
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final JsonFactory factory = new JsonFactory(mapper);
+    private final List<File> filesToDelete = new ArrayList<>();
+
+    @Test
+    public void validate_shouldReportTheSameErrorsAsTheCompiledSchema_withAndWithoutAnErrorLimit() throws Exception {
+        ExtendedJsonSchema compiled = compile("{\"type\": \"object\", \"properties\": {" +
+                "\"id\": {\"type\": \"integer\", \"required\": true, \"minimum\": 1, \"exclusiveMinimum\": true, \"maximum\": 9223372036854775807}," +
+                "\"name\": {\"type\": \"string\", \"required\": true, \"minLength\": 2, \"maxLength\": 10, \"format\": \"date\"}," +
+                "\"price\": {\"type\": \"number\", \"minimum\": 0, \"maximum\": 99.5, \"exclusiveMaximum\": true}," +
+                "\"tags\": {\"type\": \"array\", \"maxItems\": 2, \"items\": {\"type\": \"string\", \"pattern\": \"[a-z]+\"}}," +
+                "\"dimensions\": {\"type\": \"object\", \"additionalProperties\": false, \"properties\": {" +
+                "    \"width\": {\"type\": \"number\", \"required\": true}, \"height\": {\"type\": \"number\", \"required\": true}}}," +
+                "\"kind\": {\"type\": \"string\", \"enumeration\": [\"widget\", \"gadget\"]}," +
+                "\"code\": {\"type\": [\"string\", \"integer\"]}}," +
+                "\"additionalProperties\": {\"type\": \"array\", \"minItems\": 1}}");
+        InstructionSchema instructions = InstructionSchema.lower(compiled);
+
+        Random random = new Random(7);
+        int invalidDocuments = 0;
+        for (int i = 0; i < 5000; i++) {
+            JsonNode document = randomObject(random, 0);
+            List<ErrorMessage> expectedErrors = compiled.validate(document);
+            assertEquals(document.toString(), describe(expectedErrors), describe(instructions.validate(document)));
+            assertEquals(document.toString(), compiled.isValid(document), instructions.isValid(document));
+
+            int maxErrors = 1 + random.nextInt(3);
+            ErrorCollector expectedLimitedErrors = new ErrorCollector(maxErrors);
+            compiled.validate(document, expectedLimitedErrors);
+            ErrorCollector limitedErrors = new ErrorCollector(maxErrors);
+            instructions.validate(document, limitedErrors);
+            assertEquals(document.toString(), describe(expectedLimitedErrors.getErrors()), describe(limitedErrors.getErrors()));
+            invalidDocuments += expectedErrors.isEmpty() ? 0 : 1;
+        }
+        assertTrue(invalidDocuments > 0);
+        assertTrue(invalidDocuments < 5000);
+    }
+
+    @Test
+    public void lower_shouldShareIdenticalBlocks() throws Exception {
+        StringBuilder schema = new StringBuilder("{\"type\": \"object\", \"properties\": {");
+        for (int i = 0; i < 100; i++) {
+            schema.append((i == 0) ? "" : ",").append("\"p").append(i).append("\": {\"type\": \"array\", \"items\": {\"type\": \"string\"}}");
+        }
+        InstructionSchema instructions = InstructionSchema.lower(compile(schema.append("}}").toString()));
+
+        //one object block of 6 + 100 + 100 + 256 instructions, one array block of 4 and one string block of 4
+        assertEquals(470, instructions.getInstructionCount());
+        assertEquals(2, instructions.getConstantCount());
+        assertFalse(instructions.isValid(mapper.readTree("{\"p50\": [1]}")));
+        assertEquals("p50[0]", instructions.validate(mapper.readTree("{\"p50\": [1]}")).get(0).getLocation());
+    }
+
+    @Test
+    public void getSchema_shouldReturnTheInstructionSchema_whenTheInstructionInterpreterIsOn() throws Exception {
+        URL location = saveToFile("{\"type\": \"object\", \"properties\": {\"a\": {\"type\": \"integer\"}}}").toURI().toURL();
+        SchemaPassThroughCache cache = new SchemaPassThroughCache(factory);
+        cache.setInstructionInterpreter(true);
+
+        ExtendedJsonSchema schema = (ExtendedJsonSchema) cache.getSchema(location);
+
+        assertTrue(schema instanceof InstructionSchema);
+        assertSame(schema, cache.getSchema(location));
+        assertSame(cache.peekSchema(location), ((InstructionSchema) schema).getCompiledSchema());
+        assertEquals(1, schema.validate(factory.createJsonParser("{\"a\": \"x\"}")).size());
+    }
+
+    private JsonNode randomObject(Random random, int depth) {
+        ObjectNode result = JsonNodeFactory.instance.objectNode();
+        for (int properties = random.nextInt(4); properties > 0; properties--) {
+            result.put(names[random.nextInt(names.length)], randomValue(random, depth + 1));
+        }
+        if (random.nextBoolean()) {
+            result.put("id", random.nextInt(4));
+            result.put("name", strings[random.nextInt(strings.length)]);
+        }
+        if (random.nextInt(4) == 0) {
+            ObjectNode dimensions = result.putObject("dimensions");
+            dimensions.put("width", random.nextInt(10));
+            if (random.nextBoolean()) {
+                dimensions.put("height", 1.5);
+            }
+        }
+        return result;
+    }
+
+    private JsonNode randomValue(Random random, int depth) {
+        JsonNodeFactory nodes = JsonNodeFactory.instance;
+        switch (random.nextInt((depth > 3) ? 7 : 9)) {
+            case 0:
+                return nodes.textNode(strings[random.nextInt(strings.length)]);
+            case 1:
+                return nodes.numberNode(random.nextInt(200) - 50);
+            case 2:
+                return nodes.numberNode((random.nextInt(500) - 100) / 4.0);
+            case 3:
+                return nodes.numberNode(BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.valueOf(random.nextInt(3) - 1)));
+            case 4:
+                return nodes.booleanNode(random.nextBoolean());
+            case 5:
+                return nodes.nullNode();
+            case 6:
+                return nodes.numberNode(99.5);
+            case 7:
+                ArrayNode array = nodes.arrayNode();
+                for (int items = random.nextInt(4); items > 0; items--) {
+                    array.add(randomValue(random, depth + 1));
+                }
+                return array;
+            default:
+                return randomObject(random, depth);
+        }
+    }
+
+    private static String describe(List<ErrorMessage> errors) {
+        StringBuilder result = new StringBuilder();
+        for (ErrorMessage error : errors) {
+            result.append(error.getLocation()).append(": ").append(error.getMessage()).append('\n');
+        }
+        return result.toString();
+    }
+
+    private ExtendedJsonSchema compile(String schema) throws Exception {
+        return (ExtendedJsonSchema) new SchemaPassThroughCache(factory).getSchema(saveToFile(schema).toURI().toURL());
+    }
+
+    private File saveToFile(String content) throws Exception {
+        File file = File.createTempFile("schema", ".json");
+        file.deleteOnExit();
+        filesToDelete.add(file);
+        try (OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(file, false), "UTF-8")) {
+            writer.write(content);
+        }
+        return file;
+    }
+
+    @SuppressWarnings({"ResultOfMethodCallIgnored"})
+    @After
+    public void tearDown() {
+        for (File f : filesToDelete) {
+            f.delete();
+        }
+    }
+}
@@ -6,9 +6,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Test;
 
 import java.util.List;
+import com.fasterxml.jackson.core.JsonParser;
 
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 public class JsonSchemaTest {
 
@@ -57,4 +59,57 @@ public class JsonSchemaTest {
         assertEquals("regexValue", errors.get(7).getLocation());
         assertEquals("Value '++' is not a valid regex", errors.get(7).getMessage());
     }
+
+    @Test
+    public void sadCase_shouldReportTheSameErrorsWhenValidatingAJsonParser() throws Exception {
+        ExtendedJsonSchema schema = (ExtendedJsonSchema) schemaFactory.getSchema(getClass().getClassLoader().getResource("sample-json-schema.json"));
+        JsonNode json = jsonFactory.createJsonParser(getClass().getClassLoader().getResource("invalid-json-document.json")).readValueAsTree();
+        JsonParser parser = jsonFactory.createJsonParser(getClass().getClassLoader().getResource("invalid-json-document.json"));
+
+        List<ErrorMessage> errors = schema.validate(parser);
+
+        assertEquals(schema.validate(json), errors);
+    }
+
+    @Test
+    public void happyCase_shouldValidateAJsonParserCorrectly() throws Exception {
+        ExtendedJsonSchema schema = (ExtendedJsonSchema) schemaFactory.getSchema(getClass().getClassLoader().getResource("sample-json-schema.json"));
+        JsonParser parser = jsonFactory.createJsonParser(getClass().getClassLoader().getResource("valid-json-document.json"));
+
+        List<ErrorMessage> errors = schema.validate(parser);
+
+        assertTrue(errors.isEmpty());
+    }
+
+    @Test
+    public void isValid_shouldAgreeWithValidate() throws Exception {
+        ExtendedJsonSchema schema = (ExtendedJsonSchema) schemaFactory.getSchema(getClass().getClassLoader().getResource("sample-json-schema.json"));
+        JsonNode validJson = jsonFactory.createJsonParser(getClass().getClassLoader().getResource("valid-json-document.json")).readValueAsTree();
+        JsonNode invalidJson = jsonFactory.createJsonParser(getClass().getClassLoader().getResource("invalid-json-document.json")).readValueAsTree();
+
+        assertTrue(schema.isValid(validJson));
+        assertFalse(schema.isValid(invalidJson));
+    }
+
+    @Test
+    public void sadCase_shouldReportTheSameErrorsToAnErrorSink() throws Exception {
+        ExtendedJsonSchema schema = (ExtendedJsonSchema) schemaFactory.getSchema(getClass().getClassLoader().getResource("sample-json-schema.json"));
+        JsonNode json = jsonFactory.createJsonParser(getClass().getClassLoader().getResource("invalid-json-document.json")).readValueAsTree();
+        ErrorCollector errors = new ErrorCollector();
+
+        schema.validate(json, errors);
+
+        assertEquals(schema.validate(json), errors.getErrors());
+    }
+
+    @Test
+    public void sadCase_shouldValidateAJsonParserWithoutACodec() throws Exception {
+        ExtendedJsonSchema schema = (ExtendedJsonSchema) schemaFactory.getSchema(getClass().getClassLoader().getResource("sample-json-schema.json"));
+        JsonNode json = jsonFactory.createJsonParser(getClass().getClassLoader().getResource("invalid-json-document.json")).readValueAsTree();
+        JsonParser parser = new JsonFactory().createJsonParser(getClass().getClassLoader().getResource("invalid-json-document.json"));
+
+        List<ErrorMessage> errors = schema.validate(parser);
+
+        assertEquals(schema.validate(json), errors);
+    }
 }
@@ -0,0 +1,45 @@
+package uk.co.o2.json.schema;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.*;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class NumericBoundTest {
+    private static final List<String> bounds = Arrays.asList(
+        "0", "-0.0", "10", "-10", "2.5", "-2.5", "0.1", "1E+2", "1.5E-3", "9223372036854775807", "-9223372036854775808",
+        "9223372036854775808", "-9223372036854775809", "1E+400", "123456789012345678901234567890.5", "0.1000000000000000055511151231257827"
+    );
+
+    private static final List<JsonNode> values = Arrays.<JsonNode>asList(
+        new IntNode(0), new IntNode(10), new IntNode(-10), new IntNode(2), new IntNode(3), new IntNode(-3), new IntNode(Integer.MAX_VALUE),
+        new LongNode(Long.MAX_VALUE), new LongNode(Long.MIN_VALUE), new LongNode(100L),
+        new DoubleNode(0.0), new DoubleNode(-0.0), new DoubleNode(0.1), new DoubleNode(2.5), new DoubleNode(100.0), new DoubleNode(0.0015), new DoubleNode(1e300), new DoubleNode(-1e-300),
+        new BigIntegerNode(new BigInteger("9223372036854775808")), new BigIntegerNode(BigInteger.TEN.pow(40)),
+        new DecimalNode(new BigDecimal("2.50")), new DecimalNode(new BigDecimal("0.1000000000000000055511151231257827"))
+    );
+
+    @Test
+    public void compareWith_shouldAgreeWithComparingTheDecimalValue_forEveryKindOfNumericNode() throws Exception {
+        for (String bound : bounds) {
+            NumericBound numericBound = new NumericBound(new BigDecimal(bound));
+            for (JsonNode value : values) {
+                int expected = new BigDecimal(value.numberValue().toString()).compareTo(new BigDecimal(bound));
+
+                assertEquals(value + " compared with " + bound, expected, Integer.signum(numericBound.compareWith(value)));
+            }
+        }
+    }
+
+    @Test
+    public void decimalValue_shouldReturnTheBoundAsADecimal() throws Exception {
+        assertEquals(new BigDecimal("2.5"), new NumericBound(2.5).decimalValue());
+        assertEquals(new BigDecimal("7"), new NumericBound(7).decimalValue());
+    }
+}
@@ -8,6 +8,10 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.util.List;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.util.Collections;
+import java.util.ArrayList;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -254,4 +258,269 @@ public class ObjectSchemaTest {
 
         assertFalse(result);
     }
+
+    @Test
+    public void validateParser_shouldReportTheSameErrorsInTheSameOrderAsTreeValidation() throws Exception {
+        String json = "{ " +
+            "\"extra\": true," +
+            "\"bar\": {" +
+                "\"baz\": 1 " +
+            "}," +
+            "\"foo\": \"a\"" +
+        "}";
+
+        ObjectSchema schema = new ObjectSchema();
+        schema.setAdditionalProperties(ObjectSchema.FORBID_ANY_ADDITIONAL_PROPERTIES);
+        schema.getProperties().add(new ObjectSchema.Property() {{
+            setName("foo");
+            setNestedSchema(new SimpleTypeSchema() {{
+                setType(SimpleType.NUMBER);
+            }});
+        }});
+        schema.getProperties().add(new ObjectSchema.Property() {{
+            setName("bar");
+            setNestedSchema(new ObjectSchema() {{
+                getProperties().add(new ObjectSchema.Property() {{
+                    setName("quux");
+                    setRequired(true);
+                }});
+                getProperties().add(new ObjectSchema.Property() {{
+                    setName("baz");
+                    setNestedSchema(new SimpleTypeSchema() {{
+                        setType(SimpleType.STRING);
+                    }});
+                }});
+            }});
+        }});
+
+        List<ErrorMessage> result = schema.validate(factory.createJsonParser(json));
+
+        assertEquals(4, result.size());
+        assertEquals("foo", result.get(0).getLocation());
+        assertEquals("bar.quux", result.get(1).getLocation());
+        assertEquals("bar.baz", result.get(2).getLocation());
+        assertEquals("extra", result.get(3).getLocation());
+        assertEquals(schema.validate((JsonNode) factory.createJsonParser(json).readValueAsTree()), result);
+    }
+
+    @Test
+    public void validateParser_shouldEmitAnErrorMessageAndSkipTheValue_givenAJsonArray() throws Exception {
+        JsonParser parser = factory.createJsonParser("[ {\"foo\": \"bar\"} ]");
+
+        List<ErrorMessage> result = new ObjectSchema().validate(parser);
+
+        assertEquals(1, result.size());
+        assertTrue(result.get(0).getMessage().contains("must be an object"));
+        assertEquals(JsonToken.END_ARRAY, parser.getCurrentToken());
+    }
+
+    @Test
+    public void isValid_shouldReturnFalse_whenARequiredPropertyIsMissing() throws Exception {
+        JsonNode document = factory.createJsonParser("{\"foo\": \"bar\"}").readValueAsTree();
+
+        ObjectSchema schema = new ObjectSchema();
+        schema.getProperties().add(new ObjectSchema.Property(){{
+            setName("id");
+            setRequired(true);
+        }});
+
+        assertFalse(schema.isValid(document));
+    }
+
+    @Test
+    public void isValid_shouldReturnFalse_givenAnUnexpectedPropertyWhenAdditionalPropertiesAreForbidden() throws Exception {
+        JsonNode document = factory.createJsonParser("{\"id\": 1, \"foo\": \"bar\"}").readValueAsTree();
+
+        ObjectSchema schema = new ObjectSchema();
+        schema.setAdditionalProperties(ObjectSchema.FORBID_ANY_ADDITIONAL_PROPERTIES);
+        schema.getProperties().add(new ObjectSchema.Property(){{
+            setName("id");
+        }});
+
+        assertFalse(schema.isValid(document));
+    }
+
+    @Test
+    public void isValid_shouldReturnTrue_givenOnlyDeclaredPropertiesWithValidValues() throws Exception {
+        JsonNode document = factory.createJsonParser("{\"id\": 1}").readValueAsTree();
+
+        ObjectSchema schema = new ObjectSchema();
+        schema.setAdditionalProperties(ObjectSchema.FORBID_ANY_ADDITIONAL_PROPERTIES);
+        schema.getProperties().add(new ObjectSchema.Property(){{
+            setName("id");
+            setRequired(true);
+            setNestedSchema(new SimpleTypeSchema() {{
+                setType(SimpleType.INTEGER);
+            }});
+        }});
+
+        assertTrue(schema.isValid(document));
+    }
+
+
+    @Test
+    public void validate_shouldReportErrorsInDeclarationOrder_givenPropertiesInADifferentOrderInTheDocument() throws Exception {
+        JsonNode document = factory.createJsonParser("{\"extra\": 1, \"second\": 2, \"first\": 1}").readValueAsTree();
+
+        ObjectSchema schema = new ObjectSchema();
+        schema.setAdditionalProperties(ObjectSchema.FORBID_ANY_ADDITIONAL_PROPERTIES);
+        schema.getProperties().add(new ObjectSchema.Property(){{
+            setName("first");
+            setNestedSchema(new ObjectSchema());
+        }});
+        schema.getProperties().add(new ObjectSchema.Property(){{
+            setName("second");
+            setNestedSchema(new ObjectSchema());
+        }});
+
+        List<ErrorMessage> result = schema.validate(document);
+
+        assertEquals(3, result.size());
+        assertEquals("first", result.get(0).getLocation());
+        assertEquals("second", result.get(1).getLocation());
+        assertEquals("extra", result.get(2).getLocation());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void getProperties_shouldNotAllowPropertiesToBeAdded_onceTheSchemaHasBeenUsed() throws Exception {
+        JsonNode document = factory.createJsonParser("{\"foo\": \"bar\"}").readValueAsTree();
+
+        ObjectSchema schema = new ObjectSchema();
+        assertTrue(schema.validate(document).isEmpty());
+
+        schema.getProperties().add(new ObjectSchema.Property(){{
+            setName("id");
+            setRequired(true);
+        }});
+    }
+
+    @Test
+    public void validate_shouldReportEveryMissingRequiredProperty_givenMoreThanSixtyFourRequiredProperties() throws Exception {
+        ObjectSchema schema = new ObjectSchema();
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < 100; i++) {
+            final String name = "property" + i;
+            schema.getProperties().add(new ObjectSchema.Property(){{
+                setName(name);
+                setRequired(true);
+            }});
+            if (i % 3 != 0) {
+                json.append(json.length() > 1 ? ", " : "").append('"').append(name).append("\": ").append(i);
+            }
+        }
+        json.append("}");
+
+        List<ErrorMessage> treeResult = schema.validate(factory.createJsonParser(json.toString()).<JsonNode>readValueAsTree());
+        List<ErrorMessage> streamingResult = schema.validate(factory.createJsonParser(json.toString()));
+
+        assertEquals(34, treeResult.size());
+        assertEquals("property0", treeResult.get(0).getLocation());
+        assertEquals("property99", treeResult.get(33).getLocation());
+        assertEquals(treeResult, streamingResult);
+        assertFalse(schema.isValid(factory.createJsonParser(json.toString()).<JsonNode>readValueAsTree()));
+    }
+
+    @Test
+    public void validateParser_shouldReportAMissingRequiredProperty_givenAnotherRequiredPropertyIsRepeated() throws Exception {
+        JsonParser parser = factory.createJsonParser("{\"id\": 1, \"id\": 2}");
+
+        ObjectSchema schema = new ObjectSchema();
+        schema.getProperties().add(new ObjectSchema.Property(){{
+            setName("id");
+            setRequired(true);
+        }});
+        schema.getProperties().add(new ObjectSchema.Property(){{
+            setName("name");
+            setRequired(true);
+        }});
+
+        List<ErrorMessage> result = schema.validate(parser);
+
+        assertEquals(1, result.size());
+        assertEquals("name", result.get(0).getLocation());
+    }
+
+    @Test
+    public void validate_shouldUseTheTreeValidationOfANestedSchemaThatOnlyImplementsJsonSchema() throws Exception {
+        ObjectSchema schema = new ObjectSchema();
+        ObjectSchema.Property property = new ObjectSchema.Property();
+        property.setName("a");
+        property.setNestedSchema(new JsonSchema() {
+            @Override
+            public List<ErrorMessage> validate(JsonNode jsonDocumentToValidate) {
+                return jsonDocumentToValidate.isTextual() ? Collections.<ErrorMessage>emptyList() : ErrorMessage.singleError("", "not text");
+            }
+
+            @Override
+            public String getDescription() {
+                return "text";
+            }
+
+            @Override
+            public boolean isAcceptableType(JsonNode jsonDocument) {
+                return true;
+            }
+        });
+        schema.getProperties().add(property);
+
+        List<ErrorMessage> treeErrors = schema.validate(factory.createJsonParser("{\"a\": [1]}").<JsonNode>readValueAsTree());
+        List<ErrorMessage> streamErrors = schema.validate(factory.createJsonParser("{\"a\": [1]}"));
+
+        assertEquals(1, treeErrors.size());
+        assertEquals("a", treeErrors.get(0).getLocation());
+        assertEquals("not text", treeErrors.get(0).getMessage());
+        assertEquals(treeErrors, streamErrors);
+        assertTrue(schema.isValid(factory.createJsonParser("{\"a\": \"x\"}").<JsonNode>readValueAsTree()));
+        assertFalse(schema.isValid(factory.createJsonParser("{\"a\": 1}").<JsonNode>readValueAsTree()));
+    }
+
+    @Test
+    public void validate_shouldKeepTheFirstErrorsInDeclarationOrder_whenTheNumberOfErrorsIsLimited() throws Exception {
+        JsonNode document = factory.createJsonParser("{\"extra\": 1, \"b\": 1, \"a\": 1}").<JsonNode>readValueAsTree();
+        ObjectSchema schema = new ObjectSchema();
+        schema.setAdditionalProperties(ObjectSchema.FORBID_ANY_ADDITIONAL_PROPERTIES);
+        for (final String name : new String[] {"a", "b"}) {
+            schema.getProperties().add(new ObjectSchema.Property() {{
+                setName(name);
+                setNestedSchema(new SimpleTypeSchema() {{
+                    setType(SimpleType.STRING);
+                }});
+            }});
+        }
+        ErrorCollector errors = new ErrorCollector(2);
+
+        schema.validate(document, errors);
+
+        assertEquals(2, errors.getErrors().size());
+        assertEquals("a", errors.getErrors().get(0).getLocation());
+        assertEquals("b", errors.getErrors().get(1).getLocation());
+    }
+
+    @Test
+    public void validate_shouldPassEachErrorToTheSinkAsItIsFound() throws Exception {
+        JsonNode document = factory.createJsonParser("{\"a\": {\"b\": \"x\"}}").<JsonNode>readValueAsTree();
+        ObjectSchema schema = new ObjectSchema();
+        schema.getProperties().add(new ObjectSchema.Property() {{
+            setName("a");
+            setNestedSchema(new ObjectSchema() {{
+                getProperties().add(new ObjectSchema.Property() {{
+                    setName("b");
+                    setNestedSchema(new SimpleTypeSchema() {{
+                        setType(SimpleType.NUMBER);
+                    }});
+                }});
+            }});
+        }});
+        final List<ErrorPath> pathsWhenReported = new ArrayList<>();
+        ErrorSink errors = new ErrorSink() {
+            @Override
+            protected void onError(ErrorMessage error) {
+                pathsWhenReported.add(currentPath());
+            }
+        };
+
+        schema.validate(document, errors);
+
+        assertEquals(Collections.singletonList(ErrorPath.parse("a.b")), pathsWhenReported);
+    }
 }
@@ -0,0 +1,176 @@
+package uk.co.o2.json.schema;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PatternMatcherTest {
+    private static final String[] atoms = {
+        "a", "b", "-", ".", "\\d", "\\w", "\\s", "\\D", "\\S", "\\W", "[abc]", "[^ab]", "[a-c]", "[-a]", "[a-]", "[\\d-]",
+        "\\.", "\\x41", "\\u0062", "\\n", "]", "\uD83D\uDE00", "[^\uD83D\uDE00]", "[a&&b]", "\\1", "\\b", "(?=a)", "^", "$"
+    };
+    private static final String[] quantifiers = {"", "", "", "*", "+", "?", "{2}", "{1,3}", "{2,}", "*?", "+?", "++", "{0}"};
+    private static final String[] inputs = {"a", "b", "c", "-", "A", "1", "_", " ", "\n", "\r", "\u2028", "\uD83D\uDE00", "\uD83D", "."};
+
+    @Test
+    public void matches_shouldMatchTheWholeValue_givenALiteral() throws Exception {
+        PatternMatcher matcher = PatternMatcher.compile(Pattern.compile("12345"));
+
+        assertTrue(matcher.matches("12345"));
+        assertFalse(matcher.matches("123456"));
+        assertFalse(matcher.matches("1234"));
+    }
+
+    @Test
+    public void matches_shouldMatchALiteralPrefixFollowedByARepeatedClass() throws Exception {
+        PatternMatcher matcher = PatternMatcher.compile(Pattern.compile("ID-\\d{2,4}"));
+
+        assertTrue(matcher.matches("ID-12"));
+        assertTrue(matcher.matches("ID-1234"));
+        assertFalse(matcher.matches("ID-1"));
+        assertFalse(matcher.matches("ID-12345"));
+        assertFalse(matcher.matches("ID-12a"));
+    }
+
+    @Test
+    public void matches_shouldNotMatchLineTerminatorsWithADot() throws Exception {
+        PatternMatcher matcher = PatternMatcher.compile(Pattern.compile("abc.*"));
+
+        assertTrue(matcher.matches("abc def"));
+        assertFalse(matcher.matches("abc\ndef"));
+    }
+
+    @Test
+    public void matches_shouldIgnoreAnchorsAtTheEndsOfThePattern() throws Exception {
+        PatternMatcher matcher = PatternMatcher.compile(Pattern.compile("^(foo|bar)+$"));
+
+        assertTrue(matcher.matches("foobarfoo"));
+        assertFalse(matcher.matches("foobarfo"));
+        assertFalse(matcher.matches("foo\n"));
+    }
+
+    @Test
+    public void matches_shouldFallBackToPattern_givenABackReference() throws Exception {
+        PatternMatcher matcher = PatternMatcher.compile(Pattern.compile("(a|b)\\1"));
+
+        assertTrue(matcher.matches("aa"));
+        assertFalse(matcher.matches("ab"));
+    }
+
+    @Test
+    public void matches_shouldFallBackToPattern_givenFlags() throws Exception {
+        PatternMatcher matcher = PatternMatcher.compile(Pattern.compile("abc", Pattern.CASE_INSENSITIVE));
+
+        assertTrue(matcher.matches("ABC"));
+    }
+
+    @Test(timeout = 5000)
+    public void matches_shouldTakeLinearTime_givenNestedQuantifiers() throws Exception {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            value.append('a');
+        }
+        value.append('c');
+
+        assertFalse(PatternMatcher.compile(Pattern.compile("(a+)+b")).matches(value.toString()));
+        assertFalse(PatternMatcher.compile(Pattern.compile("(a|aa)*b")).matches(value.toString()));
+    }
+
+    @Test
+    public void matches_shouldHandleAutomataWithMoreThan64States() throws Exception {
+        Pattern pattern = Pattern.compile("(ab|cd){20,40}(x|y)");
+        PatternMatcher matcher = PatternMatcher.compile(pattern);
+
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 45; i++) {
+            assertEquals(value + "x", pattern.matcher(value + "x").matches(), matcher.matches(value + "x"));
+            value.append((i % 2 == 0) ? "ab" : "cd");
+        }
+    }
+
+    @Test
+    public void matches_shouldAgreeWithPattern() throws Exception {
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            String regex = generatePattern(random, 2);
+            Pattern pattern;
+            try {
+                pattern = Pattern.compile(regex);
+            } catch (PatternSyntaxException e) {
+                continue;
+            }
+            PatternMatcher matcher = PatternMatcher.compile(pattern);
+            for (int j = 0; j < 20; j++) {
+                StringBuilder value = new StringBuilder();
+                for (int length = random.nextInt(6); length > 0; length--) {
+                    value.append(inputs[random.nextInt(inputs.length)]);
+                }
+                boolean expected;
+                try {
+                    expected = pattern.matcher(new LimitedCharSequence(value.toString())).matches();
+                } catch (IllegalStateException e) {
+                    continue;
+                }
+                assertEquals("/" + regex + "/ [" + value + "]", expected, matcher.matches(value.toString()));
+            }
+        }
+    }
+
+    private static String generatePattern(Random random, int depth) {
+        StringBuilder result = new StringBuilder();
+        for (int items = random.nextInt(4); items > 0; items--) {
+            if ((depth > 0) && (random.nextInt(4) == 0)) {
+                result.append(random.nextBoolean() ? "(" : "(?:").append(generatePattern(random, depth - 1));
+                if (random.nextBoolean()) {
+                    result.append('|').append(generatePattern(random, depth - 1));
+                }
+                result.append(')');
+            } else {
+                result.append(atoms[random.nextInt(atoms.length)]);
+            }
+            result.append(quantifiers[random.nextInt(quantifiers.length)]);
+        }
+        return result.toString();
+    }
+
+    /*
+        Stops a backtracking match that is taking too long, since the generated patterns can be pathological
+     */
+    private static class LimitedCharSequence implements CharSequence {
+        private final String value;
+        private int charactersLeft = 100000;
+
+        LimitedCharSequence(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public int length() {
+            return value.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (--charactersLeft < 0) {
+                throw new IllegalStateException();
+            }
+            return value.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return value.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return value;
+        }
+    }
+}
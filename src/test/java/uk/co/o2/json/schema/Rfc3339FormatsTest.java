@@ -0,0 +1,54 @@
+package uk.co.o2.json.schema;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class Rfc3339FormatsTest {
+    @Test
+    public void isDate_shouldAcceptValidDates() throws Exception {
+        for (String date : new String[] {"2011-05-10", "2000-02-29", "2012-02-29", "0000-01-01", "1582-10-10", "9999-12-31"}) {
+            assertTrue(date, Rfc3339Formats.isDate(date));
+        }
+    }
+
+    @Test
+    public void isDate_shouldRejectInvalidDates() throws Exception {
+        for (String date : new String[] {"2011-May-10", "2011-05-44", "1900-02-29", "2011-02-29", "2011-00-10", "2011-13-10", "2011-04-31",
+                "2011-5-10", "20111-05-10", " 2011-05-10", "2011-05-10 ", "2011-05-10T11:47:16Z", "2011/05/10", "2011-05-1\u0663", ""}) {
+            assertFalse(date, Rfc3339Formats.isDate(date));
+        }
+    }
+
+    @Test
+    public void isTime_shouldAcceptValidTimes() throws Exception {
+        for (String time : new String[] {"00:00:00", "11:47:16", "23:59:59", "23:59:60", "12:00:00.5", "12:00:00.123456789"}) {
+            assertTrue(time, Rfc3339Formats.isTime(time));
+        }
+    }
+
+    @Test
+    public void isTime_shouldRejectInvalidTimes() throws Exception {
+        for (String time : new String[] {"24:00:00", "23:60:00", "23:59:61", "12:00", "12:00:00Z", "12 :00:00", "1:00:00", "12:00:00.", " 12:00:00", ""}) {
+            assertFalse(time, Rfc3339Formats.isTime(time));
+        }
+    }
+
+    @Test
+    public void isDateTime_shouldAcceptValidDateTimes() throws Exception {
+        for (String dateTime : new String[] {"2011-05-10T11:11:17Z", "2011-05-10T11:11:17.123+01:00", "2011-05-10t11:11:17z", "2011-05-10T23:59:60-23:59",
+                "2011-05-10T00:00:00+00:00"}) {
+            assertTrue(dateTime, Rfc3339Formats.isDateTime(dateTime));
+        }
+    }
+
+    @Test
+    public void isDateTime_shouldRejectInvalidDateTimes() throws Exception {
+        for (String dateTime : new String[] {"2011-05-44T11:11:17Z", "2011-May-10T165:11:17z", "2011-05-10T11:11Z", "2011-05-10T11:11:17+24:00",
+                "2011-05-10T11:11:17+01:60", "2011-05-10T11:11:17+0100", "2011-05-10T11:11:17.Z", "2011-05-10T11:11:17", "2012-12-31T24:00:00Z",
+                "2011-05-10 11:11:17Z", " 2011-05-10T11:11:17Z", "2011-05-10T11:11:17Z ", "2012-05", "2012", "--12-31", ""}) {
+            assertFalse(dateTime, Rfc3339Formats.isDateTime(dateTime));
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package uk.co.o2.json.schema;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.lang.ref.WeakReference;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SchemaCodeGeneratorTest {
+    private static final String[] names = {"name", "age", "score", "tier", "ids", "tags", "contact", "address", "flag", "nothing", "extra", "qu\"ote"};
+    private static final String[] strings = {"", "x", "AB1", "ab12", "gold", "silver", "2012-01-01", "2012-13-01", "email", "phone", "qu\"ote\\", "\u00e9t\u00e9"};
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final JsonFactory factory = new JsonFactory(mapper);
+    private final List<File> filesToDelete = new ArrayList<>();
+
+    @Test
+    public void generate_shouldReportTheSameErrorsAsTheInterpretedSchema() throws Exception {
+        File address = saveToFile("{\"type\": \"object\", \"additionalProperties\": false, \"properties\": {" +
+                "\"line1\": {\"type\": \"string\", \"required\": true}," +
+                "\"postcode\": {\"type\": \"string\", \"pattern\": \"[A-Z]{2}[0-9]\", \"maxLength\": 3}}}");
+        ExtendedJsonSchema interpreted = compile("{\"type\": \"object\", \"properties\": {" +
+                "\"name\": {\"type\": \"string\", \"required\": true, \"minLength\": 2, \"format\": \"date\"}," +
+                "\"age\": {\"type\": \"integer\", \"minimum\": 18, \"maximum\": 150, \"exclusiveMaximum\": true}," +
+                "\"score\": {\"type\": \"number\", \"minimum\": -0.5, \"exclusiveMinimum\": true, \"maximum\": 99999999999999999999}," +
+                "\"tier\": {\"type\": \"string\", \"enumeration\": [\"gold\", \"silver\"]}," +
+                "\"ids\": {\"type\": \"array\", \"minItems\": 1, \"maxItems\": 3, \"items\": {\"type\": \"number\"}}," +
+                "\"tags\": {\"type\": \"array\", \"items\": {\"type\": \"any\"}}," +
+                "\"contact\": {\"type\": [\"null\", \"string\", {\"type\": \"object\", \"properties\": {\"kind\": {\"type\": \"string\", \"enumeration\": [\"email\"]}}}]}," +
+                "\"address\": {\"$ref\": \"" + address.getName() + "\"}," +
+                "\"flag\": {\"type\": \"boolean\", \"required\": true}," +
+                "\"nothing\": {\"type\": \"null\"}," +
+                "\"qu\\\"ote\": {\"type\": \"any\", \"required\": true}}," +
+                "\"additionalProperties\": {\"type\": \"object\", \"additionalProperties\": {\"type\": \"integer\", \"enumeration\": [1, 2]}}}");
+        ExtendedJsonSchema generated = (ExtendedJsonSchema) SchemaCodeGenerator.generate(interpreted);
+        assertTrue(generated instanceof GeneratedSchema);
+
+        Random random = new Random(42);
+        int invalidDocuments = 0;
+        for (int i = 0; i < 5000; i++) {
+            JsonNode document = randomObject(random, 0);
+            List<ErrorMessage> expectedErrors = interpreted.validate(document);
+            assertEquals(document.toString(), describe(expectedErrors), describe(generated.validate(document)));
+            assertEquals(document.toString(), interpreted.isValid(document), generated.isValid(document));
+            invalidDocuments += expectedErrors.isEmpty() ? 0 : 1;
+        }
+        assertTrue(invalidDocuments > 0);
+        assertTrue(invalidDocuments < 5000);
+    }
+
+    @Test
+    public void generate_shouldEscapeNamesAndMessagesThatAreNotPlainJava() throws Exception {
+        ExtendedJsonSchema interpreted = compile("{\"type\": \"object\", \"additionalProperties\": false, \"properties\": {" +
+                "\"a\\\"b\\\\c\\nd\\u00e9\\\\u000a\": {\"type\": \"string\", \"required\": true, \"pattern\": \"\\\\u000a|\\\"\"}}}");
+        ExtendedJsonSchema generated = (ExtendedJsonSchema) SchemaCodeGenerator.generate(interpreted);
+
+        for (String document : new String[] {"{}", "{\"a\\\"b\\\\c\\nd\\u00e9\\\\u000a\": \"x\"}", "{\"a\\\"b\\\\c\\nd\\u00e9\\\\u000a\": \"\\\"\", \"\\\\u000a\": 1}"}) {
+            JsonNode node = mapper.readTree(document);
+            assertEquals(document, describe(interpreted.validate(node)), describe(generated.validate(node)));
+        }
+    }
+
+    @Test
+    public void generate_shouldLeaveLimitedSinksAndStreamingToTheInterpretedSchema() throws Exception {
+        ExtendedJsonSchema interpreted = compile("{\"type\": \"object\", \"properties\": {" +
+                "\"a\": {\"type\": \"integer\"}, \"b\": {\"type\": \"integer\"}, \"c\": {\"type\": \"integer\"}}}");
+        ExtendedJsonSchema generated = (ExtendedJsonSchema) SchemaCodeGenerator.generate(interpreted);
+        String document = "{\"c\": \"x\", \"b\": \"x\", \"a\": \"x\"}";
+
+        ErrorCollector expectedErrors = new ErrorCollector(1);
+        interpreted.validate(mapper.readTree(document), expectedErrors);
+        ErrorCollector errors = new ErrorCollector(1);
+        generated.validate(mapper.readTree(document), errors);
+        JsonParser parser = factory.createJsonParser(document);
+
+        assertEquals(describe(expectedErrors.getErrors()), describe(errors.getErrors()));
+        assertTrue(errors.isTruncated());
+        assertEquals(describe(interpreted.validate(mapper.readTree(document))), describe(generated.validate(parser)));
+        assertSame(interpreted, ((GeneratedSchema) generated).getInterpretedSchema());
+    }
+
+    @Test
+    public void preload_shouldGenerateTheClassAndKeepTheInterpretedSchemaRegistered_whenCodeGenerationIsOn() throws Exception {
+        URL location = saveToFile("{\"type\": \"object\", \"properties\": {\"a\": {\"type\": \"integer\"}}}").toURI().toURL();
+        SchemaPassThroughCache cache = new SchemaPassThroughCache(factory);
+        cache.setCodeGeneration(true);
+
+        cache.preload(Arrays.asList(location));
+        ExtendedJsonSchema schema = (ExtendedJsonSchema) cache.getSchema(location);
+
+        assertTrue(schema instanceof GeneratedSchema);
+        assertSame(schema, cache.getSchema(location));
+        assertTrue(cache.peekSchema(location) instanceof ObjectSchema);
+        assertFalse(schema.isValid(mapper.readTree("{\"a\": 1.5}")));
+    }
+
+    @Test(timeout = 60000)
+    public void getSchema_shouldReturnTheInterpretedSchemaUntilTheClassHasBeenGeneratedInTheBackground() throws Exception {
+        URL location = saveToFile("{\"type\": \"object\", \"properties\": {\"a\": {\"type\": \"integer\"}}}").toURI().toURL();
+        SchemaPassThroughCache cache = new SchemaPassThroughCache(factory);
+        cache.setCodeGeneration(true);
+
+        JsonSchema schema = cache.getSchema(location);
+
+        assertTrue(schema instanceof ObjectSchema);
+        while (!(schema instanceof GeneratedSchema)) {
+            Thread.sleep(10);
+            schema = cache.getSchema(location);
+        }
+        assertSame(cache.peekSchema(location), ((GeneratedSchema) schema).getInterpretedSchema());
+    }
+
+    @Test(timeout = 60000)
+    public void reload_shouldLetTheClassGeneratedForTheOldSchemaBeUnloaded() throws Exception {
+        File file = saveToFile("{\"type\": \"object\", \"properties\": {\"a\": {\"type\": \"integer\"}}}");
+        URL location = file.toURI().toURL();
+        SchemaPassThroughCache cache = new SchemaPassThroughCache(factory);
+        cache.setCodeGeneration(true);
+        cache.preload(Arrays.asList(location));
+        WeakReference<ClassLoader> classLoader = new WeakReference<>(cache.getSchema(location).getClass().getClassLoader());
+
+        write(file, "{\"type\": \"object\", \"properties\": {\"a\": {\"type\": \"string\"}}}");
+        cache.reload(Arrays.asList(location));
+        cache.preload(Arrays.asList(location));
+
+        assertTrue(cache.getSchema(location).validate(mapper.readTree("{\"a\": \"x\"}")).isEmpty());
+        while (classLoader.get() != null) {
+            System.gc();
+            Thread.sleep(10);
+        }
+    }
+
+    private JsonNode randomObject(Random random, int depth) {
+        ObjectNode result = JsonNodeFactory.instance.objectNode();
+        for (int properties = random.nextInt(6); properties > 0; properties--) {
+            result.put(names[random.nextInt(names.length)], randomValue(random, depth + 1));
+        }
+        if (random.nextInt(3) > 0) {
+            result.put("name", strings[random.nextInt(strings.length)]);
+            result.put("flag", random.nextBoolean());
+            result.put("qu\"ote", randomValue(random, depth + 1));
+        }
+        return result;
+    }
+
+    private JsonNode randomValue(Random random, int depth) {
+        JsonNodeFactory nodes = JsonNodeFactory.instance;
+        switch (random.nextInt((depth > 3) ? 8 : 10)) {
+            case 0:
+                return nodes.textNode(strings[random.nextInt(strings.length)]);
+            case 1:
+                return nodes.numberNode(random.nextInt(300) - 50);
+            case 2:
+                return nodes.numberNode((random.nextInt(400) - 200) / 4.0);
+            case 3:
+                return nodes.numberNode(new BigInteger("99999999999999999999").add(BigInteger.valueOf(random.nextInt(3) - 1)));
+            case 4:
+                return nodes.numberNode(new BigDecimal("-0.5").add(BigDecimal.valueOf(random.nextInt(3) - 1, 1)));
+            case 5:
+                return nodes.booleanNode(random.nextBoolean());
+            case 6:
+                return nodes.nullNode();
+            case 7:
+                return nodes.numberNode((long) random.nextInt(3) + Integer.MAX_VALUE);
+            case 8:
+                ArrayNode array = nodes.arrayNode();
+                for (int items = random.nextInt(5); items > 0; items--) {
+                    array.add(randomValue(random, depth + 1));
+                }
+                return array;
+            default:
+                return randomObject(random, depth);
+        }
+    }
+
+    private static String describe(List<ErrorMessage> errors) {
+        StringBuilder result = new StringBuilder();
+        for (ErrorMessage error : errors) {
+            result.append(error.getLocation()).append(": ").append(error.getMessage()).append('\n');
+        }
+        return result.toString();
+    }
+
+    private ExtendedJsonSchema compile(String schema) throws Exception {
+        return (ExtendedJsonSchema) new SchemaPassThroughCache(factory).getSchema(saveToFile(schema).toURI().toURL());
+    }
+
+    private File saveToFile(String content) throws Exception {
+        File file = File.createTempFile("schema", ".json");
+        file.deleteOnExit();
+        filesToDelete.add(file);
+        write(file, content);
+        return file;
+    }
+
+    private void write(File file, String content) throws Exception {
+        try (OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(file, false), "UTF-8")) {
+            writer.write(content);
+        }
+    }
+
+    @SuppressWarnings({"ResultOfMethodCallIgnored"})
+    @After
+    public void tearDown() {
+        for (File f : filesToDelete) {
+            f.delete();
+        }
+    }
+}
@@ -15,6 +15,9 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.Assert.*;
 
@@ -532,6 +535,155 @@ public class SchemaCompilerTest {
         }
     }
 
+    @Test
+    public void parse_shouldReturnAUnionSchema_givenAnArrayOfTypes() throws Exception {
+        URL rawSchema = saveSchemaToURL("{ \"type\": [\"integer\", {\"type\": \"string\", \"pattern\": \"a+\"}] }");
+
+        UnionSchema compiledSchema = (UnionSchema) schemaFactory.parse(rawSchema);
+
+        assertEquals(2, compiledSchema.getNestedSchemas().size());
+        assertEquals(SimpleType.INTEGER, ((SimpleTypeSchema) compiledSchema.getNestedSchemas().get(0)).getType());
+        assertEquals("a+", ((SimpleTypeSchema) compiledSchema.getNestedSchemas().get(1)).getPattern().pattern());
+        assertNull(compiledSchema.getDiscriminator());
+    }
+
+    @Test
+    public void parse_shouldSetTheDiscriminator_givenAUnionWithADiscriminator() throws Exception {
+        URL rawSchema = saveSchemaToURL("{ \"type\": [\"object\", \"null\"], \"discriminator\": \"kind\" }");
+
+        UnionSchema compiledSchema = (UnionSchema) schemaFactory.parse(rawSchema);
+
+        assertEquals("kind", compiledSchema.getDiscriminator());
+    }
+
+    @Test
+    public void parse_shouldDispatchOnTheDiscriminator_givenAUnionOfReferencedObjectSchemas() throws Exception {
+        URL circle = saveSchemaToURL("{\"type\": \"object\", \"properties\": {" +
+            "\"kind\": {\"type\": \"string\", \"required\": true, \"enumeration\": [\"circle\"]}," +
+            "\"radius\": {\"type\": \"number\", \"required\": true}}}");
+        URL rectangle = saveSchemaToURL("{\"type\": \"object\", \"properties\": {" +
+            "\"kind\": {\"type\": \"string\", \"required\": true, \"enumeration\": [\"rectangle\"]}," +
+            "\"width\": {\"type\": \"number\", \"required\": true}," +
+            "\"height\": {\"type\": \"number\", \"required\": true}}}");
+        URL rawSchema = saveSchemaToURL("{ \"type\": [{\"$ref\": \"" + circle + "\"}, {\"$ref\": \"" + rectangle + "\"}] }");
+
+        JsonSchema compiledSchema = schemaFactory.parse(rawSchema);
+        List<ErrorMessage> errors = compiledSchema.validate(new ObjectMapper().readTree("{\"kind\": \"rectangle\", \"radius\": 2}"));
+
+        assertEquals(2, errors.size());
+        assertEquals("Missing required property width", errors.get(0).getMessage());
+        assertEquals("Missing required property height", errors.get(1).getMessage());
+    }
+
+    @Test
+    public void parse_shouldBindReferencesToTheRegisteredSchemas() throws Exception {
+        URL leafSchema = saveSchemaToURL("{ \"type\": \"string\" }");
+        URL rootSchema = saveSchemaToURL("{ \"type\": \"array\", \"items\": {\"$ref\": \"" + leafSchema + "\"} }");
+
+        ArraySchema compiledRootSchema = (ArraySchema) schemaFactory.parse(rootSchema);
+        JsonSchema compiledLeafSchema = registry.getSchema(leafSchema);
+        registry.registeredSchemas.clear();
+
+        assertSame(compiledLeafSchema, ((SchemaReference) compiledRootSchema.getItems()).getReferencedSchema());
+    }
+
+    @Test
+    public void parse_shouldCompileAGraphLargerThanABoundedCache() throws Exception {
+        registry.setMaximumSize(1);
+        URL leafSchema = saveSchemaToURL("{ \"type\": \"string\" }");
+        URL rootSchema = saveSchemaToURL("{ \"type\": \"array\", \"items\": {\"$ref\": \"" + leafSchema + "\"} }");
+
+        ExtendedJsonSchema compiledRootSchema = (ExtendedJsonSchema) schemaFactory.parse(rootSchema);
+
+        assertEquals(1, registry.getStatistics().getSize());
+        assertTrue(compiledRootSchema.isValid(new ObjectMapper().readTree("[\"a\", \"b\"]")));
+        assertFalse(compiledRootSchema.isValid(new ObjectMapper().readTree("[\"a\", 2]")));
+    }
+
+    @Test(timeout = 5000)
+    public void parse_shouldMatchPatternsInLinearTime_givenAPatternThatBacktracksBadly() throws Exception {
+        URL rawSchema = saveSchemaToURL("{ \"type\": \"string\", \"pattern\": \"(a+)+b\" }");
+        SimpleTypeSchema compiledSchema = (SimpleTypeSchema) schemaFactory.parse(rawSchema);
+
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            value.append('a');
+        }
+
+        assertFalse(compiledSchema.isValid(new ObjectMapper().getNodeFactory().textNode(value.toString())));
+        assertEquals("(a+)+b", compiledSchema.getPattern().pattern());
+    }
+
+    @Test
+    public void parse_shouldUseTheBacktrackingMatcher_givenLinearTimePatternsAreDisabled() throws Exception {
+        registry.setLinearTimePatterns(false);
+        URL rawSchema = saveSchemaToURL("{ \"type\": \"string\", \"pattern\": \"(a|b)\\\\1\" }");
+        SimpleTypeSchema compiledSchema = (SimpleTypeSchema) schemaFactory.parse(rawSchema);
+
+        assertTrue(compiledSchema.isValid(new ObjectMapper().getNodeFactory().textNode("aa")));
+        assertFalse(compiledSchema.isValid(new ObjectMapper().getNodeFactory().textNode("ab")));
+    }
+
+    @Test
+    public void parse_shouldCompileReferencedSchemasConcurrently_givenACompilationExecutor() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            registry.setCompilationExecutor(executor);
+            StringBuilder rootDefinition = new StringBuilder("{ \"type\": \"object\", \"properties\": {");
+            List<URL> leafSchemas = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                URL leafSchema = saveSchemaToURL("{ \"type\": \"integer\", \"maximum\": " + i + " }");
+                leafSchemas.add(leafSchema);
+                rootDefinition.append((i == 0) ? "" : ",").append("\"p").append(i).append("\": {\"$ref\": \"").append(leafSchema).append("\"}");
+            }
+            URL rootSchema = saveSchemaToURL(rootDefinition.append("}}").toString());
+
+            ExtendedJsonSchema compiledRootSchema = (ExtendedJsonSchema) schemaFactory.parse(rootSchema);
+
+            assertEquals(21, registry.getStatistics().getSize());
+            assertTrue(compiledRootSchema.isValid(new ObjectMapper().readTree("{\"p3\": 3, \"p19\": 19}")));
+            assertFalse(compiledRootSchema.isValid(new ObjectMapper().readTree("{\"p3\": 4}")));
+            assertTrue(registry.getDocumentCompileTimes().containsKey(SchemaPassThroughCache.keyOf(leafSchemas.get(7))));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void parse_shouldCompileOnTheCallingThread_givenAnExecutorThatNeverRunsTheTasks() throws Exception {
+        registry.setCompilationExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+            }
+        });
+        URL leafSchema = saveSchemaToURL("{ \"type\": \"string\" }");
+        URL rootSchema = saveSchemaToURL("{ \"type\": \"array\", \"items\": {\"$ref\": \"" + leafSchema + "\"} }");
+
+        ExtendedJsonSchema compiledRootSchema = (ExtendedJsonSchema) schemaFactory.parse(rootSchema);
+
+        assertTrue(compiledRootSchema.isValid(new ObjectMapper().readTree("[\"a\"]")));
+    }
+
+    @Test
+    public void parse_shouldThrowAnException_givenAReferencedSchemaThatFailsToCompileConcurrently() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            registry.setCompilationExecutor(executor);
+            URL brokenSchema = saveSchemaToURL("not valid json");
+            URL rootSchema = saveSchemaToURL("{ \"type\": \"array\", \"items\": {\"$ref\": \"" + brokenSchema + "\"} }");
+
+            try {
+                schemaFactory.parse(rootSchema);
+                fail("expected an exception");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().contains("contains invalid JSON"));
+            }
+            assertFalse(registry.hasSchema(rootSchema));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     private <T extends JsonSchema> T findNestedSchemaForProperty(Class<T> schemaReferenceClass, ObjectSchema objectSchema, String propertyName) {
         for(ObjectSchema.Property property : objectSchema.getProperties()) {
             if (property.getName().equals(propertyName)) {
@@ -568,4 +720,4 @@ public class SchemaCompilerTest {
             f.delete();
         }
     }
-}
\ No newline at end of file
+}
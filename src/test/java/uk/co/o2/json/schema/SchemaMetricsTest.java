@@ -0,0 +1,128 @@
+package uk.co.o2.json.schema;
+
+import org.junit.Test;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class SchemaMetricsTest {
+    private final SchemaMetrics metrics = new SchemaMetrics();
+
+    @Test
+    public void getSnapshot_shouldAddUpTheEventsForEachSchema() throws Exception {
+        URL customer = new URL("http://example.com/customer.json");
+        URL order = new URL("http://example.com/order.json");
+        metrics.schemaLookedUp(customer, false);
+        metrics.schemaCompiled(customer, 500L);
+        metrics.schemaLookedUp(customer, true);
+        metrics.documentValidated(customer, 1000L, 120L, 0);
+        metrics.documentValidated(customer, 3000L, -1L, 2);
+        metrics.documentValidated(order, 10L, 5L, 1);
+
+        SchemaMetrics.Snapshot snapshot = metrics.getSnapshot(customer);
+
+        assertEquals(1L, snapshot.getHitCount());
+        assertEquals(1L, snapshot.getMissCount());
+        assertEquals(1L, snapshot.getCompileCount());
+        assertEquals(500L, snapshot.getCompileTimeNanos());
+        assertEquals(2L, snapshot.getValidationCount());
+        assertEquals(4000L, snapshot.getValidationTimeNanos());
+        assertEquals(1L, snapshot.getInvalidDocumentCount());
+        assertEquals(2L, snapshot.getErrorCount());
+        assertEquals(120L, snapshot.getDocumentBytes());
+        assertEquals(2, metrics.getSnapshots().size());
+        assertEquals(1L, metrics.getSnapshots().get(order.toString()).getValidationCount());
+        assertNull(metrics.getSnapshot(new URL("http://example.com/other.json")));
+    }
+
+    @Test
+    public void getSnapshot_shouldAddUpTheEventsForLocationsTheCacheNormalizesToTheSameKey() throws Exception {
+        metrics.schemaLookedUp(new URL("http://EXAMPLE.com:80/schemas/../customer.json"), false);
+        metrics.documentValidated(new URL("http://example.com/customer.json"), 1000L, -1L, 0);
+
+        SchemaMetrics.Snapshot snapshot = metrics.getSnapshot(new URL("http://example.com/./customer.json"));
+
+        assertEquals(1L, snapshot.getMissCount());
+        assertEquals(1L, snapshot.getValidationCount());
+        assertEquals(1, metrics.getSnapshots().size());
+        assertNotNull(metrics.getSnapshots().get("http://example.com/customer.json"));
+    }
+
+    @Test
+    public void getValidationTimePercentileNanos_shouldReturnTheUpperBoundOfTheBucketHoldingThePercentile() throws Exception {
+        URL location = new URL("http://example.com/customer.json");
+        for (int i = 0; i < 99; i++) {
+            metrics.documentValidated(location, 1000L, -1L, 0);
+        }
+        metrics.documentValidated(location, 1000000L, -1L, 0);
+
+        SchemaMetrics.Snapshot snapshot = metrics.getSnapshot(location);
+
+        assertEquals(1023L, snapshot.getValidationTimePercentileNanos(0.5));
+        assertEquals(1023L, snapshot.getValidationTimePercentileNanos(0.99));
+        assertEquals(1048575L, snapshot.getValidationTimePercentileNanos(1.0));
+        assertEquals(99L, snapshot.getValidationTimeHistogram()[10]);
+        assertEquals(1L, snapshot.getValidationTimeHistogram()[20]);
+    }
+
+    @Test
+    public void bucketOf_shouldPutEachDurationInThePowerOfTwoBucketAboveIt() throws Exception {
+        assertEquals(0, LatencyHistogram.bucketOf(0L));
+        assertEquals(0, LatencyHistogram.bucketOf(-5L));
+        assertEquals(1, LatencyHistogram.bucketOf(1L));
+        assertEquals(2, LatencyHistogram.bucketOf(2L));
+        assertEquals(2, LatencyHistogram.bucketOf(3L));
+        assertEquals(3, LatencyHistogram.bucketOf(4L));
+        assertEquals(63, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+        assertEquals(0L, LatencyHistogram.percentile(new long[LatencyHistogram.BUCKETS], 0.5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void percentile_shouldThrowAnIllegalArgumentException_givenAFractionAboveOne() throws Exception {
+        LatencyHistogram.percentile(new long[LatencyHistogram.BUCKETS], 1.5);
+    }
+
+    @Test
+    public void documentValidated_shouldNotLoseEvents_whenManyThreadsRecordAtOnce() throws Exception {
+        final URL location = new URL("http://example.com/customer.json");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                results.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        for (int i = 0; i < 10000; i++) {
+                            metrics.documentValidated(location, i, 10L, i % 2);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        SchemaMetrics.Snapshot snapshot = metrics.getSnapshot(location);
+        assertEquals(80000L, snapshot.getValidationCount());
+        assertEquals(40000L, snapshot.getInvalidDocumentCount());
+        assertEquals(800000L, snapshot.getDocumentBytes());
+        long histogramTotal = 0L;
+        for (long count : snapshot.getValidationTimeHistogram()) {
+            histogramTotal += count;
+        }
+        assertEquals(80000L, histogramTotal);
+    }
+}
@@ -1,19 +1,41 @@
 package uk.co.o2.json.schema;
 
 import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Test;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import uk.co.o2.json.schema.SchemaPassThroughCache.SchemaCompilerFactory;
 
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashSet;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 
 public class SchemaPassThroughCacheTest {
     private JsonFactory factory = new JsonFactory();
@@ -56,4 +78,411 @@ public class SchemaPassThroughCacheTest {
 
         assertSame(expectedSchema, result);
     }
-}
\ No newline at end of file
+
+
+    @Test
+    public void getSchema_shouldFindASchemaRegisteredUnderAnEquivalentLocation() throws Exception {
+        ArraySchema expectedSchema = new ArraySchema();
+        cache.registerSchema(new URL("HTTP://Example.COM:80/schemas/../mySchema"), expectedSchema);
+
+        assertSame(expectedSchema, cache.getSchema(new URL("http://example.com/mySchema")));
+        assertEquals(1, cache.getStatistics().getSize());
+    }
+
+    @Test
+    public void keyOf_shouldNormalizeTheLocation() throws Exception {
+        assertEquals("http://example.com/a/c.json", SchemaPassThroughCache.keyOf(new URL("http://EXAMPLE.com:80/a/b/../c.json")));
+        assertEquals("http://example.com:8080/c.json?x=1#y", SchemaPassThroughCache.keyOf(new URL("http://example.com:8080/./c.json?x=1#y")));
+        assertEquals(SchemaPassThroughCache.keyOf(new URL("file:/tmp/c.json")), SchemaPassThroughCache.keyOf(new URL("file:///tmp/c.json")));
+    }
+
+    @Test
+    public void keyOf_shouldReturnTheLocationAsItIs_givenItIsAlreadyNormalized() throws Exception {
+        for (String location : new String[] {"http://example.com/a/c.json", "http://example.com:8080/c.json?x=1#y", "file:/tmp/c.json",
+                "jar:file:/tmp/schemas.jar!/c.json", "http://example.com/a.b/..c.json"}) {
+            assertEquals(location, SchemaPassThroughCache.keyOf(new URL(location)));
+        }
+    }
+
+    @Test
+    public void registerSchema_shouldReturnTheSchemaAlreadyRegistered_givenTheLocationIsTaken() throws Exception {
+        ArraySchema firstSchema = new ArraySchema();
+        URL location = new URL("http://example.com/mySchema");
+        cache.registerSchema(location, firstSchema);
+
+        assertSame(firstSchema, cache.registerSchema(location, new ArraySchema()));
+        assertSame(firstSchema, cache.getSchema(location));
+    }
+
+    @Test
+    public void registerSchema_shouldEvictTheLeastRecentlyUsedSchema_givenAMaximumSize() throws Exception {
+        cache.setMaximumSize(2);
+        URL first = new URL("http://example.com/first");
+        URL second = new URL("http://example.com/second");
+        URL third = new URL("http://example.com/third");
+        cache.registerSchema(first, new ArraySchema());
+        cache.registerSchema(second, new ArraySchema());
+        cache.getSchema(first);
+
+        cache.registerSchema(third, new ArraySchema());
+
+        assertTrue(cache.hasSchema(first));
+        assertFalse(cache.hasSchema(second));
+        assertTrue(cache.hasSchema(third));
+        assertEquals(1, cache.getStatistics().getEvictionCount());
+    }
+
+    @Test
+    public void registerSchema_shouldEvictTheLeastRecentlyUsedSchema_givenMoreHitsThanAreBufferedBeforeBeingApplied() throws Exception {
+        cache.setMaximumSize(3);
+        URL[] locations = new URL[4];
+        for (int i = 0; i < locations.length; i++) {
+            locations[i] = new URL("http://example.com/schema" + i);
+        }
+        for (int i = 0; i < 3; i++) {
+            cache.registerSchema(locations[i], new ArraySchema());
+        }
+        for (int i = 0; i < 100; i++) {
+            cache.getSchema(locations[i % 2]);
+        }
+        cache.getSchema(locations[2]);
+        cache.getSchema(locations[0]);
+
+        cache.registerSchema(locations[3], new ArraySchema());
+
+        assertTrue(cache.hasSchema(locations[0]));
+        assertFalse(cache.hasSchema(locations[1]));
+        assertTrue(cache.hasSchema(locations[2]));
+        assertTrue(cache.hasSchema(locations[3]));
+    }
+
+    @Test
+    public void setMaximumSize_shouldEvictStraightAway_givenTheCacheIsAlreadyLarger() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            cache.registerSchema(new URL("http://example.com/schema" + i), new ArraySchema());
+        }
+
+        cache.setMaximumSize(3);
+
+        assertEquals(3, cache.getStatistics().getSize());
+        assertTrue(cache.hasSchema(new URL("http://example.com/schema4")));
+        assertFalse(cache.hasSchema(new URL("http://example.com/schema0")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setMaximumSize_shouldThrowAnException_givenANegativeSize() throws Exception {
+        cache.setMaximumSize(-1);
+    }
+
+    @Test
+    public void getSchema_shouldKeepSoftlyReferencedSchemas_whileTheyAreReachable() throws Exception {
+        cache.setSoftValues(true);
+        ArraySchema expectedSchema = new ArraySchema();
+        URL location = new URL("http://example.com/mySchema");
+        cache.registerSchema(location, expectedSchema);
+
+        assertSame(expectedSchema, cache.getSchema(location));
+    }
+
+    @Test
+    public void getStatistics_shouldCountHitsMissesAndCompileTime() throws Exception {
+        final URL location = new URL("http://example.com/mySchema");
+        SchemaCompiler schemaCompilerMock = mock(SchemaCompiler.class);
+        when(schemaCompilerMock.parse(same(location))).thenAnswer(new Answer<JsonSchema>() {
+            @Override
+            public JsonSchema answer(InvocationOnMock invocation) throws Throwable {
+                Thread.sleep(5);
+                return cache.registerSchema(location, new ArraySchema());
+            }
+        });
+        SchemaCompilerFactory schemaCompilerFactoryMock = mock(SchemaCompilerFactory.class);
+        when(schemaCompilerFactoryMock.create()).thenReturn(schemaCompilerMock);
+        cache.setSchemaCompilerFactory(schemaCompilerFactoryMock);
+
+        cache.getSchema(location);
+        cache.getSchema(location);
+        cache.getSchema(location);
+
+        SchemaCacheStatistics statistics = cache.getStatistics();
+        assertEquals(2, statistics.getHitCount());
+        assertEquals(1, statistics.getMissCount());
+        assertEquals(0, statistics.getEvictionCount());
+        assertTrue(statistics.getCompileTimeNanos() >= 5000000L);
+    }
+
+
+    @Test(timeout = 10000)
+    public void getSchema_shouldCompileASchemaOnlyOnce_givenManyThreadsAskForItAtOnce() throws Exception {
+        final URL location = new URL("http://example.com/mySchema");
+        final CountDownLatch compilationStarted = new CountDownLatch(1);
+        final CountDownLatch releaseCompilation = new CountDownLatch(1);
+        final AtomicInteger compilations = new AtomicInteger();
+
+        SchemaCompiler schemaCompilerMock = mock(SchemaCompiler.class);
+        when(schemaCompilerMock.parse(same(location))).thenAnswer(new Answer<JsonSchema>() {
+            @Override
+            public JsonSchema answer(InvocationOnMock invocation) throws Throwable {
+                compilations.incrementAndGet();
+                compilationStarted.countDown();
+                releaseCompilation.await();
+                return cache.registerSchema(location, new ArraySchema());
+            }
+        });
+        SchemaCompilerFactory schemaCompilerFactoryMock = mock(SchemaCompilerFactory.class);
+        when(schemaCompilerFactoryMock.create()).thenReturn(schemaCompilerMock);
+        cache.setSchemaCompilerFactory(schemaCompilerFactoryMock);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<JsonSchema>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(new Callable<JsonSchema>() {
+                    @Override
+                    public JsonSchema call() throws Exception {
+                        return cache.getSchema(location);
+                    }
+                }));
+            }
+            compilationStarted.await();
+            Thread.sleep(50);
+            releaseCompilation.countDown();
+
+            for (Future<JsonSchema> result : results) {
+                assertSame(results.get(0).get(), result.get());
+            }
+            assertEquals(1, compilations.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void getSchema_shouldRethrowTheCompilationFailure() throws Exception {
+        URL location = new URL("http://example.com/mySchema");
+        SchemaCompiler schemaCompilerMock = mock(SchemaCompiler.class);
+        when(schemaCompilerMock.parse(same(location))).thenThrow(new IllegalArgumentException("A valid json schema must be an object"));
+        SchemaCompilerFactory schemaCompilerFactoryMock = mock(SchemaCompilerFactory.class);
+        when(schemaCompilerFactoryMock.create()).thenReturn(schemaCompilerMock);
+        cache.setSchemaCompilerFactory(schemaCompilerFactoryMock);
+
+        try {
+            cache.getSchema(location);
+            fail("expected an exception");
+        } catch (IllegalArgumentException e) {
+            assertEquals("A valid json schema must be an object", e.getMessage());
+        }
+    }
+
+
+    @Test
+    public void preloadDirectory_shouldCompileEveryJsonFileAndReportTheFailures() throws Exception {
+        File directory = File.createTempFile("schemas", "");
+        assertTrue(directory.delete() && directory.mkdir());
+        File nested = new File(directory, "nested");
+        assertTrue(nested.mkdir());
+        File valid = writeFile(new File(directory, "valid.json"), "{\"type\": \"string\"}");
+        File nestedValid = writeFile(new File(nested, "other.json"), "{\"type\": \"object\", \"properties\": {\"a\": {\"$ref\": \"../valid.json\"}}}");
+        File invalid = writeFile(new File(directory, "invalid.json"), "[]");
+        File ignored = writeFile(new File(directory, "notes.txt"), "not a schema");
+        SchemaPassThroughCache cache = new SchemaPassThroughCache(new JsonFactory(new ObjectMapper()));
+        cache.setCompilationExecutor(Executors.newFixedThreadPool(2));
+
+        try {
+            SchemaPreloadReport report = cache.preloadDirectory(directory);
+
+            assertEquals(2, report.getCompiledLocations().size());
+            assertTrue(report.getCompiledLocations().contains(valid.toURI().toURL().toString()));
+            assertTrue(report.getCompiledLocations().contains(nestedValid.toURI().toURL().toString()));
+            assertFalse(report.isSuccessful());
+            assertEquals(1, report.getFailures().size());
+            assertTrue(report.getFailures().get(invalid.toURI().toURL().toString()) instanceof IllegalArgumentException);
+            assertTrue(cache.hasSchema(valid.toURI().toURL()));
+            assertTrue(cache.hasSchema(nestedValid.toURI().toURL()));
+        } finally {
+            ((ExecutorService) cache.getCompilationExecutor()).shutdownNow();
+            for (File file : new File[] {valid, nestedValid, invalid, ignored, nested, directory}) {
+                file.delete();
+            }
+        }
+    }
+
+    @Test
+    public void preload_shouldCompileOnATemporaryPool_givenNoCompilationExecutor() throws Exception {
+        URL location = getClass().getResource("/preload/customer.json");
+        SchemaPassThroughCache cache = new SchemaPassThroughCache(new JsonFactory(new ObjectMapper()));
+
+        SchemaPreloadReport report = cache.preload(Arrays.asList(location));
+
+        assertTrue(report.isSuccessful());
+        assertEquals(Arrays.asList(location.toString()), report.getCompiledLocations());
+        assertTrue(cache.hasSchema(location));
+        assertTrue(cache.hasSchema(getClass().getResource("/preload/nested/address.json")));
+    }
+
+    @Test
+    public void preloadDirectory_shouldThrowAnIllegalArgumentException_givenAFile() throws Exception {
+        File file = File.createTempFile("schema", ".json");
+        try {
+            cache.preloadDirectory(file);
+            fail("expected an exception");
+        } catch (IllegalArgumentException e) {
+            assertEquals(file + " is not a directory", e.getMessage());
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static File writeFile(File file, String content) throws Exception {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8")) {
+            writer.write(content);
+        }
+        return file;
+    }
+
+    @Test
+    public void reload_shouldSwapInTheChangedSchemaTogetherWithTheSchemasThatReferenceIt() throws Exception {
+        File directory = File.createTempFile("schemas", "");
+        assertTrue(directory.delete() && directory.mkdir());
+        File customer = writeFile(new File(directory, "customer.json"), "{\"type\": \"object\", \"properties\": {\"id\": {\"type\": \"string\"}}}");
+        File order = writeFile(new File(directory, "order.json"), "{\"type\": \"object\", \"properties\": {\"customer\": {\"$ref\": \"customer.json\"}}}");
+        File product = writeFile(new File(directory, "product.json"), "{\"type\": \"object\", \"properties\": {\"id\": {\"type\": \"string\"}}}");
+        SchemaPassThroughCache cache = new SchemaPassThroughCache(new JsonFactory(new ObjectMapper()));
+        cache.setInstructionInterpreter(true);
+        ObjectMapper mapper = new ObjectMapper();
+
+        try {
+            ExtendedJsonSchema oldOrder = (ExtendedJsonSchema) cache.getSchema(order.toURI().toURL());
+            JsonSchema oldProduct = cache.getSchema(product.toURI().toURL());
+            writeFile(customer, "{\"type\": \"object\", \"properties\": {\"id\": {\"type\": \"integer\"}}}");
+
+            SchemaPreloadReport report = cache.reload(Arrays.asList(customer.toURI().toURL()));
+
+            assertTrue(report.isSuccessful());
+            assertEquals(Arrays.asList(customer.toURI().toURL().toString(), order.toURI().toURL().toString()), report.getCompiledLocations());
+            assertSame(report, cache.getLastReloadReport());
+            ExtendedJsonSchema newOrder = (ExtendedJsonSchema) cache.getSchema(order.toURI().toURL());
+            assertTrue(newOrder instanceof InstructionSchema);
+            assertFalse(newOrder == oldOrder);
+            assertFalse(newOrder.isValid(mapper.readTree("{\"customer\": {\"id\": \"a\"}}")));
+            assertTrue(newOrder.isValid(mapper.readTree("{\"customer\": {\"id\": 1}}")));
+            //a validation still holding the old schema carries on with the old graph
+            assertTrue(oldOrder.isValid(mapper.readTree("{\"customer\": {\"id\": \"a\"}}")));
+            assertSame(oldProduct, cache.getSchema(product.toURI().toURL()));
+        } finally {
+            for (File file : new File[] {customer, order, product, directory}) {
+                file.delete();
+            }
+        }
+    }
+
+    @Test
+    public void reload_shouldKeepTheSchemasInUse_whenAChangedDocumentDoesNotCompile() throws Exception {
+        File file = writeFile(File.createTempFile("schema", ".json"), "{\"type\": \"string\"}");
+        SchemaPassThroughCache cache = new SchemaPassThroughCache(new JsonFactory(new ObjectMapper()));
+
+        try {
+            ExtendedJsonSchema schema = (ExtendedJsonSchema) cache.getSchema(file.toURI().toURL());
+            writeFile(file, "{\"type\": ");
+
+            SchemaPreloadReport report = cache.reload(Arrays.asList(file.toURI().toURL()));
+
+            assertFalse(report.isSuccessful());
+            assertTrue(report.getFailures().get(file.toURI().toURL().toString()) instanceof IllegalArgumentException);
+            assertTrue(report.getCompiledLocations().isEmpty());
+            assertSame(schema, cache.getSchema(file.toURI().toURL()));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void reload_shouldReportEachFailureAgainstTheDocumentThatFailed() throws Exception {
+        File directory = File.createTempFile("schemas", "");
+        assertTrue(directory.delete() && directory.mkdir());
+        File customer = writeFile(new File(directory, "customer.json"), "{\"type\": \"string\"}");
+        File product = writeFile(new File(directory, "product.json"), "{\"type\": \"string\"}");
+        File missing = new File(directory, "missing.json");
+        SchemaPassThroughCache cache = new SchemaPassThroughCache(new JsonFactory(new ObjectMapper()));
+
+        try {
+            cache.getSchema(customer.toURI().toURL());
+            cache.getSchema(product.toURI().toURL());
+            writeFile(customer, "{\"type\": \"object\", \"properties\": {\"id\": {\"$ref\": \"missing.json\"}}}");
+            writeFile(product, "{\"type\": ");
+
+            SchemaPreloadReport report = cache.reload(Arrays.asList(customer.toURI().toURL(), product.toURI().toURL()));
+
+            assertEquals(new HashSet<>(Arrays.asList(missing.toURI().toURL().toString(), product.toURI().toURL().toString())), report.getFailures().keySet());
+            assertTrue(report.getCompiledLocations().isEmpty());
+        } finally {
+            for (File file : new File[] {customer, product, directory}) {
+                file.delete();
+            }
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void setHotReload_shouldLeaveAFailedReloadInTheLastReloadReport() throws Exception {
+        File file = writeFile(File.createTempFile("schema", ".json"), "{\"type\": \"string\"}");
+        SchemaPassThroughCache cache = new SchemaPassThroughCache(new JsonFactory(new ObjectMapper()));
+
+        try {
+            JsonSchema schema = cache.getSchema(file.toURI().toURL());
+            cache.setHotReload(true);
+            writeFile(file, "{\"type\": ");
+
+            while (cache.getLastReloadReport() == null) {
+                Thread.sleep(20);
+            }
+
+            assertTrue(cache.getLastReloadReport().getFailures().get(file.toURI().toURL().toString()) instanceof IllegalArgumentException);
+            assertSame(schema, cache.getSchema(file.toURI().toURL()));
+        } finally {
+            cache.setHotReload(false);
+            file.delete();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void setHotReload_shouldReloadASchemaOnceItsFileChanges() throws Exception {
+        File file = writeFile(File.createTempFile("schema", ".json"), "{\"type\": \"string\"}");
+        SchemaPassThroughCache cache = new SchemaPassThroughCache(new JsonFactory(new ObjectMapper()));
+        ObjectMapper mapper = new ObjectMapper();
+
+        try {
+            ExtendedJsonSchema schema = (ExtendedJsonSchema) cache.getSchema(file.toURI().toURL());
+            cache.setHotReload(true);
+            assertTrue(cache.isHotReload());
+            writeFile(file, "{\"type\": \"integer\"}");
+
+            while (cache.getSchema(file.toURI().toURL()) == schema) {
+                Thread.sleep(20);
+            }
+
+            assertTrue(((ExtendedJsonSchema) cache.getSchema(file.toURI().toURL())).isValid(mapper.readTree("1")));
+            assertFalse(((ExtendedJsonSchema) cache.getSchema(file.toURI().toURL())).isValid(mapper.readTree("\"a\"")));
+        } finally {
+            cache.setHotReload(false);
+            file.delete();
+        }
+        assertFalse(cache.isHotReload());
+    }
+
+    @Test
+    public void getSchema_shouldTellTheEventListenerAboutLookupsAndCompilations() throws Exception {
+        URL customer = getClass().getResource("/preload/customer.json");
+        URL address = getClass().getResource("/preload/nested/address.json");
+        SchemaPassThroughCache cache = new SchemaPassThroughCache(new JsonFactory(new ObjectMapper()));
+        SchemaEventListener listener = mock(SchemaEventListener.class);
+        cache.setEventListener(listener);
+
+        cache.getSchema(customer);
+        cache.getSchema(customer);
+
+        verify(listener).schemaLookedUp(customer, false);
+        verify(listener).schemaLookedUp(customer, true);
+        verify(listener).schemaCompiled(same(customer), anyLong());
+        verify(listener).schemaCompiled(eq(address), anyLong());
+        verifyNoMoreInteractions(listener);
+    }
+}
@@ -0,0 +1,124 @@
+package uk.co.o2.json.schema;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SchemaProfilerTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final JsonFactory factory = new JsonFactory(mapper);
+    private final List<File> filesToDelete = new ArrayList<>();
+
+    @Test
+    public void getSchema_shouldReturnAProfiledCopyThatValidatesLikeTheCompiledSchema_whenProfilingIsOn() throws Exception {
+        File address = saveToFile("{\"type\": \"object\", \"properties\": {\"postcode\": {\"type\": \"string\", \"pattern\": \"[A-Z]{2}[0-9]\", \"required\": true}}}");
+        File customer = saveToFile("{\"type\": \"object\", \"properties\": {" +
+                "\"tier\": {\"type\": \"string\", \"enumeration\": [\"gold\", \"silver\"]}," +
+                "\"age\": {\"type\": \"integer\", \"minimum\": 18, \"maximum\": 150}," +
+                "\"tags\": {\"type\": \"array\", \"items\": {\"type\": \"string\", \"maxLength\": 3}}," +
+                "\"contact\": {\"type\": [" +
+                "    {\"type\": \"object\", \"properties\": {\"kind\": {\"type\": \"string\", \"enumeration\": [\"email\"]}, \"address\": {\"type\": \"string\", \"format\": \"uri\", \"required\": true}}}," +
+                "    {\"type\": \"object\", \"properties\": {\"kind\": {\"type\": \"string\", \"enumeration\": [\"phone\"]}, \"number\": {\"type\": \"string\", \"required\": true}}}]}," +
+                "\"address\": {\"$ref\": \"" + address.getName() + "\"}}}");
+        SchemaPassThroughCache cache = new SchemaPassThroughCache(factory);
+        ExtendedJsonSchema compiled = (ExtendedJsonSchema) cache.getSchema(customer.toURI().toURL());
+        cache.setProfiling(true);
+
+        ExtendedJsonSchema profiled = (ExtendedJsonSchema) cache.getSchema(customer.toURI().toURL());
+
+        assertTrue(profiled instanceof ProfilingSchema);
+        assertSame(profiled, cache.getSchema(customer.toURI().toURL()));
+        for (String document : new String[] {
+                "{\"tier\": \"gold\", \"age\": 20, \"tags\": [\"a\"], \"contact\": {\"kind\": \"phone\", \"number\": \"1\"}, \"address\": {\"postcode\": \"AB1\"}}",
+                "{\"tier\": \"bronze\", \"age\": 12, \"tags\": [\"abcd\", 1], \"contact\": {\"kind\": \"phone\"}, \"address\": {\"postcode\": \"ab\"}}",
+                "{\"contact\": {\"kind\": \"email\", \"address\": 7}, \"address\": {}}",
+                "[]"}) {
+            JsonNode node = mapper.readTree(document);
+            assertEquals(document, compiled.validate(node), profiled.validate(node));
+            assertEquals(document, compiled.isValid(node), profiled.isValid(node));
+            assertEquals(document, compiled.validate(factory.createJsonParser(document)), profiled.validate(factory.createJsonParser(document)));
+        }
+
+        Map<String, SchemaProfiler.Entry> entries = new HashMap<>();
+        for (SchemaProfiler.Entry entry : cache.getProfiler().getEntries()) {
+            entries.put(entry.getFragment() + " " + entry.getKeyword(), entry);
+            assertTrue(entry.toString(), entry.getSelfNanos() <= entry.getTotalNanos());
+        }
+        String customerLocation = SchemaPassThroughCache.keyOf(customer.toURI().toURL());
+        String addressLocation = SchemaPassThroughCache.keyOf(address.toURI().toURL());
+        assertEquals(12, entries.get(customerLocation + "# properties").getInvocations());
+        //the properties of an invalid object are checked once more, when its errors are reported in order
+        assertEquals(7, entries.get(customerLocation + "#/properties/tier enumeration").getInvocations());
+        assertEquals(5, entries.get(customerLocation + "#/properties/tags/items maxLength").getInvocations());
+        assertEquals(9, entries.get(customerLocation + "#/properties/contact type (union)").getInvocations());
+        //the discriminator still picks the branch, so the email branch only sees the email contact
+        assertEquals(4, entries.get(customerLocation + "#/properties/contact/type/0 properties").getInvocations());
+        assertEquals(7, entries.get(customerLocation + "#/properties/address $ref").getInvocations());
+        assertEquals(6, entries.get(addressLocation + "#/properties/postcode pattern").getInvocations());
+        assertFalse(entries.containsKey(customerLocation + "#/properties/tier pattern"));
+        assertTrue(cache.getProfiler().getReport().contains(customerLocation + "#/properties/contact/type/0/properties/address"));
+    }
+
+    @Test
+    public void getEntries_shouldSortBySelfTime_andBeEmptiedByReset() throws Exception {
+        SchemaPassThroughCache cache = new SchemaPassThroughCache(factory);
+        cache.setProfiling(true);
+        JsonSchema schema = cache.getSchema(saveToFile("{\"type\": \"array\", \"items\": {\"type\": \"string\", \"pattern\": \"(a|b)*c\"}}").toURI().toURL());
+        schema.validate(mapper.readTree("[\"ababababc\", \"abd\", \"c\"]"));
+
+        List<SchemaProfiler.Entry> entries = cache.getProfiler().getEntries();
+
+        assertEquals(3, entries.size());
+        for (int i = 1; i < entries.size(); i++) {
+            assertTrue(entries.get(i - 1).getSelfNanos() >= entries.get(i).getSelfNanos());
+        }
+        cache.getProfiler().reset();
+        assertTrue(cache.getProfiler().getEntries().isEmpty());
+    }
+
+    @Test
+    public void getSchema_shouldReturnTheCompiledSchema_whenProfilingIsTurnedOff() throws Exception {
+        SchemaPassThroughCache cache = new SchemaPassThroughCache(factory);
+        File file = saveToFile("{\"type\": \"string\"}");
+        cache.setProfiling(true);
+        assertTrue(cache.getSchema(file.toURI().toURL()) instanceof ProfilingSchema);
+
+        cache.setProfiling(false);
+
+        assertFalse(cache.isProfiling());
+        assertSame(cache.peekSchema(file.toURI().toURL()), cache.getSchema(file.toURI().toURL()));
+    }
+
+    private File saveToFile(String content) throws Exception {
+        File file = File.createTempFile("schema", ".json");
+        file.deleteOnExit();
+        filesToDelete.add(file);
+        try (OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(file, false), "UTF-8")) {
+            writer.write(content);
+        }
+        return file;
+    }
+
+    @SuppressWarnings({"ResultOfMethodCallIgnored"})
+    @After
+    public void tearDown() {
+        for (File f : filesToDelete) {
+            f.delete();
+        }
+    }
+}
@@ -7,9 +7,13 @@ import org.junit.Test;
 import java.net.URL;
 import java.util.Arrays;
 import java.util.List;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.*;
 
 public class SchemaReferenceTest {
@@ -34,7 +38,7 @@ public class SchemaReferenceTest {
 
         JsonSchema mockReferencedSchema = mock(JsonSchema.class);
         when(mockReferencedSchema.validate(expectedDocument)).thenReturn(expectedResults);
-        when(registry.getSchema(expectedSchemaLocation)).thenReturn(mockReferencedSchema);
+        when(registry.getCompiledSchema(expectedSchemaLocation)).thenReturn(mockReferencedSchema);
 
         JsonSchema schema = new SchemaReference(registry, expectedSchemaLocation);
 
@@ -50,7 +54,7 @@ public class SchemaReferenceTest {
 
         JsonSchema mockReferencedSchema = mock(JsonSchema.class);
         doReturn(expectedDescription).when(mockReferencedSchema).getDescription();
-        when(registry.getSchema(expectedSchemaLocation)).thenReturn(mockReferencedSchema);
+        when(registry.getCompiledSchema(expectedSchemaLocation)).thenReturn(mockReferencedSchema);
 
         JsonSchema schema = new SchemaReference(registry, expectedSchemaLocation);
 
@@ -68,7 +72,7 @@ public class SchemaReferenceTest {
 
         JsonSchema mockReferencedSchema = mock(JsonSchema.class);
         when(mockReferencedSchema.isAcceptableType(expectedDocument)).thenReturn(expectedResult);
-        when(registry.getSchema(expectedSchemaLocation)).thenReturn(mockReferencedSchema);
+        when(registry.getCompiledSchema(expectedSchemaLocation)).thenReturn(mockReferencedSchema);
 
         JsonSchema schema = new SchemaReference(registry, expectedSchemaLocation);
 
@@ -77,4 +81,87 @@ public class SchemaReferenceTest {
         assertEquals(expectedResult, result);
         verify(mockReferencedSchema).isAcceptableType(expectedDocument);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void validateParser_shouldLoadAJsonSchemaFromTheRegistryAndDelegateTheValidateCall() throws Exception {
+        URL expectedSchemaLocation = new URL("http://www.example.com/");
+        JsonParser expectedParser = new JsonFactory().createJsonParser("\"I am a document!!!\"");
+        List<ErrorMessage> expectedResults = Arrays.asList(new ErrorMessage("foo", "bar"));
+
+        ExtendedJsonSchema mockReferencedSchema = mock(ExtendedJsonSchema.class);
+        when(mockReferencedSchema.validate(expectedParser)).thenReturn(expectedResults);
+        when(registry.getCompiledSchema(expectedSchemaLocation)).thenReturn(mockReferencedSchema);
+
+        SchemaReference schema = new SchemaReference(registry, expectedSchemaLocation);
+
+        List<ErrorMessage> results = schema.validate(expectedParser);
+
+        assertSame(expectedResults, results);
+    }
+
+    @Test
+    public void isValid_shouldDelegateToTheReferencedSchema() throws Exception {
+        URL expectedSchemaLocation = new URL("http://www.example.com/");
+        JsonNode expectedDocument = new TextNode("I am a document!!!");
+
+        ExtendedJsonSchema mockReferencedSchema = mock(ExtendedJsonSchema.class);
+        when(mockReferencedSchema.isValid(expectedDocument)).thenReturn(true);
+        when(registry.getCompiledSchema(expectedSchemaLocation)).thenReturn(mockReferencedSchema);
+
+        SchemaReference schema = new SchemaReference(registry, expectedSchemaLocation);
+
+        boolean result = schema.isValid(expectedDocument);
+
+        assertEquals(true, result);
+        verify(mockReferencedSchema).isValid(expectedDocument);
+    }
+
+
+    @Test
+    public void validate_shouldOnlyLookUpTheReferencedSchemaOnce() throws Exception {
+        URL expectedSchemaLocation = new URL("http://www.example.com/");
+        JsonNode expectedDocument = new TextNode("I am a document!!!");
+
+        ExtendedJsonSchema mockReferencedSchema = mock(ExtendedJsonSchema.class);
+        when(registry.getCompiledSchema(expectedSchemaLocation)).thenReturn(mockReferencedSchema);
+
+        SchemaReference schema = new SchemaReference(registry, expectedSchemaLocation);
+
+        schema.validate(expectedDocument);
+        schema.isValid(expectedDocument);
+
+        verify(registry, times(1)).getCompiledSchema(expectedSchemaLocation);
+        verify(mockReferencedSchema).validate(expectedDocument);
+        verify(mockReferencedSchema).isValid(expectedDocument);
+    }
+
+    @Test
+    public void validate_shouldNotLookUpTheReferencedSchema_givenItHasBeenBound() throws Exception {
+        URL expectedSchemaLocation = new URL("http://www.example.com/");
+        JsonNode expectedDocument = new TextNode("I am a document!!!");
+        JsonSchema mockReferencedSchema = mock(JsonSchema.class);
+
+        SchemaReference schema = new SchemaReference(registry, expectedSchemaLocation);
+        schema.bind(mockReferencedSchema);
+
+        schema.validate(expectedDocument);
+
+        verify(registry, never()).getCompiledSchema(any(URL.class));
+        verify(mockReferencedSchema).validate(expectedDocument);
+    }
+
+
+    @Test
+    public void getReferencedSchema_shouldBeTheCompiledSchema_givenTheCacheHandsOutAnotherBackend() throws Exception {
+        URL schemaLocation = getClass().getClassLoader().getResource("sample-json-schema.json");
+        SchemaPassThroughCache cache = new SchemaPassThroughCache(new JsonFactory(new ObjectMapper()));
+        cache.setInstructionInterpreter(true);
+        JsonSchema handedOut = cache.getSchema(schemaLocation);
+
+        SchemaReference schema = new SchemaReference(cache, schemaLocation);
+
+        assertTrue(handedOut instanceof InstructionSchema);
+        assertSame(((InstructionSchema) handedOut).getCompiledSchema(), schema.getReferencedSchema());
+        assertTrue(schema.getReferencedSchema() instanceof ObjectSchema);
+    }
+}
@@ -0,0 +1,140 @@
+package uk.co.o2.json.schema;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SchemaSnapshotTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final JsonFactory factory = new JsonFactory(mapper);
+    private final List<File> filesToDelete = new ArrayList<>();
+
+    @Test
+    public void loadSnapshot_shouldRestoreSchemasThatValidateLikeTheCompiledOnes() throws Exception {
+        File address = saveToFile("{\"type\": \"object\", \"additionalProperties\": false, \"properties\": {" +
+                "\"postcode\": {\"type\": \"string\", \"required\": true, \"pattern\": \"[A-Z]{2}[0-9]\", \"maxLength\": 3}}}");
+        File customer = saveToFile("{\"type\": \"object\", \"properties\": {" +
+                "\"name\": {\"type\": \"string\", \"required\": true, \"minLength\": 2, \"format\": \"date\"}," +
+                "\"age\": {\"type\": \"integer\", \"minimum\": 18, \"maximum\": 150, \"exclusiveMaximum\": true}," +
+                "\"tier\": {\"type\": \"string\", \"enumeration\": [\"gold\", \"silver\"]}," +
+                "\"ids\": {\"type\": \"array\", \"minItems\": 1, \"maxItems\": 2, \"items\": {\"type\": \"number\"}}," +
+                "\"contact\": {\"type\": [\"null\", {\"type\": \"object\", \"properties\": {\"kind\": {\"type\": \"string\", \"enumeration\": [\"email\"]}}}]," +
+                "    \"discriminator\": \"kind\"}," +
+                "\"address\": {\"$ref\": \"" + address.getName() + "\"}}}");
+        SchemaPassThroughCache compiled = new SchemaPassThroughCache(factory);
+        compiled.getSchema(toURL(customer));
+        File snapshot = createFile(".snapshot");
+
+        assertEquals(2, compiled.saveSnapshot(snapshot));
+        SchemaPassThroughCache restored = new SchemaPassThroughCache(factory);
+        assertEquals(2, restored.loadSnapshot(snapshot));
+
+        assertTrue(restored.hasSchema(toURL(address)));
+        assertEquals(2, restored.getStatistics().getSize());
+        for (String document : new String[] {
+                "{\"name\": \"2012-01-01\", \"age\": 30, \"tier\": \"gold\", \"ids\": [1.5], \"contact\": null, \"address\": {\"postcode\": \"AB1\"}}",
+                "{\"name\": \"x\", \"age\": 150, \"tier\": \"bronze\", \"ids\": [], \"contact\": {\"kind\": 1}, \"address\": {\"postcode\": \"ab12\", \"other\": 1}}",
+                "{\"age\": 17.5, \"ids\": [1, 2, \"3\"], \"contact\": 7, \"address\": {}}"}) {
+            JsonNode node = mapper.readTree(document);
+            assertEquals(document, describe(compiled.getSchema(toURL(customer)).validate(node)), describe(restored.getSchema(toURL(customer)).validate(node)));
+        }
+        assertEquals(0, restored.getStatistics().getMissCount());
+    }
+
+    @Test
+    public void loadSnapshot_shouldLeaveOutDocumentsWhoseSourceHasChanged() throws Exception {
+        File address = saveToFile("{\"type\": \"object\", \"properties\": {\"postcode\": {\"type\": \"string\", \"required\": true}}}");
+        File customer = saveToFile("{\"type\": \"object\", \"properties\": {\"address\": {\"$ref\": \"" + address.getName() + "\"}}}");
+        SchemaPassThroughCache compiled = new SchemaPassThroughCache(factory);
+        compiled.getSchema(toURL(customer));
+        File snapshot = createFile(".snapshot");
+        compiled.saveSnapshot(snapshot);
+        write(address, "{\"type\": \"object\", \"properties\": {\"postcode\": {\"type\": \"integer\", \"required\": true}}}");
+
+        SchemaPassThroughCache restored = new SchemaPassThroughCache(factory);
+
+        assertEquals(1, restored.loadSnapshot(snapshot));
+        assertTrue(restored.hasSchema(toURL(customer)));
+        assertFalse(restored.hasSchema(toURL(address)));
+        List<ErrorMessage> errors = restored.getSchema(toURL(customer)).validate(mapper.readTree("{\"address\": {\"postcode\": \"AB1\"}}"));
+        assertEquals(1, errors.size());
+        assertEquals("address.postcode", errors.get(0).getLocation());
+    }
+
+    @Test
+    public void loadSnapshot_shouldRestoreNothing_givenASnapshotOfADifferentVersion() throws Exception {
+        File snapshot = createFile(".snapshot");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(snapshot))) {
+            out.writeInt(0x4A53534E);
+            out.writeInt(Integer.MAX_VALUE);
+        }
+
+        assertEquals(0, new SchemaPassThroughCache(factory).loadSnapshot(snapshot));
+    }
+
+    @Test
+    public void loadSnapshot_shouldThrowAnIllegalArgumentException_givenAFileThatIsNotASnapshot() throws Exception {
+        File snapshot = saveToFile("{\"type\": \"string\"}");
+
+        try {
+            new SchemaPassThroughCache(factory).loadSnapshot(snapshot);
+            fail("expected an exception");
+        } catch (IllegalArgumentException e) {
+            assertEquals("The file is not a schema snapshot", e.getMessage());
+        }
+    }
+
+    private static String describe(List<ErrorMessage> errors) {
+        StringBuilder result = new StringBuilder();
+        for (ErrorMessage error : errors) {
+            result.append(error.getLocation()).append(": ").append(error.getMessage()).append('\n');
+        }
+        return result.toString();
+    }
+
+    private URL toURL(File file) throws Exception {
+        return file.toURI().toURL();
+    }
+
+    private File saveToFile(String content) throws Exception {
+        File file = createFile(".json");
+        write(file, content);
+        return file;
+    }
+
+    private File createFile(String suffix) throws Exception {
+        File file = File.createTempFile("schema", suffix);
+        file.deleteOnExit();
+        filesToDelete.add(file);
+        return file;
+    }
+
+    private static void write(File file, String content) throws Exception {
+        try (OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(file, false), "UTF-8")) {
+            writer.write(content);
+        }
+    }
+
+    @SuppressWarnings({"ResultOfMethodCallIgnored"})
+    @After
+    public void tearDown() {
+        for (File f : filesToDelete) {
+            f.delete();
+        }
+    }
+}
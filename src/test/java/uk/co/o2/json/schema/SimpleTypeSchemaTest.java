@@ -9,6 +9,8 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.*;
 import org.junit.Test;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 
 import static org.junit.Assert.*;
 
@@ -1151,4 +1153,120 @@ public class SimpleTypeSchemaTest {
     private JsonNode createArrayNode() throws java.io.IOException {
         return (JsonNode) factory.createJsonParser("[]").readValueAsTree();
     }
+
+    @Test
+    public void validateParser_shouldValidateAScalarValue() throws Exception {
+        SimpleTypeSchema schema = new SimpleTypeSchema();
+        schema.setType(SimpleType.STRING);
+        schema.setMaxLength(3);
+
+        List<ErrorMessage> result = schema.validate(factory.createJsonParser("\"abcd\""));
+
+        assertEquals(1, result.size());
+        assertEquals("Value 'abcd' must be less or equal to 3 characters", result.get(0).getMessage());
+    }
+
+    @Test
+    public void validateParser_shouldReturnAnErrorMessageAndSkipTheValue_givenAnObject() throws Exception {
+        SimpleTypeSchema schema = new SimpleTypeSchema();
+        schema.setType(SimpleType.NUMBER);
+        JsonParser parser = factory.createJsonParser("{\"a\": [1, 2]}");
+
+        List<ErrorMessage> result = schema.validate(parser);
+
+        assertEquals(1, result.size());
+        assertEquals("Invalid type: must be of type number", result.get(0).getMessage());
+        assertEquals(JsonToken.END_OBJECT, parser.getCurrentToken());
+    }
+
+    @Test
+    public void validateParser_shouldNotReturnAnErrorMessage_givenAnArrayAndTypeAny() throws Exception {
+        SimpleTypeSchema schema = new SimpleTypeSchema();
+
+        List<ErrorMessage> result = schema.validate(factory.createJsonParser("[1, {}]"));
+
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    public void isValid_shouldReturnFalse_givenAnIncompatibleType() throws Exception {
+        SimpleTypeSchema schema = new SimpleTypeSchema();
+        schema.setType(SimpleType.NUMBER);
+
+        assertFalse(schema.isValid(new TextNode("abc")));
+    }
+
+    @Test
+    public void isValid_shouldReturnFalse_givenAValueThatViolatesAnyConstraint() throws Exception {
+        SimpleTypeSchema schema = new SimpleTypeSchema();
+        schema.setType(SimpleType.INTEGER);
+        schema.setMinimum(10);
+        schema.setMaximum(20);
+        schema.setExclusiveMaximum(true);
+
+        assertFalse(schema.isValid(new IntNode(9)));
+        assertFalse(schema.isValid(new IntNode(20)));
+        assertTrue(schema.isValid(new IntNode(10)));
+    }
+
+    @Test
+    public void isValid_shouldReturnFalse_givenAStringThatDoesNotMatchThePatternOrEnumeration() throws Exception {
+        SimpleTypeSchema schema = new SimpleTypeSchema();
+        schema.setType(SimpleType.STRING);
+        schema.setPattern(Pattern.compile("[a-z]+"));
+        schema.setEnumeration(Arrays.<JsonNode>asList(new TextNode("abc"), new TextNode("ABC")));
+
+        assertTrue(schema.isValid(new TextNode("abc")));
+        assertFalse(schema.isValid(new TextNode("ABC")));
+        assertFalse(schema.isValid(new TextNode("xyz")));
+    }
+
+
+    @Test
+    public void validate_shouldReturnAnErrorMessage_givenALongThatIsGreaterThanAMaximumValue() throws Exception {
+        SimpleTypeSchema schema = new SimpleTypeSchema();
+        schema.setType(SimpleType.INTEGER);
+        schema.setMaximum(10);
+
+        List<ErrorMessage> result = schema.validate(new LongNode(4294967297L));
+
+        assertEquals(1, result.size());
+        assertEquals("Value '4294967297' must be less than or equal to 10", result.get(0).getMessage());
+    }
+
+    @Test
+    public void validate_shouldCompareIntegersWithAFractionalMinimum() throws Exception {
+        SimpleTypeSchema schema = new SimpleTypeSchema();
+        schema.setType(SimpleType.INTEGER);
+        schema.setMinimum(new java.math.BigDecimal("2.5"));
+
+        assertFalse(schema.isValid(new IntNode(2)));
+        assertTrue(schema.isValid(new IntNode(3)));
+    }
+
+    @Test
+    public void validate_shouldCompareTheDecimalValueOfADouble_givenABoundThatIsNotExactlyADouble() throws Exception {
+        SimpleTypeSchema schema = new SimpleTypeSchema();
+        schema.setType(SimpleType.NUMBER);
+        schema.setMaximum(new java.math.BigDecimal("0.1"));
+        schema.setExclusiveMaximum(true);
+
+        assertFalse(schema.isValid(new DoubleNode(0.1)));
+        assertTrue(schema.isValid(new DoubleNode(0.09999999999999999)));
+    }
+
+    @Test
+    public void validate_shouldRequireAnOffset_givenAFormatOfDateTimeWithStrictTemporalFormats() throws Exception {
+        SimpleTypeSchema lenient = new SimpleTypeSchema();
+        lenient.setType(SimpleType.STRING);
+        lenient.setFormat("date-time");
+        SimpleTypeSchema strict = new SimpleTypeSchema();
+        strict.setType(SimpleType.STRING);
+        strict.setFormat("date-time", true);
+        JsonNode nodeToValidate = new TextNode("2011-05-10T11:11:17");
+
+        assertEquals(true, lenient.validate(nodeToValidate).isEmpty());
+        assertEquals(1, strict.validate(nodeToValidate).size());
+        assertEquals(true, strict.validate(new TextNode("2011-05-10T11:11:17Z")).isEmpty());
+    }
 }
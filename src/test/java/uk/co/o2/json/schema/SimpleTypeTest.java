@@ -151,4 +151,14 @@ public class SimpleTypeTest {
 
         SimpleType.ANY.getValue(node);
     }
+
+
+    @Test
+    public void getValueForInteger_shouldNotTruncate_givenALongNode() throws Exception {
+        JsonNode node = new LongNode(12345678901L);
+
+        Object result = SimpleType.INTEGER.getValue(node);
+
+        assertEquals(12345678901L, result);
+    }
 }
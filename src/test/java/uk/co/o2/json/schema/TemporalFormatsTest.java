@@ -0,0 +1,149 @@
+package uk.co.o2.json.schema;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import javax.xml.datatype.DatatypeFactory;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TemporalFormatsTest {
+    private static final List<String> seeds = Arrays.asList(
+        "2012-01-01", "1582-10-04", "1582-10-15", "1500-02-29", "2000-02-29", "1900-02-29", "0001-01-01", "9999-12-31",
+        "12:00:00", "23:59:59", "00:00:00",
+        "2012-01-01T12:00:00Z", "2012-12-31T24:00:00", "-0001-12-31T24:00:00+01:00", "0000-12-31T24:00:00",
+        "2012-01-01T12:00:00.123-14:00", "--02-29", "---31", "--12Z", "--12-31+05:00", "2012-05", "2012", "-2012-05:00",
+        "2012-01-01Z", "24:00:00.0", "12:00:00.5Z", "1000000000-02-29T00:00:00", "-0400-02-29"
+    );
+    private static final char[] mutations = "0123456789-:T Z+.E\t\n\u0663\uFF11".toCharArray();
+
+    @Test
+    public void isDate_shouldAcceptValidDates() throws Exception {
+        for (String date : new String[] {"2011-05-10", "2000-02-29", "1500-02-29", "1582-10-04", "1582-10-15", "0001-01-01"}) {
+            assertTrue(date, TemporalFormats.isDate(date));
+        }
+    }
+
+    @Test
+    public void isDate_shouldRejectInvalidDates() throws Exception {
+        for (String date : new String[] {"2011-May-10", "2011-05-44", "1900-02-29", "1582-10-10", "0000-01-01", "2011-5-10", "2011-05-10T11:47:16Z", ""}) {
+            assertFalse(date, TemporalFormats.isDate(date));
+        }
+    }
+
+    @Test
+    public void isTime_shouldAcceptValidTimes() throws Exception {
+        for (String time : new String[] {"00:00:00", "11:47:16", "23:59:59"}) {
+            assertTrue(time, TemporalFormats.isTime(time));
+        }
+    }
+
+    @Test
+    public void isTime_shouldRejectInvalidTimes() throws Exception {
+        for (String time : new String[] {"24:00:00", "23:60:00", "23:59:60", "12:00", "12:00:00Z", "12 :00:00", ""}) {
+            assertFalse(time, TemporalFormats.isTime(time));
+        }
+    }
+
+    @Test
+    public void isDateTime_shouldAcceptValidDateTimes() throws Exception {
+        for (String dateTime : new String[] {"2011-05-10T11:11:17Z", "2011-05-10T11:11:17.123+01:00", "2012-12-31T24:00:00", " 2011-05-10T11:11:17 "}) {
+            assertTrue(dateTime, TemporalFormats.isDateTime(dateTime));
+        }
+    }
+
+    @Test
+    public void isDateTime_shouldRejectInvalidDateTimes() throws Exception {
+        for (String dateTime : new String[] {"2011-05-44T11:11:17Z", "2011-May-10T165:11:17z", "2011-05-10T11:11Z", "2011-05-10T11:11:17+15:00", "2011-05-10T11:11:17.", ""}) {
+            assertFalse(dateTime, TemporalFormats.isDateTime(dateTime));
+        }
+    }
+
+    @Test
+    public void isDate_shouldAgreeWithANonLenientSimpleDateFormat() throws Exception {
+        for (String value : generateValues()) {
+            assertEquals("[" + value + "]", simpleDateFormatAcceptsDate(value), TemporalFormats.isDate(value));
+        }
+    }
+
+    @Test
+    public void isTime_shouldAgreeWithANonLenientSimpleDateFormat() throws Exception {
+        for (String value : generateValues()) {
+            assertEquals("[" + value + "]", simpleDateFormatAcceptsTime(value), TemporalFormats.isTime(value));
+        }
+    }
+
+    @Test
+    public void isDateTime_shouldAgreeWithXmlGregorianCalendar() throws Exception {
+        DatatypeFactory factory = DatatypeFactory.newInstance();
+        for (String value : generateValues()) {
+            assertEquals("[" + value + "]", xmlGregorianCalendarAccepts(factory, value), TemporalFormats.isDateTime(value));
+        }
+    }
+
+    private static List<String> generateValues() {
+        Random random = new Random(42);
+        List<String> values = new ArrayList<>(seeds);
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder value = new StringBuilder(seeds.get(random.nextInt(seeds.size())));
+            for (int mutation = random.nextInt(5); mutation > 0; mutation--) {
+                int position = random.nextInt(value.length() + 1);
+                char ch = mutations[random.nextInt(mutations.length)];
+                if (random.nextBoolean() || position == value.length()) {
+                    value.insert(position, ch);
+                } else if (random.nextBoolean()) {
+                    value.setCharAt(position, ch);
+                } else {
+                    value.deleteCharAt(position);
+                }
+            }
+            values.add(value.toString());
+        }
+        return values;
+    }
+
+    private static boolean simpleDateFormatAcceptsDate(String value) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+        format.setLenient(false);
+        ParsePosition position = new ParsePosition(0);
+        boolean parsed = format.parse(value, position) != null;
+        String[] parts = value.substring(0, position.getIndex()).split("-");
+        boolean partLengthsOk = parts.length == 3 && parts[0].length() == 4 && parts[1].length() == 2 && parts[2].length() == 2;
+        return parsed && partLengthsOk && (position.getIndex() == value.length());
+    }
+
+    private static boolean simpleDateFormatAcceptsTime(String value) {
+        SimpleDateFormat format = new SimpleDateFormat("HH:mm:ss");
+        format.setLenient(false);
+        ParsePosition position = new ParsePosition(0);
+        return (format.parse(value, position) != null) && (position.getIndex() == value.length());
+    }
+
+    private static boolean xmlGregorianCalendarAccepts(DatatypeFactory factory, String value) {
+        try {
+            factory.newXMLGregorianCalendar(trimXmlWhitespace(value)).toGregorianCalendar();
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static String trimXmlWhitespace(String value) {
+        int start = 0;
+        int end = value.length();
+        while (start < end && " \t\n\r".indexOf(value.charAt(start)) >= 0) {
+            start++;
+        }
+        while (end > start && " \t\n\r".indexOf(value.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        return value.substring(start, end);
+    }
+}
@@ -5,11 +5,21 @@ import com.fasterxml.jackson.databind.node.IntNode;
 import com.fasterxml.jackson.databind.node.TextNode;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.List;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class UnionSchemaTest {
 
@@ -139,4 +149,210 @@ public class UnionSchemaTest {
 
         assertEquals("union", description);
     }
+
+    @Test
+    public void validateParser_shouldReturnTheSameErrorMessagesAsTreeValidation() throws Exception {
+        JsonFactory factory = new JsonFactory(new ObjectMapper());
+        UnionSchema schema = new UnionSchema();
+
+        SimpleTypeSchema intSchema = new SimpleTypeSchema();
+        intSchema.setType(SimpleType.INTEGER);
+        intSchema.setMinimum(10);
+        schema.getNestedSchemas().add(intSchema);
+        schema.getNestedSchemas().add(new ObjectSchema());
+
+        List<ErrorMessage> result = schema.validate(factory.createJsonParser("5"));
+
+        assertEquals(schema.validate(new IntNode(5)), result);
+    }
+
+    @Test
+    public void isValid_shouldReturnTrue_givenAtLeastOneNestedSchemaThatAcceptsTheDocument() throws Exception {
+        UnionSchema schema = new UnionSchema();
+
+        SimpleTypeSchema intSchema = new SimpleTypeSchema();
+        intSchema.setType(SimpleType.INTEGER);
+        intSchema.setMaximum(10);
+        schema.getNestedSchemas().add(intSchema);
+
+        SimpleTypeSchema stringSchema = new SimpleTypeSchema();
+        stringSchema.setType(SimpleType.STRING);
+        schema.getNestedSchemas().add(stringSchema);
+
+        assertTrue(schema.isValid(new IntNode(5)));
+        assertTrue(schema.isValid(new TextNode("five")));
+        assertFalse(schema.isValid(new IntNode(50)));
+    }
+
+
+    @Test
+    public void validate_shouldStopAtTheFirstNestedSchemaWithNoErrors() throws Exception {
+        UnionSchema schema = new UnionSchema();
+
+        SimpleTypeSchema intSchema = new SimpleTypeSchema();
+        intSchema.setType(SimpleType.INTEGER);
+        schema.getNestedSchemas().add(intSchema);
+
+        ExtendedJsonSchema neverNeeded = mock(ExtendedJsonSchema.class);
+        when(neverNeeded.isAcceptableType(any(JsonNode.class))).thenReturn(true);
+        schema.getNestedSchemas().add(neverNeeded);
+
+        List<ErrorMessage> result = schema.validate(new IntNode(5));
+
+        assertTrue(result.isEmpty());
+        verify(neverNeeded, never()).validate(any(JsonNode.class), any(ErrorSink.class));
+    }
+
+    @Test
+    public void validate_shouldOnlyTryNestedSchemasThatAcceptTheTypeOfNode() throws Exception {
+        UnionSchema schema = new UnionSchema();
+        schema.getNestedSchemas().add(new ObjectSchema());
+
+        SimpleTypeSchema intSchema = new SimpleTypeSchema();
+        intSchema.setType(SimpleType.INTEGER);
+        intSchema.setMinimum(10);
+        intSchema.setEnumeration(Arrays.<JsonNode>asList(new IntNode(20)));
+        schema.getNestedSchemas().add(intSchema);
+
+        List<ErrorMessage> result = schema.validate(new IntNode(5));
+
+        assertEquals(intSchema.validate(new IntNode(5)), result);
+    }
+
+    @Test
+    public void validate_shouldPickUpNestedSchemasAddedAfterTheFirstValidation() throws Exception {
+        UnionSchema schema = new UnionSchema();
+        SimpleTypeSchema intSchema = new SimpleTypeSchema();
+        intSchema.setType(SimpleType.INTEGER);
+        schema.getNestedSchemas().add(intSchema);
+        assertFalse(schema.isValid(new TextNode("five")));
+
+        SimpleTypeSchema stringSchema = new SimpleTypeSchema();
+        stringSchema.setType(SimpleType.STRING);
+        schema.getNestedSchemas().add(stringSchema);
+
+        assertTrue(schema.isValid(new TextNode("five")));
+    }
+
+    @Test
+    public void validateParser_shouldStreamIntoTheOnlyNestedSchemaThatAcceptsTheToken() throws Exception {
+        JsonFactory factoryWithoutCodec = new JsonFactory();
+        UnionSchema schema = new UnionSchema();
+
+        SimpleTypeSchema intSchema = new SimpleTypeSchema();
+        intSchema.setType(SimpleType.INTEGER);
+        schema.getNestedSchemas().add(intSchema);
+
+        ArraySchema arraySchema = new ArraySchema();
+        arraySchema.setMaxItems(1);
+        schema.getNestedSchemas().add(arraySchema);
+
+        List<ErrorMessage> result = schema.validate(factoryWithoutCodec.createJsonParser("[[1], {\"a\": 2}]"));
+
+        assertEquals(1, result.size());
+        assertEquals("Current array size of 2 is greater than allowed maximum array size of 1", result.get(0).getMessage());
+    }
+
+    @Test
+    public void validateParser_shouldSkipTheValue_givenNoNestedSchemaAcceptsTheToken() throws Exception {
+        JsonFactory factoryWithoutCodec = new JsonFactory();
+        UnionSchema schema = new UnionSchema();
+        SimpleTypeSchema intSchema = new SimpleTypeSchema();
+        intSchema.setType(SimpleType.INTEGER);
+        schema.getNestedSchemas().add(intSchema);
+        JsonParser parser = factoryWithoutCodec.createJsonParser("[{\"a\": [1]}, 2]");
+
+        List<ErrorMessage> result = schema.validate(parser);
+
+        assertEquals(1, result.size());
+        assertEquals("Invalid type: must be one of: [\"integer\"]", result.get(0).getMessage());
+        assertNull(parser.nextToken());
+    }
+
+
+    @Test
+    public void validate_shouldOnlyValidateTheBranchNamedByTheDiscriminator() throws Exception {
+        UnionSchema schema = new UnionSchema();
+        schema.getNestedSchemas().add(objectSchemaWithKind("circle", "radius"));
+        schema.getNestedSchemas().add(objectSchemaWithKind("rectangle", "width", "height"));
+        JsonNode rectangleMissingItsSides = new ObjectMapper().readTree("{\"kind\": \"rectangle\", \"radius\": 2}");
+
+        List<ErrorMessage> result = schema.validate(rectangleMissingItsSides);
+
+        assertEquals(schema.getNestedSchemas().get(1).validate(rectangleMissingItsSides), result);
+        assertFalse(schema.isValid(rectangleMissingItsSides));
+        assertTrue(schema.isValid(new ObjectMapper().readTree("{\"kind\": \"rectangle\", \"width\": 2, \"height\": 3}")));
+    }
+
+    @Test
+    public void validate_shouldTryEveryBranch_givenAnUnknownDiscriminatorValue() throws Exception {
+        UnionSchema schema = new UnionSchema();
+        schema.getNestedSchemas().add(objectSchemaWithKind("circle", "radius"));
+        schema.getNestedSchemas().add(objectSchemaWithKind("rectangle", "width", "height"));
+        JsonNode triangle = new ObjectMapper().readTree("{\"kind\": \"triangle\", \"radius\": 2}");
+
+        List<ErrorMessage> result = schema.validate(triangle);
+
+        assertEquals(schema.getNestedSchemas().get(0).validate(triangle), result);
+    }
+
+    @Test
+    public void validate_shouldNotDispatch_givenADeclaredDiscriminatorThatDoesNotDistinguishTheBranches() throws Exception {
+        UnionSchema schema = new UnionSchema();
+        schema.getNestedSchemas().add(objectSchemaWithKind("circle", "radius"));
+        schema.getNestedSchemas().add(objectSchemaWithKind("rectangle", "width", "height"));
+        schema.setDiscriminator("radius");
+        JsonNode rectangleMissingItsSides = new ObjectMapper().readTree("{\"kind\": \"rectangle\", \"radius\": 2}");
+
+        List<ErrorMessage> result = schema.validate(rectangleMissingItsSides);
+
+        assertEquals(schema.getNestedSchemas().get(0).validate(rectangleMissingItsSides), result);
+    }
+
+    private static ObjectSchema objectSchemaWithKind(String kind, String... requiredProperties) {
+        ObjectSchema result = new ObjectSchema();
+
+        SimpleTypeSchema kindSchema = new SimpleTypeSchema();
+        kindSchema.setType(SimpleType.STRING);
+        kindSchema.setEnumeration(Arrays.<JsonNode>asList(new TextNode(kind)));
+        ObjectSchema.Property kindProperty = new ObjectSchema.Property();
+        kindProperty.setName("kind");
+        kindProperty.setRequired(true);
+        kindProperty.setNestedSchema(kindSchema);
+        result.getProperties().add(kindProperty);
+
+        for (String name : requiredProperties) {
+            ObjectSchema.Property property = new ObjectSchema.Property();
+            property.setName(name);
+            property.setRequired(true);
+            result.getProperties().add(property);
+        }
+        return result;
+    }
+
+    @Test
+    public void validateParser_shouldReadAFragmentForSeveralCandidates_givenAParserWithoutACodec() throws Exception {
+        UnionSchema schema = new UnionSchema();
+        ObjectSchema first = new ObjectSchema();
+        ObjectSchema.Property a = new ObjectSchema.Property();
+        a.setName("a");
+        a.setRequired(true);
+        first.getProperties().add(a);
+        schema.getNestedSchemas().add(first);
+        ObjectSchema second = new ObjectSchema();
+        ObjectSchema.Property b = new ObjectSchema.Property();
+        b.setName("b");
+        SimpleTypeSchema number = new SimpleTypeSchema();
+        number.setType(SimpleType.NUMBER);
+        number.setMaximum(1);
+        b.setNestedSchema(number);
+        second.getProperties().add(b);
+        schema.getNestedSchemas().add(second);
+        String document = "{\"b\": 12345678901234567890.5, \"c\": [true, null, \"x\", 99999999999]}";
+
+        List<ErrorMessage> result = schema.validate(new JsonFactory().createJsonParser(document));
+
+        assertEquals(schema.validate(new ObjectMapper().readTree(document)), result);
+        assertEquals(1, result.size());
+    }
 }
@@ -0,0 +1,128 @@
+package uk.co.o2.json.schema;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ValidatingJsonParserTest {
+
+    private ObjectMapper mapper = new ObjectMapper();
+    private JsonFactory jsonFactory = new JsonFactory(mapper);
+    private SchemaPassThroughCache schemaFactory = new SchemaPassThroughCache(jsonFactory);
+
+    @Test
+    public void nextToken_shouldReportTheSameErrorsAsTreeValidation_whileAMapperReadsTheDocument() throws Exception {
+        JsonSchema schema = schemaFactory.getSchema(getClass().getClassLoader().getResource("sample-json-schema.json"));
+        JsonNode json = jsonFactory.createJsonParser(getClass().getClassLoader().getResource("invalid-json-document.json")).readValueAsTree();
+        ErrorCollector errors = new ErrorCollector();
+        ValidatingJsonParser parser = new ValidatingJsonParser(jsonFactory.createJsonParser(getClass().getClassLoader().getResource("invalid-json-document.json")), schema, errors);
+
+        JsonNode result = mapper.readTree(parser);
+
+        assertEquals(json, result);
+        assertTrue(parser.isComplete());
+        assertEquals(schema.validate(json), errors.getErrors());
+    }
+
+    @Test
+    public void skipChildren_shouldStillValidateTheSkippedValue() throws Exception {
+        ErrorCollector errors = new ErrorCollector();
+        ValidatingJsonParser parser = new ValidatingJsonParser(jsonFactory.createJsonParser("{\"a\": {\"b\": \"x\"}, \"c\": 1}"), nestedNumberSchema(), errors);
+
+        assertEquals(JsonToken.START_OBJECT, parser.nextToken());
+        assertEquals(JsonToken.FIELD_NAME, parser.nextToken());
+        assertEquals(JsonToken.START_OBJECT, parser.nextToken());
+        parser.skipChildren();
+        assertEquals(JsonToken.END_OBJECT, parser.getCurrentToken());
+        parser.finish();
+
+        assertEquals(2, errors.getErrors().size());
+        assertEquals("a.b", errors.getErrors().get(0).getLocation());
+        assertEquals("c", errors.getErrors().get(1).getLocation());
+    }
+
+    @Test
+    public void finish_shouldValidateTheRestOfTheDocument_whenTheReaderStoppedPartWay() throws Exception {
+        ErrorCollector errors = new ErrorCollector();
+        JsonParser underlying = jsonFactory.createJsonParser("{\"a\": {\"b\": \"x\"}, \"c\": 1}");
+        underlying.nextToken();
+        ValidatingJsonParser parser = new ValidatingJsonParser(underlying, nestedNumberSchema(), errors);
+
+        parser.finish();
+
+        assertTrue(parser.isComplete());
+        List<ErrorMessage> expectedErrors = nestedNumberSchema().validate(mapper.readTree("{\"a\": {\"b\": \"x\"}, \"c\": 1}"));
+        assertEquals(expectedErrors, errors.getErrors());
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void finish_shouldThrowAJsonParseException_whenTheDocumentEndsBeforeTheValue() throws Exception {
+        ValidatingJsonParser parser = new ValidatingJsonParser(jsonFactory.createJsonParser("{\"a\": {\"b\": 1}"), nestedNumberSchema(), new ErrorCollector());
+
+        parser.finish();
+    }
+
+    private ObjectSchema nestedNumberSchema() {
+        ObjectSchema schema = new ObjectSchema();
+        schema.getProperties().add(new ObjectSchema.Property() {{
+            setName("a");
+            setNestedSchema(new ObjectSchema() {{
+                getProperties().add(new ObjectSchema.Property() {{
+                    setName("b");
+                    setNestedSchema(new SimpleTypeSchema() {{
+                        setType(SimpleType.NUMBER);
+                    }});
+                }});
+            }});
+        }});
+        schema.getProperties().add(new ObjectSchema.Property() {{
+            setName("c");
+            setRequired(true);
+            setNestedSchema(new SimpleTypeSchema() {{
+                setType(SimpleType.STRING);
+            }});
+        }});
+        return schema;
+    }
+
+    @Test
+    public void nextToken_shouldStopTheReader_atTheFirstErrorWhenStoppingAtTheFirstError() throws Exception {
+        ErrorCollector errors = new ErrorCollector();
+        ValidatingJsonParser parser = new ValidatingJsonParser(jsonFactory.createJsonParser("{\"a\": {\"b\": \"x\"}, \"c\": 1}"), nestedNumberSchema(), errors);
+        parser.setStopAtFirstError(true);
+
+        try {
+            mapper.readTree(parser);
+            fail("Expected the reader to be stopped");
+        } catch (ValidatingJsonParser.InvalidDocumentException e) {
+            assertEquals(JsonToken.VALUE_STRING, parser.getCurrentToken());
+            assertFalse(parser.isComplete());
+        }
+
+        parser.finish();
+
+        assertTrue(parser.isComplete());
+        assertEquals(nestedNumberSchema().validate(mapper.readTree("{\"a\": {\"b\": \"x\"}, \"c\": 1}")), errors.getErrors());
+    }
+
+    @Test
+    public void getValidationTimeNanos_shouldOnlyAddUpTime_whenTimed() throws Exception {
+        ValidatingJsonParser untimed = new ValidatingJsonParser(jsonFactory.createJsonParser("{\"a\": {\"b\": 1}, \"c\": \"x\"}"), nestedNumberSchema(), new ErrorCollector());
+        ValidatingJsonParser timed = new ValidatingJsonParser(jsonFactory.createJsonParser("{\"a\": {\"b\": 1}, \"c\": \"x\"}"), nestedNumberSchema(), new ErrorCollector());
+        timed.setTimed(true);
+
+        untimed.finish();
+        timed.finish();
+
+        assertEquals(0L, untimed.getValidationTimeNanos());
+        assertTrue(timed.getValidationTimeNanos() > 0L);
+    }
+}
@@ -3,6 +3,12 @@ package uk.co.o2.json.schema.jaxrs;
 import org.junit.Test;
 
 import java.net.URL;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URLClassLoader;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
 
 import static org.junit.Assert.*;
 
@@ -50,4 +56,43 @@ public class ClasspathSchemaLookupTest {
             assertEquals("Schema " + expectedSchemaLocation + " was not found", e.getMessage());
         }
     }
+
+
+    @Test
+    public void findSchemaURLs_shouldReturnEveryJsonResourceUnderTheDirectoryPrefix() throws Exception {
+        ClasspathSchemaLookup lookup = new ClasspathSchemaLookup();
+
+        List<URL> schemaURLs = lookup.findSchemaURLs("/preload");
+
+        assertEquals(2, schemaURLs.size());
+        assertEquals(lookup.getSchemaURL("preload/customer.json"), schemaURLs.get(0));
+        assertEquals(lookup.getSchemaURL("preload/nested/address.json"), schemaURLs.get(1));
+    }
+
+    @Test
+    public void findSchemaURLs_shouldReturnEveryJsonResourceUnderTheJarPrefix() throws Exception {
+        File jar = File.createTempFile("schemas", ".jar");
+        jar.deleteOnExit();
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            for (String entry : new String[] {"schemas/", "schemas/a.json", "schemas/nested/", "schemas/nested/b.json", "schemas/readme.txt", "other/", "other/c.json"}) {
+                out.putNextEntry(new JarEntry(entry));
+                if (!entry.endsWith("/")) {
+                    out.write("{}".getBytes("UTF-8"));
+                }
+                out.closeEntry();
+            }
+        }
+        URLClassLoader classLoader = new URLClassLoader(new URL[] {jar.toURI().toURL()}, null);
+
+        List<URL> schemaURLs = new ClasspathSchemaLookup().findSchemaURLs("schemas", classLoader);
+
+        assertEquals(2, schemaURLs.size());
+        assertTrue(schemaURLs.get(0).toExternalForm().endsWith("!/schemas/a.json"));
+        assertTrue(schemaURLs.get(1).toExternalForm().endsWith("!/schemas/nested/b.json"));
+    }
+
+    @Test
+    public void findSchemaURLs_shouldReturnNothing_givenAPrefixThatDoesNotExist() throws Exception {
+        assertTrue(new ClasspathSchemaLookup().findSchemaURLs("does-not-exist").isEmpty());
+    }
 }
@@ -12,10 +12,15 @@ import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.lang.annotation.Annotation;
 import java.util.*;
+import uk.co.o2.json.schema.SchemaEventListener;
+import java.net.URL;
 
 import static org.junit.Assert.*;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.*;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.same;
 
 @SuppressWarnings("unchecked")
 public class JsonSchemaProviderTest {
@@ -137,4 +142,85 @@ public class JsonSchemaProviderTest {
             return null;
         }
     } 
+
+
+    @Test
+    public void readFrom_shouldReportNoMoreThanTheMaximumNumberOfErrors_andSayThatValidationStopped() throws Exception {
+        SchemaLookup schemaLookup = mock(SchemaLookup.class);
+        when(schemaLookup.getSchemaURL("someSchema")).thenReturn(this.getClass().getResource("/dummy-class-schema.json"));
+
+        final List<ErrorMessage> reportedErrors = new ArrayList<>();
+        JsonSchemaProvider provider = new JsonSchemaProvider(schemaLookup) {
+            @Override
+            protected Response generateErrorMessage(List<ErrorMessage> validationErrors) {
+                reportedErrors.addAll(validationErrors);
+                return super.generateErrorMessage(validationErrors);
+            }
+        };
+        provider.setMaxErrors(2);
+
+        InputStream inputStream = new ByteArrayInputStream("{\"name\": 1, \"a\": 1, \"b\": 2, \"c\": 3}".getBytes("UTF-8"));
+        Annotation[] annotations = DummyClass.class.getMethod("schemaAnnotation", String.class).getParameterAnnotations()[0];
+
+        try {
+            provider.readFrom((Class) DummyClass.class, DummyClass.class, annotations, MediaType.APPLICATION_JSON_TYPE, new DummyMultiValueMap<String, String>(), inputStream);
+            fail("should have thrown a validation exception");
+        } catch(WebApplicationException e) {
+            assertEquals(3, reportedErrors.size());
+            assertEquals("Validation stopped after 2 errors", reportedErrors.get(2).getMessage());
+        }
+    }
+
+    @Test
+    public void readFrom_shouldTellTheEventListenerAboutTheValidatedDocument() throws Exception {
+        SchemaLookup schemaLookup = mock(SchemaLookup.class);
+        URL schemaLocation = this.getClass().getResource("/dummy-class-schema.json");
+        when(schemaLookup.getSchemaURL("someSchema")).thenReturn(schemaLocation);
+        JsonSchemaProvider provider = new JsonSchemaProvider(schemaLookup);
+        SchemaEventListener listener = mock(SchemaEventListener.class);
+        provider.setEventListener(listener);
+        String document = "{\"name\": \"fred\", \"location\": \"Delaware\"}";
+        Annotation[] annotations = DummyClass.class.getMethod("schemaAnnotation", String.class).getParameterAnnotations()[0];
+
+        try {
+            provider.readFrom((Class) DummyClass.class, DummyClass.class, annotations, MediaType.APPLICATION_JSON_TYPE, new DummyMultiValueMap<String, String>(), new ByteArrayInputStream(document.getBytes("UTF-8")));
+            fail("should have thrown a validation exception");
+        } catch (WebApplicationException e) {
+            verify(listener).schemaLookedUp(schemaLocation, false);
+            verify(listener).documentValidated(same(schemaLocation), anyLong(), eq((long) document.length()), eq(1));
+        }
+    }
+
+    @Test
+    public void readFrom_shouldRejectAnEmptyBodyWithAClearError() throws Exception {
+        SchemaLookup schemaLookup = mock(SchemaLookup.class);
+        when(schemaLookup.getSchemaURL("someSchema")).thenReturn(this.getClass().getResource("/dummy-class-schema.json"));
+        JsonSchemaProvider provider = new JsonSchemaProvider(schemaLookup);
+        Annotation[] annotations = DummyClass.class.getMethod("schemaAnnotation", String.class).getParameterAnnotations()[0];
+
+        try {
+            provider.readFrom((Class) DummyClass.class, DummyClass.class, annotations, MediaType.APPLICATION_JSON_TYPE, new DummyMultiValueMap<String, String>(), new ByteArrayInputStream(new byte[0]));
+            fail("should have thrown a validation exception");
+        } catch (WebApplicationException e) {
+            assertEquals(400, e.getResponse().getStatus());
+            assertEquals(": The request body is empty\n", e.getResponse().getEntity());
+        }
+    }
+
+    @Test
+    public void readFrom_shouldReportTheValidationErrors_whenTheBodyCannotBeBoundEither() throws Exception {
+        SchemaLookup schemaLookup = mock(SchemaLookup.class);
+        when(schemaLookup.getSchemaURL("someSchema")).thenReturn(this.getClass().getResource("/dummy-class-schema.json"));
+        JsonSchemaProvider provider = new JsonSchemaProvider(schemaLookup);
+        InputStream inputStream = new ByteArrayInputStream("{\"location\": \"Delaware\", \"name\": 7}".getBytes("UTF-8"));
+        Annotation[] annotations = DummyClass.class.getMethod("schemaAnnotation", String.class).getParameterAnnotations()[0];
+
+        try {
+            provider.readFrom((Class) DummyClass.class, DummyClass.class, annotations, MediaType.APPLICATION_JSON_TYPE, new DummyMultiValueMap<String, String>(), inputStream);
+            fail("should have thrown a validation exception");
+        } catch (WebApplicationException e) {
+            assertEquals(400, e.getResponse().getStatus());
+            assertEquals("name: Invalid type: must be of type string\nlocation: Unexpected property\n", e.getResponse().getEntity());
+        }
+    }
 }